@@ -0,0 +1,153 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.manifest.ArtifactHashIndex;
+import org.renegadesecurity.tools.artifactcurator.manifest.ManifestReader;
+
+/**
+ * Measures how much heap the expected hashes of a manifest take up once loaded, in an
+ * {@link ArtifactHashIndex} and in the map of path strings to hexadecimal hash strings that it
+ * replaced.
+ *
+ * <p>The score of interest is the secondary {@code retainedBytesPerEntry} result: the growth of the
+ * heap, after a full collection, while the loaded structure is still reachable. The time it took is
+ * reported as well, but includes the collections. A serial collector is used so that the used heap
+ * after {@link System#gc()} is exact, and there is only one measurement because JMH adds up
+ * secondary results across iterations (the footprint is the same every time anyway). The heap is
+ * large enough for the map of five million rows.</p>
+ *
+ * <p>Like a real Maven repository, the manifest lists four files in each version directory, which
+ * the index stores only once.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 1, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-XX:+UseSerialGC" })
+public class ArtifactHashIndexFootprintBenchmark {
+  @Param({ "map", "index" })
+  public String structure;
+
+  @Param({ "1000000", "5000000" })
+  public int rowCount;
+
+  private File directory;
+  private File manifestFile;
+
+  /**
+   * The footprint of the structure loaded by the last call to the benchmark, reported by JMH next
+   * to its time.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public long retainedBytesPerEntry;
+  }
+
+  @Setup
+  public void createManifest()
+  throws IOException {
+    this.directory    = BenchmarkFiles.createTempDirectory();
+    this.manifestFile = BenchmarkFiles.createManifest(this.directory, this.rowCount, 4);
+  }
+
+  @TearDown
+  public void deleteManifest()
+  throws IOException {
+    BenchmarkFiles.deleteDirectory(this.directory);
+  }
+
+  @Benchmark
+  public Object loadManifest(Footprint footprint)
+  throws IOException {
+    final long    heapBefore  = usedHeapAfterCollection();
+    final Object  loaded      =
+      this.structure.equals("map") ? this.loadMap() : this.loadIndex();
+    final long    heapAfter   = usedHeapAfterCollection();
+
+    footprint.retainedBytesPerEntry = (heapAfter - heapBefore) / this.rowCount;
+
+    return loaded;
+  }
+
+  /**
+   * Loads the manifest the way {@code ArtifactCurator} did before it had an index.
+   */
+  private Map<String, String> loadMap()
+  throws IOException {
+    final Map<String, String> hashes = new HashMap<>();
+
+    new ManifestReader(this.manifestFile).read((entry) -> {
+      hashes.put(entry.getFileName(), entry.getNormalizedHashes());
+    });
+
+    return hashes;
+  }
+
+  private ArtifactHashIndex loadIndex()
+  throws IOException {
+    final ManifestReader    manifestReader  = new ManifestReader(this.manifestFile);
+    final ArtifactHashIndex hashes          =
+      new ArtifactHashIndex(manifestReader.readAlgorithms());
+
+    manifestReader.read((entry) -> {
+      final DigestSet entryHashes = entry.parseDigests();
+
+      if (entryHashes != null) {
+        hashes.add(entry.getFileName(), entryHashes);
+      }
+    });
+
+    hashes.trimToSize();
+
+    return hashes;
+  }
+
+  private static long usedHeapAfterCollection() {
+    final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    // A second collection picks up anything that was only finalizable during the first.
+    System.gc();
+    System.gc();
+
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
@@ -0,0 +1,153 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Compares the results of a benchmark run against a baseline, both in the CSV format that JMH
+ * writes with {@code -rf csv}.
+ *
+ * <p>Each benchmark (with each combination of its parameters) is listed with its score in both
+ * files and the change between them. A change counts as a regression if the score got worse by
+ * more than the threshold <em>and</em> by more than the errors of both scores combined, so that
+ * noise alone is not reported. The exit code is {@code 1} if anything regressed.</p>
+ *
+ * <p>Lines that start with {@code #} are ignored, so that a baseline can note the machine and JDK
+ * that it was recorded on.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class BaselineComparison {
+  private static final String COLUMN_BENCHMARK = "Benchmark";
+  private static final String COLUMN_MODE = "Mode";
+  private static final String COLUMN_SCORE = "Score";
+  private static final String COLUMN_ERROR = "Score Error (99.9%)";
+  private static final String COLUMN_UNIT = "Unit";
+  private static final String PARAM_PREFIX = "Param: ";
+
+  /**
+   * How much worse a score must get to count as a regression, by default.
+   */
+  private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+  public static void main(String[] args)
+  throws IOException {
+    if ((args.length < 2) || (args.length > 3)) {
+      System.err.printf(
+        "Usage: java %s <baseline csv> <results csv> [threshold percent]\n",
+        BaselineComparison.class.getName());
+      System.exit(2);
+    }
+
+    final Map<String, CSVRecord>  baseline  = readResults(new File(args[0])),
+                                  results   = readResults(new File(args[1]));
+    final double                  threshold =
+      (args.length == 3) ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+    int                           regressions = 0;
+
+    for (Map.Entry<String, CSVRecord> result : results.entrySet()) {
+      final CSVRecord baselineRecord  = baseline.get(result.getKey()),
+                      resultRecord    = result.getValue();
+
+      if (baselineRecord == null) {
+        System.out.printf("%-70s %14s  (not in baseline)\n", result.getKey(), format(resultRecord));
+      }
+      else if (!baselineRecord.get(COLUMN_UNIT).equals(resultRecord.get(COLUMN_UNIT))) {
+        System.out.printf("%-70s  (units differ from baseline)\n", result.getKey());
+      }
+      else {
+        final double  baselineScore = parseScore(baselineRecord.get(COLUMN_SCORE)),
+                      resultScore   = parseScore(resultRecord.get(COLUMN_SCORE)),
+                      noise         = parseScore(baselineRecord.get(COLUMN_ERROR))
+                                      + parseScore(resultRecord.get(COLUMN_ERROR));
+        final boolean higherIsBetter  = resultRecord.get(COLUMN_MODE).equals("thrpt");
+        final double  change          = ((resultScore - baselineScore) * 100) / baselineScore,
+                      worsening       = higherIsBetter ? -change : change;
+        final boolean regressed       =
+          (worsening > threshold) && (Math.abs(resultScore - baselineScore) > noise);
+
+        System.out.printf(
+          "%-70s %14s -> %14s  %+7.1f%%%s\n",
+          result.getKey(),
+          format(baselineRecord),
+          format(resultRecord),
+          change,
+          regressed ? "  REGRESSION" : "");
+
+        if (regressed) {
+          ++regressions;
+        }
+      }
+    }
+
+    if (regressions > 0) {
+      System.out.printf(
+        "\n%d benchmark(s) regressed by more than %.0f%%.\n", regressions, threshold);
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Reads a results file, keyed by the name of each benchmark and the values of its parameters.
+   */
+  private static Map<String, CSVRecord> readResults(File resultsFile)
+  throws IOException {
+    final Map<String, CSVRecord> results = new LinkedHashMap<>();
+
+    try (final Reader     fileReader  = new FileReader(resultsFile);
+         final CSVParser  csvParser   =
+           CSVFormat.DEFAULT.withHeader().withCommentMarker('#').parse(fileReader)) {
+      for (CSVRecord record : csvParser) {
+        final String        benchmark = record.get(COLUMN_BENCHMARK);
+        // Just the class and method; the package is the same for every benchmark.
+        final StringBuilder key       =
+          new StringBuilder(
+            benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+
+        for (String column : csvParser.getHeaderMap().keySet()) {
+          if (column.startsWith(PARAM_PREFIX) && !record.get(column).isEmpty()) {
+            key.append(' ')
+               .append(column.substring(PARAM_PREFIX.length()))
+               .append('=')
+               .append(record.get(column));
+          }
+        }
+
+        results.put(key.toString(), record);
+      }
+    }
+
+    return results;
+  }
+
+  private static double parseScore(String score) {
+    return score.equals("NaN") ? 0 : Double.parseDouble(score);
+  }
+
+  private static String format(CSVRecord record) {
+    return String.format(
+      "%.3f %s", parseScore(record.get(COLUMN_SCORE)), record.get(COLUMN_UNIT));
+  }
+}
@@ -0,0 +1,242 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Synthetic inputs for the benchmarks.
+ *
+ * <p>Everything is generated from a fixed seed, so that each run of a benchmark reads exactly the
+ * same bytes as the runs in the baseline.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+final class BenchmarkFiles {
+  private static final long SEED = 0x5eed;
+
+  /**
+   * The files of each version of an artifact in a Maven repository, in the order they are listed.
+   */
+  private static final String[] MAVEN_SUFFIXES = {
+    ".jar", ".pom", "-sources.jar", "-javadoc.jar"
+  };
+
+  static final String APACHE_HEADER =
+    "/*\n" +
+    " * Copyright 2017 The Apache Software Foundation\n" +
+    " *\n" +
+    " * Licensed under the Apache License, Version 2.0 (the \"License\"); you may not use this\n" +
+    " * file except in compliance with the License. You may obtain a copy of the License at\n" +
+    " *\n" +
+    " *     http://www.apache.org/licenses/LICENSE-2.0\n" +
+    " *\n" +
+    " * Unless required by applicable law or agreed to in writing, software distributed under\n" +
+    " * the License is distributed on an \"AS IS\" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF\n" +
+    " * ANY KIND, either express or implied. See the License for the specific language\n" +
+    " * governing permissions and limitations under the License.\n" +
+    " */\n";
+
+  static final String GPL_HEADER =
+    "/*\n" +
+    " * Copyright (C) 2017 Free Software Foundation, Inc.\n" +
+    " *\n" +
+    " * This program is free software; you can redistribute it and/or modify it under the terms\n" +
+    " * of the GNU General Public License as published by the Free Software Foundation; either\n" +
+    " * version 2 of the License, or (at your option) any later version.\n" +
+    " */\n";
+
+  static final String MIT_HEADER =
+    "/*\n" +
+    " * Copyright (c) 2017 Example Contributors\n" +
+    " *\n" +
+    " * Permission is hereby granted, free of charge, to any person obtaining a copy of this\n" +
+    " * software and associated documentation files (the \"Software\"), to deal in the Software\n" +
+    " * without restriction. The above copyright notice and this permission notice shall be\n" +
+    " * included in all copies or substantial portions of the Software.\n" +
+    " */\n";
+
+  static final String POM_LICENSES =
+    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+    "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+    "  <modelVersion>4.0.0</modelVersion>\n" +
+    "  <groupId>org.example</groupId>\n" +
+    "  <artifactId>example</artifactId>\n" +
+    "  <version>1.0</version>\n" +
+    "  <licenses>\n" +
+    "    <license>\n" +
+    "      <name>Apache License, Version 2.0</name>\n" +
+    "      <url>http://www.apache.org/licenses/LICENSE-2.0.txt</url>\n" +
+    "    </license>\n" +
+    "  </licenses>\n";
+
+  private BenchmarkFiles() {
+  }
+
+  /**
+   * Creates a file of random bytes.
+   */
+  static File createRandomFile(File directory, long size)
+  throws IOException {
+    final File    file    = new File(directory, "random-" + size + ".bin");
+    final Random  random  = new Random(SEED);
+    final byte[]  buffer  = new byte[65536];
+    long          written = 0;
+
+    try (final OutputStream out = new FileOutputStream(file)) {
+      while (written < size) {
+        final int chunkSize = (int)Math.min(buffer.length, size - written);
+
+        random.nextBytes(buffer);
+        out.write(buffer, 0, chunkSize);
+
+        written += chunkSize;
+      }
+    }
+
+    return file;
+  }
+
+  /**
+   * Creates the text of a source file: the header, followed by enough code to fill well over the
+   * lines that are searched for a license.
+   */
+  static String createSource(String header, int index) {
+    final StringBuilder source = new StringBuilder(header);
+
+    source.append("package org.example.generated;\n\n")
+          .append("public class Generated").append(index).append(" {\n");
+
+    for (int method = 0; method < 60; ++method) {
+      source.append("  public int method").append(method).append("(int value) {\n")
+            .append("    return value * ").append(method + index).append(";\n")
+            .append("  }\n\n");
+    }
+
+    return source.append("}\n").toString();
+  }
+
+  /**
+   * Creates a sources JAR of Java files that all carry the same header, plus a top-level license
+   * file and a packaged POM, laid out the way {@code maven-source-plugin} lays them out.
+   */
+  static File createSourcesJar(File directory, int sourceCount, String header)
+  throws IOException {
+    final File      jarFile   = new File(directory, "generated-" + sourceCount + "-sources.jar");
+    final Manifest  manifest  = new Manifest();
+
+    manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+
+    try (final JarOutputStream jar = new JarOutputStream(new FileOutputStream(jarFile), manifest)) {
+      putEntry(jar, "LICENSE.txt", MIT_HEADER);
+      putEntry(jar, "META-INF/maven/org.example/generated/pom.xml", POM_LICENSES + "</project>\n");
+
+      for (int index = 0; index < sourceCount; ++index) {
+        putEntry(
+          jar,
+          String.format("org/example/generated/p%d/Generated%d.java", index % 50, index),
+          createSource(header, index));
+      }
+    }
+
+    return jarFile;
+  }
+
+  /**
+   * Creates a CSV file in the format of {@code forgerock-hashes.csv}, with one SHA1 hash per row
+   * and one artifact per version directory.
+   */
+  static File createManifest(File directory, int rowCount)
+  throws IOException {
+    return createManifest(directory, rowCount, 1);
+  }
+
+  /**
+   * Creates a CSV file in the format of {@code forgerock-hashes.csv}, with one SHA1 hash per row.
+   *
+   * @param filesPerVersion
+   *   How many artifacts to list in each version directory, from one to four: the JAR, then its
+   *   POM, sources JAR and Javadoc JAR, the way they appear in a Maven repository.
+   */
+  static File createManifest(File directory, int rowCount, int filesPerVersion)
+  throws IOException {
+    final File    manifestFile  =
+      new File(directory, "manifest-" + rowCount + "-" + filesPerVersion + ".csv");
+    final Random  random        = new Random(SEED);
+    final byte[]  hash          = new byte[20];
+
+    if ((filesPerVersion < 1) || (filesPerVersion > MAVEN_SUFFIXES.length)) {
+      throw new IllegalArgumentException("filesPerVersion must be between 1 and 4.");
+    }
+
+    try (final BufferedWriter writer =
+           Files.newBufferedWriter(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("Filename,\"SHA1 Hash\"\n");
+
+      for (int row = 0; row < rowCount; ++row) {
+        final int versionRow  = row / filesPerVersion,
+                  group       = versionRow / 1000,
+                  artifact    = (versionRow / 10) % 100,
+                  version     = versionRow % 10;
+
+        random.nextBytes(hash);
+
+        writer.write(
+          String.format(
+            "org/example/group%d/artifact%d/1.%d/artifact%d-1.%d%s,",
+            group, artifact, version, artifact, version,
+            MAVEN_SUFFIXES[row % filesPerVersion]));
+
+        for (byte hashByte : hash) {
+          writer.write(Character.forDigit((hashByte >> 4) & 0xF, 16));
+          writer.write(Character.forDigit(hashByte & 0xF, 16));
+        }
+
+        writer.write('\n');
+      }
+    }
+
+    return manifestFile;
+  }
+
+  static File createTempDirectory()
+  throws IOException {
+    return Files.createTempDirectory("artifact-curator-jmh").toFile();
+  }
+
+  static void deleteDirectory(File directory)
+  throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private static void putEntry(JarOutputStream jar, String name, String contents)
+  throws IOException {
+    jar.putNextEntry(new ZipEntry(name));
+    jar.write(contents.getBytes(StandardCharsets.UTF_8));
+    jar.closeEntry();
+  }
+}
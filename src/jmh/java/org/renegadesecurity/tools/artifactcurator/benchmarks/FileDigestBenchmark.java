@@ -0,0 +1,86 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.renegadesecurity.tools.artifactcurator.Sha1FileDigest;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngine;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngineFactory;
+
+/**
+ * Measures {@link Sha1FileDigest#asBytes()} for each way of reading a file, from a small POM to a
+ * large distribution archive.
+ *
+ * <p>The file is written once per trial and so is in the page cache for every measurement; this
+ * measures the cost of the read path and of SHA1 itself, not of the disk.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileDigestBenchmark {
+  @Param({ "4096", "1048576", "67108864" })
+  public long fileSize;
+
+  @Param({
+    DigestEngineFactory.ENGINE_STREAM,
+    DigestEngineFactory.ENGINE_CHANNEL,
+    DigestEngineFactory.ENGINE_MMAP
+  })
+  public String engine;
+
+  private File directory;
+  private File file;
+  private DigestEngine digestEngine;
+
+  @Setup
+  public void createFile()
+  throws IOException {
+    this.directory    = BenchmarkFiles.createTempDirectory();
+    this.file         = BenchmarkFiles.createRandomFile(this.directory, this.fileSize);
+    this.digestEngine = DigestEngineFactory.getEngine(this.engine);
+  }
+
+  @TearDown
+  public void deleteFile()
+  throws IOException {
+    BenchmarkFiles.deleteDirectory(this.directory);
+  }
+
+  @Benchmark
+  public byte[] sha1()
+  throws IOException {
+    return new Sha1FileDigest(this.file, this.digestEngine).asBytes();
+  }
+}
@@ -0,0 +1,177 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.renegadesecurity.tools.artifactcurator.ArtifactCurator;
+
+/**
+ * Compares how long {@link ArtifactCurator#processArtifacts(String, String, String)} takes over a
+ * {@link SyntheticRepository} with a cold page cache, when artifacts are processed in the order of
+ * the CSV file and when they are processed in {@linkplain ArtifactCurator#isLocalityOrder()
+ * locality order}.
+ *
+ * <p>Usage: {@code LocalityBenchmark <work folder> [--files=<n>] [--rounds=<n>] [options]}. The
+ * repository is generated (or reused) as by {@link ScaleHarness}, and its CSV file is shuffled, so
+ * that the order of the CSV file is as scattered as that of a manifest built from a hash map.
+ * Before every run, the page cache is dropped by running {@code --drop-caches-command} (by
+ * default, writing to {@code /proc/sys/vm/drop_caches}, which needs root). If the cache cannot be
+ * dropped, the runs go ahead anyway, but the results say so, since a warm cache hides most of the
+ * difference.</p>
+ *
+ * <p>The two orders take turns, so that any drift of the machine over time affects both alike.
+ * The difference shows most on spinning disks and network storage; on an SSD, expect little.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class LocalityBenchmark {
+  private static final String DEFAULT_DROP_CACHES_COMMAND =
+    "sync && echo 3 > /proc/sys/vm/drop_caches";
+
+  public static void main(String[] args)
+  throws IOException, InterruptedException {
+    final Map<String, String>   options       = new HashMap<>();
+    final SyntheticRepository   generator     = new SyntheticRepository();
+    final File                  workFolder,
+                                repository,
+                                csvFile,
+                                shuffledCsvFile;
+    final String                dropCachesCommand;
+    final int                   rounds;
+    final double[][]            elapsed;
+    boolean                     cold          = true;
+
+    if ((args.length == 0) || args[0].startsWith("--")) {
+      System.err.printf(
+        "Usage: java %s <work folder> [--files=<n>] [--median-size=<bytes>] [--seed=<n>]\n" +
+        "       [--rounds=<n>] [--io-threads=<n>] [--drop-caches-command=<command>]\n",
+        LocalityBenchmark.class.getName());
+      System.exit(2);
+    }
+
+    for (int argIndex = 1; argIndex < args.length; ++argIndex) {
+      final String[] nameAndValue = args[argIndex].substring(2).split("=", 2);
+
+      options.put(nameAndValue[0], (nameAndValue.length == 1) ? "true" : nameAndValue[1]);
+    }
+
+    generator.setFileCount(Integer.parseInt(options.getOrDefault("files", "10000")));
+    generator.setMedianSize(Long.parseLong(options.getOrDefault("median-size", "16384")));
+    generator.setSeed(Long.parseLong(options.getOrDefault("seed", "24301")));
+
+    workFolder        = new File(args[0]);
+    repository        = new File(workFolder, "repository");
+    csvFile           = new File(workFolder, "hashes.csv");
+    shuffledCsvFile   = new File(workFolder, "hashes-shuffled.csv");
+    dropCachesCommand = options.getOrDefault("drop-caches-command", DEFAULT_DROP_CACHES_COMMAND);
+    rounds            = Integer.parseInt(options.getOrDefault("rounds", "3"));
+    elapsed           = new double[2][rounds];
+
+    ScaleHarness.prepareRepository(generator, workFolder, repository, csvFile);
+    shuffleCsvFile(csvFile, shuffledCsvFile, generator.getSeed());
+
+    for (int round = 0; round < rounds; ++round) {
+      for (int order = 0; order < 2; ++order) {
+        final ArtifactCurator curator       = new ArtifactCurator();
+        final File            targetFolder  = new File(workFolder, "target");
+        final long            startTime;
+
+        FileUtils.deleteDirectory(targetFolder);
+
+        if (options.containsKey("io-threads")) {
+          curator.setIoThreads(Integer.parseInt(options.get("io-threads")));
+        }
+
+        curator.setLocalityOrder(order == 1);
+        curator.setOutputFile(new File(workFolder, "results.csv"));
+
+        cold &= dropCaches(dropCachesCommand);
+
+        startTime = System.nanoTime();
+
+        curator.processArtifacts(
+          shuffledCsvFile.getPath(), repository.getPath(), targetFolder.getPath());
+
+        elapsed[order][round] = (System.nanoTime() - startTime) / 1e9;
+
+        System.err.printf(
+          "Round %d, %s order: %.2f s\n",
+          round + 1, (order == 1) ? "locality" : "CSV", elapsed[order][round]);
+      }
+    }
+
+    System.out.printf("Settings:       %s rounds=%d\n", generator.describe(), rounds);
+    System.out.printf(
+      "Page cache:     %s\n",
+      cold ? "dropped before every run" : "NOT dropped (results reflect a warm cache)");
+    System.out.printf("CSV order:      median %.2f s\n", median(elapsed[0]));
+    System.out.printf("Locality order: median %.2f s\n", median(elapsed[1]));
+    System.out.printf("Speed-up:       %.2fx\n", median(elapsed[0]) / median(elapsed[1]));
+  }
+
+  /**
+   * Writes a copy of the CSV file with its rows in a random (but repeatable) order.
+   */
+  private static void shuffleCsvFile(File csvFile, File shuffledCsvFile, long seed)
+  throws IOException {
+    final List<String> lines  = Files.readAllLines(csvFile.toPath(), StandardCharsets.UTF_8);
+    final List<String> rows   = new ArrayList<>(lines.subList(1, lines.size()));
+
+    Collections.shuffle(rows, new Random(seed));
+    rows.add(0, lines.get(0));
+
+    Files.write(shuffledCsvFile.toPath(), rows, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Drops the page cache of the operating system.
+   *
+   * @return
+   *   {@code true} if the cache was dropped.
+   */
+  private static boolean dropCaches(String dropCachesCommand)
+  throws IOException, InterruptedException {
+    final Process process =
+      new ProcessBuilder(Arrays.asList("sh", "-c", dropCachesCommand))
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+        .start();
+
+    return process.waitFor() == 0;
+  }
+
+  private static double median(double[] values) {
+    final double[] sortedValues = values.clone();
+
+    Arrays.sort(sortedValues);
+
+    return (sortedValues.length % 2 == 1)
+           ? sortedValues[sortedValues.length / 2]
+           : (sortedValues[(sortedValues.length / 2) - 1] + sortedValues[sortedValues.length / 2])
+             / 2;
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.manifest.ArtifactHashIndex;
+import org.renegadesecurity.tools.artifactcurator.manifest.ManifestReader;
+
+/**
+ * Measures loading a CSV file into an {@link ArtifactHashIndex}, the same way that
+ * {@code ArtifactCurator} does before it processes any artifact.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ManifestBenchmark {
+  @Param({ "100000", "1000000" })
+  public int rowCount;
+
+  private File directory;
+  private File manifestFile;
+
+  @Setup
+  public void createManifest()
+  throws IOException {
+    this.directory    = BenchmarkFiles.createTempDirectory();
+    this.manifestFile = BenchmarkFiles.createManifest(this.directory, this.rowCount);
+  }
+
+  @TearDown
+  public void deleteManifest()
+  throws IOException {
+    BenchmarkFiles.deleteDirectory(this.directory);
+  }
+
+  /**
+   * Reads the CSV file the way {@code ArtifactCurator.getArtifactHashes} does (less the reporting
+   * of rejected rows, of which there are none).
+   */
+  @Benchmark
+  public ArtifactHashIndex getArtifactHashes()
+  throws IOException {
+    final ManifestReader    manifestReader  = new ManifestReader(this.manifestFile);
+    final ArtifactHashIndex hashes          =
+      new ArtifactHashIndex(manifestReader.readAlgorithms());
+
+    manifestReader.read((entry) -> {
+      final DigestSet entryHashes = entry.parseDigests();
+
+      if (entryHashes != null) {
+        hashes.add(entry.getFileName(), entryHashes);
+      }
+    });
+
+    hashes.trimToSize();
+
+    return hashes;
+  }
+}
@@ -0,0 +1,275 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.io.FileUtils;
+import org.renegadesecurity.tools.artifactcurator.ArtifactCurator;
+import org.renegadesecurity.tools.artifactcurator.benchmarks.SyntheticRepository.Expectation;
+import org.renegadesecurity.tools.artifactcurator.metrics.ProgressReporter;
+import org.renegadesecurity.tools.artifactcurator.metrics.RunMetrics;
+
+/**
+ * Runs {@link ArtifactCurator#processArtifacts(String, String, String)} end to end over a
+ * {@link SyntheticRepository}, and reports its throughput, its peak heap usage, and whether every
+ * artifact got the status it should have.
+ *
+ * <p>Usage: {@code ScaleHarness <work folder> [--files=<n>] [options]}. The repository and its
+ * CSV file are generated into the work folder, and are kept there for later runs with the same
+ * settings, since generating a million files takes far longer than curating them. Everything
+ * runs offline.</p>
+ *
+ * <p>The peak heap is the sum of the peak usage of each heap pool, and so an upper bound: the
+ * pools need not all have peaked at once. Run with the {@code -Xmx} of the machine being sized.
+ * </p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ScaleHarness {
+  private static final String STAMP_SETTINGS = "settings";
+  private static final String STAMP_EXPECTATION = "expectation";
+
+  public static void main(String[] args)
+  throws IOException {
+    final Map<String, String>   options     = new HashMap<>();
+    final SyntheticRepository   generator   = new SyntheticRepository();
+    final ArtifactCurator       curator     = new ArtifactCurator();
+    final File                  workFolder,
+                                repository,
+                                csvFile,
+                                targetFolder,
+                                resultsFile;
+    final Expectation           expectation;
+    final RunMetrics            metrics;
+    final ProgressReporter      progressReporter;
+    final Map<String, Long>     statuses;
+    final long                  progressInterval,
+                                startTime,
+                                elapsedNanos;
+    final double                elapsed;
+    final boolean               passed;
+
+    if ((args.length == 0) || args[0].startsWith("--")) {
+      System.err.printf(
+        "Usage: java %s <work folder> [--files=<n>] [--median-size=<bytes>] " +
+        "[--max-size=<bytes>]\n" +
+        "       [--size-spread=<sigma>] [--sources-share=<0..1>] [--corrupt-share=<0..1>]\n" +
+        "       [--missing-share=<0..1>] [--seed=<n>] [--io-threads=<n>] [--cpu-threads=<n>]\n" +
+        "       [--single-pass] [--progress-interval=<seconds>]\n",
+        ScaleHarness.class.getName());
+      System.exit(2);
+    }
+
+    for (int argIndex = 1; argIndex < args.length; ++argIndex) {
+      final String[] nameAndValue = args[argIndex].substring(2).split("=", 2);
+
+      options.put(nameAndValue[0], (nameAndValue.length == 1) ? "true" : nameAndValue[1]);
+    }
+
+    generator.setFileCount(Integer.parseInt(options.getOrDefault("files", "10000")));
+    generator.setMedianSize(Long.parseLong(options.getOrDefault("median-size", "16384")));
+    generator.setMaxSize(Long.parseLong(options.getOrDefault("max-size", "16777216")));
+    generator.setSizeSpread(Double.parseDouble(options.getOrDefault("size-spread", "1.2")));
+    generator.setSourcesShare(Double.parseDouble(options.getOrDefault("sources-share", "0.3")));
+    generator.setCorruptShare(Double.parseDouble(options.getOrDefault("corrupt-share", "0.01")));
+    generator.setMissingShare(Double.parseDouble(options.getOrDefault("missing-share", "0.01")));
+    generator.setSeed(Long.parseLong(options.getOrDefault("seed", "24301")));
+
+    workFolder    = new File(args[0]);
+    repository    = new File(workFolder, "repository");
+    csvFile       = new File(workFolder, "hashes.csv");
+    targetFolder  = new File(workFolder, "target");
+    resultsFile   = new File(workFolder, "results.csv");
+    expectation   = prepareRepository(generator, workFolder, repository, csvFile);
+
+    FileUtils.deleteDirectory(targetFolder);
+
+    if (options.containsKey("io-threads")) {
+      curator.setIoThreads(Integer.parseInt(options.get("io-threads")));
+    }
+
+    if (options.containsKey("cpu-threads")) {
+      curator.setCpuThreads(Integer.parseInt(options.get("cpu-threads")));
+    }
+
+    curator.setSinglePass(Boolean.parseBoolean(options.get("single-pass")));
+    curator.setOutputFile(resultsFile);
+
+    progressInterval = Long.parseLong(options.getOrDefault("progress-interval", "10"));
+
+    System.gc();
+    resetPeakHeap();
+
+    // Created last, so that generating the repository does not count towards the rates.
+    metrics   = new RunMetrics();
+    startTime = System.nanoTime();
+
+    curator.setMetrics(metrics);
+
+    progressReporter =
+      (progressInterval > 0) ? new ProgressReporter(metrics, progressInterval, System.err) : null;
+
+    try {
+      curator.processArtifacts(
+        csvFile.getPath(), repository.getPath(), targetFolder.getPath());
+    }
+    finally {
+      if (progressReporter != null) {
+        progressReporter.close();
+      }
+    }
+
+    elapsedNanos  = System.nanoTime() - startTime;
+    elapsed       = elapsedNanos / 1e9;
+    statuses      = countStatuses(resultsFile);
+
+    passed =
+      (statuses.getOrDefault("success", 0L) == expectation.getVerified())
+      && (statuses.getOrDefault("mismatch", 0L) == expectation.getCorrupt())
+      && (statuses.getOrDefault("does not exist", 0L) == expectation.getMissing())
+      && (statuses.size() == countNonZero(expectation));
+
+    System.out.printf("Settings:     %s\n", generator.describe());
+    System.out.printf("Elapsed:      %.2f s\n", elapsed);
+    System.out.printf(
+      "Throughput:   %.1f files/s, %.1f MB/s\n",
+      generator.getFileCount() / elapsed,
+      expectation.getBytes() / elapsed / (1024 * 1024));
+    System.out.printf("Peak heap:    %.1f MB\n", getPeakHeap() / (1024.0 * 1024));
+    System.out.printf("Expected:     %s\n", expectation);
+    System.out.printf("Statuses:     %s\n", new TreeMap<>(statuses));
+    System.out.printf("Correctness:  %s\n", passed ? "PASS" : "FAIL");
+    System.out.printf("Metrics:      %s\n", metrics.toJson());
+
+    if (!passed) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Generates the repository, unless the work folder already holds one that was generated with
+   * the same settings.
+   */
+  static Expectation prepareRepository(SyntheticRepository generator, File workFolder,
+                                        File repository, File csvFile)
+  throws IOException {
+    final File        stampFile   = new File(workFolder, "repository.properties");
+    final Properties  stamp       = new Properties();
+    final Expectation expectation;
+
+    if (stampFile.isFile()) {
+      try (final Reader stampReader = new FileReader(stampFile)) {
+        stamp.load(stampReader);
+      }
+    }
+
+    if (generator.describe().equals(stamp.getProperty(STAMP_SETTINGS))
+        && repository.isDirectory() && csvFile.isFile()) {
+      System.err.printf("Reusing the repository in `%s`.\n", repository);
+
+      expectation = Expectation.parse(stamp.getProperty(STAMP_EXPECTATION));
+    }
+    else {
+      final long startTime = System.nanoTime();
+
+      System.err.printf("Generating a repository of %,d files in `%s`...\n",
+                        generator.getFileCount(), repository);
+
+      FileUtils.deleteDirectory(repository);
+      Files.createDirectories(repository.toPath());
+
+      stampFile.delete();
+
+      expectation = generator.generate(repository, csvFile);
+
+      stamp.setProperty(STAMP_SETTINGS, generator.describe());
+      stamp.setProperty(STAMP_EXPECTATION, expectation.toString());
+
+      try (final Writer stampWriter = new FileWriter(stampFile)) {
+        stamp.store(stampWriter, "Generated by " + ScaleHarness.class.getSimpleName());
+      }
+
+      System.err.printf(
+        "Generated %s in %.1f s.\n", expectation, (System.nanoTime() - startTime) / 1e9);
+    }
+
+    return expectation;
+  }
+
+  private static Map<String, Long> countStatuses(File resultsFile)
+  throws IOException {
+    final Map<String, Long> statuses = new HashMap<>();
+
+    try (final Reader     fileReader  = new FileReader(resultsFile);
+         final CSVParser  csvParser   = CSVFormat.DEFAULT.withHeader().parse(fileReader)) {
+      for (CSVRecord record : csvParser) {
+        statuses.merge(record.get("Status"), 1L, Long::sum);
+      }
+    }
+
+    return statuses;
+  }
+
+  private static int countNonZero(Expectation expectation) {
+    int count = 0;
+
+    for (long value :
+           new long[] { expectation.getVerified(), expectation.getCorrupt(),
+                        expectation.getMissing() }) {
+      if (value > 0) {
+        ++count;
+      }
+    }
+
+    return count;
+  }
+
+  private static void resetPeakHeap() {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  private static long getPeakHeap() {
+    long peak = 0;
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+
+    return peak;
+  }
+}
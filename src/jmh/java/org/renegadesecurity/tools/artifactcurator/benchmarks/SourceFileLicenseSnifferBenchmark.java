@@ -0,0 +1,145 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.renegadesecurity.tools.artifactcurator.licensing.LicenseMatcher;
+import org.renegadesecurity.tools.artifactcurator.licensing.LicenseSniffer;
+import org.renegadesecurity.tools.artifactcurator.licensing.SourceFileLicenseSniffer;
+
+/**
+ * Measures {@link SourceFileLicenseSniffer#determineLicenseOf(java.io.InputStream)} on the headers
+ * that turn up most often in sources JARs.
+ *
+ * <p>The cases cover each path through the matcher: a header whose anchor and pattern both match
+ * ({@code gpl}, {@code mit}, {@code pom}); a header whose anchor matches but whose pattern does
+ * not, since the Apache pattern only recognises POMs ({@code apache}); and a file that mentions no
+ * license at all ({@code none}), which is the most common case by far.</p>
+ *
+ * <p>Each case is run both with the {@link LicenseMatcher} that the sniffer uses, which scans the
+ * header once for the literal anchors of every pattern and only runs the patterns whose anchors
+ * occur ({@code prefilter}), and by trying every pattern in turn, as the sniffer did before
+ * ({@code regex}).</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceFileLicenseSnifferBenchmark {
+  @Param({ "apache", "gpl", "mit", "pom", "none" })
+  public String header;
+
+  @Param({ "prefilter", "regex" })
+  public String matcher;
+
+  private final SourceFileLicenseSniffer sniffer = new SourceFileLicenseSniffer();
+  private byte[] source;
+
+  @Setup
+  public void createSource() {
+    final String text;
+
+    switch (this.header) {
+      case "apache":
+        text = BenchmarkFiles.createSource(BenchmarkFiles.APACHE_HEADER, 0);
+        break;
+
+      case "gpl":
+        text = BenchmarkFiles.createSource(BenchmarkFiles.GPL_HEADER, 0);
+        break;
+
+      case "mit":
+        text = BenchmarkFiles.createSource(BenchmarkFiles.MIT_HEADER, 0);
+        break;
+
+      case "pom":
+        text = BenchmarkFiles.POM_LICENSES + "</project>\n";
+        break;
+
+      default:
+        text = BenchmarkFiles.createSource("", 0);
+        break;
+    }
+
+    this.source = text.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public String determineLicense()
+  throws IOException {
+    final InputStream sourceStream = new ByteArrayInputStream(this.source);
+
+    return this.matcher.equals("regex")
+      ? determineLicenseWithRegexes(sourceStream)
+      : this.sniffer.determineLicenseOf(sourceStream);
+  }
+
+  /**
+   * Determines the license of a source file the way {@link SourceFileLicenseSniffer} did before it
+   * had a {@link LicenseMatcher}: by reading the header the same way, and then trying every pattern
+   * in priority order.
+   */
+  private static String determineLicenseWithRegexes(InputStream sourceStream)
+  throws IOException {
+    final StringBuilder sourceLines = new StringBuilder();
+
+    try (final BufferedReader lineReader =
+           new BufferedReader(new InputStreamReader(sourceStream))) {
+      String  currentLine;
+      int     lineIndex = 0;
+
+      while ((currentLine = lineReader.readLine()) != null) {
+        sourceLines.append(currentLine);
+
+        if (++lineIndex == SourceFileLicenseSniffer.HEADER_LICENSE_LINE_SEARCH_LIMIT) {
+          break;
+        }
+      }
+    }
+
+    for (Map.Entry<String, Pattern> licensePattern
+         : SourceFileLicenseSniffer.LICENSE_PATTERNS.entrySet()) {
+      if (licensePattern.getValue().matcher(sourceLines).find()) {
+        return licensePattern.getKey();
+      }
+    }
+
+    return LicenseSniffer.LICENSE_UNKNOWN;
+  }
+}
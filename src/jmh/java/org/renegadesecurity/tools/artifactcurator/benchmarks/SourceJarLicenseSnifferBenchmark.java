@@ -0,0 +1,87 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.renegadesecurity.tools.artifactcurator.licensing.JarScanPolicy;
+import org.renegadesecurity.tools.artifactcurator.licensing.SourceJarLicenseSniffer;
+
+/**
+ * Measures {@link SourceJarLicenseSniffer} on synthetic sources JARs, both reading every file
+ * (as by default) and stopping once a few files agree (as with {@code --license-agreeing-files}).
+ *
+ * <p>Every JAR is read on the benchmark thread, since the sniffer is not given an executor to start
+ * helper threads on.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SourceJarLicenseSnifferBenchmark {
+  @Param({ "200", "5000" })
+  public int sourceCount;
+
+  @Param({ "exhaustive", "agreeing" })
+  public String policy;
+
+  private File directory;
+  private File jarFile;
+  private JarScanPolicy scanPolicy;
+
+  @Setup
+  public void createJar()
+  throws IOException {
+    this.directory  = BenchmarkFiles.createTempDirectory();
+    this.jarFile    =
+      BenchmarkFiles.createSourcesJar(this.directory, this.sourceCount, BenchmarkFiles.MIT_HEADER);
+
+    if (this.policy.equals("agreeing")) {
+      this.scanPolicy = new JarScanPolicy(3, false, JarScanPolicy.DEFAULT_PARALLEL_THRESHOLD);
+    }
+    else {
+      this.scanPolicy = JarScanPolicy.EXHAUSTIVE;
+    }
+  }
+
+  @TearDown
+  public void deleteJar()
+  throws IOException {
+    BenchmarkFiles.deleteDirectory(this.directory);
+  }
+
+  @Benchmark
+  public String determineLicense() {
+    return new SourceJarLicenseSniffer(this.jarFile, this.scanPolicy).determineLicense();
+  }
+}
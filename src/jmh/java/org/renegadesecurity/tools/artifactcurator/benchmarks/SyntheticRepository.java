@@ -0,0 +1,503 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import org.apache.commons.io.output.NullOutputStream;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+
+/**
+ * Generates a fake local Maven repository (a {@code ~/.m2/repository}), along with the CSV file
+ * of the hashes of its artifacts, for end-to-end testing at scale.
+ *
+ * <p>The repository is laid out the way Maven lays it out: one directory per version of each
+ * artifact, holding a POM, a binary JAR, and (for some share of artifacts) a sources JAR. Binary
+ * JARs hold random, incompressible "classes" and have no license of their own, so that their
+ * license is resolved from the POM next to them; sources JARs hold Java files with a license
+ * header. The sizes of binary JARs follow a log-normal distribution, as the sizes of real
+ * artifacts do: most are small, and a few are very large.</p>
+ *
+ * <p>Some share of the files can be <em>corrupted</em> (a byte is changed after the file is
+ * hashed, so it fails verification) or <em>missing</em> (the file is listed in the CSV file but
+ * never written). The generator counts how many files of each kind it wrote, so that the results
+ * of a run can be checked.</p>
+ *
+ * <p>Generation is deterministic: the same settings and seed always produce the same bytes.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class SyntheticRepository {
+  /**
+   * The size of each entry of a binary JAR, roughly that of a typical class file.
+   */
+  private static final int CLASS_ENTRY_SIZE = 4096;
+
+  /**
+   * The number of versions of each artifact, and of artifacts in each group.
+   */
+  private static final int VERSIONS_PER_ARTIFACT = 5,
+                           ARTIFACTS_PER_GROUP   = 20;
+
+  private int fileCount = 10000;
+  private long medianSize = 16384;
+  private long maxSize = 16L * 1024 * 1024;
+  private double sizeSpread = 1.2;
+  private double sourcesShare = 0.3;
+  private double corruptShare = 0.01;
+  private double missingShare = 0.01;
+  private long seed = 0x5eed;
+
+  /**
+   * Gets how many files the CSV file lists (including missing files).
+   *
+   * @return
+   *   The number of files.
+   */
+  public int getFileCount() {
+    return this.fileCount;
+  }
+
+  public void setFileCount(int fileCount) {
+    if (fileCount <= 0) {
+      throw new IllegalArgumentException("fileCount must be greater than zero.");
+    }
+
+    this.fileCount = fileCount;
+  }
+
+  /**
+   * Gets the median size of binary JARs.
+   *
+   * @return
+   *   The median size, in bytes.
+   */
+  public long getMedianSize() {
+    return this.medianSize;
+  }
+
+  public void setMedianSize(long medianSize) {
+    if (medianSize <= 0) {
+      throw new IllegalArgumentException("medianSize must be greater than zero.");
+    }
+
+    this.medianSize = medianSize;
+  }
+
+  /**
+   * Gets the size above which no binary JAR grows, however far out in the tail it falls.
+   *
+   * @return
+   *   The maximum size, in bytes.
+   */
+  public long getMaxSize() {
+    return this.maxSize;
+  }
+
+  public void setMaxSize(long maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("maxSize must be greater than zero.");
+    }
+
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Gets the spread of the sizes of binary JARs.
+   *
+   * @return
+   *   The standard deviation of the natural logarithm of the sizes; {@code 0} makes every binary
+   *   JAR the median size.
+   */
+  public double getSizeSpread() {
+    return this.sizeSpread;
+  }
+
+  public void setSizeSpread(double sizeSpread) {
+    if (sizeSpread < 0) {
+      throw new IllegalArgumentException("sizeSpread cannot be negative.");
+    }
+
+    this.sizeSpread = sizeSpread;
+  }
+
+  public double getSourcesShare() {
+    return this.sourcesShare;
+  }
+
+  public void setSourcesShare(double sourcesShare) {
+    this.sourcesShare = checkShare("sourcesShare", sourcesShare);
+  }
+
+  public double getCorruptShare() {
+    return this.corruptShare;
+  }
+
+  public void setCorruptShare(double corruptShare) {
+    this.corruptShare = checkShare("corruptShare", corruptShare);
+  }
+
+  public double getMissingShare() {
+    return this.missingShare;
+  }
+
+  public void setMissingShare(double missingShare) {
+    this.missingShare = checkShare("missingShare", missingShare);
+  }
+
+  public long getSeed() {
+    return this.seed;
+  }
+
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+
+  /**
+   * Describes the settings, in a form that changes whenever the generated files would.
+   *
+   * @return
+   *   The settings, as a single line.
+   */
+  public String describe() {
+    return String.format(
+      "files=%d medianSize=%d maxSize=%d sizeSpread=%s sourcesShare=%s corruptShare=%s " +
+      "missingShare=%s seed=%d",
+      this.getFileCount(), this.getMedianSize(), this.getMaxSize(), this.getSizeSpread(),
+      this.getSourcesShare(), this.getCorruptShare(), this.getMissingShare(), this.getSeed());
+  }
+
+  /**
+   * Generates the repository and its CSV file.
+   *
+   * @param repositoryFolder
+   *   The folder in which to create the repository; it should be empty.
+   * @param csvFile
+   *   The CSV file to write.
+   * @return
+   *   How many files of each kind were generated.
+   * @throws IOException
+   *   If any file cannot be written.
+   */
+  public Expectation generate(File repositoryFolder, File csvFile)
+  throws IOException {
+    final Random        random        = new Random(this.getSeed());
+    final Expectation   expectation   = new Expectation();
+    final MessageDigest sha1          = HashAlgorithm.SHA1.createDigest();
+    int                 fileIndex     = 0,
+                        versionIndex  = 0;
+
+    try (final BufferedWriter csvWriter =
+           Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8)) {
+      csvWriter.write("Filename,\"SHA1 Hash\"\n");
+
+      while (fileIndex < this.getFileCount()) {
+        final int     artifact    = versionIndex / VERSIONS_PER_ARTIFACT,
+                      group       = artifact / ARTIFACTS_PER_GROUP;
+        final String  artifactId  = "artifact" + artifact,
+                      version     = "1." + (versionIndex % VERSIONS_PER_ARTIFACT),
+                      folder      =
+                        String.format(
+                          "org/example/scale/group%d/%s/%s/", group, artifactId, version),
+                      baseName    = folder + artifactId + "-" + version;
+        final boolean hasSources  = random.nextDouble() < this.getSourcesShare();
+
+        for (int kind = 0; (kind < 3) && (fileIndex < this.getFileCount()); ++kind) {
+          final String fileName;
+
+          if (kind == 0) {
+            fileName = baseName + ".pom";
+          }
+          else if (kind == 1) {
+            fileName = baseName + ".jar";
+          }
+          else if (hasSources) {
+            fileName = baseName + "-sources.jar";
+          }
+          else {
+            break;
+          }
+
+          final File    file      = new File(repositoryFolder, fileName);
+          final double  fate      = random.nextDouble();
+          final boolean missing   = fate < this.getMissingShare(),
+                        corrupt   = !missing && (fate < (this.getMissingShare() +
+                                                         this.getCorruptShare()));
+          final long    fileSeed  = random.nextLong();
+
+          sha1.reset();
+
+          if (missing) {
+            // Hashed, but never written.
+            try (final OutputStream out = new DigestOutputStream(new NullOutputStream(), sha1)) {
+              this.writeFile(out, kind, artifactId, version, fileSeed);
+            }
+
+            expectation.missing++;
+          }
+          else {
+            file.getParentFile().mkdirs();
+
+            try (final OutputStream out =
+                   new DigestOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(file), 65536), sha1)) {
+              this.writeFile(out, kind, artifactId, version, fileSeed);
+            }
+
+            if (corrupt) {
+              corrupt(file);
+              expectation.corrupt++;
+            }
+            else {
+              expectation.verified++;
+            }
+
+            expectation.bytes += file.length();
+          }
+
+          csvWriter.write(fileName);
+          csvWriter.write(',');
+          csvWriter.write(Hex.encode(sha1.digest()));
+          csvWriter.write('\n');
+
+          ++fileIndex;
+        }
+
+        ++versionIndex;
+      }
+    }
+
+    return expectation;
+  }
+
+  private void writeFile(OutputStream out, int kind, String artifactId, String version,
+                         long fileSeed)
+  throws IOException {
+    final Random random = new Random(fileSeed);
+
+    switch (kind) {
+      case 0:
+        out.write(
+          String.format(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+            "  <modelVersion>4.0.0</modelVersion>\n" +
+            "  <groupId>org.example.scale</groupId>\n" +
+            "  <artifactId>%s</artifactId>\n" +
+            "  <version>%s</version>\n" +
+            "  <licenses>\n" +
+            "    <license>\n" +
+            "      <name>Apache License, Version 2.0</name>\n" +
+            "    </license>\n" +
+            "  </licenses>\n" +
+            "</project>\n",
+            artifactId, version).getBytes(StandardCharsets.UTF_8));
+        break;
+
+      case 1:
+        this.writeBinaryJar(out, random);
+        break;
+
+      default:
+        writeSourcesJar(out, random);
+        break;
+    }
+  }
+
+  /**
+   * Writes a binary JAR of random classes, of a size drawn from the size distribution.
+   */
+  private void writeBinaryJar(OutputStream out, Random random)
+  throws IOException {
+    final long    size    =
+      Math.min(
+        this.getMaxSize(),
+        (long)(this.getMedianSize() * Math.exp(random.nextGaussian() * this.getSizeSpread())));
+    final byte[]  entry   = new byte[CLASS_ENTRY_SIZE];
+    long          written = 0;
+
+    try (final JarOutputStream jar = new JarOutputStream(out, newManifest())) {
+      for (int classIndex = 0; written < size; ++classIndex) {
+        random.nextBytes(entry);
+
+        jar.putNextEntry(new ZipEntry(String.format("org/example/scale/C%d.class", classIndex)));
+        jar.write(entry);
+        jar.closeEntry();
+
+        written += entry.length;
+      }
+    }
+  }
+
+  /**
+   * Writes a sources JAR of a few dozen Java files with a license header.
+   */
+  private static void writeSourcesJar(OutputStream out, Random random)
+  throws IOException {
+    final int sourceCount = 10 + random.nextInt(50);
+
+    try (final JarOutputStream jar = new JarOutputStream(out, newManifest())) {
+      for (int sourceIndex = 0; sourceIndex < sourceCount; ++sourceIndex) {
+        jar.putNextEntry(
+          new ZipEntry(String.format("org/example/scale/C%d.java", sourceIndex)));
+        jar.write(
+          BenchmarkFiles.createSource(BenchmarkFiles.MIT_HEADER, sourceIndex)
+            .getBytes(StandardCharsets.UTF_8));
+        jar.closeEntry();
+      }
+    }
+  }
+
+  private static Manifest newManifest() {
+    final Manifest manifest = new Manifest();
+
+    manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+
+    return manifest;
+  }
+
+  /**
+   * Flips every bit of the byte in the middle of a file, so that its size and time stay plausible
+   * but its hash changes.
+   */
+  private static void corrupt(File file)
+  throws IOException {
+    try (final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      final long position = randomAccessFile.length() / 2;
+
+      randomAccessFile.seek(position);
+
+      final int value = randomAccessFile.read();
+
+      randomAccessFile.seek(position);
+      randomAccessFile.write(~value);
+    }
+  }
+
+  private static double checkShare(String name, double share) {
+    if ((share < 0) || (share > 1)) {
+      throw new IllegalArgumentException(name + " must be between 0 and 1.");
+    }
+
+    return share;
+  }
+
+  /**
+   * How many files of each kind a {@link SyntheticRepository} generated, and so how many results
+   * of each status a run over it should have.
+   */
+  public static class Expectation {
+    private long verified;
+    private long corrupt;
+    private long missing;
+    private long bytes;
+
+    /**
+     * Gets the number of files that are intact, and so should be reported as {@code success}.
+     *
+     * @return
+     *   The number of intact files.
+     */
+    public long getVerified() {
+      return this.verified;
+    }
+
+    /**
+     * Gets the number of files that were corrupted, and so should be reported as
+     * {@code mismatch}.
+     *
+     * @return
+     *   The number of corrupted files.
+     */
+    public long getCorrupt() {
+      return this.corrupt;
+    }
+
+    /**
+     * Gets the number of files that were never written, and so should be reported as
+     * {@code does not exist}.
+     *
+     * @return
+     *   The number of missing files.
+     */
+    public long getMissing() {
+      return this.missing;
+    }
+
+    /**
+     * Gets the total size of the files that were written.
+     *
+     * @return
+     *   The total size, in bytes.
+     */
+    public long getBytes() {
+      return this.bytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+        "verified=%d corrupt=%d missing=%d bytes=%d",
+        this.verified, this.corrupt, this.missing, this.bytes);
+    }
+
+    /**
+     * Parses the output of {@link #toString()}.
+     */
+    static Expectation parse(String description) {
+      final Expectation expectation = new Expectation();
+
+      for (String field : description.trim().split(" ")) {
+        final String[]  nameAndValue  = field.split("=", 2);
+        final long      value         = Long.parseLong(nameAndValue[1]);
+
+        switch (nameAndValue[0]) {
+          case "verified":
+            expectation.verified = value;
+            break;
+
+          case "corrupt":
+            expectation.corrupt = value;
+            break;
+
+          case "missing":
+            expectation.missing = value;
+            break;
+
+          default:
+            expectation.bytes = value;
+            break;
+        }
+      }
+
+      return expectation;
+    }
+  }
+}
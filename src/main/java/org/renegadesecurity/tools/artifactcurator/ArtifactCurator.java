@@ -16,15 +16,68 @@
 package org.renegadesecurity.tools.artifactcurator;
 
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.renegadesecurity.tools.artifactcurator.copy.ContentAddressedCopyStrategy;
+import org.renegadesecurity.tools.artifactcurator.copy.CopyStrategy;
+import org.renegadesecurity.tools.artifactcurator.copy.CopyStrategyFactory;
+import org.renegadesecurity.tools.artifactcurator.copy.ReflinkCopyStrategy;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestCache;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngine;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngineFactory;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+import org.renegadesecurity.tools.artifactcurator.execution.WorkerPools;
+import org.renegadesecurity.tools.artifactcurator.journal.RunJournal;
+import org.renegadesecurity.tools.artifactcurator.manifest.ArtifactHashIndex;
+import org.renegadesecurity.tools.artifactcurator.manifest.LocalitySchedule;
+import org.renegadesecurity.tools.artifactcurator.manifest.ManifestEntry;
+import org.renegadesecurity.tools.artifactcurator.manifest.ManifestReader;
+import org.renegadesecurity.tools.artifactcurator.manifest.ManifestWriter;
+import org.renegadesecurity.tools.artifactcurator.manifest.SeenPathSet;
+import org.renegadesecurity.tools.artifactcurator.manifest.SourceIndex;
+import org.renegadesecurity.tools.artifactcurator.licensing.JarScanPolicy;
+import org.renegadesecurity.tools.artifactcurator.licensing.LicenseCache;
 import org.renegadesecurity.tools.artifactcurator.licensing.LicenseSniffer;
 import org.renegadesecurity.tools.artifactcurator.licensing.LicenseSnifferFactory;
+import org.renegadesecurity.tools.artifactcurator.licensing.PomLicenseResolver;
+import org.renegadesecurity.tools.artifactcurator.metrics.RunMetrics;
+import org.renegadesecurity.tools.artifactcurator.metrics.Stage;
+import org.renegadesecurity.tools.artifactcurator.output.ArtifactResult;
+import org.renegadesecurity.tools.artifactcurator.output.AsyncResultSink;
+import org.renegadesecurity.tools.artifactcurator.output.ResultFormat;
+import org.renegadesecurity.tools.artifactcurator.output.ResultSink;
+import org.renegadesecurity.tools.artifactcurator.sidecar.SidecarDirectory;
+import org.renegadesecurity.tools.artifactcurator.sidecar.SidecarSnapshot;
 
 /**
  * The "curator" class, which does the bulk of the work of this utility.
@@ -34,17 +87,480 @@ import org.renegadesecurity.tools.artifactcurator.licensing.LicenseSnifferFactor
  * @author Kortanul (kortanul@protonmail.com)
  */
 public class ArtifactCurator {
+  /**
+   * Upper bound on the size of a checksum file next to a copy in the target folder.
+   */
+  private static final long MAX_SIDECAR_SIZE = 4096;
+
+  private DigestCache digestCache;
+  private DigestEngine digestEngine = DigestEngineFactory.getDefaultEngine();
+  private boolean singlePass;
+  private CopyStrategy copyStrategy = CopyStrategyFactory.getDefaultStrategy();
+  private int ioThreads = WorkerPools.DEFAULT_IO_THREADS;
+  private int cpuThreads = WorkerPools.DEFAULT_CPU_THREADS;
+  private boolean virtualThreads;
+  private boolean streamingManifest;
+  private boolean localityOrder;
+  private int samplePercent = 100;
+  private SidecarSnapshot sidecarSnapshot;
+  private JarScanPolicy jarScanPolicy = JarScanPolicy.EXHAUSTIVE;
+  private LicenseCache licenseCache;
+  private File outputFile;
+  private ResultFormat outputFormat = ResultFormat.CSV;
+  private boolean orderedOutput;
+  private RunMetrics metrics;
+  private boolean journal;
+  private boolean resume;
+  private boolean sync;
+  private boolean trustingTargetChecksums;
+  private boolean prune;
+
+  /**
+   * The pools of the run that is in progress, if any.
+   */
+  private WorkerPools workerPools;
+
+  /**
+   * Where the results of the run that is in progress, if any, are written.
+   */
+  private ResultSink resultSink;
+
+  /**
+   * The resolver for the POMs of the source folder of the run that is in progress, if any.
+   */
+  private PomLicenseResolver pomLicenseResolver;
+
+  /**
+   * The journal of the run that is in progress, if it keeps one.
+   */
+  private RunJournal runJournal;
+
+  /**
+   * The folders of the target folder that are known to exist in the run that is in progress, if
+   * it copies anything.
+   */
+  private Set<String> knownFolders;
+
+  /**
+   * Gets the cache of previously-computed digests that is consulted before an artifact is hashed.
+   *
+   * @return
+   *   The digest cache, or {@code null} if every artifact is hashed on every run.
+   */
+  public DigestCache getDigestCache() {
+    return this.digestCache;
+  }
+
+  public void setDigestCache(DigestCache digestCache) {
+    this.digestCache = digestCache;
+  }
+
+  /**
+   * Gets the engine used to read artifacts while they are being hashed.
+   *
+   * @return
+   *   The digest engine.
+   */
+  public DigestEngine getDigestEngine() {
+    return this.digestEngine;
+  }
+
+  public void setDigestEngine(DigestEngine digestEngine) {
+    if (digestEngine == null) {
+      throw new IllegalArgumentException("digestEngine cannot be null.");
+    }
+
+    this.digestEngine = digestEngine;
+  }
+
+  /**
+   * Gets whether artifacts are hashed and copied in a single pass.
+   *
+   * <p>In single-pass mode, each artifact is read only once: it is streamed into a temporary file
+   * in the target tree while its hash is calculated, and the temporary file is then either moved
+   * into place (if the hash matches) or deleted (if it does not). Otherwise, each artifact that
+   * passes verification is read a second time when it is copied.</p>
+   *
+   * @return
+   *   {@code true} if artifacts are hashed and copied in a single pass.
+   */
+  public boolean isSinglePass() {
+    return this.singlePass;
+  }
+
+  public void setSinglePass(boolean singlePass) {
+    this.singlePass = singlePass;
+  }
+
+  /**
+   * Gets the strategy used to put verified artifacts into the target folder.
+   *
+   * <p>Single-pass mode only applies to strategies that
+   * {@linkplain CopyStrategy#isCopyingContents() write out the contents} of each artifact; with
+   * any other strategy, each artifact is hashed first and then linked or cloned.</p>
+   *
+   * @return
+   *   The copy strategy.
+   */
+  public CopyStrategy getCopyStrategy() {
+    return this.copyStrategy;
+  }
+
+  public void setCopyStrategy(CopyStrategy copyStrategy) {
+    if (copyStrategy == null) {
+      throw new IllegalArgumentException("copyStrategy cannot be null.");
+    }
+
+    this.copyStrategy = copyStrategy;
+  }
+
+  /**
+   * Gets the number of threads that stat, hash, and copy artifacts.
+   *
+   * @return
+   *   The size of the I/O pool.
+   */
+  public int getIoThreads() {
+    return this.ioThreads;
+  }
+
+  public void setIoThreads(int ioThreads) {
+    if (ioThreads <= 0) {
+      throw new IllegalArgumentException("ioThreads must be greater than zero.");
+    }
+
+    this.ioThreads = ioThreads;
+  }
+
+  /**
+   * Gets the number of threads that sniff the licenses of verified artifacts.
+   *
+   * @return
+   *   The size of the CPU pool.
+   */
+  public int getCpuThreads() {
+    return this.cpuThreads;
+  }
+
+  public void setCpuThreads(int cpuThreads) {
+    if (cpuThreads <= 0) {
+      throw new IllegalArgumentException("cpuThreads must be greater than zero.");
+    }
+
+    this.cpuThreads = cpuThreads;
+  }
+
+  /**
+   * Gets whether artifacts are statted, hashed, and copied on virtual threads instead of a pool of
+   * platform threads.
+   *
+   * <p>Virtual threads are only available on Java 21 and later.</p>
+   *
+   * @return
+   *   {@code true} if I/O work runs on virtual threads.
+   */
+  public boolean isVirtualThreads() {
+    return this.virtualThreads;
+  }
+
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  /**
+   * Gets whether the CSV file is streamed to the workers as it is read.
+   *
+   * <p>When streaming, work on the first artifacts starts as soon as their rows have been read,
+   * and the CSV file is never held in memory in full. Otherwise, the whole CSV file is read into
+   * memory before any artifact is processed.</p>
+   *
+   * @return
+   *   {@code true} if the CSV file is streamed.
+   */
+  public boolean isStreamingManifest() {
+    return this.streamingManifest;
+  }
+
+  public void setStreamingManifest(boolean streamingManifest) {
+    this.streamingManifest = streamingManifest;
+  }
+
+  /**
+   * Gets whether artifacts are processed in an order that keeps reads close together on disk,
+   * rather than in the order of the CSV file.
+   *
+   * <p>Artifacts are then handed to the workers a whole folder at a time, with the folders in path
+   * order and the artifacts of each folder in inode order (see {@link LocalitySchedule}). This
+   * helps spinning disks and the read-ahead of network storage. It has no effect when the CSV file
+   * is {@linkplain #isStreamingManifest() streamed}. {@linkplain #isOrderedOutput() Ordered
+   * output} is still written in the order of the CSV file, but more results may be held in memory
+   * until it is their turn.</p>
+   *
+   * @return
+   *   {@code true} if artifacts are processed in locality order.
+   */
+  public boolean isLocalityOrder() {
+    return this.localityOrder;
+  }
+
+  public void setLocalityOrder(boolean localityOrder) {
+    this.localityOrder = localityOrder;
+  }
+
+  /**
+   * Gets the percentage of artifacts that are hashed when verifying against sidecar files.
+   *
+   * <p>Artifacts that are not picked for hashing are trusted to match their sidecar files, and are
+   * copied without being hashed.</p>
+   *
+   * @return
+   *   The percentage of artifacts to hash, from 0 to 100.
+   * @see #verifySidecars(String, String)
+   */
+  public int getSamplePercent() {
+    return this.samplePercent;
+  }
+
+  public void setSamplePercent(int samplePercent) {
+    if ((samplePercent < 0) || (samplePercent > 100)) {
+      throw new IllegalArgumentException("samplePercent must be between 0 and 100.");
+    }
+
+    this.samplePercent = samplePercent;
+  }
+
+  /**
+   * Gets the record of directories that were fully verified against their sidecar files on an
+   * earlier run.
+   *
+   * @return
+   *   The snapshot, or {@code null} if every directory is verified on every run.
+   * @see #verifySidecars(String, String)
+   */
+  public SidecarSnapshot getSidecarSnapshot() {
+    return this.sidecarSnapshot;
+  }
+
+  public void setSidecarSnapshot(SidecarSnapshot sidecarSnapshot) {
+    this.sidecarSnapshot = sidecarSnapshot;
+  }
+
+  /**
+   * Gets how much of each JAR is read when sniffing its license.
+   *
+   * @return
+   *   The policy.
+   */
+  public JarScanPolicy getJarScanPolicy() {
+    return this.jarScanPolicy;
+  }
+
+  public void setJarScanPolicy(JarScanPolicy jarScanPolicy) {
+    if (jarScanPolicy == null) {
+      throw new IllegalArgumentException("jarScanPolicy cannot be null.");
+    }
+
+    this.jarScanPolicy = jarScanPolicy;
+  }
+
+  /**
+   * Gets the cache of licenses that is consulted before an artifact that has been hashed is
+   * sniffed.
+   *
+   * <p>The cache should have been opened with the ruleset version of the current
+   * {@linkplain #getJarScanPolicy() JAR scan policy}.</p>
+   *
+   * @return
+   *   The license cache, or {@code null} if every artifact is sniffed on every run.
+   */
+  public LicenseCache getLicenseCache() {
+    return this.licenseCache;
+  }
+
+  public void setLicenseCache(LicenseCache licenseCache) {
+    this.licenseCache = licenseCache;
+  }
+
+  /**
+   * Gets the file that results are written to.
+   *
+   * @return
+   *   The output file, or {@code null} if results are written to standard out.
+   */
+  public File getOutputFile() {
+    return this.outputFile;
+  }
+
+  public void setOutputFile(File outputFile) {
+    this.outputFile = outputFile;
+  }
+
+  public ResultFormat getOutputFormat() {
+    return this.outputFormat;
+  }
+
+  public void setOutputFormat(ResultFormat outputFormat) {
+    if (outputFormat == null) {
+      throw new IllegalArgumentException("outputFormat cannot be null.");
+    }
+
+    this.outputFormat = outputFormat;
+  }
+
+  /**
+   * Gets whether results are written in a fixed order, rather than as soon as each artifact is
+   * done.
+   *
+   * <p>The order is that in which artifacts are handed out to the workers: the order of the rows
+   * of the CSV file (after any rows that were rejected while it was loaded), or the order in which
+   * the source folder is walked. The output of two runs over the same inputs can therefore be
+   * compared without sorting it first.</p>
+   *
+   * @return
+   *   {@code true} if results are written in order.
+   */
+  public boolean isOrderedOutput() {
+    return this.orderedOutput;
+  }
+
+  public void setOrderedOutput(boolean orderedOutput) {
+    this.orderedOutput = orderedOutput;
+  }
+
+  /**
+   * Gets the counters into which the time spent in each stage of the work on an artifact is
+   * recorded.
+   *
+   * @return
+   *   The metrics, or {@code null} if nothing is measured (in which case the clock is not even
+   *   read).
+   */
+  public RunMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  public void setMetrics(RunMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Gets whether {@link #processArtifacts(String, String, String)} keeps a {@link RunJournal} of
+   * the artifacts it has finished with in its target folder, so that it can be
+   * {@linkplain #isResume() resumed} if it is interrupted.
+   *
+   * <p>A run that keeps no journal deletes any journal an earlier run left in the target folder,
+   * since that journal would no longer describe the folder.</p>
+   *
+   * @return
+   *   {@code true} if runs keep a journal; always {@code true} when resuming.
+   */
+  public boolean isJournal() {
+    return this.journal || this.isResume();
+  }
+
+  public void setJournal(boolean journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Gets whether {@link #processArtifacts(String, String, String)} carries on from an earlier run
+   * into the same target folder, rather than requiring the target folder to be empty.
+   *
+   * <p>When resuming, the run reads the {@link RunJournal} of the earlier run (which must have
+   * been {@linkplain #isJournal() keeping one}) and carries it on. Artifacts that the journal shows
+   * were copied (and whose
+   * copies still have the recorded size) or failed verification are reported as they were the
+   * first time, without being read again. Every other artifact is processed from scratch, after
+   * anything the earlier run left of its copy has been deleted.</p>
+   *
+   * @return
+   *   {@code true} if runs are resumed.
+   */
+  public boolean isResume() {
+    return this.resume;
+  }
+
+  public void setResume(boolean resume) {
+    this.resume = resume;
+  }
+
+  /**
+   * Gets whether {@link #processArtifacts(String, String, String)} brings an existing target folder
+   * up to date, rather than requiring the target folder to be empty.
+   *
+   * <p>When syncing, an artifact whose copy in the target folder is the same size as the artifact,
+   * and whose hashes are already known without reading the copy, is not copied again; it is
+   * reported with a status of {@code unchanged}. The hashes of a copy are known if the
+   * {@linkplain #getDigestCache() digest cache} has an entry for it that still matches its size,
+   * modification time and file key (every copy that is made is added to the cache), or, when
+   * {@linkplain #isTrustingTargetChecksums() trusting target checksums}, if there are checksum
+   * files next to it. Any other artifact is processed as usual, except that its new copy is made
+   * in the staging folder and only renamed over the old copy once it is complete, so an artifact
+   * that fails verification, cannot be read or cannot be copied leaves the old copy as it was. The
+   * copy of an artifact that is missing from the source folder is left alone too.</p>
+   *
+   * @return
+   *   {@code true} if the target folder is synced.
+   * @see #isPrune()
+   */
+  public boolean isSync() {
+    return this.sync;
+  }
+
+  public void setSync(boolean sync) {
+    this.sync = sync;
+  }
+
+  /**
+   * Gets whether, when {@linkplain #isSync() syncing}, the checksum files next to a copy in the
+   * target folder are taken as the hashes of the copy if the digest cache does not know them.
+   *
+   * <p>Nothing ties such checksum files to the copy they sit next to, so a copy that was damaged
+   * or replaced without them being updated would be reported as {@code unchanged}.</p>
+   *
+   * @return
+   *   {@code true} if the checksum files of copies are trusted.
+   */
+  public boolean isTrustingTargetChecksums() {
+    return this.trustingTargetChecksums;
+  }
+
+  public void setTrustingTargetChecksums(boolean trustingTargetChecksums) {
+    this.trustingTargetChecksums = trustingTargetChecksums;
+  }
+
+  /**
+   * Gets whether files in the target folder that are not listed in the CSV file are deleted once
+   * every artifact has been processed, along with any folders that this leaves empty.
+   *
+   * <p>Checksum files next to a listed artifact, and the {@link RunJournal}, are kept. Each file
+   * that is deleted is reported with a status of {@code pruned}. This only makes sense along with
+   * {@linkplain #isSync() syncing}.</p>
+   *
+   * @return
+   *   {@code true} if the target folder is pruned.
+   */
+  public boolean isPrune() {
+    return this.prune;
+  }
+
+  public void setPrune(boolean prune) {
+    this.prune = prune;
+  }
+
   /**
    * Processes all of the artifact files identified in the provided CSV file.
    *
    * <p>Steps are as follows:</p>
    * <ol>
    *   <li>An attempt is made to locate each artifact that is identified in the CSV file.</li>
-   *   <li>A SHA1 hash is calculated for each artifact.</li>
-   *   <li>If the computed hash of the artifact matches the hash for the artifact in the CSV file,
-   *       the artifact is copied to the destination path.</li>
+   *   <li>A hash is calculated for each artifact with every algorithm that has a column in the CSV
+   *       file (e.g. SHA1 and SHA256), reading the artifact only once.</li>
+   *   <li>If every computed hash of the artifact matches the corresponding hash for the artifact
+   *       in the CSV file, the artifact is copied to the destination path.</li>
    *   <li>Finally, an attempt is made to determine the license of the file.</li>
-   *   <li>Results of the operation are written to standard out in CSV format.</li>
+   *   <li>Results of the operation are written to the {@linkplain #getOutputFile() output file}
+   *       (standard out by default), in CSV format by default.</li>
    * </ol>
    *
    * @param csvFilePath
@@ -54,96 +570,1284 @@ public class ArtifactCurator {
    * @param targetFolderPath
    *   The path to the top-level folder to create and populate with verified artifacts.
    * @throws IOException
-   *   If the CSV file cannot be read or the target path cannot be created.
+   *   If the CSV file cannot be read, the target path cannot be created, or the digest cache
+   *   cannot be saved.
    */
   public void processArtifacts(final String csvFilePath, final String sourceFolderPath,
                                final String targetFolderPath)
   throws IOException {
     final File                csvHashFile     = this.openFile(csvFilePath);
     final File                sourceFolder    = this.openFolder(sourceFolderPath),
-                              targetFolder    = this.createNewFolder(targetFolderPath);
+                              targetFolder    =
+                                ((this.isResume() || this.isSync())
+                                 && new File(targetFolderPath).isDirectory())
+                                ? this.openFolder(targetFolderPath)
+                                : this.createNewFolder(targetFolderPath);
     final String              sourcePath      = sourceFolder.getAbsolutePath(),
                               targetPath      = targetFolder.getAbsolutePath();
-    final Map<String, String> artifactHashes  = this.getArtifactHashes(csvHashFile);
+    final List<Runnable>      rejectedRows    = new ArrayList<>();
+    final ArtifactHashIndex   artifactHashes;
+    Predicate<String>         isListed;
+
+    if (this.isStreamingManifest()) {
+      artifactHashes = null;
+    }
+    else {
+      artifactHashes = this.getArtifactHashes(csvHashFile, rejectedRows);
+
+      if (this.getMetrics() != null) {
+        this.getMetrics().setExpectedArtifacts(rejectedRows.size() + artifactHashes.size());
+      }
+    }
+
+    // Temporary files of single-pass copies, left behind by an earlier run that was interrupted.
+    removeStagingFolder(targetFolder);
+
+    if (!this.isJournal()) {
+      RunJournal.delete(targetFolder);
+    }
+
+    try (final ResultSink   resultSink  = this.openResultSink();
+         final RunJournal   runJournal  = this.openRunJournal(targetFolder);
+         final WorkerPools  workerPools =
+           new WorkerPools(this.getIoThreads(), this.getCpuThreads(), this.isVirtualThreads())) {
+      this.resultSink   = resultSink;
+      this.runJournal   = runJournal;
+      this.workerPools  = workerPools;
+      this.knownFolders = ConcurrentHashMap.newKeySet();
+
+      this.pomLicenseResolver = new PomLicenseResolver(sourceFolder);
+
+      try {
+        if (artifactHashes == null) {
+          isListed = this.streamArtifacts(csvHashFile, sourcePath, targetPath)::contains;
+        }
+        else {
+          final SourceIndex sourceIndex = this.indexSource(sourceFolder, artifactHashes);
+          final long        firstSequence;
+
+          isListed = (fileName) -> (artifactHashes.indexOf(fileName) != -1);
+
+          rejectedRows.forEach(Runnable::run);
+
+          // One per row, in the order of the CSV file, whatever order the rows are processed in.
+          firstSequence = resultSink.reserve(artifactHashes.size());
+
+          if (this.isLocalityOrder()) {
+            final LocalitySchedule schedule = LocalitySchedule.build(artifactHashes, sourceIndex);
+
+            for (int batch = 0; batch < schedule.getBatchCount(); ++batch) {
+              final int[] entries = schedule.getBatch(batch);
+
+              workerPools.submitIo(() -> {
+                for (int entry : entries) {
+                  this.forSequences(firstSequence + entry, 1, () -> {
+                    this.processIndexedArtifact(
+                      firstSequence + entry, entry, artifactHashes, sourceIndex, sourcePath,
+                      targetPath);
+                  }).run();
+                }
+              });
+            }
+          }
+          else {
+            for (int entry = 0; entry < artifactHashes.size(); ++entry) {
+              final int rowEntry = entry;
+
+              workerPools.submitIo(this.forSequences(firstSequence + rowEntry, 1, () -> {
+                this.processIndexedArtifact(
+                  firstSequence + rowEntry, rowEntry, artifactHashes, sourceIndex, sourcePath,
+                  targetPath);
+              }));
+            }
+          }
+        }
+      }
+      finally {
+        workerPools.awaitCompletion();
+        removeStagingFolder(targetFolder);
+      }
+
+      if (this.isPrune()) {
+        this.pruneTargetFolder(targetFolder, isListed);
+      }
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+
+      throw new IOException("Interrupted while waiting for artifacts to be processed.", ex);
+    }
+    finally {
+      this.resultSink         = null;
+      this.runJournal         = null;
+      this.workerPools        = null;
+      this.knownFolders       = null;
+      this.pomLicenseResolver = null;
+    }
+
+    if (this.getDigestCache() != null) {
+      this.getDigestCache().save();
+    }
+
+    if (this.getLicenseCache() != null) {
+      this.getLicenseCache().save();
+    }
+  }
+
+  /**
+   * Looks for the artifacts identified in the provided CSV file by walking the whole source folder,
+   * rather than by looking at the path given for each artifact in the CSV file.
+   *
+   * <p>Every file under the source folder is hashed, and its hash is looked up in the CSV file.
+   * Each file is reported with one of the following statuses:</p>
+   * <ul>
+   *   <li>{@code matched} &ndash; the file has the hash the CSV file gives for its path.</li>
+   *   <li>{@code matched at other path (...)} &ndash; the file has a hash that the CSV file gives
+   *       for another path, shown in parentheses.</li>
+   *   <li>{@code mismatch} &ndash; the CSV file lists the path of the file, but with a different
+   *       hash, and no other path has the hash of the file.</li>
+   *   <li>{@code unknown} &ndash; the hash of the file does not appear in the CSV file.</li>
+   * </ul>
+   *
+   * <p>Nothing is copied. Files are hashed on the I/O pool while the folder is still being
+   * walked; since submission blocks while the pool is saturated, the list of files is never held
+   * in memory.</p>
+   *
+   * @param csvFilePath
+   *   The path to the CSV file.
+   * @param sourceFolderPath
+   *   The path to the top-level folder that contains the files to hash.
+   * @throws IOException
+   *   If the CSV file cannot be read, the source folder cannot be walked, or the digest cache
+   *   cannot be saved.
+   */
+  public void discoverArtifacts(final String csvFilePath, final String sourceFolderPath)
+  throws IOException {
+    final File              csvHashFile     = this.openFile(csvFilePath);
+    final File              sourceFolder    = this.openFolder(sourceFolderPath);
+    final Path              sourceRoot      = sourceFolder.getAbsoluteFile().toPath();
+    final List<Runnable>    rejectedRows    = new ArrayList<>();
+    final ArtifactHashIndex artifactHashes  = this.getArtifactHashes(csvHashFile, rejectedRows);
+
+    artifactHashes.indexHashes();
 
-    this.printHeader();
+    try (final ResultSink   resultSink  = this.openResultSink();
+         final WorkerPools  workerPools =
+           new WorkerPools(this.getIoThreads(), this.getCpuThreads(), this.isVirtualThreads())) {
+      this.resultSink   = resultSink;
+      this.workerPools  = workerPools;
 
-    artifactHashes
-      .entrySet()
-      .parallelStream()
-      .forEach((entry) -> {
-        String  fileName = entry.getKey(),
-                fileHash = entry.getValue();
+      try {
+        rejectedRows.forEach(Runnable::run);
+
+        FolderWalker.walk(sourceRoot, (directory, files) -> {
+          for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+            final Path                filePath    = directory.resolve(file.getKey());
+            final BasicFileAttributes attributes  = file.getValue();
+            final long                sequence    = resultSink.reserve(1);
+
+            workerPools.submitIo(this.forSequences(sequence, 1, () -> {
+              this.discoverArtifact(sequence, sourceRoot, filePath, attributes, artifactHashes);
+            }));
+          }
+        });
+      }
+      finally {
+        workerPools.awaitCompletion();
+      }
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
 
-        this.processArtifact(fileName, sourcePath, fileHash, targetPath);
-      });
+      throw new IOException("Interrupted while waiting for artifacts to be processed.", ex);
+    }
+    finally {
+      this.resultSink   = null;
+      this.workerPools  = null;
+    }
+
+    if (this.getDigestCache() != null) {
+      this.getDigestCache().save();
+    }
+
+    if (this.getLicenseCache() != null) {
+      this.getLicenseCache().save();
+    }
+  }
+
+  /**
+   * Verifies the artifacts in the source folder against the checksum files that Maven keeps next
+   * to each artifact (e.g. {@code foo-1.0.jar.sha1}), rather than against a CSV file.
+   *
+   * <p>The source folder is walked one directory at a time. Once a directory has been listed, it is
+   * handed to the I/O pool as a single batch: every sidecar file in it is read, and then each of
+   * its artifacts is either:</p>
+   * <ul>
+   *   <li>hashed with every algorithm that has a sidecar file, and copied if the hashes match, as
+   *       with {@link #processArtifacts(String, String, String)};</li>
+   *   <li>copied without being hashed, if it was not picked by the
+   *       {@linkplain #getSamplePercent() sample}, with a status of {@code trusted (not sampled)};
+   *       or</li>
+   *   <li>copied without being hashed, if the directory has not changed since every artifact in it
+   *       was verified on an earlier run (see {@link #getSidecarSnapshot()}), with a status of
+   *       {@code trusted (snapshot)}.</li>
+   * </ul>
+   *
+   * <p>Files without any sidecar file are reported with a status of {@code no checksum} and are not
+   * copied.</p>
+   *
+   * @param sourceFolderPath
+   *   The path to the top-level folder that contains the artifacts and their sidecar files.
+   * @param targetFolderPath
+   *   The path to the top-level folder to create and populate with verified artifacts.
+   * @throws IOException
+   *   If the source folder cannot be walked, the target path cannot be created, or the digest
+   *   cache or sidecar snapshot cannot be saved.
+   */
+  public void verifySidecars(final String sourceFolderPath, final String targetFolderPath)
+  throws IOException {
+    final File    sourceFolder  = this.openFolder(sourceFolderPath),
+                  targetFolder  = this.createNewFolder(targetFolderPath);
+    final Path    sourceRoot    = sourceFolder.getAbsoluteFile().toPath();
+    final String  targetPath    = targetFolder.getAbsolutePath();
+
+    try (final ResultSink   resultSink  = this.openResultSink();
+         final WorkerPools  workerPools =
+           new WorkerPools(this.getIoThreads(), this.getCpuThreads(), this.isVirtualThreads())) {
+      this.resultSink   = resultSink;
+      this.workerPools  = workerPools;
+      this.knownFolders = ConcurrentHashMap.newKeySet();
+
+      this.pomLicenseResolver = new PomLicenseResolver(sourceFolder);
+
+      try {
+        FolderWalker.walk(sourceRoot, (directory, files) -> {
+          // At most one result per file; the rest are skipped once the sidecars are known.
+          final long firstSequence = resultSink.reserve(files.size());
+
+          workerPools.submitIo(this.forSequences(firstSequence, files.size(), () -> {
+            this.verifySidecarDirectory(firstSequence, sourceRoot, directory, files, targetPath);
+          }));
+        });
+      }
+      finally {
+        workerPools.awaitCompletion();
+        removeStagingFolder(targetFolder);
+      }
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+
+      throw new IOException("Interrupted while waiting for artifacts to be processed.", ex);
+    }
+    finally {
+      this.resultSink         = null;
+      this.workerPools        = null;
+      this.knownFolders       = null;
+      this.pomLicenseResolver = null;
+    }
+
+    if (this.getDigestCache() != null) {
+      this.getDigestCache().save();
+    }
+
+    if (this.getLicenseCache() != null) {
+      this.getLicenseCache().save();
+    }
+
+    if (this.getSidecarSnapshot() != null) {
+      this.getSidecarSnapshot().save();
+    }
+  }
+
+  /**
+   * Writes a CSV file of the size and hashes of every artifact in a trusted repository, which can
+   * then be used to verify other copies of the same artifacts with
+   * {@link #processArtifacts(String, String, String)}.
+   *
+   * <p>The source folder is walked one directory at a time, as with
+   * {@link #verifySidecars(String, String)}, and the artifacts of each directory are hashed on the
+   * I/O pool as a single batch. Sidecar files and Maven's bookkeeping files are left out. The rows
+   * of each directory are written together, in name order; the directories themselves are written
+   * in the order in which they finish.</p>
+   *
+   * @param sourceFolderPath
+   *   The path to the top-level folder of the trusted repository.
+   * @param csvFilePath
+   *   The path of the CSV file to create.
+   * @param algorithms
+   *   The algorithms of the hashes to write for each artifact.
+   * @throws IOException
+   *   If the source folder cannot be walked, the CSV file cannot be written, any artifact cannot
+   *   be read, or the digest cache cannot be saved.
+   */
+  public void generateManifest(final String sourceFolderPath, final String csvFilePath,
+                               final Collection<HashAlgorithm> algorithms)
+  throws IOException {
+    final File          sourceFolder  = this.openFolder(sourceFolderPath),
+                        csvFile       = new File(csvFilePath);
+    final Path          sourceRoot    = sourceFolder.getAbsoluteFile().toPath();
+    final AtomicInteger failures      = new AtomicInteger();
+
+    if (csvFile.exists()) {
+      throw new IllegalArgumentException(
+          String.format("`%s` already exists.", csvFilePath));
+    }
+
+    try (final ManifestWriter manifestWriter  = new ManifestWriter(csvFile, algorithms);
+         final WorkerPools    workerPools     =
+           new WorkerPools(this.getIoThreads(), this.getCpuThreads(), this.isVirtualThreads())) {
+      try {
+        FolderWalker.walk(sourceRoot, new FolderWalker.DirectoryHandler() {
+          @Override
+          public void visitDirectory(Path directory, Map<String, BasicFileAttributes> files) {
+            workerPools.submitIo(() -> {
+              final int failed =
+                ArtifactCurator.this.writeManifestRows(
+                  sourceRoot, directory, files, manifestWriter);
+
+              failures.addAndGet(failed);
+            });
+          }
+
+          @Override
+          public void visitFailed(Path path, IOException ex) {
+            FolderWalker.DirectoryHandler.super.visitFailed(path, ex);
+            failures.incrementAndGet();
+          }
+        });
+      }
+      finally {
+        workerPools.awaitCompletion();
+      }
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+
+      throw new IOException("Interrupted while waiting for artifacts to be hashed.", ex);
+    }
+
+    if (this.getDigestCache() != null) {
+      this.getDigestCache().save();
+    }
+
+    if (failures.get() > 0) {
+      throw new IOException(
+        String.format(
+          "%d files or folders could not be read, so `%s` is incomplete.",
+          failures.get(),
+          csvFilePath));
+    }
+  }
+
+  /**
+   * Hands each row of the CSV file to the I/O pool as soon as it has been read.
+   *
+   * <p>Submission blocks while the I/O pool is saturated, so reading of the CSV file never runs
+   * more than a bounded number of rows ahead of the workers. Duplicate and conflicting rows are
+   * detected with a {@link SeenPathSet} rather than a map of every row.</p>
+   *
+   * @return
+   *   The paths of the rows that were read.
+   */
+  private SeenPathSet streamArtifacts(File csvHashFile, String sourcePath, String targetPath)
+  throws IOException {
+    final SeenPathSet seenPaths = new SeenPathSet();
+
+    new ManifestReader(csvHashFile).read((entry) -> {
+      final String    fileName    = entry.getFileName();
+      final DigestSet fileHashes  = entry.parseDigests();
+
+      if (fileHashes == null) {
+        this.addInvalidHashResult(this.resultSink.reserve(1), entry);
+        return;
+      }
+
+      switch (seenPaths.add(fileName, entry.getNormalizedHashes())) {
+        case ADDED:
+          final long sequence = this.resultSink.reserve(1);
+
+          this.workerPools.submitIo(this.forSequences(sequence, 1, () -> {
+            this.processArtifact(
+              sequence, fileName, sourcePath, fileHashes, entry.getExpectedSize(), targetPath);
+          }));
+          break;
+
+        case CONFLICT:
+          this.addConflictResult(this.resultSink.reserve(1), entry);
+          break;
+
+        default:
+          // A duplicate of a row that is already being processed.
+          break;
+      }
+    });
+
+    return seenPaths;
+  }
+
+  /**
+   * Verifies the artifacts of a single directory against their sidecar files.
+   *
+   * @see #verifySidecars(String, String)
+   */
+  private void verifySidecarDirectory(long firstSequence, Path sourceRoot, Path directory,
+                                      Map<String, BasicFileAttributes> files, String targetPath) {
+    final SidecarSnapshot   snapshot      = this.getSidecarSnapshot();
+    final String            sourcePath    = sourceRoot.toString();
+    final String            relativePath  =
+      sourceRoot.relativize(directory).toString().replace(File.separatorChar, '/');
+    final SidecarDirectory  sidecars;
+    final boolean           unchanged;
+    boolean                 allVerified   = true;
+    long                    sequence      = firstSequence;
+
+    try {
+      sidecars = new SidecarDirectory(directory, files);
+    }
+    catch (IOException ex) {
+      System.err.printf(
+        "Failed to read checksum files in `%s`: %s\n\n", directory, ex.getMessage());
+
+      this.resultSink.skip(firstSequence, files.size());
+
+      return;
+    }
+
+    unchanged =
+      (snapshot != null) && snapshot.isTrusted(relativePath, sidecars.getFingerprint());
+
+    for (SidecarDirectory.Artifact artifact : sidecars.getArtifacts()) {
+      final String    fileName        =
+        relativePath.isEmpty() ? artifact.getName() : (relativePath + '/' + artifact.getName());
+      final DigestSet expectedHashes  = artifact.parseDigests();
+
+      if (!artifact.hasSidecar()) {
+        this.addResult(sequence, fileName, "no checksum");
+      }
+      else if (expectedHashes == null) {
+        System.err.printf(
+          "`%s` has an invalid checksum file: `%s`\n\n",
+          fileName,
+          artifact.getSidecarHashes().values().stream()
+            .map(String::trim)
+            .collect(Collectors.joining("`, `")));
+
+        this.addResult(sequence, fileName, "invalid hash");
+
+        allVerified = false;
+      }
+      else if (unchanged) {
+        this.trustArtifact(
+          sequence, fileName, sourcePath, expectedHashes, targetPath, "trusted (snapshot)");
+      }
+      else if (ThreadLocalRandom.current().nextInt(100) >= this.getSamplePercent()) {
+        this.trustArtifact(
+          sequence, fileName, sourcePath, expectedHashes, targetPath, "trusted (not sampled)");
+
+        allVerified = false;
+      }
+      else {
+        // Already statted while the directory was listed.
+        allVerified &=
+          this.processArtifact(
+            sequence, fileName, new File(sourcePath, fileName), artifact.getAttributes(),
+            expectedHashes, ManifestEntry.UNKNOWN_SIZE, targetPath);
+      }
+
+      ++sequence;
+    }
+
+    // Sidecar files and Maven's bookkeeping files have no results of their own.
+    this.resultSink.skip(sequence, (int)((firstSequence + files.size()) - sequence));
+
+    if ((snapshot != null) && !unchanged) {
+      if (allVerified) {
+        snapshot.trust(relativePath, sidecars.getFingerprint());
+      }
+      else {
+        snapshot.distrust(relativePath);
+      }
+    }
+  }
+
+  /**
+   * Hashes the artifacts of a single directory and writes their rows of the manifest.
+   *
+   * @return
+   *   The number of artifacts that could not be hashed or written.
+   * @see #generateManifest(String, String, Collection)
+   */
+  private int writeManifestRows(Path sourceRoot, Path directory,
+                                Map<String, BasicFileAttributes> files,
+                                ManifestWriter manifestWriter) {
+    final Set<HashAlgorithm>        algorithms    = manifestWriter.getAlgorithms();
+    final String                    relativePath  =
+      sourceRoot.relativize(directory).toString().replace(File.separatorChar, '/');
+    final List<ManifestWriter.Row>  rows          = new ArrayList<>();
+    int                             failed        = 0;
+
+    for (Map.Entry<String, BasicFileAttributes> artifact
+         : SidecarDirectory.selectArtifacts(files).entrySet()) {
+      final String              name            = artifact.getKey();
+      final BasicFileAttributes attributes      = artifact.getValue();
+      final File                sourceFile      = directory.resolve(name).toFile();
+      DigestSet                 computedHashes  =
+        this.getCachedDigests(sourceFile, attributes, algorithms);
+
+      if (computedHashes == null) {
+        try {
+          computedHashes = this.computeDigests(sourceFile, attributes, algorithms);
+        }
+        catch (IOException ex) {
+          System.err.printf(
+            "Error while calculating hashes for `%s`: %s\n\n",
+            sourceFile.getAbsolutePath(),
+            ex.getMessage());
+
+          ++failed;
+        }
+      }
+
+      if (computedHashes != null) {
+        rows.add(
+          new ManifestWriter.Row(
+            relativePath.isEmpty() ? name : (relativePath + '/' + name),
+            attributes.size(),
+            computedHashes));
+      }
+    }
+
+    try {
+      manifestWriter.write(rows);
+    }
+    catch (IOException ex) {
+      System.err.printf(
+        "Error while writing the manifest rows of `%s`: %s\n\n", directory, ex.getMessage());
+
+      failed += rows.size();
+    }
+
+    return failed;
+  }
+
+  /**
+   * Copies an artifact without hashing it.
+   */
+  private void trustArtifact(long sequence, String fileName, String sourcePath,
+                             DigestSet expectedHashes, String targetPath, String status) {
+    final File    sourceFile    = new File(sourcePath, fileName);
+    final String  expectedHash  = toHex(expectedHashes);
+
+    if (this.copyFile(fileName, sourceFile, targetPath, null)) {
+      this.addSuccessResult(sequence, fileName, sourceFile, expectedHash, "none", null, status);
+    }
+    else {
+      this.addResult(sequence, fileName, expectedHash, "copy failed");
+    }
+  }
+
+  /**
+   * Looks up a single artifact, verifies it, and copies it if it passes.
+   *
+   * @return
+   *   {@code true} if the artifact passed verification and was copied.
+   */
+  private boolean processArtifact(long sequence, String fileName, String sourcePath,
+                                  DigestSet expectedHashes, long expectedSize,
+                                  String targetPath) {
+    final File sourceFile = new File(sourcePath, fileName);
+
+    return this.processArtifact(
+      sequence, fileName, sourceFile, this.readAttributes(sourceFile), expectedHashes,
+      expectedSize, targetPath);
+  }
+
+  /**
+   * Verifies a single artifact of the CSV file that was looked up in the {@link SourceIndex}, and
+   * copies it if it passes.
+   */
+  private void processIndexedArtifact(long sequence, int entry, ArtifactHashIndex artifactHashes,
+                                      SourceIndex sourceIndex, String sourcePath,
+                                      String targetPath) {
+    final String fileName = artifactHashes.getPath(entry);
+
+    this.processArtifact(
+      sequence, fileName, new File(sourcePath, fileName), sourceIndex.getAttributes(entry),
+      artifactHashes.getDigests(entry), artifactHashes.getExpectedSize(entry), targetPath);
+  }
+
+  /**
+   * Verifies a single artifact that has already been looked up, and copies it if it passes.
+   *
+   * <p>An artifact that is not of the expected size (e.g. a truncated download) is rejected
+   * without being read.</p>
+   *
+   * @param sourceAttributes
+   *   The attributes of the artifact, or {@code null} if it does not exist.
+   * @param expectedSize
+   *   The size the artifact must have, or {@link ManifestEntry#UNKNOWN_SIZE} if it is not known.
+   * @return
+   *   {@code true} if the artifact passed verification and was copied.
+   */
+  private boolean processArtifact(long sequence, String fileName, File sourceFile,
+                                  BasicFileAttributes sourceAttributes, DigestSet expectedHashes,
+                                  long expectedSize, String targetPath) {
+    final long                startTime         = this.startTiming();
+    final Set<HashAlgorithm>  algorithms        = expectedHashes.getAlgorithms();
+    final String              expectedHash      = toHex(expectedHashes);
+    final RunJournal.Entry    completedEntry    =
+      (this.runJournal == null)
+      ? null
+      : this.resumeArtifact(sequence, fileName, expectedHash, targetPath);
+    boolean                   verified          = false;
+
+    if (completedEntry != null) {
+      verified = isCopied(completedEntry.getResult().getStatus());
+    }
+    else if (this.isSync()
+             && this.syncArtifact(
+                  sequence, fileName, sourceFile, sourceAttributes, expectedHashes, targetPath)) {
+      verified = true;
+    }
+    else if ((sourceAttributes == null) || !sourceAttributes.isRegularFile()) {
+      this.addResult(sequence, fileName, "does not exist");
+    }
+    else if ((expectedSize != ManifestEntry.UNKNOWN_SIZE)
+             && (sourceAttributes.size() != expectedSize)) {
+      this.addResult(
+        sequence, fileName, expectedHash,
+        String.format(
+          "size mismatch (%d of %d bytes)", sourceAttributes.size(), expectedSize));
+    }
+    else {
+      DigestSet computedHashes = this.getCachedDigests(sourceFile, sourceAttributes, algorithms);
+
+      if ((computedHashes == null)
+          && this.isSinglePass()
+          && this.getCopyStrategy().isCopyingContents()) {
+        verified =
+          this.hashAndCopyArtifact(
+            sequence, fileName, sourceFile, sourceAttributes, expectedHashes, targetPath);
+      }
+      else {
+        if (computedHashes == null) {
+          try {
+            computedHashes = this.computeDigests(sourceFile, sourceAttributes, algorithms);
+          }
+          catch (IOException ex) {
+            System.err.printf(
+              "Error while calculating hashes for `%s`: %s\n\n",
+              sourceFile.getAbsolutePath(),
+              ex.getMessage());
+
+            this.addResult(sequence, fileName, expectedHash, "read failed");
+          }
+        }
+
+        if (computedHashes != null) {
+          final String actualHash = toHex(computedHashes, expectedHashes.getPrimaryAlgorithm());
+
+          if (!expectedHashes.isMatchedBy(computedHashes)) {
+            this.addMismatchResult(sequence, fileName, expectedHashes, computedHashes);
+          }
+          else {
+            if (this.copyFile(fileName, sourceFile, targetPath, computedHashes)) {
+              this.rememberDigestsOfCopy(new File(targetPath, fileName), computedHashes);
+
+              this.addSuccessResult(
+                sequence, fileName, sourceFile, expectedHash, actualHash, computedHashes);
+
+              verified = true;
+            }
+            else {
+              this.addResult(sequence, fileName, expectedHash, actualHash, "copy failed");
+            }
+          }
+        }
+      }
+    }
+
+    this.recordTiming(Stage.VERIFY, startTime, 0, !verified);
+
+    return verified;
+  }
+
+  /**
+   * Reports an artifact that an earlier run already finished with, if the journal has one and its
+   * copy is still intact. Otherwise, when resuming, deletes anything the earlier run left of the
+   * copy, so that the artifact can be processed from scratch.
+   *
+   * @return
+   *   The entry of the artifact in the journal, if its result was reported; or {@code null}.
+   */
+  private RunJournal.Entry resumeArtifact(long sequence, String fileName, String expectedHash,
+                                          String targetPath) {
+    final RunJournal        journal         = this.runJournal;
+    final RunJournal.Entry  completedEntry  = journal.getCompletedEntry(fileName);
+    final File              destinationFile = new File(targetPath, fileName);
+    final boolean           intact;
+
+    if ((completedEntry == null)
+        || !completedEntry.getResult().getExpectedHash().equals(expectedHash)) {
+      // Not finished, or finished against a different row of the CSV file.
+      intact = false;
+    }
+    else if (completedEntry.getCopiedSize() == -1) {
+      intact = !destinationFile.exists();
+    }
+    else {
+      intact =
+        destinationFile.isFile() && (destinationFile.length() == completedEntry.getCopiedSize());
+    }
+
+    if (intact) {
+      final ArtifactResult result = completedEntry.getResult();
+
+      this.addResult(
+        sequence, fileName, result.getExpectedHash(), result.getActualHash(),
+        result.getStatus(), result.getLicense());
+
+      return completedEntry;
+    }
+
+    if (journal.isResumed()) {
+      this.discardPartialCopy(destinationFile);
+    }
+
+    return null;
+  }
+
+  /**
+   * Deletes a copy that an earlier run may not have finished. (Temporary files that were left
+   * behind while hashing and copying in a single pass are cleared away with the staging folder,
+   * before any artifact is processed.)
+   */
+  private void discardPartialCopy(File destinationFile) {
+    // When syncing, the copy is checked by syncArtifact() instead, and only replaced once a new
+    // copy is ready.
+    if (!this.isSync()) {
+      try {
+        Files.deleteIfExists(destinationFile.toPath());
+      }
+      catch (IOException ex) {
+        System.err.printf(
+          "Failed to clear away the unfinished copy `%s`: %s\n\n",
+          destinationFile.getAbsolutePath(),
+          ex.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Deletes the staging folder of single-pass copies and the folder of unfinished clones from the
+   * target folder, along with any temporary files in them, which can only have been left behind
+   * by a run that was interrupted.
+   *
+   * @see HashingFileCopy
+   * @see ReflinkCopyStrategy
+   */
+  private static void removeStagingFolder(File targetFolder) {
+    final Path stagingFolder  =
+                 new File(targetFolder, HashingFileCopy.STAGING_FOLDER_NAME).toPath(),
+               cloneFolder    =
+                 new File(targetFolder, ReflinkCopyStrategy.CLONE_FOLDER_NAME).toPath();
+
+    for (Path scratchFolder : Arrays.asList(stagingFolder, cloneFolder)) {
+      if (Files.isDirectory(scratchFolder)) {
+        try {
+          deleteScratchFolder(scratchFolder);
+        }
+        catch (IOException ex) {
+          System.err.printf(
+            "Failed to clear away the staging folder `%s`: %s\n\n",
+            scratchFolder,
+            ex.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes a folder of temporary files, and of folders of temporary files.
+   */
+  private static void deleteScratchFolder(Path scratchFolder)
+  throws IOException {
+    try (final DirectoryStream<Path> tempFiles = Files.newDirectoryStream(scratchFolder)) {
+      for (Path tempFile : tempFiles) {
+        if (Files.isDirectory(tempFile, LinkOption.NOFOLLOW_LINKS)) {
+          deleteScratchFolder(tempFile);
+        }
+        else {
+          Files.deleteIfExists(tempFile);
+        }
+      }
+    }
+
+    Files.deleteIfExists(scratchFolder);
+  }
+
+
+  /**
+   * Reports an artifact whose copy in the target folder is already up to date, if it has one.
+   *
+   * <p>A copy is only up to date if it is the same size as the artifact, and its hashes are known
+   * without reading it and match the expected hashes. Any other copy is left where it is until a
+   * verified copy of the artifact replaces it (see {@link #replaceFile}); if the artifact is
+   * missing, fails verification or cannot be copied, the old copy stays.</p>
+   *
+   * @return
+   *   {@code true} if the copy was up to date and its result was reported.
+   */
+  private boolean syncArtifact(long sequence, String fileName, File sourceFile,
+                               BasicFileAttributes sourceAttributes, DigestSet expectedHashes,
+                               String targetPath) {
+    final File                destinationFile       = new File(targetPath, fileName);
+    final BasicFileAttributes destinationAttributes;
+    boolean                   upToDate              = false;
+
+    if ((sourceAttributes == null) || !sourceAttributes.isRegularFile()) {
+      // Nothing to replace the copy with, so it may be the last one there is.
+      destinationAttributes = null;
+    }
+    else {
+      destinationAttributes = this.readAttributes(destinationFile);
+    }
+
+    if (destinationAttributes != null) {
+      final DigestSet knownHashes =
+        this.getKnownDigestsOfCopy(
+          destinationFile, destinationAttributes, expectedHashes.getAlgorithms());
+
+      if ((sourceAttributes.size() == destinationAttributes.size())
+          && (knownHashes != null)
+          && expectedHashes.isMatchedBy(knownHashes)) {
+        this.addSuccessResult(
+          sequence, fileName, sourceFile, toHex(expectedHashes),
+          toHex(knownHashes, expectedHashes.getPrimaryAlgorithm()), knownHashes, "unchanged");
+
+        upToDate = true;
+      }
+    }
+
+    return upToDate;
+  }
+
+  /**
+   * Looks up the hashes of a copy in the target folder without reading it: first in the digest
+   * cache, and then, if they are trusted, in the checksum files next to it.
+   *
+   * @return
+   *   The hashes, or {@code null} if any of the algorithms is not known.
+   */
+  private DigestSet getKnownDigestsOfCopy(File destinationFile,
+                                          BasicFileAttributes destinationAttributes,
+                                          Set<HashAlgorithm> algorithms) {
+    DigestSet knownHashes =
+      this.getCachedDigests(destinationFile, destinationAttributes, algorithms);
+
+    if ((knownHashes == null) && this.isTrustingTargetChecksums()) {
+      final Map<HashAlgorithm, byte[]> sidecarHashes = new EnumMap<>(HashAlgorithm.class);
+
+      for (HashAlgorithm algorithm : algorithms) {
+        final File    sidecarFile =
+          new File(destinationFile.getPath() + "." + algorithm.getSidecarExtension());
+        final byte[]  sidecarHash = readSidecarHash(sidecarFile, algorithm);
+
+        if (sidecarHash == null) {
+          return null;
+        }
+
+        sidecarHashes.put(algorithm, sidecarHash);
+      }
+
+      knownHashes = new DigestSet(sidecarHashes);
+    }
+
+    return knownHashes;
+  }
+
+  /**
+   * Reads the hash from a checksum file.
+   *
+   * @return
+   *   The hash, or {@code null} if the checksum file does not exist or cannot be parsed.
+   */
+  private static byte[] readSidecarHash(File sidecarFile, HashAlgorithm algorithm) {
+    byte[] hash = null;
+
+    if (sidecarFile.isFile() && (sidecarFile.length() <= MAX_SIDECAR_SIZE)) {
+      try {
+        final byte[] contents = Files.readAllBytes(sidecarFile.toPath());
+
+        hash =
+          SidecarDirectory.parseSidecar(
+            algorithm, new String(contents, StandardCharsets.US_ASCII));
+      }
+      catch (IOException ex) {
+        System.err.printf(
+          "Failed to read checksum file `%s`: %s\n\n",
+          sidecarFile.getAbsolutePath(),
+          ex.getMessage());
+      }
+    }
+
+    return hash;
+  }
+
+  /**
+   * Adds a copy that was just made to the digest cache, if there is one, so that a later sync can
+   * tell that it is up to date without reading it.
+   */
+  private void rememberDigestsOfCopy(File destinationFile, DigestSet computedHashes) {
+    if (this.getDigestCache() != null) {
+      final BasicFileAttributes destinationAttributes = this.readAttributes(destinationFile);
+
+      if (destinationAttributes != null) {
+        this.getDigestCache().put(destinationFile, destinationAttributes, computedHashes);
+      }
+    }
+  }
+
+  /**
+   * Deletes every file in the target folder that is not listed in the CSV file, and then every
+   * folder that this leaves empty. If the target folder has a content-addressed store, every blob
+   * that no longer has any other link to it is deleted too.
+   *
+   * @see #isPrune()
+   */
+  private void pruneTargetFolder(File targetFolder, Predicate<String> isListed)
+  throws IOException {
+    final Path targetRoot = targetFolder.getAbsoluteFile().toPath(),
+               blobRoot   = targetRoot.resolve(ContentAddressedCopyStrategy.BLOB_FOLDER_NAME);
+
+    this.pruneFolder(
+      targetRoot, targetRoot, blobRoot,
+      (fileName, file) ->
+        !fileName.equals(RunJournal.FILE_NAME)
+        && !isListed.test(fileName)
+        && !isSidecarOfListed(fileName, isListed));
+
+    // Blobs go last, once every link to them that is going to be pruned has been.
+    if (Files.isDirectory(blobRoot)) {
+      this.pruneFolder(
+        targetRoot, blobRoot, null, (fileName, file) -> isUnreferencedBlob(file));
+    }
+  }
+
+  /**
+   * Deletes the files in a folder of the target folder that match a condition, and then every
+   * folder that this leaves empty.
+   *
+   * @param targetRoot
+   *   The top-level target folder.
+   * @param folder
+   *   The folder to prune.
+   * @param skippedFolder
+   *   A folder inside it to leave alone, or {@code null}.
+   * @param isPruned
+   *   The condition, given the path of each file relative to the target folder and the file.
+   */
+  private void pruneFolder(Path targetRoot, Path folder, Path skippedFolder,
+                           BiPredicate<String, Path> isPruned)
+  throws IOException {
+    Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+        return directory.equals(skippedFolder)
+               ? FileVisitResult.SKIP_SUBTREE
+               : FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        final String fileName =
+          targetRoot.relativize(file).toString().replace(File.separatorChar, '/');
+
+        if (isPruned.test(fileName, file)) {
+          try {
+            Files.delete(file);
+
+            // Added directly, since pruned files are not artifacts of the run.
+            ArtifactCurator.this.resultSink.add(
+              ArtifactCurator.this.resultSink.reserve(1),
+              new ArtifactResult(fileName, "none", "none", "pruned", "none"));
+          }
+          catch (IOException ex) {
+            System.err.printf("Failed to prune `%s`: %s\n\n", file, ex.getMessage());
+          }
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException ex) {
+        System.err.printf("Failed to read `%s`: %s\n\n", file, ex.getMessage());
+
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path directory, IOException ex) {
+        if (!directory.equals(targetRoot)) {
+          try (final DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            if (!children.iterator().hasNext()) {
+              Files.delete(directory);
+            }
+          }
+          catch (IOException deleteEx) {
+            System.err.printf(
+              "Failed to prune `%s`: %s\n\n", directory, deleteEx.getMessage());
+          }
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+    });
   }
 
-  private void printHeader() {
-    System.out.println("Filename,Expected Hash,Actual Hash,Status,License");
+  /**
+   * Checks whether a blob in the content-addressed store is no longer linked into the target
+   * folder anywhere. Blobs are kept if the file system cannot tell.
+   */
+  private static boolean isUnreferencedBlob(Path blobFile) {
+    try {
+      return ((Number)Files.getAttribute(blobFile, "unix:nlink")).intValue() == 1;
+    }
+    catch (IOException | IllegalArgumentException | UnsupportedOperationException ex) {
+      return false;
+    }
   }
 
-  private void processArtifact(String fileName, String sourcePath, String fileHash,
-                               String targetPath) {
-    final File sourceFile = new File(sourcePath, fileName);
+  private static boolean isSidecarOfListed(String fileName, Predicate<String> isListed) {
+    for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+      final String extension = "." + algorithm.getSidecarExtension();
 
-    if (!sourceFile.isFile()) {
-      this.addResult(fileName, "does not exist");
+      if (fileName.endsWith(extension)
+          && isListed.test(fileName.substring(0, fileName.length() - extension.length()))) {
+        return true;
+      }
     }
-    else {
-      final Sha1FileDigest  digest        = new Sha1FileDigest(sourceFile);
-      final String          givenSha1     = fileHash.trim().toLowerCase();
-      String                computedSha1  = null;
 
+    return false;
+  }
+
+  private void discoverArtifact(long sequence, Path sourceRoot, Path file,
+                                BasicFileAttributes attributes, ArtifactHashIndex artifactHashes) {
+    final long                startTime       = this.startTiming();
+    final File                sourceFile      = file.toFile();
+    final String              fileName        =
+      sourceRoot.relativize(file).toString().replace(File.separatorChar, '/');
+    final Set<HashAlgorithm>  algorithms      = artifactHashes.getAlgorithms();
+    DigestSet                 computedHashes  =
+      this.getCachedDigests(sourceFile, attributes, algorithms);
+
+    if (computedHashes == null) {
       try {
-        computedSha1 = digest.asString().toLowerCase();
+        computedHashes = this.computeDigests(sourceFile, attributes, algorithms);
       }
       catch (IOException ex) {
         System.err.printf(
-          "Error while calculating SHA1 for `%s`: %s\n\n",
+          "Error while calculating hashes for `%s`: %s\n\n",
           sourceFile.getAbsolutePath(),
           ex.getMessage());
 
-        this.addResult(fileName, givenSha1, "read failed");
+        this.addResult(sequence, fileName, "read failed");
+      }
+    }
+
+    if (computedHashes != null) {
+      final String  actualHash      =
+        toHex(computedHashes, HashAlgorithm.primaryOf(algorithms));
+      final int[]   matchingEntries = artifactHashes.indexesOfHash(computedHashes);
+      final int     expectedEntry   = artifactHashes.indexOf(fileName);
+
+      if ((expectedEntry != -1) && artifactHashes.matches(expectedEntry, computedHashes)) {
+        this.addResult(sequence, fileName, actualHash, actualHash, "matched");
       }
+      else if (matchingEntries.length > 0) {
+        final String expectedPath = artifactHashes.getPath(matchingEntries[0]);
+
+        this.addResult(
+          sequence, fileName, actualHash, actualHash,
+          String.format("matched at other path (%s)", expectedPath));
+      }
+      else if (expectedEntry != -1) {
+        final String expectedHash = toHex(artifactHashes.getDigests(expectedEntry));
+
+        this.addResult(sequence, fileName, expectedHash, actualHash, "mismatch");
+      }
+      else {
+        this.addResult(sequence, fileName, "none", actualHash, "unknown");
+      }
+    }
+
+    this.recordTiming(Stage.VERIFY, startTime, 0, computedHashes == null);
+  }
+
+  /**
+   * Hashes and copies an artifact in a single pass over the source file.
+   *
+   * <p>The artifact is streamed into a temporary file in the staging folder of the target tree,
+   * and only moved into place (creating its folder) if its hash matches the expected hash.</p>
+   *
+   * @return
+   *   {@code true} if the artifact passed verification and was copied.
+   */
+  private boolean hashAndCopyArtifact(long sequence, String fileName, File sourceFile,
+                                      BasicFileAttributes sourceAttributes,
+                                      DigestSet expectedHashes, String targetPath) {
+    final File    destinationFile = new File(targetPath, fileName),
+                  stagingFolder   = new File(targetPath, HashingFileCopy.STAGING_FOLDER_NAME);
+    final String  expectedHash    = toHex(expectedHashes);
+    boolean       verified        = false;
+
+    if (!this.createFolder(stagingFolder)) {
+      this.addResult(sequence, fileName, expectedHash, "copy failed");
+    }
+    else {
+      final long startTime = this.startTiming();
 
-      if (computedSha1 != null) {
-        if (!computedSha1.equals(givenSha1)) {
-          this.addResult(fileName, givenSha1, computedSha1, "mismatch");
+      try (final HashingFileCopy fileCopy =
+             new HashingFileCopy(
+               sourceFile, destinationFile, stagingFolder, expectedHashes.getAlgorithms())) {
+        final DigestSet computedHashes  = fileCopy.copy();
+        final String    actualHash      = toHex(computedHashes);
+
+        if (this.getDigestCache() != null) {
+          this.getDigestCache().put(sourceFile, sourceAttributes, computedHashes);
+        }
+
+        if (!expectedHashes.isMatchedBy(computedHashes)) {
+          this.addMismatchResult(sequence, fileName, expectedHashes, computedHashes);
+        }
+        else if (!this.createParentFolder(destinationFile)) {
+          this.addResult(sequence, fileName, expectedHash, actualHash, "copy failed");
         }
         else {
-          if (this.copyFile(fileName, sourceFile, targetPath)) {
-            LicenseSniffer  licenseSniffer  = LicenseSnifferFactory.getSnifferFor(sourceFile);
-            final String    license         = licenseSniffer.determineLicense();
+          fileCopy.commit(this.isSync());
 
-            this.addResult(fileName, givenSha1, computedSha1, "success", license);
-          }
-          else {
-            this.addResult(fileName, givenSha1, computedSha1, "copy failed");
-          }
+          this.rememberDigestsOfCopy(destinationFile, computedHashes);
+
+          this.addSuccessResult(
+            sequence, fileName, sourceFile, expectedHash, actualHash, computedHashes);
+
+          verified = true;
         }
       }
+      catch (IOException ex) {
+        System.err.printf(
+          "Error while copying `%s` to `%s`: %s\n\n",
+          sourceFile.getAbsolutePath(),
+          destinationFile.getAbsolutePath(),
+          ex.getMessage());
+
+        this.addResult(sequence, fileName, expectedHash, "copy failed");
+      }
+
+      this.recordTiming(Stage.HASH_AND_COPY, startTime, sourceAttributes.size(), !verified);
     }
+
+    return verified;
   }
 
-  private boolean copyFile(String fileName, File sourceFile, String targetPath) {
-    boolean     success           = false;
-    final File  destinationFile   = new File(targetPath, fileName),
-                destinationParent = destinationFile.getParentFile();
+  /**
+   * Looks for every artifact of the CSV file in the source folder at once.
+   *
+   * @see SourceIndex
+   */
+  private SourceIndex indexSource(File sourceFolder, ArtifactHashIndex artifactHashes)
+  throws InterruptedException {
+    final long        startTime = this.startTiming();
+    final SourceIndex index     = SourceIndex.build(sourceFolder, artifactHashes, this.workerPools);
+
+    this.recordTiming(Stage.INDEX, startTime, 0, false);
+
+    return index;
+  }
+
+  private BasicFileAttributes readAttributes(File file) {
+    final long          startTime   = this.startTiming();
+    BasicFileAttributes attributes  = null;
 
     try {
-      Files.createDirectories(destinationParent.toPath());
+      attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
     }
     catch (IOException ex) {
-      System.err.printf(
-          "Failed to create path `%s`: %s\n\n",
-          destinationParent.getAbsolutePath(),
-          ex.getMessage());
+      // Treated the same as a file that does not exist.
+    }
+
+    this.recordTiming(Stage.STAT, startTime, 0, attributes == null);
+
+    return attributes;
+  }
+
+  /**
+   * Looks up the cached hashes of a file, but only if the cache has every hash that is needed.
+   */
+  private DigestSet getCachedDigests(File sourceFile, BasicFileAttributes sourceAttributes,
+                                     Set<HashAlgorithm> algorithms) {
+    final DigestCache digestCache   = this.getDigestCache();
+    DigestSet         cachedHashes  = null;
+
+    if (digestCache != null) {
+      cachedHashes = digestCache.get(sourceFile, sourceAttributes);
+
+      if ((cachedHashes != null) && !cachedHashes.containsAll(algorithms)) {
+        cachedHashes = null;
+      }
+    }
+
+    return cachedHashes;
+  }
+
+  private DigestSet computeDigests(File sourceFile, BasicFileAttributes sourceAttributes,
+                                   Set<HashAlgorithm> algorithms)
+  throws IOException {
+    final long  startTime = this.startTiming();
+    DigestSet   hashes    = null;
+
+    try {
+      hashes =
+        new FileDigest(sourceFile, sourceAttributes, algorithms, this.getDigestEngine())
+          .asDigestSet();
+    }
+    finally {
+      this.recordTiming(Stage.HASH, startTime, sourceAttributes.size(), hashes == null);
+    }
+
+    if (this.getDigestCache() != null) {
+      this.getDigestCache().put(sourceFile, sourceAttributes, hashes);
     }
 
-    if (destinationParent.exists()) {
+    return hashes;
+  }
+
+  /**
+   * Puts an artifact into the target folder with the {@linkplain #getCopyStrategy() copy
+   * strategy}. When {@linkplain #isSync() syncing}, this replaces any copy that is already there.
+   *
+   * @param computedHashes
+   *   The hashes computed from the artifact, or {@code null} if it was trusted without being
+   *   hashed.
+   */
+  private boolean copyFile(String fileName, File sourceFile, String targetPath,
+                           DigestSet computedHashes) {
+    boolean     success           = false;
+    final File  destinationFile   = new File(targetPath, fileName);
+
+    if (this.createParentFolder(destinationFile)) {
+      final long startTime = this.startTiming();
+
       try {
-        Files.copy(sourceFile.toPath(), destinationFile.toPath());
+        if (this.isSync()) {
+          this.replaceFile(sourceFile, new File(targetPath), destinationFile, computedHashes);
+        }
+        else {
+          this.getCopyStrategy().copy(
+            sourceFile, new File(targetPath), destinationFile, computedHashes);
+        }
 
         success = true;
       }
@@ -154,51 +1858,428 @@ public class ArtifactCurator {
           destinationFile.getAbsolutePath(),
           ex.getMessage());
       }
+
+      if (this.getMetrics() != null) {
+        // Sizing the copy costs an extra stat, so it is only done while measuring.
+        this.recordTiming(
+          Stage.COPY, startTime, success ? destinationFile.length() : 0, !success);
+      }
     }
 
     return success;
   }
 
-  private Map<String, String> getArtifactHashes(final File hashCsvFile)
+  /**
+   * Puts an artifact into the target folder in place of any copy that is already there, without
+   * touching the old copy until the new one is complete.
+   *
+   * <p>The new copy is made in the staging folder of the target tree, and then renamed over the
+   * destination file. If it cannot be made, it is deleted, and the old copy is left as it was.</p>
+   */
+  private void replaceFile(File sourceFile, File targetFolder, File destinationFile,
+                           DigestSet computedHashes)
   throws IOException {
-    Map<String, String> hashes = new HashMap<>();
+    final File stagingFolder = new File(targetFolder, HashingFileCopy.STAGING_FOLDER_NAME);
+    final Path stagedFile;
 
-    try (final FileReader csvReader = new FileReader(hashCsvFile)) {
-      Iterable<CSVRecord> records = CSVFormat.DEFAULT.withHeader().parse(csvReader);
+    if (!this.createFolder(stagingFolder)) {
+      throw new IOException("The staging folder cannot be created.");
+    }
 
-      records.forEach((record) -> {
-        final String  jarPath = record.get("Filename"),
-                      hash    = record.get("SHA1 Hash");
+    stagedFile =
+      Files.createTempFile(stagingFolder.toPath(), "." + destinationFile.getName(), ".tmp");
 
-        if (record.size() != 2) {
-          throw new IllegalArgumentException(
-            "CSV file must have exactly two columns (\"Filename\" and \"SHA1 Hash\").");
-        }
+    try {
+      // Only the name is wanted; copy strategies create the file themselves.
+      Files.delete(stagedFile);
+
+      this.getCopyStrategy().copy(sourceFile, targetFolder, stagedFile.toFile(), computedHashes);
+
+      HashingFileCopy.moveIntoPlace(stagedFile, destinationFile.toPath(), true);
+    }
+    finally {
+      Files.deleteIfExists(stagedFile);
+    }
+  }
+
+  /**
+   * Creates the parent folder of a file in the target folder, unless it is already known to exist.
+   *
+   * <p>Artifacts of the same version of a module share a folder, so the folders that have been
+   * created (or found) are remembered for the rest of the run. That way, the file system is only
+   * asked about each distinct folder once, rather than once per artifact &ndash; which matters on
+   * network file systems, where every such request is a round trip.</p>
+   */
+  private boolean createParentFolder(File destinationFile) {
+    return this.createFolder(destinationFile.getParentFile());
+  }
+
+  /**
+   * Creates a folder in the target folder, unless it is already known to exist.
+   *
+   * @see #createParentFolder(File)
+   */
+  private boolean createFolder(File folder) {
+    final String      folderPath    = folder.getPath();
+    final Set<String> knownFolders  = this.knownFolders;
+    boolean           created       = false;
+
+    if ((knownFolders != null) && knownFolders.contains(folderPath)) {
+      created = true;
+    }
+    else {
+      try {
+        Files.createDirectories(folder.toPath());
+
+        created = true;
+      }
+      catch (IOException ex) {
+        System.err.printf(
+            "Failed to create path `%s`: %s\n\n",
+            folder.getAbsolutePath(),
+            ex.getMessage());
+      }
 
-        hashes.put(jarPath, hash);
-      });
+      if (created && (knownFolders != null)) {
+        knownFolders.add(folderPath);
+      }
     }
 
+    return created;
+  }
+
+  /**
+   * Reads the whole CSV file into an index of expected hashes.
+   *
+   * @param hashCsvFile
+   *   The CSV file.
+   * @param rejectedRows
+   *   A list to which to add, for each row that was rejected because its hash is invalid or
+   *   conflicts with an earlier row, an action that reports the rejected row. These actions are
+   *   run once the results header has been written.
+   * @return
+   *   The index of expected hashes.
+   */
+  private ArtifactHashIndex getArtifactHashes(final File hashCsvFile,
+                                              final List<Runnable> rejectedRows)
+  throws IOException {
+    final ManifestReader    manifestReader  = new ManifestReader(hashCsvFile);
+    final ArtifactHashIndex hashes          =
+      new ArtifactHashIndex(manifestReader.readAlgorithms());
+
+    manifestReader.read((entry) -> {
+      final DigestSet entryHashes = entry.parseDigests();
+
+      if (entryHashes == null) {
+        rejectedRows.add(() -> this.addInvalidHashResult(this.resultSink.reserve(1), entry));
+      }
+      else if (hashes.add(entry.getFileName(), entryHashes, entry.getExpectedSize())
+               == SeenPathSet.Outcome.CONFLICT) {
+        rejectedRows.add(() -> this.addConflictResult(this.resultSink.reserve(1), entry));
+      }
+    });
+
+    hashes.trimToSize();
+
     return hashes;
   }
 
-  private void addResult(String fileName, String status) {
-    this.addResult(fileName, "none", "none", status);
+  /**
+   * Checks whether a status means that the artifact is in the target folder, verified.
+   */
+  private static boolean isCopied(String status) {
+    return status.equals("success") || status.equals("unchanged");
+  }
+
+  private static String normalizeHash(String hash) {
+    return hash.trim().toLowerCase();
+  }
+
+  private static String toHex(DigestSet hashes) {
+    return hashes.toPrimaryHex();
+  }
+
+  private static String toHex(DigestSet hashes, HashAlgorithm algorithm) {
+    return Hex.encode(hashes.get(algorithm));
+  }
+
+  private void addInvalidHashResult(long sequence, ManifestEntry entry) {
+    System.err.printf(
+      "`%s` has an invalid hash in the CSV file: `%s`\n\n",
+      entry.getFileName(),
+      String.join("`, `", entry.getHashes().values()));
+
+    this.addResult(
+      sequence, entry.getFileName(), normalizeHash(entry.getPrimaryHash()), "invalid hash");
+  }
+
+  private void addConflictResult(long sequence, ManifestEntry entry) {
+    System.err.printf(
+      "`%s` is listed in the CSV file more than once, with different hashes; only the first " +
+      "hash is used.\n\n",
+      entry.getFileName());
+
+    this.addResult(
+      sequence, entry.getFileName(), normalizeHash(entry.getPrimaryHash()), "conflicting hash");
+  }
+
+  /**
+   * Reports an artifact that failed verification, showing the hashes of the algorithm that did not
+   * match (which is not necessarily the primary algorithm).
+   */
+  private void addMismatchResult(long sequence, String fileName, DigestSet expectedHashes,
+                                 DigestSet computedHashes) {
+    final HashAlgorithm algorithm = expectedHashes.findMismatchIn(computedHashes);
+
+    this.addResult(
+      sequence,
+      fileName,
+      toHex(expectedHashes, algorithm),
+      toHex(computedHashes, algorithm),
+      "mismatch");
+  }
+
+  /**
+   * Wraps a task that reports the results for a run of sequence numbers, so that if it fails
+   * unexpectedly, the numbers it has not reported are given up rather than holding back every later
+   * result of an ordered run.
+   */
+  private Runnable forSequences(long firstSequence, int count, Runnable task) {
+    return () -> {
+      try {
+        task.run();
+      }
+      catch (RuntimeException ex) {
+        System.err.printf("Unexpected error while processing artifacts: %s\n\n", ex);
+
+        this.resultSink.skip(firstSequence, count);
+      }
+    };
+  }
+
+  private void addSuccessResult(long sequence, String fileName, File sourceFile,
+                                String expectedHash, String actualHash, DigestSet computedHashes) {
+    this.addSuccessResult(
+      sequence, fileName, sourceFile, expectedHash, actualHash, computedHashes, "success");
+  }
+
+  /**
+   * Reports an artifact that was copied, along with its license.
+   *
+   * @param computedHashes
+   *   The hashes computed from the artifact, or {@code null} if it was trusted without being
+   *   hashed.
+   */
+  private void addSuccessResult(long sequence, String fileName, File sourceFile,
+                                String expectedHash, String actualHash, DigestSet computedHashes,
+                                String status) {
+    // Sniffing is CPU-bound, so it is handed off to keep the I/O pool moving.
+    this.workerPools.submitCpu(this.forSequences(sequence, 1, () -> {
+      final String license = this.determineLicense(sourceFile, computedHashes);
+
+      this.addResult(sequence, fileName, expectedHash, actualHash, status, license);
+    }));
+  }
+
+  /**
+   * Determines the license of an artifact, from the license cache if the artifact has been hashed
+   * and its contents have been sniffed before.
+   */
+  private String determineLicense(File sourceFile, DigestSet computedHashes) {
+    final LicenseSniffer  licenseSniffer  =
+                            LicenseSnifferFactory.getSnifferFor(
+                              sourceFile,
+                              this.jarScanPolicy,
+                              this.pomLicenseResolver,
+                              this::startSniffingHelper);
+    final LicenseCache    licenseCache    = this.getLicenseCache();
+    String                cacheKey        = null,
+                          license         = null;
+
+    if ((licenseCache != null) && (computedHashes != null)) {
+      try {
+        cacheKey  = LicenseCache.keyOf(licenseSniffer, computedHashes);
+        license   = licenseCache.get(cacheKey);
+      }
+      catch (IOException ex) {
+        // Sniffed without the cache; the sniffer reports why it cannot read the inputs.
+      }
+    }
+
+    if ((license != null) && (this.getMetrics() != null)) {
+      this.getMetrics().recordLicenseCacheHit();
+    }
+
+    if (license == null) {
+      final long startTime = this.startTiming();
+
+      license = licenseSniffer.determineLicense();
+
+      if (this.getMetrics() != null) {
+        this.getMetrics().recordSniff(
+          licenseSniffer.getClass().getSimpleName(), System.nanoTime() - startTime);
+      }
+
+      if (cacheKey != null) {
+        try {
+          licenseCache.put(cacheKey, license);
+        }
+        catch (IOException ex) {
+          System.err.printf(
+            "Error while caching license of `%s`: %s\n\n",
+            sourceFile.getAbsolutePath(),
+            ex.getMessage());
+        }
+      }
+    }
+
+    return license;
+  }
+
+  /**
+   * Starts a thread on the CPU pool to help read a large JAR for its license, if the pool has
+   * room for it; the sniffer reads the JAR itself either way.
+   */
+  private void startSniffingHelper(Runnable helper) {
+    final WorkerPools workerPools = this.workerPools;
+
+    if ((workerPools == null) || !workerPools.trySubmitCpu(helper)) {
+      throw new RejectedExecutionException("The CPU pool is saturated.");
+    }
+  }
+
+  private void addResult(long sequence, String fileName, String status) {
+    this.addResult(sequence, fileName, "none", "none", status);
+  }
+
+  private void addResult(long sequence, String fileName, String expectedHash, String status) {
+    this.addResult(sequence, fileName, expectedHash, "none", status);
+  }
+
+  private void addResult(long sequence, String fileName, String expectedHash, String actualHash,
+                         String status) {
+    this.addResult(sequence, fileName, expectedHash, actualHash, status, "none");
+  }
+
+  private void addResult(long sequence, String fileName, String expectedHash, String actualHash,
+                         String status, String license) {
+    final ArtifactResult result =
+      new ArtifactResult(fileName, expectedHash, actualHash, status, license);
+
+    this.resultSink.add(sequence, result);
+
+    if (this.runJournal != null) {
+      this.recordInJournal(result);
+    }
+
+    if (this.getMetrics() != null) {
+      this.getMetrics().recordCompletedArtifact();
+    }
+  }
+
+  /**
+   * Records an artifact in the journal, if it will not need to be processed again when resuming:
+   * i.e. if it was copied (or was already up to date), or failed verification. Artifacts that are
+   * missing, of the wrong size, or could not be read or copied are always tried again, since a
+   * truncated download may since have been finished.
+   */
+  private void recordInJournal(ArtifactResult result) {
+    final String status = result.getStatus();
+
+    try {
+      if (isCopied(status)) {
+        final File destinationFile =
+          new File(this.runJournal.getTargetFolder(), result.getFileName());
+
+        this.runJournal.record(result, destinationFile.length());
+      }
+      else if (status.equals("mismatch")) {
+        this.runJournal.record(result, -1);
+      }
+    }
+    catch (IOException ex) {
+      System.err.printf(
+        "Error while recording `%s` in the journal: %s\n\n",
+        result.getFileName(),
+        ex.getMessage());
+    }
+  }
+
+  /**
+   * Starts timing a stage of the work on an artifact.
+   *
+   * @return
+   *   The current time, or {@code 0} (without reading the clock) if nothing is measured.
+   */
+  private long startTiming() {
+    return (this.getMetrics() == null) ? 0 : System.nanoTime();
   }
 
-  private void addResult(String fileName, String expectedHash, String status) {
-    this.addResult(fileName, expectedHash, "none", status);
+  /**
+   * Records the time since {@link #startTiming()} against a stage, if anything is measured.
+   */
+  private void recordTiming(Stage stage, long startTime, long bytes, boolean failed) {
+    final RunMetrics metrics = this.getMetrics();
+
+    if (metrics != null) {
+      metrics.record(stage, System.nanoTime() - startTime, bytes);
+
+      if (failed) {
+        metrics.getStage(stage).recordFailure();
+      }
+    }
   }
 
-  private void addResult(String fileName, String expectedHash, String actualHash, String status) {
-    this.addResult(fileName, expectedHash, actualHash, status, "none");
+  /**
+   * Opens the sink that the results of a run are written to.
+   */
+  private ResultSink openResultSink()
+  throws IOException {
+    final File                outputFile = this.getOutputFile();
+    final WritableByteChannel outputChannel;
+
+    if (outputFile == null) {
+      // Shielded, so that standard out stays open for the rest of the JVM.
+      outputChannel =
+        Channels.newChannel(
+          new CloseShieldOutputStream(new FileOutputStream(FileDescriptor.out)));
+    }
+    else {
+      outputChannel =
+        FileChannel.open(
+          outputFile.toPath(),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.WRITE);
+    }
+
+    return new AsyncResultSink(outputChannel, this.getOutputFormat(), this.isOrderedOutput());
   }
 
-  private synchronized void addResult(String fileName, String expectedHash, String actualHash,
-      String status, String license) {
-    System.out.println(String.join(",", fileName, expectedHash, actualHash, status, license));
+  /**
+   * Opens the journal of a run, if it keeps one.
+   *
+   * @return
+   *   The journal, or {@code null} if the run keeps none.
+   */
+  private RunJournal openRunJournal(File targetFolder)
+  throws IOException {
+    final RunJournal runJournal;
+
+    if (this.isResume()) {
+      runJournal = RunJournal.resume(targetFolder);
+    }
+    else if (this.isJournal()) {
+      runJournal = RunJournal.create(targetFolder);
+    }
+    else {
+      runJournal = null;
+    }
+
+    return runJournal;
   }
 
+
   private File openFile(String filePath) {
     File file = new File(filePath);
 
@@ -0,0 +1,161 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Set;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngine;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngineFactory;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+
+/**
+ * A utility class for obtaining several hashes of a file while reading it only once.
+ *
+ * <p>Each buffer that is read from the file is fed to one {@link MessageDigest} per algorithm.
+ * The way the file is read is determined by the {@link DigestEngine} of the digest, which
+ * defaults to {@link DigestEngineFactory#getDefaultEngine()}.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class FileDigest {
+  private File sourceFile;
+  private Set<HashAlgorithm> algorithms;
+  private DigestEngine digestEngine;
+
+  public File getSourceFile() {
+    return this.sourceFile;
+  }
+
+  public void setSourceFile(File sourceFile) {
+    if (sourceFile == null) {
+      throw new IllegalArgumentException("sourceFile cannot be null.");
+    }
+
+    if (!sourceFile.isFile()) {
+      throw new IllegalArgumentException("sourceFile must be an existing file.");
+    }
+
+    this.sourceFile = sourceFile;
+  }
+
+  /**
+   * Sets the file to hash, using attributes of the file that have already been read, rather than
+   * asking the file system whether it exists again.
+   *
+   * @param sourceFile
+   *   The file to hash.
+   * @param sourceAttributes
+   *   The attributes of the file.
+   */
+  public void setSourceFile(File sourceFile, BasicFileAttributes sourceAttributes) {
+    if (sourceFile == null) {
+      throw new IllegalArgumentException("sourceFile cannot be null.");
+    }
+
+    if ((sourceAttributes == null) || !sourceAttributes.isRegularFile()) {
+      throw new IllegalArgumentException("sourceFile must be an existing file.");
+    }
+
+    this.sourceFile = sourceFile;
+  }
+
+  public Set<HashAlgorithm> getAlgorithms() {
+    return this.algorithms;
+  }
+
+  public void setAlgorithms(Collection<HashAlgorithm> algorithms) {
+    if (algorithms == null) {
+      throw new IllegalArgumentException("algorithms cannot be null.");
+    }
+
+    if (algorithms.isEmpty()) {
+      throw new IllegalArgumentException("algorithms cannot be empty.");
+    }
+
+    this.algorithms = EnumSet.copyOf(algorithms);
+  }
+
+  public DigestEngine getDigestEngine() {
+    return this.digestEngine;
+  }
+
+  public void setDigestEngine(DigestEngine digestEngine) {
+    if (digestEngine == null) {
+      throw new IllegalArgumentException("digestEngine cannot be null.");
+    }
+
+    this.digestEngine = digestEngine;
+  }
+
+  public FileDigest(File sourceFile, Collection<HashAlgorithm> algorithms) {
+    this(sourceFile, algorithms, DigestEngineFactory.getDefaultEngine());
+  }
+
+  public FileDigest(File sourceFile, Collection<HashAlgorithm> algorithms,
+                    DigestEngine digestEngine) {
+    this.setSourceFile(sourceFile);
+    this.setAlgorithms(algorithms);
+    this.setDigestEngine(digestEngine);
+  }
+
+  public FileDigest(File sourceFile, BasicFileAttributes sourceAttributes,
+                    Collection<HashAlgorithm> algorithms, DigestEngine digestEngine) {
+    this.setSourceFile(sourceFile, sourceAttributes);
+    this.setAlgorithms(algorithms);
+    this.setDigestEngine(digestEngine);
+  }
+
+  /**
+   * Reads the file and calculates each of its hashes.
+   *
+   * @return
+   *   The hashes of the file, one for each algorithm of this digest.
+   * @throws IOException
+   *   If the file cannot be read.
+   */
+  public DigestSet asDigestSet()
+  throws IOException {
+    final Set<HashAlgorithm>                algorithms  = this.getAlgorithms();
+    final MessageDigest[]                   digests     = new MessageDigest[algorithms.size()];
+    final EnumMap<HashAlgorithm, byte[]>    hashes      = new EnumMap<>(HashAlgorithm.class);
+    int                                     digestIndex = 0;
+
+    for (HashAlgorithm algorithm : algorithms) {
+      digests[digestIndex++] = this.createDigest(algorithm);
+    }
+
+    this.getDigestEngine().update(this.getSourceFile(), digests);
+
+    digestIndex = 0;
+
+    for (HashAlgorithm algorithm : algorithms) {
+      hashes.put(algorithm, digests[digestIndex++].digest());
+    }
+
+    return new DigestSet(hashes);
+  }
+
+  protected MessageDigest createDigest(HashAlgorithm algorithm) {
+    return algorithm.createDigest();
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Walks a folder tree one directory at a time, for the modes of {@link ArtifactCurator} that work
+ * from the files on disk rather than from a CSV file.
+ *
+ * <p>Each directory is handed to a {@link DirectoryHandler} once it has been fully listed, along
+ * with the attributes of the regular files directly inside it; directories without any regular
+ * files are not handed over. Only the files of the directories that are currently open (i.e. the
+ * path from the top of the tree down to the directory being listed) are held in memory at once.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+final class FolderWalker {
+  /**
+   * Receives each directory of the tree, along with the regular files inside it.
+   */
+  @FunctionalInterface
+  interface DirectoryHandler {
+    /**
+     * Handles a directory that has been fully listed.
+     *
+     * @param directory
+     *   The directory.
+     * @param files
+     *   The attributes of each regular file directly inside the directory, by file name; never
+     *   empty.
+     */
+    void visitDirectory(Path directory, Map<String, BasicFileAttributes> files);
+
+    /**
+     * Handles a file or directory that could not be read. The walk carries on regardless.
+     *
+     * <p>By default, the failure is reported on standard error.</p>
+     *
+     * @param path
+     *   The file or directory.
+     * @param ex
+     *   Why it could not be read.
+     */
+    default void visitFailed(Path path, IOException ex) {
+      System.err.printf("Failed to read `%s`: %s\n\n", path, ex.getMessage());
+    }
+  }
+
+  private FolderWalker() {
+  }
+
+  /**
+   * Walks a folder tree, from the top down.
+   *
+   * <p>Directories are handed over as their listing finishes, so every directory is handed over
+   * after the directories inside it.</p>
+   *
+   * @param root
+   *   The top of the tree.
+   * @param handler
+   *   The handler to give each directory to.
+   * @throws IOException
+   *   If the top of the tree cannot be read.
+   */
+  static void walk(Path root, DirectoryHandler handler)
+  throws IOException {
+    final Deque<Map<String, BasicFileAttributes>> openDirectories = new ArrayDeque<>();
+
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+        openDirectories.push(new HashMap<>());
+
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        if (attributes.isRegularFile()) {
+          openDirectories.peek().put(file.getFileName().toString(), attributes);
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException ex) {
+        handler.visitFailed(file, ex);
+
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path directory, IOException ex) {
+        final Map<String, BasicFileAttributes> files = openDirectories.pop();
+
+        if (ex != null) {
+          handler.visitFailed(directory, ex);
+        }
+        else if (!files.isEmpty()) {
+          handler.visitDirectory(directory, files);
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
@@ -0,0 +1,249 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Set;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+
+/**
+ * A copy of a file that calculates one or more hashes of the file while it is being copied, so that
+ * the source file only has to be read once.
+ *
+ * <p>The source file is streamed into a temporary file in a staging folder, which must be on the
+ * same file system as the destination file (normally {@value #STAGING_FOLDER_NAME} at the top of
+ * the target tree). Once the hash has been checked, the copy is either {@linkplain #commit()
+ * committed}, which atomically renames the temporary file into place, or {@linkplain #close()
+ * closed} without being committed, which deletes the temporary file. Nothing is created next to
+ * the destination file until the copy is committed, so an artifact that fails verification leaves
+ * no empty folders behind.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class HashingFileCopy
+implements AutoCloseable {
+  /**
+   * The name of the staging folder at the top of the target tree.
+   */
+  public static final String STAGING_FOLDER_NAME = ".artifact-curator.staging";
+
+  private static final int COPY_BUFFER_SIZE = 65536;
+
+  private final File sourceFile;
+  private final File destinationFile;
+  private final File stagingFolder;
+  private final Set<HashAlgorithm> algorithms;
+
+  private Path tempFile;
+
+  public HashingFileCopy(File sourceFile, File destinationFile, File stagingFolder,
+                         Collection<HashAlgorithm> algorithms) {
+    if (sourceFile == null) {
+      throw new IllegalArgumentException("sourceFile cannot be null.");
+    }
+
+    if (destinationFile == null) {
+      throw new IllegalArgumentException("destinationFile cannot be null.");
+    }
+
+    if (stagingFolder == null) {
+      throw new IllegalArgumentException("stagingFolder cannot be null.");
+    }
+
+    if ((algorithms == null) || algorithms.isEmpty()) {
+      throw new IllegalArgumentException("algorithms cannot be null or empty.");
+    }
+
+    this.sourceFile       = sourceFile;
+    this.destinationFile  = destinationFile;
+    this.stagingFolder    = stagingFolder;
+    this.algorithms       = EnumSet.copyOf(algorithms);
+  }
+
+  public File getSourceFile() {
+    return this.sourceFile;
+  }
+
+  public File getDestinationFile() {
+    return this.destinationFile;
+  }
+
+  public File getStagingFolder() {
+    return this.stagingFolder;
+  }
+
+  public Set<HashAlgorithm> getAlgorithms() {
+    return this.algorithms;
+  }
+
+  /**
+   * Copies the source file to a temporary file in the staging folder, calculating the hashes of
+   * the source file along the way.
+   *
+   * <p>The staging folder must already exist.</p>
+   *
+   * @return
+   *   The hashes of the source file, one for each algorithm of this copy.
+   * @throws IOException
+   *   If the source file cannot be read or the temporary file cannot be written.
+   */
+  public DigestSet copy()
+  throws IOException {
+    final Set<HashAlgorithm>              algorithms      = this.getAlgorithms();
+    final MessageDigest[]                 digests         = new MessageDigest[algorithms.size()];
+    final EnumMap<HashAlgorithm, byte[]>  hashes          = new EnumMap<>(HashAlgorithm.class);
+    final File                            destinationFile = this.getDestinationFile();
+    int                                   digestIndex     = 0;
+
+    for (HashAlgorithm algorithm : algorithms) {
+      digests[digestIndex++] = this.createDigest(algorithm);
+    }
+
+    this.discard();
+
+    this.tempFile =
+      Files.createTempFile(
+        this.getStagingFolder().toPath(),
+        "." + destinationFile.getName(),
+        ".tmp");
+
+    try (InputStream  sourceStream  = new FileInputStream(this.getSourceFile());
+         OutputStream tempStream    = new FileOutputStream(this.tempFile.toFile())) {
+      final byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+      int          readLength;
+
+      while ((readLength = sourceStream.read(copyBuffer)) != -1) {
+        for (MessageDigest digest : digests) {
+          digest.update(copyBuffer, 0, readLength);
+        }
+
+        tempStream.write(copyBuffer, 0, readLength);
+      }
+    }
+
+    digestIndex = 0;
+
+    for (HashAlgorithm algorithm : algorithms) {
+      hashes.put(algorithm, digests[digestIndex++].digest());
+    }
+
+    return new DigestSet(hashes);
+  }
+
+  /**
+   * Moves the copied file into place at the destination.
+   *
+   * <p>The parent folder of the destination file must already exist.</p>
+   *
+   * @throws IOException
+   *   If the temporary file cannot be renamed to the destination file.
+   */
+  public void commit()
+  throws IOException {
+    this.commit(false);
+  }
+
+  /**
+   * Moves the copied file into place at the destination, optionally in place of a file that is
+   * already there.
+   *
+   * <p>The parent folder of the destination file must already exist.</p>
+   *
+   * @param replaceExisting
+   *   Whether to replace the destination file if it exists.
+   * @throws IOException
+   *   If the temporary file cannot be renamed to the destination file.
+   */
+  public void commit(boolean replaceExisting)
+  throws IOException {
+    if (this.tempFile == null) {
+      throw new IllegalStateException("The file has not been copied yet.");
+    }
+
+    moveIntoPlace(this.tempFile, this.getDestinationFile().toPath(), replaceExisting);
+
+    this.tempFile = null;
+  }
+
+  /**
+   * Renames a temporary file in the staging folder to its destination, atomically where the file
+   * system supports it, so that the destination never holds a partial file.
+   *
+   * @param tempFile
+   *   The temporary file.
+   * @param destinationPath
+   *   The destination file, whose parent folder must already exist.
+   * @param replaceExisting
+   *   Whether to replace the destination file if it exists.
+   * @throws IOException
+   *   If the temporary file cannot be renamed to the destination file.
+   */
+  static void moveIntoPlace(Path tempFile, Path destinationPath, boolean replaceExisting)
+  throws IOException {
+    try {
+      Files.move(tempFile, destinationPath, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException ex) {
+      if (replaceExisting) {
+        Files.move(tempFile, destinationPath, StandardCopyOption.REPLACE_EXISTING);
+      }
+      else {
+        Files.move(tempFile, destinationPath);
+      }
+    }
+  }
+
+  /**
+   * Deletes the copied file, if it has not been committed.
+   *
+   * @throws IOException
+   *   If the temporary file cannot be deleted.
+   */
+  @Override
+  public void close()
+  throws IOException {
+    this.discard();
+  }
+
+  protected MessageDigest createDigest(HashAlgorithm algorithm) {
+    return algorithm.createDigest();
+  }
+
+  private void discard()
+  throws IOException {
+    if (this.tempFile != null) {
+      final Path tempFile = this.tempFile;
+
+      this.tempFile = null;
+
+      Files.deleteIfExists(tempFile);
+    }
+  }
+}
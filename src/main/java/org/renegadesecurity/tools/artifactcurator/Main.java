@@ -15,35 +15,230 @@
  */
 package org.renegadesecurity.tools.artifactcurator;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.renegadesecurity.tools.artifactcurator.copy.CopyStrategyFactory;
+import org.renegadesecurity.tools.artifactcurator.digest.AdaptiveDigestEngine;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestCache;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngineFactory;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.licensing.JarScanPolicy;
+import org.renegadesecurity.tools.artifactcurator.licensing.LicenseCache;
+import org.renegadesecurity.tools.artifactcurator.licensing.LicenseSnifferFactory;
+import org.renegadesecurity.tools.artifactcurator.metrics.ProgressReporter;
+import org.renegadesecurity.tools.artifactcurator.metrics.RunMetrics;
+import org.renegadesecurity.tools.artifactcurator.output.ResultFormat;
+import org.renegadesecurity.tools.artifactcurator.sidecar.SidecarSnapshot;
 
 /**
  * Main application class for the Artifact Curator application.
  *
  * <p>The purpose of this app is to authenticate the hash and license of several Maven artifacts.
- * The application takes in a CSV file that identifies a list of files and their SHA1 hashes,
- * along with source and destination paths.</p>
+ * The application takes in a CSV file that identifies a list of files and their SHA1 (and/or
+ * SHA256, SHA512, or MD5) hashes, along with source and destination paths.</p>
  *
  * @see ArtifactCurator#processArtifacts(String, String, String)}
  *
  * @author Kortanul (kortanul@protonmail.com)
  */
 public class Main {
+  /**
+   * How often progress is reported while metrics are collected, in seconds.
+   */
+  private static final long DEFAULT_PROGRESS_INTERVAL = 10;
+
+  private static final List<String> KNOWN_OPTIONS = Arrays.asList(
+    "copy-strategy",
+    "cpu-threads",
+    "digest-cache",
+    "digest-cache-max-age",
+    "digest-engine",
+    "discover",
+    "generate-manifest",
+    "io-threads",
+    "journal",
+    "license-agreeing-files",
+    "license-cache",
+    "license-cache-size",
+    "license-parallel-threshold",
+    "locality-order",
+    "manifest-hashes",
+    "metrics",
+    "metrics-file",
+    "mmap-threshold",
+    "ordered-output",
+    "output",
+    "output-format",
+    "progress-interval",
+    "prune",
+    "resume",
+    "sample-percent",
+    "sidecar-snapshot",
+    "sidecars",
+    "single-pass",
+    "streaming-manifest",
+    "sync",
+    "trust-license-files",
+    "trust-target-checksums",
+    "virtual-threads"
+  );
+
   private List<String> results;
 
   public static void main(String[] args) {
-    if (args.length != 3) {
+    final Map<String, String> options   = new HashMap<>();
+    final List<String>        arguments = new ArrayList<>();
+
+    try {
+      parseArguments(args, options, arguments);
+    }
+    catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      arguments.clear();
+    }
+
+    final boolean discover  = Boolean.parseBoolean(options.get("discover")),
+                  sidecars  = Boolean.parseBoolean(options.get("sidecars")),
+                  generate  = Boolean.parseBoolean(options.get("generate-manifest"));
+    final int     modes     = (discover ? 1 : 0) + (sidecars ? 1 : 0) + (generate ? 1 : 0);
+
+    if ((modes > 1) || (arguments.size() != ((modes == 1) ? 2 : 3))) {
       printUsage();
     }
     else {
-      final String  csvFilePath       = args[0],
-                    sourceFolderPath  = args[1],
-                    targetFolderPath  = args[2];
+      // Sidecar mode has no CSV file, so its arguments start one place earlier. Generating a
+      // manifest writes the CSV file, so it comes after the JAR directory.
+      final String  csvFilePath       =
+                      sidecars ? null : arguments.get(generate ? 1 : 0),
+                    sourceFolderPath  = arguments.get((sidecars || generate) ? 0 : 1),
+                    targetFolderPath  =
+                      (discover || generate) ? null : arguments.get(sidecars ? 1 : 2);
 
       ArtifactCurator curator = new ArtifactCurator();
 
       try {
-        curator.processArtifacts(csvFilePath, sourceFolderPath, targetFolderPath);
+        if (options.containsKey("digest-cache")) {
+          curator.setDigestCache(
+            DigestCache.open(
+              new File(options.get("digest-cache")),
+              (int)parseLongOption(
+                options, "digest-cache-max-age", DigestCache.DEFAULT_MAX_UNUSED_DAYS)));
+        }
+
+        if (options.containsKey("digest-engine") || options.containsKey("mmap-threshold")) {
+          final String  engineName        =
+                          options.getOrDefault("digest-engine", DigestEngineFactory.ENGINE_AUTO);
+          final long    mappingThreshold  =
+                          parseLongOption(
+                            options, "mmap-threshold",
+                            AdaptiveDigestEngine.DEFAULT_MAPPING_THRESHOLD);
+
+          curator.setDigestEngine(DigestEngineFactory.getEngine(engineName, mappingThreshold));
+        }
+
+        curator.setSinglePass(Boolean.parseBoolean(options.get("single-pass")));
+        curator.setLocalityOrder(Boolean.parseBoolean(options.get("locality-order")));
+
+        if (options.containsKey("copy-strategy")) {
+          curator.setCopyStrategy(CopyStrategyFactory.getStrategy(options.get("copy-strategy")));
+        }
+
+        curator.setIoThreads(
+          (int)parseLongOption(options, "io-threads", curator.getIoThreads()));
+
+        curator.setCpuThreads(
+          (int)parseLongOption(options, "cpu-threads", curator.getCpuThreads()));
+
+        curator.setVirtualThreads(Boolean.parseBoolean(options.get("virtual-threads")));
+
+        curator.setStreamingManifest(
+          Boolean.parseBoolean(options.get("streaming-manifest")));
+
+        curator.setSamplePercent(
+          (int)parseLongOption(options, "sample-percent", curator.getSamplePercent()));
+
+        if (options.containsKey("sidecar-snapshot")) {
+          curator.setSidecarSnapshot(
+            SidecarSnapshot.open(new File(options.get("sidecar-snapshot"))));
+        }
+
+        if (options.containsKey("output")) {
+          curator.setOutputFile(new File(options.get("output")));
+        }
+
+        if (options.containsKey("output-format")) {
+          curator.setOutputFormat(ResultFormat.forName(options.get("output-format")));
+        }
+
+        curator.setOrderedOutput(Boolean.parseBoolean(options.get("ordered-output")));
+        curator.setJournal(Boolean.parseBoolean(options.get("journal")));
+        curator.setResume(Boolean.parseBoolean(options.get("resume")));
+        curator.setSync(
+          Boolean.parseBoolean(options.get("sync")) || Boolean.parseBoolean(options.get("prune")));
+        curator.setTrustingTargetChecksums(
+          Boolean.parseBoolean(options.get("trust-target-checksums")));
+        curator.setPrune(Boolean.parseBoolean(options.get("prune")));
+
+        curator.setJarScanPolicy(
+          new JarScanPolicy(
+            (int)parseLongOption(options, "license-agreeing-files", 0),
+            Boolean.parseBoolean(options.get("trust-license-files")),
+            (int)parseLongOption(
+              options, "license-parallel-threshold", JarScanPolicy.DEFAULT_PARALLEL_THRESHOLD)));
+
+        if (options.containsKey("license-cache")) {
+          curator.setLicenseCache(
+            LicenseCache.open(
+              new File(options.get("license-cache")),
+              LicenseSnifferFactory.getRulesetVersion(curator.getJarScanPolicy()),
+              (int)parseLongOption(
+                options, "license-cache-size", LicenseCache.DEFAULT_MAX_ENTRIES)));
+        }
+
+        if (Boolean.parseBoolean(options.get("metrics")) || options.containsKey("metrics-file")) {
+          curator.setMetrics(new RunMetrics());
+        }
+
+        // Null without metrics, so closed in the finally block below.
+        final ProgressReporter progressReporter =
+          openProgressReporter(
+            curator.getMetrics(),
+            parseLongOption(options, "progress-interval", DEFAULT_PROGRESS_INTERVAL));
+
+        try {
+          if (discover) {
+            curator.discoverArtifacts(csvFilePath, sourceFolderPath);
+          }
+          else if (generate) {
+            curator.generateManifest(
+              sourceFolderPath, csvFilePath,
+              parseAlgorithmsOption(options, "manifest-hashes", HashAlgorithm.SHA1));
+          }
+          else if (sidecars) {
+            curator.verifySidecars(sourceFolderPath, targetFolderPath);
+          }
+          else {
+            curator.processArtifacts(csvFilePath, sourceFolderPath, targetFolderPath);
+          }
+        }
+        finally {
+          if (progressReporter != null) {
+            progressReporter.close();
+          }
+
+          if (curator.getMetrics() != null) {
+            writeMetrics(curator.getMetrics(), options.get("metrics-file"));
+          }
+        }
       }
 
       catch (Exception ex) {
@@ -52,9 +247,208 @@ public class Main {
     }
   }
 
+  /**
+   * Splits the command-line arguments into options (of the form {@code --name} or
+   * {@code --name=value}) and positional arguments.
+   *
+   * @param args
+   *   The raw command-line arguments.
+   * @param options
+   *   The map to populate with options. Options without a value are mapped to {@code "true"}.
+   * @param arguments
+   *   The list to populate with positional arguments, in order.
+   */
+  private static void parseArguments(String[] args, Map<String, String> options,
+                                     List<String> arguments) {
+    for (String arg : args) {
+      if (arg.startsWith("--")) {
+        final int     separatorIndex  = arg.indexOf('=');
+        final String  name,
+                      value;
+
+        if (separatorIndex == -1) {
+          name  = arg.substring(2);
+          value = "true";
+        }
+        else {
+          name  = arg.substring(2, separatorIndex);
+          value = arg.substring(separatorIndex + 1);
+        }
+
+        if (!KNOWN_OPTIONS.contains(name)) {
+          throw new IllegalArgumentException(String.format("Unknown option `%s`.", arg));
+        }
+
+        options.put(name, value);
+      }
+      else {
+        arguments.add(arg);
+      }
+    }
+  }
+
+  /**
+   * Starts reporting progress on standard error, if metrics are collected.
+   *
+   * @return
+   *   The reporter, or {@code null} if there are no metrics or the interval is {@code 0}.
+   */
+  private static ProgressReporter openProgressReporter(RunMetrics metrics, long intervalSeconds) {
+    ProgressReporter reporter = null;
+
+    if ((metrics != null) && (intervalSeconds > 0)) {
+      reporter = new ProgressReporter(metrics, intervalSeconds, System.err);
+    }
+
+    return reporter;
+  }
+
+  /**
+   * Writes the summary of the metrics of a run as JSON, either to a file or to standard error.
+   */
+  private static void writeMetrics(RunMetrics metrics, String metricsFilePath)
+  throws IOException {
+    final String summary = metrics.toJson();
+
+    if (metricsFilePath == null) {
+      System.err.println(summary);
+    }
+    else {
+      Files.write(
+        new File(metricsFilePath).toPath(),
+        (summary + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private static long parseLongOption(Map<String, String> options, String name,
+                                      long defaultValue) {
+    final String  value = options.get(name);
+    long          result;
+
+    if (value == null) {
+      result = defaultValue;
+    }
+    else {
+      try {
+        result = Long.parseLong(value);
+      }
+      catch (NumberFormatException ex) {
+        throw new IllegalArgumentException(
+          String.format("Option `--%s` must be a whole number, but was `%s`.", name, value));
+      }
+    }
+
+    return result;
+  }
+
+  private static Set<HashAlgorithm> parseAlgorithmsOption(Map<String, String> options,
+                                                         String name,
+                                                         HashAlgorithm defaultAlgorithm) {
+    final String              value       = options.get(name);
+    final Set<HashAlgorithm>  algorithms  = EnumSet.noneOf(HashAlgorithm.class);
+
+    if (value == null) {
+      algorithms.add(defaultAlgorithm);
+    }
+    else {
+      for (String algorithmName : value.split(",")) {
+        final HashAlgorithm algorithm = HashAlgorithm.forName(algorithmName.trim());
+
+        if (algorithm == null) {
+          throw new IllegalArgumentException(
+            String.format(
+              "Option `--%s` must be a list of sha1, sha256, sha512, or md5, but was `%s`.",
+              name, value));
+        }
+
+        algorithms.add(algorithm);
+      }
+    }
+
+    return algorithms;
+  }
+
   private static void printUsage() {
     System.err.printf(
-      "Usage: java %s <csv file containing file hashes> <path to directory containing JARs> \n" +
-      "       <path for where to write verified JARs>\n", Main.class.getName());
+      "Usage: java %1$s [options] <csv file containing file hashes> \n" +
+      "       <path to directory containing JARs> <path for where to write verified JARs>\n" +
+      "   or: java %1$s --discover [options] <csv file containing file hashes> \n" +
+      "       <path to directory containing JARs>\n" +
+      "   or: java %1$s --sidecars [options] <path to directory containing JARs> \n" +
+      "       <path for where to write verified JARs>\n" +
+      "   or: java %1$s --generate-manifest [options] \n" +
+      "       <path to directory containing trusted JARs> <csv file to write>\n" +
+      "\n" +
+      "Options:\n" +
+      "  --digest-cache=<file>   Cache file digests between runs, so that unchanged files\n" +
+      "                          are not hashed again.\n" +
+      "  --digest-cache-max-age=<n>\n" +
+      "                          Days that a cache entry is kept without being used\n" +
+      "                          (default 30).\n" +
+      "  --digest-engine=<name>  How files are read while hashing: stream, channel, mmap,\n" +
+      "                          or auto (the default).\n" +
+      "  --mmap-threshold=<n>    Size in bytes at or above which the auto engine maps files\n" +
+      "                          into memory instead of reading them (default 64 MB).\n" +
+      "  --single-pass           Hash and copy each artifact in a single read, instead of\n" +
+      "                          reading verified artifacts a second time to copy them.\n" +
+      "  --copy-strategy=<name>  How verified artifacts are put into the target folder:\n" +
+      "                          copy (the default), hardlink, reflink, or cas.\n" +
+      "  --io-threads=<n>        Threads that stat, hash, and copy artifacts\n" +
+      "                          (default 4 per processor).\n" +
+      "  --cpu-threads=<n>       Threads that sniff licenses (default 1 per processor).\n" +
+      "  --virtual-threads       Stat, hash, and copy on virtual threads (Java 21+), with\n" +
+      "                          at most --io-threads running at once.\n" +
+      "  --streaming-manifest    Start processing artifacts while the CSV file is still\n" +
+      "                          being read, instead of loading it all first.\n" +
+      "  --locality-order        Process artifacts a folder at a time, in path and inode\n" +
+      "                          order, instead of in the order of the CSV file.\n" +
+      "  --discover              Hash every file under the JAR directory and look each one\n" +
+      "                          up in the CSV file by hash; report only, nothing is copied.\n" +
+      "  --sidecars              Verify each artifact against the .sha1 (etc.) files next to\n" +
+      "                          it, instead of against a CSV file.\n" +
+      "  --generate-manifest     Write a CSV file of the size and hashes of every artifact\n" +
+      "                          under the JAR directory, to verify other copies against.\n" +
+      "  --manifest-hashes=<list>\n" +
+      "                          With --generate-manifest, the hashes to write, e.g.\n" +
+      "                          sha1,sha256 (default sha1).\n" +
+      "  --sample-percent=<n>    With --sidecars, hash only this percentage of artifacts and\n" +
+      "                          trust the rest (default 100).\n" +
+      "  --sidecar-snapshot=<file>\n" +
+      "                          With --sidecars, remember fully-verified directories in\n" +
+      "                          this file and trust them on later runs if unchanged.\n" +
+      "  --license-agreeing-files=<n>\n" +
+      "                          Stop reading a JAR once n of its files agree on a single\n" +
+      "                          license (default 0, which reads every file).\n" +
+      "  --trust-license-files   Take the license named by a top-level LICENSE or NOTICE\n" +
+      "                          file in a JAR as the license of the whole JAR.\n" +
+      "  --license-parallel-threshold=<n>\n" +
+      "                          Read JARs with at least n files to check on several\n" +
+      "                          threads of the CPU pool (default 0, which never does).\n" +
+      "  --license-cache=<file>  Cache licenses by artifact hash between runs, so that the\n" +
+      "                          same artifact is never sniffed twice.\n" +
+      "  --license-cache-size=<n>\n" +
+      "                          Licenses to keep in the cache (default 100000).\n" +
+      "  --output=<file>         Write results to this file instead of standard out.\n" +
+      "  --output-format=<name>  Format of the results: csv (the default) or jsonl.\n" +
+      "  --ordered-output        Write results in the order of the CSV file (or of the\n" +
+      "                          directory walk), so that runs can be diffed directly.\n" +
+      "  --journal               Keep a journal of finished artifacts in the target folder,\n" +
+      "                          so that the run can be resumed if it is interrupted.\n" +
+      "  --resume                Carry on from an earlier, interrupted run that kept a\n" +
+      "                          journal, skipping what it finished (implies --journal).\n" +
+      "  --sync                  Bring an existing target folder up to date, copying only\n" +
+      "                          new or changed artifacts.\n" +
+      "  --trust-target-checksums\n" +
+      "                          When syncing, take the checksum files next to a copy\n" +
+      "                          as its hashes if the digest cache does not know them.\n" +
+      "  --prune                 Delete files in the target folder that are not in the CSV\n" +
+      "                          file (implies --sync).\n" +
+      "  --metrics               Time each stage of the work, report progress on standard\n" +
+      "                          error, and print a JSON summary there at the end.\n" +
+      "  --metrics-file=<file>   Write the JSON summary to this file instead (implies\n" +
+      "                          --metrics).\n" +
+      "  --progress-interval=<n> With --metrics, seconds between progress lines\n" +
+      "                          (default 10; 0 never reports progress).\n",
+      Main.class.getName());
   }
 }
@@ -15,71 +15,41 @@
  */
 package org.renegadesecurity.tools.artifactcurator;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import javax.xml.bind.DatatypeConverter;
+import java.util.EnumSet;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngine;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestEngineFactory;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
 
 /**
  * A utility class for quickly obtaining the SHA1 hash of a file as a hexadecimal string.
  *
+ * <p>The way the file is read is determined by the {@link DigestEngine} of the digest, which
+ * defaults to {@link DigestEngineFactory#getDefaultEngine()}.</p>
+ *
+ * @see FileDigest
+ *
  * @author Kortanul (kortanul@protonmail.com)
  */
-public class Sha1FileDigest {
-  private File sourceFile;
-
-  public File getSourceFile() {
-    return this.sourceFile;
-  }
-
-  public void setSourceFile(File sourceFile) {
-    if (sourceFile == null) {
-      throw new IllegalArgumentException("sourceFile cannot be null.");
-    }
-
-    if (!sourceFile.isFile()) {
-      throw new IllegalArgumentException("sourceFile must be an existing file.");
-    }
-
-    this.sourceFile = sourceFile;
+public class Sha1FileDigest
+extends FileDigest {
+  public Sha1FileDigest(File sourceFile) {
+    this(sourceFile, DigestEngineFactory.getDefaultEngine());
   }
 
-  public Sha1FileDigest(File sourceFile) {
-    this.setSourceFile(sourceFile);
+  public Sha1FileDigest(File sourceFile, DigestEngine digestEngine) {
+    super(sourceFile, EnumSet.of(HashAlgorithm.SHA1), digestEngine);
   }
 
   public String asString()
   throws IOException {
-    return DatatypeConverter.printHexBinary(this.asBytes());
+    return Hex.encode(this.asBytes()).toUpperCase();
   }
 
   public byte[] asBytes()
   throws IOException {
-    final MessageDigest digest      = this.createSha1Digest();
-    final File          sourceFile  = this.getSourceFile();
-
-    try (InputStream sourceFileStream = new FileInputStream(sourceFile);
-         InputStream bufferedStream   = new BufferedInputStream(sourceFileStream)) {
-      final byte[] readBuffer = new byte[2048];
-      int          readLength;
-
-      while ((readLength = bufferedStream.read(readBuffer)) != -1) {
-        digest.update(readBuffer, 0, readLength);
-      }
-    }
-
-    return digest.digest();
-  }
-
-  protected MessageDigest createSha1Digest() {
-    try {
-      return MessageDigest.getInstance("SHA1");
-    } catch (NoSuchAlgorithmException ex) {
-      throw new RuntimeException("SHA1 algorithm is unexpectedly missing.");
-    }
+    return this.asDigestSet().get(HashAlgorithm.SHA1);
   }
 }
@@ -0,0 +1,77 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.archive;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.jar.Manifest;
+
+/**
+ * Read-only access to the entries of a ZIP-based archive (e.g. a JAR) that has been opened once, so
+ * that its manifest, embedded POMs, license files, and source files can all be read without the
+ * archive being opened and its directory parsed again for each of them.
+ *
+ * <p>Implementations must allow entries to be opened from several threads at once.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public interface ArchiveInspector
+extends Closeable {
+  public static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+  /**
+   * Gets the archive that is being inspected.
+   *
+   * @return
+   *   The archive file.
+   */
+  public File getArchiveFile();
+
+  /**
+   * Gets the manifest of the archive.
+   *
+   * @return
+   *   The manifest, or {@code null} if the archive does not have one.
+   * @throws IOException
+   *   If the manifest cannot be read.
+   */
+  public Manifest getManifest()
+  throws IOException;
+
+  /**
+   * Gets the names of the files in the archive (i.e. not including folders).
+   *
+   * @return
+   *   An unmodifiable list of the names, in the order they appear in the archive.
+   */
+  public List<String> getEntryNames();
+
+  /**
+   * Opens a file in the archive for reading.
+   *
+   * @param entryName
+   *   The full name of the file.
+   * @return
+   *   A stream over the contents of the file, which the caller must close.
+   * @throws IOException
+   *   If the file does not exist in the archive, or cannot be read.
+   */
+  public InputStream openEntry(String entryName)
+  throws IOException;
+}
@@ -0,0 +1,132 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.function.Predicate;
+
+/**
+ * Factory for opening an {@link ArchiveInspector} suited to the size of an archive.
+ *
+ * <p>Archives no larger than the in-memory threshold are read with a single sequential read and
+ * inspected in memory ({@link InMemoryArchiveInspector}). Artifacts are inspected right after they
+ * have been hashed, so these reads are almost always served from the page cache. Larger archives,
+ * and any archive that cannot be read as a stream (e.g. one with a stored entry followed by a data
+ * descriptor), are inspected through their central directory ({@link JarFileArchiveInspector}).</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ArchiveInspectorFactory {
+  /**
+   * The size of the largest archive that is inspected in memory, by default (1 MB).
+   */
+  public static final long DEFAULT_IN_MEMORY_THRESHOLD = 1024 * 1024;
+
+  /**
+   * Opens an archive, inspecting it in memory if it is no larger than the default threshold.
+   *
+   * @param archiveFile
+   *   The archive.
+   * @param wantedEntries
+   *   Which entries, by full name, the caller may open.
+   * @return
+   *   The inspector, which the caller must close.
+   * @throws IOException
+   *   If the archive cannot be opened.
+   */
+  public static ArchiveInspector open(File archiveFile, Predicate<String> wantedEntries)
+  throws IOException {
+    return open(archiveFile, wantedEntries, DEFAULT_IN_MEMORY_THRESHOLD);
+  }
+
+  /**
+   * Opens an archive, inspecting it in memory if it is no larger than the specified threshold.
+   *
+   * @param archiveFile
+   *   The archive.
+   * @param wantedEntries
+   *   Which entries, by full name, the caller may open.
+   * @param inMemoryThreshold
+   *   The size of the largest archive to inspect in memory, or {@code 0} to never do so.
+   * @return
+   *   The inspector, which the caller must close.
+   * @throws IOException
+   *   If the archive cannot be opened.
+   */
+  public static ArchiveInspector open(File archiveFile, Predicate<String> wantedEntries,
+                                      long inMemoryThreshold)
+  throws IOException {
+    ArchiveInspector inspector = null;
+
+    if (archiveFile.length() <= inMemoryThreshold) {
+      inspector =
+        openInMemory(archiveFile, Files.readAllBytes(archiveFile.toPath()), wantedEntries);
+    }
+
+    if (inspector == null) {
+      inspector = new JarFileArchiveInspector(archiveFile);
+    }
+
+    return inspector;
+  }
+
+  /**
+   * Opens an archive whose contents have already been read into memory.
+   *
+   * @param archiveFile
+   *   The file the archive was read from.
+   * @param archiveContents
+   *   The complete contents of the archive.
+   * @param wantedEntries
+   *   Which entries, by full name, the caller may open.
+   * @return
+   *   The inspector, which the caller must close.
+   * @throws IOException
+   *   If the archive cannot be opened.
+   */
+  public static ArchiveInspector open(File archiveFile, byte[] archiveContents,
+                                      Predicate<String> wantedEntries)
+  throws IOException {
+    ArchiveInspector inspector = openInMemory(archiveFile, archiveContents, wantedEntries);
+
+    if (inspector == null) {
+      inspector = new JarFileArchiveInspector(archiveFile);
+    }
+
+    return inspector;
+  }
+
+  /**
+   * @return
+   *   The inspector, or {@code null} if the contents cannot be read as a stream.
+   */
+  private static ArchiveInspector openInMemory(File archiveFile, byte[] archiveContents,
+                                               Predicate<String> wantedEntries) {
+    ArchiveInspector inspector;
+
+    try {
+      inspector = new InMemoryArchiveInspector(archiveFile, archiveContents, wantedEntries);
+    }
+    catch (IOException ex) {
+      // Fall back to the central directory, which is what the JDK trusts for JARs anyway.
+      inspector = null;
+    }
+
+    return inspector;
+  }
+}
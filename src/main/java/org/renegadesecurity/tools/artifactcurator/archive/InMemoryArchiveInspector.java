@@ -0,0 +1,143 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * An {@link ArchiveInspector} over the contents of a small archive that have already been read into
+ * memory.
+ *
+ * <p>The archive is decompressed in a single pass when the inspector is created. Only the entries
+ * that the caller says it wants (and the manifest) are kept; the rest are listed, but cannot be
+ * opened. This keeps the memory used by the inspector down to roughly the size of the text files in
+ * the archive, rather than the size of all of its classes.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class InMemoryArchiveInspector
+implements ArchiveInspector {
+  private final File archiveFile;
+  private final List<String> entryNames;
+  private final Map<String, byte[]> retainedEntries;
+
+  /**
+   * Reads an archive from memory.
+   *
+   * @param archiveFile
+   *   The file the archive was read from, for error messages.
+   * @param archiveContents
+   *   The complete contents of the archive.
+   * @param wantedEntries
+   *   Which entries, by full name, will be opened later and so should be kept.
+   * @throws IOException
+   *   If the contents are not a valid archive.
+   */
+  public InMemoryArchiveInspector(File archiveFile, byte[] archiveContents,
+                                  Predicate<String> wantedEntries)
+  throws IOException {
+    final List<String>        entryNames      = new ArrayList<>();
+    final Map<String, byte[]> retainedEntries = new HashMap<>();
+
+    if (archiveFile == null) {
+      throw new IllegalArgumentException("archiveFile cannot be null.");
+    }
+
+    if (archiveContents == null) {
+      throw new IllegalArgumentException("archiveContents cannot be null.");
+    }
+
+    if (wantedEntries == null) {
+      throw new IllegalArgumentException("wantedEntries cannot be null.");
+    }
+
+    try (final ZipInputStream zipStream =
+           new ZipInputStream(new ByteArrayInputStream(archiveContents))) {
+      ZipEntry entry;
+
+      while ((entry = zipStream.getNextEntry()) != null) {
+        final String entryName = entry.getName();
+
+        if (!entry.isDirectory() && !retainedEntries.containsKey(entryName)) {
+          entryNames.add(entryName);
+
+          if (entryName.equals(MANIFEST_NAME) || wantedEntries.test(entryName)) {
+            retainedEntries.put(entryName, IOUtils.toByteArray(zipStream));
+          }
+        }
+      }
+    }
+
+    this.archiveFile      = archiveFile;
+    this.entryNames       = Collections.unmodifiableList(entryNames);
+    this.retainedEntries  = retainedEntries;
+  }
+
+  @Override
+  public File getArchiveFile() {
+    return this.archiveFile;
+  }
+
+  @Override
+  public Manifest getManifest()
+  throws IOException {
+    final byte[]  manifestContents  = this.retainedEntries.get(MANIFEST_NAME);
+    Manifest      manifest          = null;
+
+    if (manifestContents != null) {
+      manifest = new Manifest(new ByteArrayInputStream(manifestContents));
+    }
+
+    return manifest;
+  }
+
+  @Override
+  public List<String> getEntryNames() {
+    return this.entryNames;
+  }
+
+  @Override
+  public InputStream openEntry(String entryName)
+  throws IOException {
+    final byte[] entryContents = this.retainedEntries.get(entryName);
+
+    if (entryContents == null) {
+      throw new FileNotFoundException(
+        String.format("`%s` was not kept in memory from `%s`.", entryName, this.archiveFile));
+    }
+
+    return new ByteArrayInputStream(entryContents);
+  }
+
+  @Override
+  public void close() {
+    this.retainedEntries.clear();
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.archive;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * An {@link ArchiveInspector} that reads entries from the archive on disk as they are opened,
+ * through a single {@link JarFile}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class JarFileArchiveInspector
+implements ArchiveInspector {
+  private final File archiveFile;
+  private final JarFile jarFile;
+  private final List<String> entryNames;
+
+  /**
+   * Opens an archive, reading its central directory.
+   *
+   * @param archiveFile
+   *   The archive.
+   * @throws IOException
+   *   If the archive cannot be opened.
+   */
+  public JarFileArchiveInspector(File archiveFile)
+  throws IOException {
+    if (archiveFile == null) {
+      throw new IllegalArgumentException("archiveFile cannot be null.");
+    }
+
+    this.archiveFile  = archiveFile;
+    this.jarFile      = new JarFile(archiveFile);
+    this.entryNames   = Collections.unmodifiableList(readEntryNames(this.jarFile));
+  }
+
+  @Override
+  public File getArchiveFile() {
+    return this.archiveFile;
+  }
+
+  @Override
+  public Manifest getManifest()
+  throws IOException {
+    return this.jarFile.getManifest();
+  }
+
+  @Override
+  public List<String> getEntryNames() {
+    return this.entryNames;
+  }
+
+  @Override
+  public InputStream openEntry(String entryName)
+  throws IOException {
+    final JarEntry entry = this.jarFile.getJarEntry(entryName);
+
+    if (entry == null) {
+      throw new FileNotFoundException(
+        String.format("`%s` does not contain `%s`.", this.archiveFile, entryName));
+    }
+
+    return this.jarFile.getInputStream(entry);
+  }
+
+  @Override
+  public void close()
+  throws IOException {
+    this.jarFile.close();
+  }
+
+  private static List<String> readEntryNames(JarFile jarFile) {
+    final List<String>          entryNames  = new ArrayList<>(jarFile.size());
+    final Enumeration<JarEntry> entries     = jarFile.entries();
+
+    while (entries.hasMoreElements()) {
+      final JarEntry entry = entries.nextElement();
+
+      if (!entry.isDirectory()) {
+        entryNames.add(entry.getName());
+      }
+    }
+
+    return entryNames;
+  }
+}
@@ -0,0 +1,164 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.copy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+
+/**
+ * A copy strategy that keeps a single "blob" of each distinct artifact in a content-addressed
+ * store inside the target folder, and hard links the blob into every path the artifact appears
+ * at.
+ *
+ * <p>Blobs are kept under {@value #BLOB_FOLDER_NAME} in the target folder, at
+ * {@code <algorithm>/<first two hex digits>/<hash>}, using the primary hash of the artifact (SHA1
+ * when there is a SHA1 column). The first copy of an artifact is written out in full, and every
+ * later copy with the same hash is just another link, so a cache full of duplicated artifacts
+ * takes up the space of its distinct artifacts only. Unlike a {@linkplain HardLinkCopyStrategy
+ * plain hard link}, this also works when the source folder is on another file system.</p>
+ *
+ * <p>Since every later copy of an artifact is linked to its blob without being read, blobs are
+ * checked before they are used: a new blob is hashed while it is written, and only moved into
+ * place if it still has the hash the artifact was verified with; and the first time a blob that
+ * was already in the store is used by this strategy, it is rewritten unless it has the size of
+ * the artifact.</p>
+ *
+ * <p>Artifacts that were not hashed (i.e. that are trusted) are simply copied. If the target file
+ * system does not support hard links, every artifact is copied out of the store instead.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ContentAddressedCopyStrategy
+implements CopyStrategy {
+  /**
+   * The name of the folder that blobs are kept in, relative to the target folder.
+   */
+  public static final String BLOB_FOLDER_NAME = ".blobs";
+
+  private final CopyStrategy linkStrategy = new HardLinkCopyStrategy();
+  private final CopyStrategy fallbackStrategy = new FileCopyStrategy();
+
+  /**
+   * The blobs that have been written or checked by this strategy, which are used as they are.
+   */
+  private final Set<File> checkedBlobs = ConcurrentHashMap.newKeySet();
+
+  @Override
+  public void copy(File sourceFile, File targetFolder, File destinationFile, DigestSet hashes)
+  throws IOException {
+    if (hashes == null) {
+      this.fallbackStrategy.copy(sourceFile, targetFolder, destinationFile, null);
+    }
+    else {
+      final File blobFile = getBlobFile(targetFolder, hashes);
+
+      if (!this.checkedBlobs.contains(blobFile)) {
+        // A blob of another size is left over from a run that stored a file as it was changing.
+        if (!blobFile.isFile() || (blobFile.length() != sourceFile.length())) {
+          storeBlob(sourceFile, blobFile, hashes);
+        }
+
+        this.checkedBlobs.add(blobFile);
+      }
+
+      this.linkStrategy.copy(blobFile, targetFolder, destinationFile, hashes);
+    }
+  }
+
+  @Override
+  public boolean isCopyingContents() {
+    // The hash of an artifact has to be known before it can be stored, so it cannot be hashed
+    // while it is being copied.
+    return false;
+  }
+
+  /**
+   * Gets where the blob with the specified hashes is kept.
+   *
+   * @param targetFolder
+   *   The top-level target folder.
+   * @param hashes
+   *   The hashes of the artifact.
+   * @return
+   *   The blob file, which may not exist yet.
+   */
+  public static File getBlobFile(File targetFolder, DigestSet hashes) {
+    final HashAlgorithm algorithm = hashes.getPrimaryAlgorithm();
+    final String        hash      =
+      Hex.encode(hashes.get(algorithm));
+
+    return new File(
+      targetFolder,
+      String.join(
+        File.separator,
+        BLOB_FOLDER_NAME, algorithm.getSidecarExtension(), hash.substring(0, 2), hash));
+  }
+
+  /**
+   * Writes a new blob. The blob is written to a temporary file first and then moved into place, so
+   * that two threads storing the same artifact at once never leave a partial blob behind.
+   *
+   * @throws IOException
+   *   If the source file cannot be copied, or no longer has the hash it was verified with.
+   */
+  private static void storeBlob(File sourceFile, File blobFile, DigestSet hashes)
+  throws IOException {
+    final Path          blobFolder  = blobFile.getParentFile().toPath();
+    final HashAlgorithm algorithm   = hashes.getPrimaryAlgorithm();
+    final MessageDigest digest      = algorithm.createDigest();
+    final Path          tempFile;
+
+    Files.createDirectories(blobFolder);
+
+    tempFile = Files.createTempFile(blobFolder, "." + blobFile.getName(), ".tmp");
+
+    try {
+      try (final InputStream sourceStream =
+             new DigestInputStream(Files.newInputStream(sourceFile.toPath()), digest)) {
+        Files.copy(sourceStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      if (!MessageDigest.isEqual(digest.digest(), hashes.get(algorithm))) {
+        throw new IOException(
+          String.format(
+            "`%s` changed after it was verified; it was not stored.",
+            sourceFile.getAbsolutePath()));
+      }
+
+      try {
+        Files.move(tempFile, blobFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException ex) {
+        Files.move(tempFile, blobFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally {
+      Files.deleteIfExists(tempFile);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.copy;
+
+import java.io.File;
+import java.io.IOException;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+
+/**
+ * Interface for a strategy that puts a verified artifact into the target folder.
+ *
+ * <p>Different strategies make different trade-offs between the disk space and time a copy takes,
+ * and how independent the copy is of the source file. Implementations must be safe to use from
+ * multiple threads at once.</p>
+ *
+ * @see CopyStrategyFactory
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public interface CopyStrategy {
+  /**
+   * Puts a copy of the specified file at the specified destination.
+   *
+   * @param sourceFile
+   *   The file to copy.
+   * @param targetFolder
+   *   The top-level target folder that the destination is in.
+   * @param destinationFile
+   *   Where to put the copy. Its parent folder must already exist, and it must not.
+   * @param hashes
+   *   The hashes of the file, if it has been hashed; or {@code null}.
+   * @throws IOException
+   *   If the copy cannot be made.
+   */
+  public void copy(File sourceFile, File targetFolder, File destinationFile, DigestSet hashes)
+  throws IOException;
+
+  /**
+   * Gets whether this strategy writes out the full contents of every file, in which case hashing
+   * and copying each file in a single pass saves reading it twice.
+   *
+   * @return
+   *   {@code true} if the contents of each file are written out.
+   */
+  public boolean isCopyingContents();
+}
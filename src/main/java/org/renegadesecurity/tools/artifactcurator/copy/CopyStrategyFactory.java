@@ -0,0 +1,78 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.copy;
+
+/**
+ * Factory for obtaining a {@link CopyStrategy} by name.
+ *
+ * <p>The following strategies are available:</p>
+ * <ul>
+ *   <li>{@code copy} &ndash; a full, independent copy ({@link FileCopyStrategy}).</li>
+ *   <li>{@code hardlink} &ndash; a hard link to the source file ({@link HardLinkCopyStrategy}).
+ *       </li>
+ *   <li>{@code reflink} &ndash; a copy-on-write clone of the source file
+ *       ({@link ReflinkCopyStrategy}).</li>
+ *   <li>{@code cas} &ndash; a hard link to a single copy of each distinct artifact in a
+ *       content-addressed store ({@link ContentAddressedCopyStrategy}).</li>
+ * </ul>
+ *
+ * <p>Strategies other than {@code copy} fall back to copying when the file systems involved do
+ * not support them.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class CopyStrategyFactory {
+  public static final String STRATEGY_COPY = "copy";
+  public static final String STRATEGY_HARDLINK = "hardlink";
+  public static final String STRATEGY_REFLINK = "reflink";
+  public static final String STRATEGY_CAS = "cas";
+
+  private static final CopyStrategy DEFAULT_STRATEGY = new FileCopyStrategy();
+
+  public static CopyStrategy getDefaultStrategy() {
+    return DEFAULT_STRATEGY;
+  }
+
+  public static CopyStrategy getStrategy(String strategyName) {
+    final CopyStrategy strategy;
+
+    switch (strategyName) {
+      case STRATEGY_COPY:
+        strategy = new FileCopyStrategy();
+        break;
+
+      case STRATEGY_HARDLINK:
+        strategy = new HardLinkCopyStrategy();
+        break;
+
+      case STRATEGY_REFLINK:
+        strategy = new ReflinkCopyStrategy();
+        break;
+
+      case STRATEGY_CAS:
+        strategy = new ContentAddressedCopyStrategy();
+        break;
+
+      default:
+        throw new IllegalArgumentException(
+          String.format(
+            "Unknown copy strategy `%s`; expected one of %s, %s, %s, or %s.",
+            strategyName, STRATEGY_COPY, STRATEGY_HARDLINK, STRATEGY_REFLINK, STRATEGY_CAS));
+    }
+
+    return strategy;
+  }
+}
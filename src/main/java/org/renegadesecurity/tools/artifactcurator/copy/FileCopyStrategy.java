@@ -0,0 +1,40 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.copy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+
+/**
+ * A copy strategy that writes a full, independent copy of each file (the original behaviour).
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class FileCopyStrategy
+implements CopyStrategy {
+  @Override
+  public void copy(File sourceFile, File targetFolder, File destinationFile, DigestSet hashes)
+  throws IOException {
+    Files.copy(sourceFile.toPath(), destinationFile.toPath());
+  }
+
+  @Override
+  public boolean isCopyingContents() {
+    return true;
+  }
+}
@@ -0,0 +1,43 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.copy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A copy strategy that hard links each file into the target folder, so that it takes up no
+ * additional space and no data is written at all.
+ *
+ * <p>The source and target folders must be on the same file system. Since the copy <em>is</em>
+ * the source file, anything that later modifies the file in place modifies both.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class HardLinkCopyStrategy
+extends LinkingCopyStrategy {
+  @Override
+  protected void link(File sourceFile, File targetFolder, File destinationFile)
+  throws IOException {
+    Files.createLink(destinationFile.toPath(), sourceFile.toPath());
+  }
+
+  @Override
+  protected String getDescription() {
+    return "hard link";
+  }
+}
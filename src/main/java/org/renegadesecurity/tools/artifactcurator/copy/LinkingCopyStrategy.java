@@ -0,0 +1,120 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.copy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+
+/**
+ * Base class for copy strategies that share the data of the source file with the copy, rather
+ * than writing it out again, where the file systems involved support it.
+ *
+ * <p>The first time that a file cannot be shared, a warning is printed, and that file and every
+ * file after it is {@linkplain FileCopyStrategy copied} instead. A run only ever has one source
+ * and one target folder, so there is no point in trying again.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public abstract class LinkingCopyStrategy
+implements CopyStrategy {
+  private final CopyStrategy fallbackStrategy = new FileCopyStrategy();
+  private final AtomicBoolean linkingSupported = new AtomicBoolean(true);
+
+  @Override
+  public void copy(File sourceFile, File targetFolder, File destinationFile, DigestSet hashes)
+  throws IOException {
+    boolean linked = false;
+
+    if (this.linkingSupported.get()) {
+      try {
+        this.link(sourceFile, targetFolder, destinationFile);
+
+        linked = true;
+      }
+      catch (FileAlreadyExistsException | NoSuchFileException ex) {
+        // Would fail the same way when copying.
+        throw ex;
+      }
+      catch (FileSystemException | UnsupportedOperationException ex) {
+        if (this.linkingSupported.getAndSet(false)) {
+          System.err.printf(
+            "Cannot %s `%s` to `%s` (%s); copying every artifact instead.\n\n",
+            this.getDescription(),
+            sourceFile.getAbsolutePath(),
+            destinationFile.getAbsolutePath(),
+            getReason(ex));
+        }
+      }
+    }
+
+    if (!linked) {
+      this.fallbackStrategy.copy(sourceFile, targetFolder, destinationFile, hashes);
+    }
+  }
+
+  @Override
+  public boolean isCopyingContents() {
+    return !this.linkingSupported.get();
+  }
+
+  /**
+   * Gets why a file could not be shared, without repeating the paths of the files.
+   */
+  private static String getReason(Exception ex) {
+    String reason = null;
+
+    if (ex instanceof FileSystemException) {
+      reason = ((FileSystemException)ex).getReason();
+    }
+
+    return (reason == null) ? ex.getMessage() : reason;
+  }
+
+  /**
+   * Shares the data of the source file with a new destination file.
+   *
+   * @param sourceFile
+   *   The file to share the data of.
+   * @param targetFolder
+   *   The top-level target folder that the destination is in, which may be used for scratch
+   *   files.
+   * @param destinationFile
+   *   The new file. Its parent folder must already exist, and it must not.
+   *
+   * @throws FileSystemException
+   *   If the file systems involved do not support sharing the data of the file.
+   * @throws UnsupportedOperationException
+   *   If the platform does not support sharing the data of the file, or the program that shares
+   *   it cannot be run.
+   * @throws IOException
+   *   If the destination file cannot be created for any other reason.
+   */
+  protected abstract void link(File sourceFile, File targetFolder, File destinationFile)
+  throws IOException;
+
+  /**
+   * Gets a description of how the data of a file is shared, for use in messages.
+   *
+   * @return
+   *   The description, as a verb (e.g. "hard link").
+   */
+  protected abstract String getDescription();
+}
@@ -0,0 +1,376 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.copy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A copy strategy that clones each file into the target folder with a copy-on-write "reflink",
+ * which shares the data of the source file until either file is modified.
+ *
+ * <p>Unlike a hard link, the copy is an independent file. Java has no API for cloning files, so
+ * this runs {@code cp --reflink=always} on Linux (which uses the {@code FICLONE} ioctl, supported
+ * by Btrfs, XFS, and others) and {@code cp -c} on macOS (which uses {@code clonefile} on APFS).
+ * Starting a process costs far more than cloning a file, so the files that threads ask for at the
+ * same time are cloned together, by a single {@code cp} for up to {@value #MAX_BATCH_SIZE} files:
+ * while one batch is being cloned, the files asked for in the meantime queue up for the next.</p>
+ *
+ * <p>Each batch is cloned into a folder of its own under {@value #CLONE_FOLDER_NAME} in the target
+ * folder, and each clone is then hard linked to its destination. Unlike {@code cp}, which would
+ * overwrite a file that turned up at the destination in the meantime (and, with
+ * {@code --no-clobber}, reports a skipped file differently from one version to the next), the
+ * link fails if the destination exists, without any window between checking and writing.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ReflinkCopyStrategy
+extends LinkingCopyStrategy {
+  /**
+   * The name of the folder that batches are cloned into, relative to the target folder. It is
+   * removed along with the last batch; one that is left behind by a run that was interrupted can
+   * be deleted.
+   */
+  public static final String CLONE_FOLDER_NAME = ".artifact-curator.clones";
+
+  /**
+   * The most files that a single {@code cp} clones.
+   */
+  public static final int MAX_BATCH_SIZE = 256;
+
+  private static final String OS_NAME = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+
+  /**
+   * Guards {@link #pendingClones} and {@link #cloning}.
+   */
+  private final Object batchMonitor = new Object();
+
+  /**
+   * Files that threads are waiting to have cloned, in the order they were asked for.
+   */
+  private final List<Clone> pendingClones = new ArrayList<>();
+
+  /**
+   * Whether a thread is cloning a batch; it clones the next batch too, unless another thread
+   * takes it first.
+   */
+  private boolean cloning;
+
+  @Override
+  protected void link(File sourceFile, File targetFolder, File destinationFile)
+  throws IOException {
+    final Clone clone       = new Clone(sourceFile, destinationFile);
+    boolean     interrupted = false;
+
+    synchronized (this.batchMonitor) {
+      this.pendingClones.add(clone);
+    }
+
+    while (true) {
+      final List<Clone> batch;
+
+      synchronized (this.batchMonitor) {
+        while (!clone.done && this.cloning) {
+          try {
+            this.batchMonitor.wait();
+          }
+          catch (InterruptedException ex) {
+            // Another thread may already be cloning the file, so it has to be waited for.
+            interrupted = true;
+          }
+        }
+
+        if (clone.done) {
+          break;
+        }
+
+        this.cloning  = true;
+        batch         = this.takeBatch();
+      }
+
+      try {
+        cloneBatch(targetFolder, batch);
+      }
+      finally {
+        synchronized (this.batchMonitor) {
+          for (Clone batchClone : batch) {
+            batchClone.done = true;
+          }
+
+          this.cloning = false;
+          this.batchMonitor.notifyAll();
+        }
+      }
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    clone.rethrowFailure();
+  }
+
+  @Override
+  protected String getDescription() {
+    return "clone";
+  }
+
+  /**
+   * Takes the next batch of pending clones. Since {@code cp} keeps the names of the files it
+   * clones into a folder, a file with the same name as one already in the batch waits for the
+   * next. The caller must hold {@link #batchMonitor}.
+   */
+  private List<Clone> takeBatch() {
+    final List<Clone>     batch     = new ArrayList<>();
+    final Set<String>     fileNames = new HashSet<>();
+    final Iterator<Clone> clones    = this.pendingClones.iterator();
+
+    while (clones.hasNext() && (batch.size() < MAX_BATCH_SIZE)) {
+      final Clone clone = clones.next();
+
+      if (fileNames.add(clone.sourceFile.getName())) {
+        batch.add(clone);
+        clones.remove();
+      }
+    }
+
+    return batch;
+  }
+
+  /**
+   * Clones a batch of files, and links each clone to its destination. Whatever goes wrong with a
+   * file is recorded in its {@link Clone}, rather than thrown.
+   */
+  private static void cloneBatch(File targetFolder, List<Clone> batch) {
+    final Path  cloneRoot   = new File(targetFolder, CLONE_FOLDER_NAME).toPath();
+    Path        batchFolder = null;
+
+    try {
+      final String cloneOutput;
+
+      Files.createDirectories(cloneRoot);
+
+      batchFolder = Files.createTempDirectory(cloneRoot, "batch");
+      cloneOutput = runClone(batch, batchFolder);
+
+      for (Clone clone : batch) {
+        clone.linkInto(batchFolder, cloneOutput);
+      }
+    }
+    catch (IOException | RuntimeException ex) {
+      for (Clone clone : batch) {
+        clone.fail(ex);
+      }
+    }
+    finally {
+      if (batchFolder != null) {
+        deleteBatchFolder(cloneRoot, batchFolder);
+      }
+    }
+  }
+
+  /**
+   * Runs {@code cp} for a batch.
+   *
+   * @return
+   *   {@code null} if every file was cloned; otherwise, what {@code cp} printed, which explains
+   *   why the files that were not cloned were not.
+   * @throws UnsupportedOperationException
+   *   If {@code cp} cannot be run at all (e.g. it is not on the path), in which case no file can
+   *   be cloned.
+   */
+  private static String runClone(List<Clone> batch, Path batchFolder)
+  throws IOException {
+    final Process process;
+    final String  output;
+    final int     exitCode;
+
+    try {
+      process =
+        new ProcessBuilder(getCloneCommand(batch, batchFolder))
+          .redirectErrorStream(true)
+          .start();
+    }
+    catch (IOException ex) {
+      throw new UnsupportedOperationException("Cannot run cp: " + ex.getMessage(), ex);
+    }
+
+    try (final InputStream outputStream = process.getInputStream()) {
+      output = IOUtils.toString(outputStream, StandardCharsets.UTF_8).trim();
+    }
+
+    try {
+      exitCode = process.waitFor();
+    }
+    catch (InterruptedException ex) {
+      process.destroy();
+      Thread.currentThread().interrupt();
+
+      throw new InterruptedIOException("Interrupted while cloning into " + batchFolder);
+    }
+
+    if (exitCode == 0) {
+      return null;
+    }
+
+    return output.isEmpty() ? ("cp exited with " + exitCode) : output;
+  }
+
+  /**
+   * Deletes the folder of a batch along with any clones that were not linked, and the folder of
+   * all batches if this leaves it empty.
+   */
+  private static void deleteBatchFolder(Path cloneRoot, Path batchFolder) {
+    try {
+      try (final DirectoryStream<Path> leftovers =
+             Files.newDirectoryStream(batchFolder)) {
+        for (Path leftover : leftovers) {
+          Files.deleteIfExists(leftover);
+        }
+      }
+
+      Files.deleteIfExists(batchFolder);
+    }
+    catch (IOException ex) {
+      System.err.printf("Failed to clear away `%s`: %s\n\n", batchFolder, ex.getMessage());
+    }
+
+    try {
+      Files.deleteIfExists(cloneRoot);
+    }
+    catch (IOException ex) {
+      // Not empty, since a clone could not be deleted; it was reported above.
+    }
+  }
+
+  private static List<String> getCloneCommand(List<Clone> batch, Path batchFolder) {
+    final List<String> command = new ArrayList<>();
+
+    if (OS_NAME.contains("linux")) {
+      command.add("cp");
+      command.add("--reflink=always");
+      command.add("--target-directory=" + batchFolder.toAbsolutePath());
+      command.add("--");
+
+      for (Clone clone : batch) {
+        command.add(clone.sourceFile.getAbsolutePath());
+      }
+    }
+    else if (OS_NAME.contains("mac")) {
+      command.add("cp");
+      command.add("-c");
+
+      for (Clone clone : batch) {
+        command.add(clone.sourceFile.getAbsolutePath());
+      }
+
+      command.add(batchFolder.toAbsolutePath().toString());
+    }
+    else {
+      throw new UnsupportedOperationException("Reflinks are not supported on " + OS_NAME);
+    }
+
+    return command;
+  }
+
+  /**
+   * A file that a thread is waiting to have cloned.
+   */
+  private static class Clone {
+    private final File sourceFile;
+    private final File destinationFile;
+
+    /**
+     * Set once the file has been cloned or has failed to be. Guarded by the
+     * {@link ReflinkCopyStrategy#batchMonitor} of the strategy.
+     */
+    private boolean done;
+
+    private IOException ioFailure;
+    private RuntimeException runtimeFailure;
+
+    public Clone(File sourceFile, File destinationFile) {
+      this.sourceFile       = sourceFile;
+      this.destinationFile  = destinationFile;
+    }
+
+    /**
+     * Links the clone of the file into place, or records why there is no clone.
+     *
+     * @param cloneOutput
+     *   What {@code cp} printed if it failed to clone any file of the batch, or {@code null}.
+     */
+    public void linkInto(Path batchFolder, String cloneOutput) {
+      final Path clonePath = batchFolder.resolve(this.sourceFile.getName());
+
+      try {
+        // A clone that failed leaves an empty file behind.
+        if (Files.isRegularFile(clonePath)
+            && ((cloneOutput == null) || (Files.size(clonePath) == this.sourceFile.length()))) {
+          // Unlike moving the clone, fails if the destination exists.
+          Files.createLink(this.destinationFile.toPath(), clonePath);
+        }
+        else if (!this.sourceFile.exists()) {
+          throw new NoSuchFileException(this.sourceFile.getAbsolutePath());
+        }
+        else {
+          throw new FileSystemException(
+            this.sourceFile.getAbsolutePath(),
+            this.destinationFile.getAbsolutePath(),
+            cloneOutput);
+        }
+      }
+      catch (IOException | RuntimeException ex) {
+        this.fail(ex);
+      }
+    }
+
+    public void fail(Exception failure) {
+      if (failure instanceof IOException) {
+        this.ioFailure = (IOException)failure;
+      }
+      else {
+        this.runtimeFailure = (RuntimeException)failure;
+      }
+    }
+
+    public void rethrowFailure()
+    throws IOException {
+      if (this.ioFailure != null) {
+        throw this.ioFailure;
+      }
+
+      if (this.runtimeFailure != null) {
+        throw this.runtimeFailure;
+      }
+    }
+  }
+}
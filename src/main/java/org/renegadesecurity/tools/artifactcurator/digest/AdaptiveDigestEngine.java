@@ -0,0 +1,80 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * A digest engine that picks another engine based on the size of each file.
+ *
+ * <p>Files smaller than the mapping threshold are read through a {@link ChannelDigestEngine};
+ * files at or above the threshold are read through a {@link MappedDigestEngine}.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class AdaptiveDigestEngine
+implements DigestEngine {
+  public static final long DEFAULT_MAPPING_THRESHOLD = 64L * 1024 * 1024;
+
+  private final ChannelDigestEngine smallFileEngine;
+  private final MappedDigestEngine largeFileEngine;
+  private final long mappingThreshold;
+
+  public AdaptiveDigestEngine() {
+    this(DEFAULT_MAPPING_THRESHOLD);
+  }
+
+  public AdaptiveDigestEngine(long mappingThreshold) {
+    this(new ChannelDigestEngine(), new MappedDigestEngine(), mappingThreshold);
+  }
+
+  public AdaptiveDigestEngine(ChannelDigestEngine smallFileEngine,
+                              MappedDigestEngine largeFileEngine, long mappingThreshold) {
+    if ((smallFileEngine == null) || (largeFileEngine == null)) {
+      throw new IllegalArgumentException("Engines cannot be null.");
+    }
+
+    if (mappingThreshold < 0) {
+      throw new IllegalArgumentException("mappingThreshold cannot be negative.");
+    }
+
+    this.smallFileEngine  = smallFileEngine;
+    this.largeFileEngine  = largeFileEngine;
+    this.mappingThreshold = mappingThreshold;
+  }
+
+  public long getMappingThreshold() {
+    return this.mappingThreshold;
+  }
+
+  @Override
+  public void update(File sourceFile, MessageDigest... digests)
+  throws IOException {
+    // The size comes from the open channel, so choosing an engine costs no extra stat.
+    try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+      if (channel.size() >= this.getMappingThreshold()) {
+        this.largeFileEngine.update(channel, digests);
+      }
+      else {
+        this.smallFileEngine.update(channel, digests);
+      }
+    }
+  }
+}
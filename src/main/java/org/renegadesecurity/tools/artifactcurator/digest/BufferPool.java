@@ -0,0 +1,83 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * A pool of direct byte buffers, shared by every thread.
+ *
+ * <p>Direct buffers are expensive to allocate and are only released when they are garbage
+ * collected, so buffers are handed back to the pool once a file has been read, and reused for the
+ * next file. A new buffer is only allocated when every buffer is in use, so the pool never holds
+ * more buffers than there have been files being read at once &ndash; which the I/O pool of
+ * {@link org.renegadesecurity.tools.artifactcurator.execution.WorkerPools} bounds, whether it
+ * runs on platform or virtual threads. (A buffer per thread would not be bounded on virtual
+ * threads, which are started afresh for every task.)</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class BufferPool {
+  private final int bufferSize;
+  private final Deque<ByteBuffer> idleBuffers;
+
+  public BufferPool(int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be greater than zero.");
+    }
+
+    this.bufferSize   = bufferSize;
+    this.idleBuffers  = new ConcurrentLinkedDeque<>();
+  }
+
+  public int getBufferSize() {
+    return this.bufferSize;
+  }
+
+  /**
+   * Takes a buffer out of the pool, allocating a new one if every buffer is in use.
+   *
+   * <p>The buffer must be handed back with {@link #release(ByteBuffer)} once it is no longer
+   * needed.</p>
+   *
+   * @return
+   *   A buffer, cleared and ready for use.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = this.idleBuffers.pollFirst();
+
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(this.bufferSize);
+    }
+
+    buffer.clear();
+
+    return buffer;
+  }
+
+  /**
+   * Hands a buffer back to the pool, so that it can be reused.
+   *
+   * @param buffer
+   *   A buffer that was taken out of this pool with {@link #acquire()}.
+   */
+  public void release(ByteBuffer buffer) {
+    // Most recently used first, so that the same few buffers stay warm in the cache.
+    this.idleBuffers.offerFirst(buffer);
+  }
+}
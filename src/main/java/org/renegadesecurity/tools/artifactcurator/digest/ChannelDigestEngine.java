@@ -0,0 +1,96 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * A digest engine that reads the file through a {@link FileChannel} into a large, direct buffer.
+ *
+ * <p>Reading into a direct buffer lets the operating system copy file data straight into memory
+ * that the digest can consume, and the large buffer keeps the number of read calls low. Buffers
+ * come from a {@link BufferPool}, so they are reused from one file to the next.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ChannelDigestEngine
+implements DigestEngine {
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private final BufferPool bufferPool;
+
+  public ChannelDigestEngine() {
+    this(new BufferPool(DEFAULT_BUFFER_SIZE));
+  }
+
+  public ChannelDigestEngine(BufferPool bufferPool) {
+    if (bufferPool == null) {
+      throw new IllegalArgumentException("bufferPool cannot be null.");
+    }
+
+    this.bufferPool = bufferPool;
+  }
+
+  public BufferPool getBufferPool() {
+    return this.bufferPool;
+  }
+
+  @Override
+  public void update(File sourceFile, MessageDigest... digests)
+  throws IOException {
+    try (FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ)) {
+      this.update(channel, digests);
+    }
+  }
+
+  /**
+   * Feeds the remaining contents of an open channel into each of the specified digests.
+   *
+   * @param channel
+   *   The channel to read.
+   * @param digests
+   *   The digests to update with the contents of the channel.
+   * @throws IOException
+   *   If the channel cannot be read.
+   */
+  public void update(FileChannel channel, MessageDigest... digests)
+  throws IOException {
+    final ByteBuffer buffer = this.getBufferPool().acquire();
+
+    try {
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+
+        for (MessageDigest digest : digests) {
+          // Each digest consumes the buffer, so rewind it for the next one.
+          buffer.mark();
+          digest.update(buffer);
+          buffer.reset();
+        }
+
+        buffer.clear();
+      }
+    }
+    finally {
+      this.getBufferPool().release(buffer);
+    }
+  }
+}
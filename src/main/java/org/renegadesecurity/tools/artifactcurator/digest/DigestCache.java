@@ -0,0 +1,490 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An on-disk cache of file digests, so that files which have not changed since the last run do not
+ * have to be read again.
+ *
+ * <p>Each entry is keyed by the absolute path of the file, and is only considered valid if the
+ * size, modification time, and file key (i.e. device and inode, where the platform provides one)
+ * of the file still match what was recorded when the digest was computed. A lookup therefore costs
+ * nothing more than the single stat that is needed to obtain the attributes of the file.</p>
+ *
+ * <p>The cache is loaded fully into memory when it is opened, may be read and updated from any
+ * number of worker threads, and is written back to disk with {@link #save()}. Every record on disk
+ * carries its own CRC32 so that corrupt records are detected and discarded (and, consequently,
+ * recomputed) rather than trusted.</p>
+ *
+ * <p>An entry holds one digest per {@link HashAlgorithm} that has been computed for the file, so a
+ * file that was hashed for a SHA1-only manifest is hashed again, once, when a manifest that also
+ * lists SHA256 hashes is used. Caches written in version 1 of the format, which held only SHA1
+ * digests, and in version 2, which did not record when each entry was last used, are still
+ * read.</p>
+ *
+ * <p>Entries are only dropped by a lookup if their file has changed, so entries of files that no
+ * longer exist would otherwise be kept forever. Each entry therefore records when it was last
+ * looked up or added, to the nearest opening of the cache, and {@link #save()} drops every entry
+ * that has not been used for {@linkplain #getMaxUnusedDays() a number of days}.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class DigestCache {
+  /**
+   * How many days an entry is kept without being used, by default.
+   */
+  public static final int DEFAULT_MAX_UNUSED_DAYS = 30;
+
+  private static final int FILE_MAGIC = 0x44474331; // "DGC1"
+  private static final int FILE_VERSION = 3;
+  private static final int SHA1_ONLY_FILE_VERSION = 1;
+  private static final int UNDATED_FILE_VERSION = 2;
+
+  /**
+   * Upper bound on the size of a single record, used to detect a corrupt length prefix.
+   */
+  private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+  private final File cacheFile;
+  private final int maxUnusedDays;
+
+  /**
+   * When the cache was opened, in milliseconds since the epoch; this is when every entry that is
+   * used while the cache is open was last used.
+   */
+  private final long openedTime;
+
+  private final Map<String, Entry> entries;
+
+  private int corruptRecordCount;
+
+  /**
+   * Opens the digest cache stored in the specified file.
+   *
+   * <p>If the file does not yet exist, an empty cache is returned; the file will be created the
+   * first time the cache is saved. If the file exists but is not a digest cache, or is of an
+   * unsupported version, its contents are ignored and will be replaced on the next save.</p>
+   *
+   * @param cacheFile
+   *   The file in which the cache is stored.
+   * @return
+   *   The cache.
+   * @throws IOException
+   *   If the cache file exists but cannot be read.
+   */
+  public static DigestCache open(File cacheFile)
+  throws IOException {
+    return open(cacheFile, DEFAULT_MAX_UNUSED_DAYS);
+  }
+
+  /**
+   * Opens the digest cache stored in the specified file, keeping entries that are not used for
+   * the specified number of days.
+   *
+   * @param cacheFile
+   *   The file in which the cache is stored.
+   * @param maxUnusedDays
+   *   How many days an entry is kept without being used; see {@link #getMaxUnusedDays()}.
+   * @return
+   *   The cache.
+   * @throws IOException
+   *   If the cache file exists but cannot be read.
+   * @see #open(File)
+   */
+  public static DigestCache open(File cacheFile, int maxUnusedDays)
+  throws IOException {
+    final DigestCache cache =
+      new DigestCache(cacheFile, maxUnusedDays, System.currentTimeMillis());
+
+    if (cacheFile.isFile()) {
+      cache.load();
+    }
+
+    return cache;
+  }
+
+  protected DigestCache(File cacheFile) {
+    this(cacheFile, DEFAULT_MAX_UNUSED_DAYS, System.currentTimeMillis());
+  }
+
+  protected DigestCache(File cacheFile, int maxUnusedDays, long openedTime) {
+    if (cacheFile == null) {
+      throw new IllegalArgumentException("cacheFile cannot be null.");
+    }
+
+    if (cacheFile.isDirectory()) {
+      throw new IllegalArgumentException(
+        String.format("`%s` is a directory, not a digest cache file.", cacheFile));
+    }
+
+    if (maxUnusedDays < 0) {
+      throw new IllegalArgumentException("maxUnusedDays cannot be negative.");
+    }
+
+    this.cacheFile      = cacheFile;
+    this.maxUnusedDays  = maxUnusedDays;
+    this.openedTime     = openedTime;
+    this.entries        = new ConcurrentHashMap<>();
+  }
+
+  public File getCacheFile() {
+    return this.cacheFile;
+  }
+
+  /**
+   * Gets how many days an entry is kept without being looked up or added. An entry that was last
+   * used longer ago than this when the cache was opened is dropped when the cache is saved; with
+   * {@code 0}, every entry that was not used while the cache was open is.
+   *
+   * @return
+   *   The number of days.
+   */
+  public int getMaxUnusedDays() {
+    return this.maxUnusedDays;
+  }
+
+  /**
+   * Gets the number of records that were discarded while loading the cache because they were
+   * corrupt.
+   *
+   * @return
+   *   The number of corrupt records.
+   */
+  public int getCorruptRecordCount() {
+    return this.corruptRecordCount;
+  }
+
+  public int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Looks up the cached digests of a file.
+   *
+   * @param file
+   *   The file whose digests are desired.
+   * @param attributes
+   *   The current attributes of the file.
+   * @return
+   *   The cached digests, or {@code null} if there is no entry for the file, or the entry is stale
+   *   because the file has changed since the digests were recorded. The digests may not include
+   *   every algorithm the caller needs.
+   */
+  public DigestSet get(File file, BasicFileAttributes attributes) {
+    final String  key     = file.getAbsolutePath();
+    final Entry   entry   = this.entries.get(key);
+    DigestSet     digests = null;
+
+    if (entry != null) {
+      if (entry.matches(attributes)) {
+        digests = entry.getDigests();
+
+        entry.lastUsedTime = this.openedTime;
+      }
+      else {
+        // Stale; drop it so that it gets replaced with a fresh digest.
+        this.entries.remove(key, entry);
+      }
+    }
+
+    return digests;
+  }
+
+  /**
+   * Records the digests of a file.
+   *
+   * <p>If the cache already holds digests of other algorithms for the same, unchanged, file, they
+   * are kept alongside the new digests.</p>
+   *
+   * @param file
+   *   The file that was hashed.
+   * @param attributes
+   *   The attributes of the file, as they were read <em>before</em> the file was hashed.
+   * @param digests
+   *   The digests of the file.
+   */
+  public void put(File file, BasicFileAttributes attributes, DigestSet digests) {
+    final Entry newEntry = new Entry(attributes, digests, this.openedTime);
+
+    this.entries.merge(
+      file.getAbsolutePath(),
+      newEntry,
+      (oldEntry, ignored) ->
+        oldEntry.matches(attributes) ? oldEntry.mergedWith(newEntry) : newEntry);
+  }
+
+  /**
+   * Writes the current contents of the cache back to disk, less any entries that have not been
+   * used for {@linkplain #getMaxUnusedDays() too long}.
+   *
+   * <p>The cache is first written to a temporary file next to the cache file, which is then moved
+   * over the cache file, so that an interrupted save never leaves a half-written cache
+   * behind.</p>
+   *
+   * @throws IOException
+   *   If the cache cannot be written.
+   */
+  public void save()
+  throws IOException {
+    final File cacheFile  = this.getCacheFile().getAbsoluteFile(),
+               tempFile   = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+    final long unusedTime =
+      this.openedTime - TimeUnit.DAYS.toMillis(this.getMaxUnusedDays());
+
+    this.entries.values().removeIf((entry) -> (entry.lastUsedTime < unusedTime));
+
+    try (final OutputStream     fileStream      = new FileOutputStream(tempFile);
+         final OutputStream     bufferedStream  = new BufferedOutputStream(fileStream, 65536);
+         final DataOutputStream dataStream      = new DataOutputStream(bufferedStream)) {
+      final ByteArrayOutputStream recordBuffer  = new ByteArrayOutputStream(256);
+      final DataOutputStream      recordStream  = new DataOutputStream(recordBuffer);
+      final CRC32                 crc           = new CRC32();
+
+      dataStream.writeInt(FILE_MAGIC);
+      dataStream.writeInt(FILE_VERSION);
+
+      for (Map.Entry<String, Entry> mapEntry : this.entries.entrySet()) {
+        recordBuffer.reset();
+        recordStream.writeUTF(mapEntry.getKey());
+        mapEntry.getValue().writeTo(recordStream);
+        recordStream.flush();
+
+        crc.reset();
+        crc.update(recordBuffer.toByteArray(), 0, recordBuffer.size());
+
+        dataStream.writeInt(recordBuffer.size());
+        recordBuffer.writeTo(dataStream);
+        dataStream.writeInt((int)crc.getValue());
+      }
+    }
+
+    try {
+      Files.move(
+        tempFile.toPath(),
+        cacheFile.toPath(),
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (AtomicMoveNotSupportedException ex) {
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  protected void load()
+  throws IOException {
+    try (final InputStream      fileStream      = new FileInputStream(this.getCacheFile());
+         final InputStream      bufferedStream  = new BufferedInputStream(fileStream, 65536);
+         final DataInputStream  dataStream      = new DataInputStream(bufferedStream)) {
+      final CRC32 crc = new CRC32();
+      final int   version;
+
+      if ((dataStream.readInt() != FILE_MAGIC)
+          || (((version = dataStream.readInt()) != FILE_VERSION)
+              && (version != UNDATED_FILE_VERSION)
+              && (version != SHA1_ONLY_FILE_VERSION))) {
+        System.err.printf(
+          "Ignoring digest cache `%s` because it is not in a supported format.\n\n",
+          this.getCacheFile().getAbsolutePath());
+
+        return;
+      }
+
+      while (true) {
+        final int     recordLength = dataStream.readInt();
+        final byte[]  record;
+
+        if ((recordLength <= 0) || (recordLength > MAX_RECORD_LENGTH)) {
+          // The framing itself is damaged, so nothing after this point can be trusted.
+          ++this.corruptRecordCount;
+          break;
+        }
+
+        record = new byte[recordLength];
+
+        dataStream.readFully(record);
+
+        crc.reset();
+        crc.update(record, 0, recordLength);
+
+        if (dataStream.readInt() != (int)crc.getValue()) {
+          ++this.corruptRecordCount;
+          continue;
+        }
+
+        try (final DataInputStream recordStream =
+               new DataInputStream(new ByteArrayInputStream(record))) {
+          final String path = recordStream.readUTF();
+
+          this.entries.put(path, Entry.readFrom(recordStream, version, this.openedTime));
+        }
+        catch (IllegalArgumentException ex) {
+          // Passed the CRC check but describes an impossible digest; treat it the same way.
+          ++this.corruptRecordCount;
+        }
+      }
+    }
+    catch (EOFException ex) {
+      // Normal end of the cache (or a truncated final record, which is simply dropped).
+    }
+
+    if (this.corruptRecordCount > 0) {
+      System.err.printf(
+        "Discarded %d corrupt record(s) from digest cache `%s`.\n\n",
+        this.corruptRecordCount,
+        this.getCacheFile().getAbsolutePath());
+    }
+  }
+
+  /**
+   * The cached digests of a single file, along with the file attributes they are valid for.
+   */
+  protected static class Entry {
+    private final long size;
+    private final long modifiedTime;
+    private final String fileKey;
+    private final DigestSet digests;
+
+    /**
+     * When the entry was last looked up or added, in milliseconds since the epoch. Every thread
+     * that sets it while the cache is open sets it to the same value.
+     */
+    private volatile long lastUsedTime;
+
+    /**
+     * Reads an entry.
+     *
+     * @param undatedTime
+     *   When to consider the entry last used if the version of the cache does not record it.
+     */
+    protected static Entry readFrom(DataInputStream stream, int version, long undatedTime)
+    throws IOException {
+      final long                            size          = stream.readLong(),
+                                            modifiedTime  = stream.readLong();
+      final String                          fileKey       = stream.readUTF();
+      final EnumMap<HashAlgorithm, byte[]>  digests       = new EnumMap<>(HashAlgorithm.class);
+      final int                             digestCount;
+
+      if (version == SHA1_ONLY_FILE_VERSION) {
+        digestCount = 1;
+      }
+      else {
+        digestCount = stream.readUnsignedByte();
+      }
+
+      for (int digestIndex = 0; digestIndex < digestCount; ++digestIndex) {
+        final HashAlgorithm algorithm;
+        final byte[]        digest;
+
+        if (version == SHA1_ONLY_FILE_VERSION) {
+          algorithm = HashAlgorithm.SHA1;
+        }
+        else {
+          algorithm = HashAlgorithm.valueOf(stream.readUTF());
+        }
+
+        digest = new byte[stream.readUnsignedByte()];
+
+        stream.readFully(digest);
+        digests.put(algorithm, digest);
+      }
+
+      return new Entry(
+        size, modifiedTime, fileKey, new DigestSet(digests),
+        (version == FILE_VERSION) ? stream.readLong() : undatedTime);
+    }
+
+    protected Entry(BasicFileAttributes attributes, DigestSet digests, long lastUsedTime) {
+      this(
+        attributes.size(),
+        attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS),
+        describeFileKey(attributes),
+        digests,
+        lastUsedTime);
+    }
+
+    protected Entry(long size, long modifiedTime, String fileKey, DigestSet digests,
+                    long lastUsedTime) {
+      this.size         = size;
+      this.modifiedTime = modifiedTime;
+      this.fileKey      = fileKey;
+      this.digests      = digests;
+      this.lastUsedTime = lastUsedTime;
+    }
+
+    public DigestSet getDigests() {
+      return this.digests;
+    }
+
+    public Entry mergedWith(Entry other) {
+      return new Entry(
+        other.size, other.modifiedTime, other.fileKey, this.digests.merge(other.digests),
+        other.lastUsedTime);
+    }
+
+    public boolean matches(BasicFileAttributes attributes) {
+      return (this.size == attributes.size())
+             && (this.modifiedTime == attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS))
+             && this.fileKey.equals(describeFileKey(attributes));
+    }
+
+    protected void writeTo(DataOutputStream stream)
+    throws IOException {
+      stream.writeLong(this.size);
+      stream.writeLong(this.modifiedTime);
+      stream.writeUTF(this.fileKey);
+      stream.writeByte(this.digests.getAlgorithms().size());
+
+      for (HashAlgorithm algorithm : this.digests.getAlgorithms()) {
+        final byte[] digest = this.digests.get(algorithm);
+
+        stream.writeUTF(algorithm.name());
+        stream.writeByte(digest.length);
+        stream.write(digest);
+      }
+
+      stream.writeLong(this.lastUsedTime);
+    }
+
+    private static String describeFileKey(BasicFileAttributes attributes) {
+      final Object fileKey = attributes.fileKey();
+
+      return (fileKey == null) ? "" : fileKey.toString();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+
+/**
+ * Interface for a strategy that reads the contents of a file into a {@link MessageDigest}.
+ *
+ * <p>Different strategies make different trade-offs between the number of system calls, the
+ * number of times each byte is copied, and the amount of memory that is held while the file is
+ * being read. Implementations must be safe to use from multiple threads at once.</p>
+ *
+ * @see DigestEngineFactory
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public interface DigestEngine {
+  /**
+   * Feeds the entire contents of the specified file into each of the specified digests.
+   *
+   * <p>The file is read only once, no matter how many digests there are.</p>
+   *
+   * @param sourceFile
+   *   The file to read.
+   * @param digests
+   *   The digests to update with the contents of the file.
+   * @throws IOException
+   *   If the file cannot be read.
+   */
+  public void update(File sourceFile, MessageDigest... digests)
+  throws IOException;
+}
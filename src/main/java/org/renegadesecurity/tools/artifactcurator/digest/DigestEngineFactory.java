@@ -0,0 +1,78 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+/**
+ * Factory for obtaining a {@link DigestEngine} by name.
+ *
+ * <p>The following engines are available:</p>
+ * <ul>
+ *   <li>{@code stream} &ndash; a buffered input stream ({@link StreamDigestEngine}).</li>
+ *   <li>{@code channel} &ndash; a file channel and a large, direct buffer
+ *       ({@link ChannelDigestEngine}).</li>
+ *   <li>{@code mmap} &ndash; a memory-mapped file ({@link MappedDigestEngine}).</li>
+ *   <li>{@code auto} &ndash; {@code channel} for small files and {@code mmap} for large files
+ *       ({@link AdaptiveDigestEngine}).</li>
+ * </ul>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class DigestEngineFactory {
+  public static final String ENGINE_STREAM = "stream";
+  public static final String ENGINE_CHANNEL = "channel";
+  public static final String ENGINE_MMAP = "mmap";
+  public static final String ENGINE_AUTO = "auto";
+
+  private static final DigestEngine DEFAULT_ENGINE = new AdaptiveDigestEngine();
+
+  public static DigestEngine getDefaultEngine() {
+    return DEFAULT_ENGINE;
+  }
+
+  public static DigestEngine getEngine(String engineName) {
+    return getEngine(engineName, AdaptiveDigestEngine.DEFAULT_MAPPING_THRESHOLD);
+  }
+
+  public static DigestEngine getEngine(String engineName, long mappingThreshold) {
+    final DigestEngine engine;
+
+    switch (engineName) {
+      case ENGINE_STREAM:
+        engine = new StreamDigestEngine();
+        break;
+
+      case ENGINE_CHANNEL:
+        engine = new ChannelDigestEngine();
+        break;
+
+      case ENGINE_MMAP:
+        engine = new MappedDigestEngine();
+        break;
+
+      case ENGINE_AUTO:
+        engine = new AdaptiveDigestEngine(mappingThreshold);
+        break;
+
+      default:
+        throw new IllegalArgumentException(
+          String.format(
+            "Unknown digest engine `%s`; expected one of %s, %s, %s, or %s.",
+            engineName, ENGINE_STREAM, ENGINE_CHANNEL, ENGINE_MMAP, ENGINE_AUTO));
+    }
+
+    return engine;
+  }
+}
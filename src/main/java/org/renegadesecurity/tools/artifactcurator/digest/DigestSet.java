@@ -0,0 +1,226 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable set of hashes of the same content, at most one per {@link HashAlgorithm}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public final class DigestSet {
+  private final EnumMap<HashAlgorithm, byte[]> digests;
+
+  public DigestSet(Map<HashAlgorithm, byte[]> digests) {
+    if (digests == null) {
+      throw new IllegalArgumentException("digests cannot be null.");
+    }
+
+    if (digests.isEmpty()) {
+      throw new IllegalArgumentException("digests cannot be empty.");
+    }
+
+    this.digests = new EnumMap<>(HashAlgorithm.class);
+
+    for (Map.Entry<HashAlgorithm, byte[]> digest : digests.entrySet()) {
+      final HashAlgorithm algorithm = digest.getKey();
+      final byte[]        bytes     = digest.getValue();
+
+      if (bytes.length != algorithm.getDigestLength()) {
+        throw new IllegalArgumentException(
+          String.format(
+            "%s digest must be exactly %d bytes.",
+            algorithm.getColumnName(),
+            algorithm.getDigestLength()));
+      }
+
+      this.digests.put(algorithm, bytes.clone());
+    }
+  }
+
+  /**
+   * Creates a set that holds a single hash.
+   *
+   * @param algorithm
+   *   The algorithm of the hash.
+   * @param digest
+   *   The hash.
+   * @return
+   *   The new set.
+   */
+  public static DigestSet of(HashAlgorithm algorithm, byte[] digest) {
+    return new DigestSet(Collections.singletonMap(algorithm, digest));
+  }
+
+  /**
+   * Gets the algorithms of the hashes in this set.
+   *
+   * @return
+   *   An unmodifiable view of the algorithms, in order of preference.
+   */
+  public Set<HashAlgorithm> getAlgorithms() {
+    return Collections.unmodifiableSet(this.digests.keySet());
+  }
+
+  /**
+   * Gets whether this set has a hash for every one of the specified algorithms.
+   *
+   * @param algorithms
+   *   The algorithms to check.
+   * @return
+   *   {@code true} if every algorithm has a hash in this set.
+   */
+  public boolean containsAll(Collection<HashAlgorithm> algorithms) {
+    return this.digests.keySet().containsAll(algorithms);
+  }
+
+  /**
+   * Gets the hash for an algorithm.
+   *
+   * @param algorithm
+   *   The algorithm.
+   * @return
+   *   A copy of the hash, or {@code null} if this set has no hash for the algorithm.
+   */
+  public byte[] get(HashAlgorithm algorithm) {
+    final byte[] digest = this.digests.get(algorithm);
+
+    return (digest == null) ? null : digest.clone();
+  }
+
+  /**
+   * Gets the algorithm of the hash that is shown in results.
+   *
+   * @return
+   *   The most preferred algorithm in this set.
+   * @see HashAlgorithm#primaryOf(Collection)
+   */
+  public HashAlgorithm getPrimaryAlgorithm() {
+    return this.digests.keySet().iterator().next();
+  }
+
+  /**
+   * Gets the hash that is shown in results, as lowercase hexadecimal.
+   *
+   * @return
+   *   The hexadecimal form of the hash of the primary algorithm.
+   */
+  public String toPrimaryHex() {
+    return Hex.encode(this.digests.get(this.getPrimaryAlgorithm()));
+  }
+
+  /**
+   * Checks a computed set of hashes against this, expected, set.
+   *
+   * @param computed
+   *   The computed hashes, which must include every algorithm in this set.
+   * @return
+   *   {@code true} if every hash in this set is identical to the computed hash for the same
+   *   algorithm.
+   */
+  public boolean isMatchedBy(DigestSet computed) {
+    return this.findMismatchIn(computed) == null;
+  }
+
+  /**
+   * Finds the first algorithm for which a computed set of hashes differs from this, expected, set.
+   *
+   * @param computed
+   *   The computed hashes.
+   * @return
+   *   The most preferred algorithm whose computed hash is missing or different, or {@code null} if
+   *   every hash in this set is matched.
+   */
+  public HashAlgorithm findMismatchIn(DigestSet computed) {
+    for (Map.Entry<HashAlgorithm, byte[]> expected : this.digests.entrySet()) {
+      final byte[] actual = computed.digests.get(expected.getKey());
+
+      if ((actual == null) || !MessageDigest.isEqual(expected.getValue(), actual)) {
+        return expected.getKey();
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Combines this set with another set of hashes of the same content.
+   *
+   * @param other
+   *   The other set; its hashes take precedence for algorithms that are in both sets.
+   * @return
+   *   A new set with the hashes of both sets.
+   */
+  public DigestSet merge(DigestSet other) {
+    final EnumMap<HashAlgorithm, byte[]> merged = new EnumMap<>(this.digests);
+
+    merged.putAll(other.digests);
+
+    return new DigestSet(merged);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+
+    if (!(other instanceof DigestSet)) {
+      return false;
+    }
+
+    final DigestSet otherSet = (DigestSet)other;
+
+    return this.digests.keySet().equals(otherSet.digests.keySet()) && this.isMatchedBy(otherSet);
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 0;
+
+    for (Map.Entry<HashAlgorithm, byte[]> digest : this.digests.entrySet()) {
+      hash = (hash * 31) + digest.getKey().ordinal();
+      hash = (hash * 31) + Arrays.hashCode(digest.getValue());
+    }
+
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder();
+
+    for (Map.Entry<HashAlgorithm, byte[]> digest : this.digests.entrySet()) {
+      if (builder.length() > 0) {
+        builder.append(',');
+      }
+
+      builder
+        .append(digest.getKey().getColumnName())
+        .append('=')
+        .append(Hex.encode(digest.getValue()));
+    }
+
+    return builder.toString();
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+
+/**
+ * The hash algorithms that artifacts can be verified with.
+ *
+ * <p>The algorithms are declared in order of preference for reporting: when a manifest provides
+ * several hashes for each artifact, the first algorithm in this order is the <em>primary</em>
+ * algorithm, which is the one shown in results and used to look artifacts up by hash.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public enum HashAlgorithm {
+  SHA1("SHA-1", "SHA1 Hash", "sha1", 20),
+  SHA256("SHA-256", "SHA256 Hash", "sha256", 32),
+  SHA512("SHA-512", "SHA512 Hash", "sha512", 64),
+  MD5("MD5", "MD5 Hash", "md5", 16);
+
+  private final String digestName;
+  private final String columnName;
+  private final String sidecarExtension;
+  private final int digestLength;
+
+  HashAlgorithm(String digestName, String columnName, String sidecarExtension,
+                int digestLength) {
+    this.digestName       = digestName;
+    this.columnName       = columnName;
+    this.sidecarExtension = sidecarExtension;
+    this.digestLength     = digestLength;
+  }
+
+  /**
+   * Gets the algorithm with the specified manifest column name.
+   *
+   * @param columnName
+   *   The name of the column in the manifest.
+   * @return
+   *   The algorithm, or {@code null} if the column is not a hash column.
+   */
+  public static HashAlgorithm forColumnName(String columnName) {
+    for (HashAlgorithm algorithm : values()) {
+      if (algorithm.getColumnName().equals(columnName)) {
+        return algorithm;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets the algorithm with the specified short name, which is the same as the extension of its
+   * sidecar files.
+   *
+   * @param name
+   *   The short name of the algorithm (e.g. {@code "sha256"}), in any case.
+   * @return
+   *   The algorithm, or {@code null} if there is no algorithm with the name.
+   */
+  public static HashAlgorithm forName(String name) {
+    for (HashAlgorithm algorithm : values()) {
+      if (algorithm.getSidecarExtension().equalsIgnoreCase(name)) {
+        return algorithm;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Gets the primary algorithm of a set of algorithms.
+   *
+   * @param algorithms
+   *   The algorithms to choose from.
+   * @return
+   *   The most preferred of the algorithms.
+   */
+  public static HashAlgorithm primaryOf(Collection<HashAlgorithm> algorithms) {
+    for (HashAlgorithm algorithm : values()) {
+      if (algorithms.contains(algorithm)) {
+        return algorithm;
+      }
+    }
+
+    throw new IllegalArgumentException("algorithms cannot be empty.");
+  }
+
+  /**
+   * Gets the name of the column that holds hashes of this type in the manifest.
+   *
+   * @return
+   *   The column name (e.g. {@code "SHA1 Hash"}).
+   */
+  public String getColumnName() {
+    return this.columnName;
+  }
+
+  /**
+   * Gets the extension of the checksum files that Maven writes next to each artifact for hashes of
+   * this type.
+   *
+   * @return
+   *   The extension, without the leading dot (e.g. {@code "sha1"} for {@code foo.jar.sha1}).
+   */
+  public String getSidecarExtension() {
+    return this.sidecarExtension;
+  }
+
+  /**
+   * Gets the length of hashes of this type.
+   *
+   * @return
+   *   The number of bytes in a hash.
+   */
+  public int getDigestLength() {
+    return this.digestLength;
+  }
+
+  /**
+   * Creates a new, empty digest for this algorithm.
+   *
+   * @return
+   *   The digest.
+   */
+  public MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(this.digestName);
+    }
+    catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(
+        String.format("%s algorithm is unexpectedly missing.", this.digestName));
+    }
+  }
+}
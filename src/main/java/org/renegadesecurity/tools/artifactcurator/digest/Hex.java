@@ -0,0 +1,86 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+/**
+ * Converts hashes to and from hexadecimal.
+ *
+ * <p>This stands in for {@code javax.xml.bind.DatatypeConverter}, which is no longer part of the
+ * JDK as of Java 11.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public final class Hex {
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+  private Hex() {
+  }
+
+  /**
+   * Converts bytes to lowercase hexadecimal.
+   *
+   * @param bytes
+   *   The bytes to convert.
+   * @return
+   *   Two hexadecimal digits per byte, most significant first.
+   */
+  public static String encode(byte[] bytes) {
+    final char[] digits = new char[bytes.length * 2];
+
+    for (int byteIndex = 0; byteIndex < bytes.length; ++byteIndex) {
+      digits[byteIndex * 2]       = DIGITS[(bytes[byteIndex] >>> 4) & 0x0F];
+      digits[(byteIndex * 2) + 1] = DIGITS[bytes[byteIndex] & 0x0F];
+    }
+
+    return new String(digits);
+  }
+
+  /**
+   * Converts hexadecimal to bytes.
+   *
+   * @param hex
+   *   The hexadecimal digits, in either upper or lower case.
+   * @return
+   *   One byte per two digits.
+   * @throws IllegalArgumentException
+   *   If the string has an odd number of characters, or any character that is not a hexadecimal
+   *   digit.
+   */
+  public static byte[] decode(String hex) {
+    final byte[] bytes;
+
+    if ((hex.length() % 2) != 0) {
+      throw new IllegalArgumentException(
+        String.format("Hexadecimal must have an even number of digits: `%s`", hex));
+    }
+
+    bytes = new byte[hex.length() / 2];
+
+    for (int byteIndex = 0; byteIndex < bytes.length; ++byteIndex) {
+      final int high  = Character.digit(hex.charAt(byteIndex * 2), 16),
+                low   = Character.digit(hex.charAt((byteIndex * 2) + 1), 16);
+
+      if ((high == -1) || (low == -1)) {
+        throw new IllegalArgumentException(
+          String.format("Not a hexadecimal number: `%s`", hex));
+      }
+
+      bytes[byteIndex] = (byte)((high << 4) | low);
+    }
+
+    return bytes;
+  }
+}
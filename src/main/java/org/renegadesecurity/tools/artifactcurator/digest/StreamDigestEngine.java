@@ -0,0 +1,50 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+/**
+ * A digest engine that reads the file through a buffered {@link InputStream}.
+ *
+ * <p>This is the simplest and most portable engine, and works with any file that can be opened
+ * for reading, but it makes the most system calls and copies of the engines available.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class StreamDigestEngine
+implements DigestEngine {
+  @Override
+  public void update(File sourceFile, MessageDigest... digests)
+  throws IOException {
+    try (InputStream sourceFileStream = new FileInputStream(sourceFile);
+         InputStream bufferedStream   = new BufferedInputStream(sourceFileStream)) {
+      final byte[] readBuffer = new byte[2048];
+      int          readLength;
+
+      while ((readLength = bufferedStream.read(readBuffer)) != -1) {
+        for (MessageDigest digest : digests) {
+          digest.update(readBuffer, 0, readLength);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,272 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.execution;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The thread pools that artifacts are processed on.
+ *
+ * <p>There are two separate pools:</p>
+ * <ul>
+ *   <li>The <em>I/O pool</em>, for work that mostly waits on the disk: statting, hashing, and
+ *       copying artifacts. This pool is usually sized well above the number of processors, so that
+ *       the queues of SSDs and network file systems are kept full.</li>
+ *   <li>The <em>CPU pool</em>, for work that mostly keeps a processor busy, such as sniffing
+ *       licenses. This pool is usually sized to the number of processors.</li>
+ * </ul>
+ *
+ * <p>Both pools are bounded: once a pool has as many tasks queued as it has threads (times
+ * {@link #QUEUE_DEPTH_PER_THREAD}), submitting another task blocks until one finishes. This keeps
+ * a fast producer from queueing an unbounded amount of work ahead of the workers.</p>
+ *
+ * <p>On JDKs that support them, the I/O pool can instead run each task on its own virtual thread,
+ * in which case the I/O pool size limits how many tasks run at once.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class WorkerPools
+implements AutoCloseable {
+  public static final int DEFAULT_IO_THREADS = Runtime.getRuntime().availableProcessors() * 4;
+  public static final int DEFAULT_CPU_THREADS = Runtime.getRuntime().availableProcessors();
+  public static final int QUEUE_DEPTH_PER_THREAD = 4;
+
+  private final ExecutorService ioExecutor;
+  private final ExecutorService cpuExecutor;
+  private final Semaphore ioPermits;
+  private final Semaphore cpuPermits;
+
+  private final Object completionMonitor = new Object();
+  private long pendingTaskCount;
+  private Error fatalError;
+
+  public WorkerPools() {
+    this(DEFAULT_IO_THREADS, DEFAULT_CPU_THREADS, false);
+  }
+
+  /**
+   * Creates the worker pools.
+   *
+   * @param ioThreads
+   *   The number of threads in the I/O pool or, when using virtual threads, the number of I/O tasks
+   *   that may run at once.
+   * @param cpuThreads
+   *   The number of threads in the CPU pool.
+   * @param virtualThreads
+   *   Whether to run I/O tasks on virtual threads.
+   * @throws UnsupportedOperationException
+   *   If virtual threads were requested but the running JDK does not support them.
+   */
+  public WorkerPools(int ioThreads, int cpuThreads, boolean virtualThreads) {
+    if (ioThreads <= 0) {
+      throw new IllegalArgumentException("ioThreads must be greater than zero.");
+    }
+
+    if (cpuThreads <= 0) {
+      throw new IllegalArgumentException("cpuThreads must be greater than zero.");
+    }
+
+    if (virtualThreads) {
+      this.ioExecutor = createVirtualThreadExecutor();
+      this.ioPermits  = new Semaphore(ioThreads);
+    }
+    else {
+      this.ioExecutor = createPlatformThreadExecutor("io", ioThreads);
+      this.ioPermits  = new Semaphore(ioThreads * QUEUE_DEPTH_PER_THREAD);
+    }
+
+    this.cpuExecutor  = createPlatformThreadExecutor("cpu", cpuThreads);
+    this.cpuPermits   = new Semaphore(cpuThreads * QUEUE_DEPTH_PER_THREAD);
+  }
+
+  /**
+   * Submits a task that is mostly bound by disk or network I/O.
+   *
+   * <p>Blocks if the I/O pool is already saturated.</p>
+   *
+   * @param task
+   *   The task to run.
+   */
+  public void submitIo(Runnable task) {
+    this.submit(this.ioExecutor, this.ioPermits, task);
+  }
+
+  /**
+   * Submits a task that is mostly bound by the CPU.
+   *
+   * <p>Blocks if the CPU pool is already saturated.</p>
+   *
+   * @param task
+   *   The task to run.
+   */
+  public void submitCpu(Runnable task) {
+    this.submit(this.cpuExecutor, this.cpuPermits, task);
+  }
+
+  /**
+   * Submits a task that is mostly bound by the CPU, unless the CPU pool is already saturated.
+   *
+   * <p>Unlike {@link #submitCpu(Runnable)}, this never blocks, so it is safe to call from a task
+   * that is itself running on the CPU pool, as long as that task does not wait for the submitted
+   * task to start.</p>
+   *
+   * @param task
+   *   The task to run.
+   * @return
+   *   {@code true} if the task was submitted; {@code false} if the pool was saturated.
+   */
+  public boolean trySubmitCpu(Runnable task) {
+    if (!this.cpuPermits.tryAcquire()) {
+      return false;
+    }
+
+    this.execute(this.cpuExecutor, this.cpuPermits, task);
+
+    return true;
+  }
+
+  /**
+   * Waits for every task submitted so far, and every task those tasks submitted in turn, to
+   * finish.
+   *
+   * <p>If any task failed with an {@link Error}, the first such error is re-thrown here once the
+   * other tasks have finished, so that the run fails rather than carrying on without the results of
+   * that task.</p>
+   *
+   * @throws InterruptedException
+   *   If the calling thread is interrupted while waiting.
+   */
+  public void awaitCompletion()
+  throws InterruptedException {
+    synchronized (this.completionMonitor) {
+      while (this.pendingTaskCount > 0) {
+        this.completionMonitor.wait();
+      }
+
+      if (this.fatalError != null) {
+        throw this.fatalError;
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    this.ioExecutor.shutdown();
+    this.cpuExecutor.shutdown();
+  }
+
+  private void submit(ExecutorService executor, Semaphore permits, Runnable task) {
+    permits.acquireUninterruptibly();
+
+    this.execute(executor, permits, task);
+  }
+
+  /**
+   * Runs a task on a pool, once a permit of the pool has been acquired for it.
+   */
+  private void execute(ExecutorService executor, Semaphore permits, Runnable task) {
+    synchronized (this.completionMonitor) {
+      ++this.pendingTaskCount;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          task.run();
+        }
+        catch (RuntimeException ex) {
+          System.err.printf("Unexpected error in worker: %s\n\n", ex);
+        }
+        catch (Error ex) {
+          synchronized (this.completionMonitor) {
+            if (this.fatalError == null) {
+              this.fatalError = ex;
+            }
+          }
+
+          throw ex;
+        }
+        finally {
+          this.finishTask(permits);
+        }
+      });
+    }
+    catch (RuntimeException ex) {
+      this.finishTask(permits);
+
+      throw ex;
+    }
+  }
+
+  private void finishTask(Semaphore permits) {
+    permits.release();
+
+    synchronized (this.completionMonitor) {
+      if (--this.pendingTaskCount == 0) {
+        this.completionMonitor.notifyAll();
+      }
+    }
+  }
+
+  private static ExecutorService createPlatformThreadExecutor(String poolName, int threadCount) {
+    final AtomicInteger threadNumber  = new AtomicInteger();
+    final ThreadFactory threadFactory = (runnable) -> {
+      final String threadName =
+        String.format("curator-%s-%d", poolName, threadNumber.incrementAndGet());
+      final Thread thread = new Thread(runnable, threadName);
+
+      thread.setDaemon(true);
+
+      return thread;
+    };
+
+    // The queue is unbounded, but submission is bounded by the permits of the pool.
+    return new ThreadPoolExecutor(
+      threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<>(), threadFactory);
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task.
+   *
+   * <p>This is looked up reflectively so that the tool still builds and runs on JDKs that predate
+   * virtual threads.</p>
+   */
+  private static ExecutorService createVirtualThreadExecutor() {
+    try {
+      final Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+
+      return (ExecutorService)factoryMethod.invoke(null);
+    }
+    catch (NoSuchMethodException | IllegalAccessException ex) {
+      throw new UnsupportedOperationException(
+        "Virtual threads require a JDK that supports them (Java 21 or later).");
+    }
+    catch (InvocationTargetException ex) {
+      throw new UnsupportedOperationException(
+        "Virtual threads could not be started: " + ex.getCause().getMessage(), ex.getCause());
+    }
+  }
+}
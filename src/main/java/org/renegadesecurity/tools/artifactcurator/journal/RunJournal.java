@@ -0,0 +1,509 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+import org.renegadesecurity.tools.artifactcurator.output.ArtifactResult;
+
+/**
+ * A journal of the artifacts that a run has finished with, kept in the target folder so that a run
+ * that is interrupted can be resumed without redoing their work.
+ *
+ * <p>The journal is an append-only log with one record per artifact, written as soon as the result
+ * of the artifact is known: its path, the hash it was expected to have and the hash it actually
+ * had, its status and license, and (for artifacts that were copied) the size of the copy. As with
+ * the {@link org.renegadesecurity.tools.artifactcurator.licensing.LicenseCache}, every record
+ * carries its own CRC32, so a record that was only partly written when the run died is dropped
+ * rather than trusted.</p>
+ *
+ * <p>Records may be appended from any number of worker threads. As with the
+ * {@link org.renegadesecurity.tools.artifactcurator.output.AsyncResultSink}, they are handed to a
+ * single writer thread, which writes them out whenever it runs out of records to write, so a
+ * worker never waits on the file. Records are not forced to disk one at a time, which would cost
+ * a disk flush per artifact; instead, the writer thread syncs the journal every
+ * {@value #SYNC_BATCH_SIZE} records or every second, whichever comes first, and when it is
+ * closed. At worst, a crash of the machine loses the last batch, and those artifacts are simply
+ * processed again.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class RunJournal
+implements Closeable {
+  /**
+   * The name of the journal file, within the target folder.
+   */
+  public static final String FILE_NAME = ".artifact-curator.journal";
+
+  private static final int FILE_MAGIC = 0x4a524e31; // "JRN1"
+  private static final int FILE_VERSION = 1;
+
+  /**
+   * Upper bound on the size of a single record, used to detect a corrupt length prefix.
+   */
+  private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+  private static final int SYNC_BATCH_SIZE = 1000;
+  private static final long SYNC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * The longest the writer thread sleeps before checking the queue again, in case a wake-up was
+   * missed or a sync is due.
+   */
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final File journalFile;
+  private final boolean resumed;
+
+  /**
+   * The entries that were recorded by earlier runs, keyed by path; empty unless resuming.
+   */
+  private final Map<String, Entry> completedEntries;
+
+  private final Queue<Entry> queue;
+  private final Thread writerThread;
+
+  private volatile boolean writerParked;
+  private volatile boolean closed;
+  private volatile IOException writeError;
+
+  /**
+   * Only touched by the writer thread, once it has started.
+   */
+  private final FileOutputStream fileStream;
+  private final DataOutputStream logStream;
+  private int unsyncedRecordCount;
+  private long lastSyncTime;
+
+  /**
+   * Starts a new journal in a target folder, replacing any journal that is already there.
+   *
+   * @param targetFolder
+   *   The target folder of the run.
+   * @return
+   *   The journal.
+   * @throws IOException
+   *   If the journal cannot be created.
+   */
+  public static RunJournal create(File targetFolder)
+  throws IOException {
+    return new RunJournal(new File(targetFolder, FILE_NAME), false, new HashMap<>(), 0);
+  }
+
+  /**
+   * Deletes the journal of an earlier run in a target folder, if there is one, so that a run that
+   * keeps no journal of its own cannot later be resumed from a journal that no longer describes
+   * the target folder.
+   *
+   * @param targetFolder
+   *   The target folder of the run.
+   * @throws IOException
+   *   If the journal cannot be deleted.
+   */
+  public static void delete(File targetFolder)
+  throws IOException {
+    Files.deleteIfExists(new File(targetFolder, FILE_NAME).toPath());
+  }
+
+  /**
+   * Opens the journal of an earlier run in a target folder, to resume that run.
+   *
+   * <p>Everything up to the first record that is damaged or was cut short is kept; the journal is
+   * truncated just before that record, and new records are appended from there. If there is no
+   * journal, a new one is started.</p>
+   *
+   * @param targetFolder
+   *   The target folder of the run.
+   * @return
+   *   The journal.
+   * @throws IOException
+   *   If the journal cannot be read or appended to.
+   */
+  public static RunJournal resume(File targetFolder)
+  throws IOException {
+    final File                journalFile       = new File(targetFolder, FILE_NAME);
+    final Map<String, Entry>  completedEntries  = new HashMap<>();
+    long                      validLength       = 0;
+
+    if (journalFile.isFile()) {
+      validLength = load(journalFile, completedEntries);
+    }
+
+    return new RunJournal(journalFile, true, completedEntries, validLength);
+  }
+
+  private RunJournal(File journalFile, boolean resumed, Map<String, Entry> completedEntries,
+                     long validLength)
+  throws IOException {
+    this.journalFile      = journalFile;
+    this.resumed          = resumed;
+    this.completedEntries = completedEntries;
+    this.fileStream       = new FileOutputStream(journalFile, validLength > 0);
+
+    // Cut off anything after the last good record, so that new records can be read back.
+    this.fileStream.getChannel().truncate(validLength);
+
+    this.logStream    = new DataOutputStream(new BufferedOutputStream(this.fileStream, 65536));
+    this.lastSyncTime = System.nanoTime();
+
+    if (validLength == 0) {
+      this.logStream.writeInt(FILE_MAGIC);
+      this.logStream.writeInt(FILE_VERSION);
+    }
+
+    this.queue        = new ConcurrentLinkedQueue<>();
+    this.writerThread = new Thread(this::drain, "journal-writer");
+
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  public File getJournalFile() {
+    return this.journalFile;
+  }
+
+  /**
+   * Gets the target folder that the journal is kept in.
+   *
+   * @return
+   *   The target folder.
+   */
+  public File getTargetFolder() {
+    return this.journalFile.getAbsoluteFile().getParentFile();
+  }
+
+  /**
+   * Gets whether this journal carries on from an earlier run, in which case the target folder may
+   * hold copies that the earlier run did not finish.
+   *
+   * @return
+   *   {@code true} if the journal was {@linkplain #resume(File) resumed}.
+   */
+  public boolean isResumed() {
+    return this.resumed;
+  }
+
+  /**
+   * Looks up an artifact that an earlier run finished with.
+   *
+   * @param fileName
+   *   The path of the artifact, relative to the source folder.
+   * @return
+   *   The entry of the artifact, or {@code null} if no earlier run finished with it.
+   */
+  public Entry getCompletedEntry(String fileName) {
+    return this.completedEntries.get(fileName);
+  }
+
+  /**
+   * Records that the run has finished with an artifact.
+   *
+   * <p>An artifact that was recorded by an earlier run with the same result is not recorded
+   * again. The record is written by the writer thread, after this returns.</p>
+   *
+   * @param result
+   *   The result of the artifact.
+   * @param copiedSize
+   *   The size of the copy of the artifact in the target folder, or {@code -1} if it was not
+   *   copied.
+   * @throws IOException
+   *   If an earlier record could not be written, after which the journal stops recording.
+   */
+  public void record(ArtifactResult result, long copiedSize)
+  throws IOException {
+    final Entry entry         = new Entry(result, copiedSize),
+                earlierEntry  = this.completedEntries.get(result.getFileName());
+
+    if (this.writeError != null) {
+      throw this.writeError;
+    }
+
+    if (this.closed) {
+      throw new IllegalStateException("The journal has been closed.");
+    }
+
+    if (!entry.equals(earlierEntry)) {
+      this.queue.add(entry);
+
+      if (this.writerParked) {
+        LockSupport.unpark(this.writerThread);
+      }
+    }
+  }
+
+  /**
+   * Waits for every record to be written and forced to disk, and closes the journal.
+   *
+   * @throws IOException
+   *   If the journal cannot be written.
+   */
+  @Override
+  public void close()
+  throws IOException {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+
+    try {
+      LockSupport.unpark(this.writerThread);
+
+      this.writerThread.join();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+
+      throw new IOException("Interrupted while writing the journal.", ex);
+    }
+
+    if (this.writeError != null) {
+      throw this.writeError;
+    }
+  }
+
+  /**
+   * The body of the writer thread.
+   */
+  private void drain() {
+    try {
+      while (true) {
+        final Entry entry = this.queue.poll();
+
+        if (entry != null) {
+          writeRecord(this.logStream, entry);
+
+          if (++this.unsyncedRecordCount >= SYNC_BATCH_SIZE) {
+            this.sync();
+          }
+        }
+        else {
+          // Handed to the OS straight away, so that only a crash of the machine can lose it.
+          this.logStream.flush();
+
+          if ((this.unsyncedRecordCount > 0)
+              && ((System.nanoTime() - this.lastSyncTime) >= SYNC_INTERVAL_NANOS)) {
+            this.sync();
+          }
+
+          if (this.closed && this.queue.isEmpty()) {
+            break;
+          }
+
+          // Announce the park before checking the queue one last time, so that a worker that adds
+          // a record after the check is sure to see the announcement and wake the writer up.
+          this.writerParked = true;
+
+          if (this.queue.isEmpty() && !this.closed) {
+            LockSupport.parkNanos(this, MAX_PARK_NANOS);
+          }
+
+          this.writerParked = false;
+        }
+      }
+
+      this.sync();
+    }
+    catch (IOException ex) {
+      // Reported to the next caller; the artifacts that were not recorded are simply redone.
+      this.writeError = ex;
+    }
+    finally {
+      try {
+        this.logStream.close();
+      }
+      catch (IOException ex) {
+        if (this.writeError == null) {
+          this.writeError = ex;
+        }
+      }
+    }
+  }
+
+  private void sync()
+  throws IOException {
+    this.logStream.flush();
+    this.fileStream.getChannel().force(false);
+
+    this.unsyncedRecordCount  = 0;
+    this.lastSyncTime         = System.nanoTime();
+  }
+
+  /**
+   * Reads every good record of a journal, in the order they were written, so that the last record
+   * of each artifact wins.
+   *
+   * @return
+   *   The length of the journal up to the end of the last good record, or {@code 0} if it is not a
+   *   journal at all.
+   */
+  private static long load(File journalFile, Map<String, Entry> entries)
+  throws IOException {
+    long validLength = 0;
+
+    try (final InputStream      fileStream      = new FileInputStream(journalFile);
+         final InputStream      bufferedStream  = new BufferedInputStream(fileStream, 65536);
+         final DataInputStream  dataStream      = new DataInputStream(bufferedStream)) {
+      final CRC32 crc = new CRC32();
+
+      if ((dataStream.readInt() != FILE_MAGIC) || (dataStream.readInt() != FILE_VERSION)) {
+        System.err.printf(
+          "`%s` is not a journal that can be resumed from; starting over.\n\n",
+          journalFile.getAbsolutePath());
+
+        return 0;
+      }
+
+      validLength = 2 * Integer.BYTES;
+
+      while (true) {
+        final int     recordLength  = dataStream.readInt();
+        final byte[]  record;
+
+        if ((recordLength <= 0) || (recordLength > MAX_RECORD_LENGTH)) {
+          break;
+        }
+
+        record = new byte[recordLength];
+
+        dataStream.readFully(record);
+
+        crc.reset();
+        crc.update(record, 0, recordLength);
+
+        if (dataStream.readInt() != (int)crc.getValue()) {
+          break;
+        }
+
+        try (final DataInputStream recordStream =
+               new DataInputStream(new ByteArrayInputStream(record))) {
+          final Entry entry = readEntry(recordStream);
+
+          entries.put(entry.getResult().getFileName(), entry);
+        }
+
+        validLength += recordLength + (2 * Integer.BYTES);
+      }
+    }
+    catch (EOFException ex) {
+      // The end of the journal, or a record that was cut short; either way, done.
+    }
+
+    return validLength;
+  }
+
+  private static Entry readEntry(DataInputStream recordStream)
+  throws IOException {
+    final String  fileName      = recordStream.readUTF(),
+                  expectedHash  = recordStream.readUTF(),
+                  actualHash    = recordStream.readUTF(),
+                  status        = recordStream.readUTF(),
+                  license       = recordStream.readUTF();
+    final long    copiedSize    = recordStream.readLong();
+
+    return new Entry(
+      new ArtifactResult(fileName, expectedHash, actualHash, status, license), copiedSize);
+  }
+
+  private static void writeRecord(DataOutputStream stream, Entry entry)
+  throws IOException {
+    final ByteArrayOutputStream recordBuffer  = new ByteArrayOutputStream(256);
+    final DataOutputStream      recordStream  = new DataOutputStream(recordBuffer);
+    final ArtifactResult        result        = entry.getResult();
+    final CRC32                 crc           = new CRC32();
+
+    recordStream.writeUTF(result.getFileName());
+    recordStream.writeUTF(result.getExpectedHash());
+    recordStream.writeUTF(result.getActualHash());
+    recordStream.writeUTF(result.getStatus());
+    recordStream.writeUTF(result.getLicense());
+    recordStream.writeLong(entry.getCopiedSize());
+    recordStream.flush();
+
+    crc.update(recordBuffer.toByteArray(), 0, recordBuffer.size());
+
+    stream.writeInt(recordBuffer.size());
+    recordBuffer.writeTo(stream);
+    stream.writeInt((int)crc.getValue());
+  }
+
+  /**
+   * A single artifact in a {@link RunJournal}.
+   */
+  public static class Entry {
+    private final ArtifactResult result;
+    private final long copiedSize;
+
+    protected Entry(ArtifactResult result, long copiedSize) {
+      this.result     = result;
+      this.copiedSize = copiedSize;
+    }
+
+    public ArtifactResult getResult() {
+      return this.result;
+    }
+
+    /**
+     * Gets the size of the copy of the artifact in the target folder.
+     *
+     * @return
+     *   The size, in bytes, or {@code -1} if the artifact was not copied.
+     */
+    public long getCopiedSize() {
+      return this.copiedSize;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Entry)) {
+        return false;
+      }
+
+      final Entry otherEntry = (Entry)other;
+
+      return (this.copiedSize == otherEntry.copiedSize)
+             && this.result.getFileName().equals(otherEntry.result.getFileName())
+             && this.result.getExpectedHash().equals(otherEntry.result.getExpectedHash())
+             && this.result.getActualHash().equals(otherEntry.result.getActualHash())
+             && this.result.getStatus().equals(otherEntry.result.getStatus())
+             && this.result.getLicense().equals(otherEntry.result.getLicense());
+    }
+
+    @Override
+    public int hashCode() {
+      return this.result.getFileName().hashCode();
+    }
+  }
+}
@@ -17,7 +17,10 @@ package org.renegadesecurity.tools.artifactcurator.licensing;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.jar.JarFile;
+import java.util.concurrent.Executor;
+import java.util.jar.Manifest;
+import org.renegadesecurity.tools.artifactcurator.archive.ArchiveInspector;
+import org.renegadesecurity.tools.artifactcurator.archive.ArchiveInspectorFactory;
 
 /**
  * A license sniffer for JAR binaries (i.e. JARs that mostly contain CLASS files).
@@ -26,27 +29,99 @@ import java.util.jar.JarFile;
  */
 public class BinaryJarLicenseSniffer
 extends AbstractLicenseSniffer {
+  private final JarScanPolicy scanPolicy;
+  private final PomLicenseResolver pomLicenseResolver;
+  private final Executor helperExecutor;
+
+  /**
+   * The POM chain resolved by {@link #digestOtherInputs()}, if it has been called, so that
+   * sniffing the license does not read the POM again.
+   */
+  private PomLicenseResolver.PomChain pomChain;
+
   public BinaryJarLicenseSniffer() {
     this(null);
   }
 
   public BinaryJarLicenseSniffer(File sourceFile) {
+    this(sourceFile, JarScanPolicy.EXHAUSTIVE);
+  }
+
+  public BinaryJarLicenseSniffer(File sourceFile, JarScanPolicy scanPolicy) {
+    this(sourceFile, scanPolicy, null);
+  }
+
+  public BinaryJarLicenseSniffer(File sourceFile, JarScanPolicy scanPolicy,
+                                 PomLicenseResolver pomLicenseResolver) {
+    this(sourceFile, scanPolicy, pomLicenseResolver, null);
+  }
+
+  /**
+   * Creates a sniffer.
+   *
+   * @param sourceFile
+   *   The JAR.
+   * @param scanPolicy
+   *   How much of the JAR to read when neither its manifest nor its POM names its license.
+   * @param pomLicenseResolver
+   *   The resolver with which to look up the license in the POM of the JAR, or {@code null} to
+   *   skip straight from the manifest to the contents of the JAR.
+   * @param helperExecutor
+   *   The executor on which to start extra threads to read the contents of the JAR, or
+   *   {@code null}; see {@link SourceJarLicenseSniffer#SourceJarLicenseSniffer(File,
+   *   JarScanPolicy, Executor)}.
+   */
+  public BinaryJarLicenseSniffer(File sourceFile, JarScanPolicy scanPolicy,
+                                 PomLicenseResolver pomLicenseResolver,
+                                 Executor helperExecutor) {
     super(sourceFile);
+
+    if (scanPolicy == null) {
+      throw new IllegalArgumentException("scanPolicy cannot be null.");
+    }
+
+    this.scanPolicy         = scanPolicy;
+    this.pomLicenseResolver = pomLicenseResolver;
+    this.helperExecutor     = helperExecutor;
+  }
+
+  public JarScanPolicy getScanPolicy() {
+    return this.scanPolicy;
+  }
+
+  public PomLicenseResolver getPomLicenseResolver() {
+    return this.pomLicenseResolver;
+  }
+
+  public Executor getHelperExecutor() {
+    return this.helperExecutor;
   }
 
   public String determineLicenseOf(File sourceFile) {
     String license = LICENSE_UNKNOWN;
 
-    try {
-      JarFile jarFile = new JarFile(sourceFile);
-      String  value   = jarFile.getManifest().getMainAttributes().getValue("Bundle-License");
+    // Opened once, for both the manifest and (on a miss) the source files
+    try (final ArchiveInspector inspector =
+           ArchiveInspectorFactory.open(sourceFile, SourceJarLicenseSniffer::isScannedEntry)) {
+      final Manifest  manifest  = inspector.getManifest();
+      String          value     = null;
+
+      if (manifest != null) {
+        value = manifest.getMainAttributes().getValue("Bundle-License");
+      }
+
+      if (value == null) {
+        value = this.resolvePomLicenseOf(sourceFile);
+      }
 
       if (value != null) {
         license = value;
       }
       else {
         // Try determining the license from text source files in the JAR
-        license = new SourceJarLicenseSniffer(sourceFile).determineLicense();
+        license =
+          new SourceJarLicenseSniffer(sourceFile, this.getScanPolicy(), this.getHelperExecutor())
+            .determineLicenseOf(inspector);
       }
     }
     catch (IOException ex) {
@@ -58,4 +133,64 @@ extends AbstractLicenseSniffer {
 
     return license;
   }
+
+  /**
+   * Computes a digest of the POM of the JAR and of the parents it is resolved through, since the
+   * license may come from any of them.
+   *
+   * @return
+   *   The digest; {@code "no-pom"} if the JAR has no POM; or {@code null} if there is no resolver.
+   * @throws IOException
+   *   If the POM of the JAR cannot be read or parsed.
+   */
+  @Override
+  public String digestOtherInputs()
+  throws IOException {
+    final PomLicenseResolver  resolver  = this.getPomLicenseResolver();
+    final File                pomFile;
+
+    if (resolver == null) {
+      return null;
+    }
+
+    pomFile = PomLicenseResolver.findPomOf(this.getSourceFile());
+
+    if (pomFile == null) {
+      return "no-pom";
+    }
+
+    this.pomChain = resolver.resolveChain(pomFile);
+
+    return this.pomChain.getDigest();
+  }
+
+  /**
+   * Looks up the license in the POM next to the JAR, or in its parents.
+   *
+   * @return
+   *   The license, or {@code null} if there is no resolver, no POM, or no license in the POM.
+   */
+  private String resolvePomLicenseOf(File sourceFile) {
+    final PomLicenseResolver          resolver  = this.getPomLicenseResolver();
+    final File                        pomFile   = PomLicenseResolver.findPomOf(sourceFile);
+    final PomLicenseResolver.PomChain pomChain  = this.pomChain;
+    String                            license   = null;
+
+    if ((pomChain != null) && pomChain.getPomFile().equals(pomFile)) {
+      license = pomChain.getLicense();
+    }
+    else if ((resolver != null) && (pomFile != null)) {
+      try {
+        license = resolver.resolveLicense(pomFile);
+      }
+      catch (IOException ex) {
+        System.err.printf(
+            "Error while determining license of `%s` from its POM: %s\n\n",
+            sourceFile.getAbsolutePath(),
+            ex.getMessage());
+      }
+    }
+
+    return license;
+  }
 }
@@ -0,0 +1,143 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.licensing;
+
+/**
+ * Controls how much of a JAR a {@link SourceJarLicenseSniffer} reads before settling on a license.
+ *
+ * <p>By default, every source file in the JAR is read, and the licenses of all of them are
+ * reported. A policy can instead stop early once it is confident of the answer:</p>
+ * <ul>
+ *   <li>once a number of files agree on the same license, with no file naming any other; or</li>
+ *   <li>as soon as a top-level license file names a license, which is then taken to be the license
+ *       of the whole JAR.</li>
+ * </ul>
+ *
+ * <p>A policy that can stop early reads the entries that are most likely to name the license of the
+ * whole JAR first: top-level {@code LICENSE}, {@code NOTICE} and {@code COPYING} files (which are
+ * only read by such a policy, since they are not source files), then the POMs under
+ * {@code META-INF/maven}.</p>
+ *
+ * <p>JARs with many entries to read can also be scanned by several threads at once, if the
+ * sniffer has been given an executor to start them on. This is off by default. The licenses found
+ * are the same either way, unless the policy stops early, in which case the files that were read
+ * before stopping may differ from run to run.</p>
+ *
+ * <p>Instances are immutable.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class JarScanPolicy {
+  /**
+   * The number of entries to read at or above which a JAR is scanned in parallel, by default:
+   * never.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 0;
+
+  /**
+   * Reads every source file, and nothing else, on a single thread, as the sniffer always used to.
+   */
+  public static final JarScanPolicy EXHAUSTIVE =
+    new JarScanPolicy(0, false, DEFAULT_PARALLEL_THRESHOLD);
+
+  private final int agreeingFiles;
+  private final boolean trustingLicenseFiles;
+  private final int parallelThreshold;
+
+  /**
+   * Creates a policy.
+   *
+   * @param agreeingFiles
+   *   The number of files that must agree on a license before the rest of the JAR is skipped, or
+   *   {@code 0} to read every file.
+   * @param trustingLicenseFiles
+   *   Whether the first license found in a top-level license file is taken to be the license of
+   *   the whole JAR.
+   * @param parallelThreshold
+   *   The number of entries to read at or above which a JAR is scanned in parallel, or {@code 0} to
+   *   always scan on the calling thread.
+   */
+  public JarScanPolicy(int agreeingFiles, boolean trustingLicenseFiles, int parallelThreshold) {
+    if (agreeingFiles < 0) {
+      throw new IllegalArgumentException("agreeingFiles cannot be negative.");
+    }
+
+    if (parallelThreshold < 0) {
+      throw new IllegalArgumentException("parallelThreshold cannot be negative.");
+    }
+
+    this.agreeingFiles        = agreeingFiles;
+    this.trustingLicenseFiles = trustingLicenseFiles;
+    this.parallelThreshold    = parallelThreshold;
+  }
+
+  public int getAgreeingFiles() {
+    return this.agreeingFiles;
+  }
+
+  public boolean isTrustingLicenseFiles() {
+    return this.trustingLicenseFiles;
+  }
+
+  public int getParallelThreshold() {
+    return this.parallelThreshold;
+  }
+
+  /**
+   * Checks whether this policy can stop reading a JAR before every source file has been read.
+   *
+   * @return
+   *   {@code true} if either enough agreeing files or a top-level license file can settle the
+   *   license of a JAR.
+   */
+  public boolean isStoppingEarly() {
+    return (this.agreeingFiles > 0) || this.trustingLicenseFiles;
+  }
+
+  /**
+   * Checks whether a JAR should be scanned in parallel.
+   *
+   * @param entryCount
+   *   The number of entries of the JAR that will be read.
+   * @return
+   *   {@code true} if the entries should be read by several threads.
+   */
+  public boolean isParallel(int entryCount) {
+    return (this.parallelThreshold > 0) && (entryCount >= this.parallelThreshold);
+  }
+
+  /**
+   * Checks whether enough files agree on a license to stop reading.
+   *
+   * @param agreeingFiles
+   *   The number of files that have named the license, when no file has named any other.
+   * @return
+   *   {@code true} if the rest of the JAR can be skipped.
+   */
+  public boolean isConfident(int agreeingFiles) {
+    return (this.agreeingFiles > 0) && (agreeingFiles >= this.agreeingFiles);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "%s[agreeingFiles=%d, trustingLicenseFiles=%s, parallelThreshold=%d]",
+      this.getClass().getSimpleName(),
+      this.agreeingFiles,
+      this.trustingLicenseFiles,
+      this.parallelThreshold);
+  }
+}
@@ -0,0 +1,520 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.licensing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+
+/**
+ * An on-disk cache of the licenses of artifacts, keyed by the contents of each artifact rather than
+ * its path, so that the same artifact is only sniffed once no matter how many repositories or runs
+ * it turns up in.
+ *
+ * <p>Each entry is keyed by the kind of sniffer that examined the artifact (since, for example, the
+ * same bytes are treated differently as a source JAR and as a binary JAR) and the verified digest
+ * of the artifact under its primary {@link HashAlgorithm} (SHA1, when the manifest has it). Only
+ * digests that were actually computed from the artifact may be used as keys.</p>
+ *
+ * <p>The cache is tied to a <em>ruleset version</em> (see
+ * {@link LicenseSnifferFactory#getRulesetVersion(JarScanPolicy)}), which changes whenever the
+ * license patterns or anything else that affects the outcome of sniffing changes. A cache file
+ * written under a different ruleset is ignored, and replaced on the next save.</p>
+ *
+ * <p>In memory, at most a fixed number of entries are kept, and the least recently used entry is
+ * evicted to make room for a new one. On disk, the cache is an append-only log. New entries are
+ * appended in batches of {@value #FLUSH_BATCH_SIZE}, each flushed to the file as soon as it is
+ * full, so that a crash loses at most the licenses of the last partial batch; {@link #save()}
+ * writes whatever is left. The log is rewritten with just the live entries (in order of use)
+ * whenever it has grown to more than twice their number. As with the
+ * {@link org.renegadesecurity.tools.artifactcurator.digest.DigestCache}, every record carries its
+ * own CRC32, and corrupt records are discarded rather than trusted.</p>
+ *
+ * <p>The cache may be read and updated from any number of worker threads. Batches are written
+ * outside the lock that lookups take, so a thread that is writing one never holds up lookups on
+ * other threads.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class LicenseCache {
+  public static final int DEFAULT_MAX_ENTRIES = 100000;
+
+  private static final int FILE_MAGIC = 0x4c494331; // "LIC1"
+  private static final int FILE_VERSION = 1;
+
+  /**
+   * Upper bound on the size of a single record, used to detect a corrupt length prefix.
+   */
+  private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+  /**
+   * The number of new entries that are written to the log at once.
+   */
+  private static final int FLUSH_BATCH_SIZE = 64;
+
+  private final File cacheFile;
+  private final String rulesetVersion;
+  private final int maxEntries;
+  private final Map<String, String> entries;
+
+  /**
+   * Records of new entries that have not been handed to the log yet. Guarded by this cache, like
+   * {@link #entries}.
+   */
+  private List<byte[]> pendingRecords;
+
+  /**
+   * Guards the log on disk, and the fields below that describe it. The lock of this cache may be
+   * taken while holding it, but never the other way around.
+   */
+  private final Object logMonitor = new Object();
+
+  /**
+   * The number of records in the log on disk, including those of evicted and replaced entries.
+   */
+  private int logRecordCount;
+
+  /**
+   * Whether the log on disk can be appended to as-is; i.e. it exists, was written under the same
+   * ruleset, and does not end with a partial record.
+   */
+  private boolean appendable;
+
+  private DataOutputStream logStream;
+  private int corruptRecordCount;
+
+  /**
+   * Opens the license cache stored in the specified file.
+   *
+   * <p>If the file does not yet exist, an empty cache is returned; the file will be created the
+   * first time a license is added. If the file exists but is not a license cache, or was written
+   * under a different ruleset, its contents are ignored and will be replaced.</p>
+   *
+   * @param cacheFile
+   *   The file in which the cache is stored.
+   * @param rulesetVersion
+   *   The version of the rules the licenses in the cache were found with.
+   * @param maxEntries
+   *   The most entries to keep in memory.
+   * @return
+   *   The cache.
+   * @throws IOException
+   *   If the cache file exists but cannot be read.
+   */
+  public static LicenseCache open(File cacheFile, String rulesetVersion, int maxEntries)
+  throws IOException {
+    final LicenseCache cache = new LicenseCache(cacheFile, rulesetVersion, maxEntries);
+
+    if (cacheFile.isFile()) {
+      cache.load();
+    }
+
+    return cache;
+  }
+
+  protected LicenseCache(File cacheFile, String rulesetVersion, int maxEntries) {
+    if (cacheFile == null) {
+      throw new IllegalArgumentException("cacheFile cannot be null.");
+    }
+
+    if (cacheFile.isDirectory()) {
+      throw new IllegalArgumentException(
+        String.format("`%s` is a directory, not a license cache file.", cacheFile));
+    }
+
+    if (rulesetVersion == null) {
+      throw new IllegalArgumentException("rulesetVersion cannot be null.");
+    }
+
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be greater than zero.");
+    }
+
+    this.cacheFile      = cacheFile;
+    this.rulesetVersion = rulesetVersion;
+    this.maxEntries     = maxEntries;
+    this.pendingRecords = new ArrayList<>();
+    this.entries        =
+      new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+          return this.size() > LicenseCache.this.maxEntries;
+        }
+      };
+  }
+
+  /**
+   * Builds the key of an artifact.
+   *
+   * <p>Besides the contents of the artifact, the key covers anything else the sniffer reads to
+   * determine the license (such as the POMs of a binary JAR), so that a license is looked up
+   * again once any of it has changed.</p>
+   *
+   * @param sniffer
+   *   The sniffer that examines the artifact.
+   * @param verifiedDigests
+   *   Digests that were computed from the contents of the artifact.
+   * @return
+   *   The key.
+   * @throws IOException
+   *   If the other inputs of the sniffer cannot be read, in which case the license should not be
+   *   cached.
+   * @see LicenseSniffer#digestOtherInputs()
+   */
+  public static String keyOf(LicenseSniffer sniffer, DigestSet verifiedDigests)
+  throws IOException {
+    final HashAlgorithm algorithm     = verifiedDigests.getPrimaryAlgorithm();
+    final String        otherInputs   = sniffer.digestOtherInputs();
+    final String        artifactKey   =
+                          String.join(
+                            ":",
+                            sniffer.getClass().getSimpleName(),
+                            algorithm.name(),
+                            Hex.encode(verifiedDigests.get(algorithm)));
+
+    return (otherInputs == null) ? artifactKey : (artifactKey + ":" + otherInputs);
+  }
+
+  public File getCacheFile() {
+    return this.cacheFile;
+  }
+
+  public String getRulesetVersion() {
+    return this.rulesetVersion;
+  }
+
+  public int getMaxEntries() {
+    return this.maxEntries;
+  }
+
+  /**
+   * Gets the number of records that were discarded while loading the cache because they were
+   * corrupt.
+   *
+   * @return
+   *   The number of corrupt records.
+   */
+  public int getCorruptRecordCount() {
+    return this.corruptRecordCount;
+  }
+
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Looks up the license of an artifact, marking it as recently used.
+   *
+   * @param key
+   *   The {@linkplain #keyOf(LicenseSniffer, DigestSet) key} of the artifact.
+   * @return
+   *   The license, or {@code null} if the artifact is not in the cache.
+   */
+  public synchronized String get(String key) {
+    return this.entries.get(key);
+  }
+
+  /**
+   * Records the license of an artifact, and queues it to be appended to the log on disk.
+   *
+   * <p>If this fills a batch, the batch is written to the log by the calling thread before this
+   * returns.</p>
+   *
+   * @param key
+   *   The {@linkplain #keyOf(LicenseSniffer, DigestSet) key} of the artifact.
+   * @param license
+   *   The license that was found.
+   * @throws IOException
+   *   If a batch of entries cannot be appended to the log.
+   */
+  public void put(String key, String license)
+  throws IOException {
+    final byte[]  record  = encodeRecord(key, license);
+    List<byte[]>  batch   = null;
+
+    synchronized (this) {
+      if (license.equals(this.entries.put(key, license))) {
+        return;
+      }
+
+      this.pendingRecords.add(record);
+
+      if (this.pendingRecords.size() >= FLUSH_BATCH_SIZE) {
+        batch = this.takePendingRecords();
+      }
+    }
+
+    if (batch != null) {
+      synchronized (this.logMonitor) {
+        this.appendToLog(batch);
+      }
+    }
+  }
+
+  /**
+   * Makes sure everything added to the cache is on disk, compacting the log if it has grown to
+   * more than twice the number of live entries.
+   *
+   * <p>The cache can continue to be used afterwards.</p>
+   *
+   * @throws IOException
+   *   If the cache cannot be written.
+   */
+  public void save()
+  throws IOException {
+    synchronized (this.logMonitor) {
+      final List<byte[]> batch;
+
+      synchronized (this) {
+        batch = this.takePendingRecords();
+      }
+
+      if (!batch.isEmpty()) {
+        this.appendToLog(batch);
+      }
+
+      this.closeLog();
+
+      if (!this.appendable || (this.logRecordCount > (2 * this.size()))) {
+        this.compact();
+      }
+    }
+  }
+
+  protected void load()
+  throws IOException {
+    try (final InputStream      fileStream      = new FileInputStream(this.getCacheFile());
+         final InputStream      bufferedStream  = new BufferedInputStream(fileStream, 65536);
+         final DataInputStream  dataStream      = new DataInputStream(bufferedStream)) {
+      final CRC32 crc = new CRC32();
+
+      if ((dataStream.readInt() != FILE_MAGIC)
+          || (dataStream.readInt() != FILE_VERSION)
+          || !dataStream.readUTF().equals(this.getRulesetVersion())) {
+        // Written by another version of the rules, so none of it can be trusted.
+        return;
+      }
+
+      this.appendable = true;
+
+      while (true) {
+        final int     recordLength;
+        final byte[]  record;
+
+        try {
+          recordLength = dataStream.readInt();
+        }
+        catch (EOFException ex) {
+          // Normal end of the log.
+          break;
+        }
+
+        if ((recordLength <= 0) || (recordLength > MAX_RECORD_LENGTH)) {
+          // The framing itself is damaged, so nothing after this point can be trusted.
+          ++this.corruptRecordCount;
+          this.appendable = false;
+          break;
+        }
+
+        record = new byte[recordLength];
+
+        dataStream.readFully(record);
+
+        crc.reset();
+        crc.update(record, 0, recordLength);
+
+        ++this.logRecordCount;
+
+        if (dataStream.readInt() != (int)crc.getValue()) {
+          ++this.corruptRecordCount;
+          continue;
+        }
+
+        try (final DataInputStream recordStream =
+               new DataInputStream(new ByteArrayInputStream(record))) {
+          final String key = recordStream.readUTF();
+
+          this.entries.put(key, recordStream.readUTF());
+        }
+      }
+    }
+    catch (EOFException ex) {
+      // A truncated header or final record, which is simply dropped; appending after it would
+      // leave the rest of the log unreadable, so it is rewritten instead.
+      this.appendable = false;
+    }
+
+    if (this.corruptRecordCount > 0) {
+      System.err.printf(
+        "Discarded %d corrupt record(s) from license cache `%s`.\n\n",
+        this.corruptRecordCount,
+        this.getCacheFile().getAbsolutePath());
+    }
+  }
+
+  /**
+   * Takes the records that have not been handed to the log yet. The caller must hold the lock of
+   * this cache.
+   */
+  private List<byte[]> takePendingRecords() {
+    final List<byte[]> records = this.pendingRecords;
+
+    this.pendingRecords = new ArrayList<>();
+
+    return records;
+  }
+
+  /**
+   * Appends records to the log and flushes them to the file. The caller must hold
+   * {@link #logMonitor}.
+   *
+   * <p>If the log cannot be appended to, it is rewritten instead; the entries of the records are
+   * already live, so they are written along with the rest.</p>
+   */
+  private void appendToLog(List<byte[]> records)
+  throws IOException {
+    if (!this.appendable) {
+      this.compact();
+      return;
+    }
+
+    this.openLog();
+
+    for (byte[] record : records) {
+      this.logStream.write(record);
+    }
+
+    this.logStream.flush();
+
+    this.logRecordCount += records.size();
+  }
+
+  private void openLog()
+  throws IOException {
+    if (this.logStream == null) {
+      this.logStream =
+        new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(this.getCacheFile(), true), 65536));
+    }
+  }
+
+  private void closeLog()
+  throws IOException {
+    if (this.logStream != null) {
+      final DataOutputStream logStream = this.logStream;
+
+      this.logStream = null;
+
+      logStream.close();
+    }
+  }
+
+  /**
+   * Rewrites the log with just the live entries, from least to most recently used, so that the
+   * entries evicted first when the cache is next loaded are the ones that were used longest ago.
+   *
+   * <p>The caller must hold {@link #logMonitor}. Records of entries that are still on their way
+   * to the log are written again when they get there, which is harmless: the later record of a
+   * key wins when the log is loaded.</p>
+   */
+  private void compact()
+  throws IOException {
+    final File                            cacheFile   = this.getCacheFile().getAbsoluteFile(),
+                                          tempFile    =
+                                            new File(
+                                              cacheFile.getParentFile(),
+                                              cacheFile.getName() + ".tmp");
+    final List<Map.Entry<String, String>> liveEntries;
+
+    synchronized (this) {
+      liveEntries = new ArrayList<>(this.entries.entrySet());
+    }
+
+    try (final OutputStream     fileStream      = new FileOutputStream(tempFile);
+         final OutputStream     bufferedStream  = new BufferedOutputStream(fileStream, 65536);
+         final DataOutputStream dataStream      = new DataOutputStream(bufferedStream)) {
+      dataStream.writeInt(FILE_MAGIC);
+      dataStream.writeInt(FILE_VERSION);
+      dataStream.writeUTF(this.getRulesetVersion());
+
+      for (Map.Entry<String, String> entry : liveEntries) {
+        dataStream.write(encodeRecord(entry.getKey(), entry.getValue()));
+      }
+    }
+
+    try {
+      Files.move(
+        tempFile.toPath(),
+        cacheFile.toPath(),
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (AtomicMoveNotSupportedException ex) {
+      Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    this.logRecordCount = liveEntries.size();
+    this.appendable     = true;
+  }
+
+  /**
+   * Encodes an entry as a record of the log: its length, the entry itself, and its CRC32.
+   */
+  private static byte[] encodeRecord(String key, String license)
+  throws IOException {
+    final ByteArrayOutputStream recordBuffer  = new ByteArrayOutputStream(128);
+    final DataOutputStream      recordStream  = new DataOutputStream(recordBuffer);
+    final CRC32                 crc           = new CRC32();
+    final byte[]                entryBytes;
+
+    recordStream.writeUTF(key);
+    recordStream.writeUTF(license);
+    recordStream.flush();
+
+    entryBytes = recordBuffer.toByteArray();
+
+    crc.update(entryBytes, 0, entryBytes.length);
+
+    recordBuffer.reset();
+    recordStream.writeInt(entryBytes.length);
+    recordStream.write(entryBytes);
+    recordStream.writeInt((int)crc.getValue());
+    recordStream.flush();
+
+    return recordBuffer.toByteArray();
+  }
+}
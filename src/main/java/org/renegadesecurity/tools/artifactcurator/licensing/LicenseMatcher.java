@@ -0,0 +1,264 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.licensing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the first of an ordered list of license patterns that matches a piece of text, scanning
+ * the text only once no matter how many patterns there are.
+ *
+ * <p>Each pattern may be given a set of literal <em>anchors</em>: strings of which at least one
+ * must appear in any text the pattern matches (e.g. {@code "BSD"} for a pattern that looks for
+ * "BSD License" or "BSD-style License"). All anchors are compiled into a single Aho-Corasick
+ * automaton, which finds every anchor that occurs in the text in one pass over its characters.
+ * Only the patterns that had an anchor in the text (plus any patterns without anchors) are then
+ * run as regular expressions, in priority order. For typical source files, which mention no
+ * license at all, no regular expression is run.</p>
+ *
+ * <p>Anchors are a pre-filter only, so they never change which license is found, provided that
+ * every match of each pattern really does contain one of its anchors.</p>
+ *
+ * <p>Instances are immutable, and may be shared between any number of threads.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class LicenseMatcher {
+  /**
+   * The automaton works over 7-bit ASCII; every other character simply resets it.
+   */
+  private static final int ALPHABET_SIZE = 128;
+
+  /**
+   * The most patterns a matcher can hold, since candidates are tracked in a {@code long}.
+   */
+  private static final int MAX_PATTERNS = Long.SIZE;
+
+  private final List<String> licenses;
+  private final Pattern[] patterns;
+
+  /**
+   * A bit for each pattern that has no anchors, and so is always a candidate.
+   */
+  private final long unanchoredPatterns;
+
+  /**
+   * The transition table of the automaton, indexed by {@code state * ALPHABET_SIZE + character}.
+   */
+  private final int[] transitions;
+
+  /**
+   * For each state of the automaton, a bit for each pattern with an anchor that ends at that state.
+   */
+  private final long[] outputs;
+
+  /**
+   * Creates a matcher.
+   *
+   * @param patterns
+   *   The pattern for each license, in priority order (i.e. if several patterns match, the license
+   *   that comes first wins).
+   * @param anchors
+   *   The anchors of each license. Licenses that are not in this map, or that have no anchors,
+   *   always have their pattern run.
+   */
+  public LicenseMatcher(Map<String, Pattern> patterns, Map<String, List<String>> anchors) {
+    final List<String>  licenses        = new ArrayList<>(patterns.keySet());
+    final List<int[]>   goTo            = new ArrayList<>();
+    final List<Long>    outputs         = new ArrayList<>();
+    long                unanchored      = 0;
+
+    if (licenses.size() > MAX_PATTERNS) {
+      throw new IllegalArgumentException(
+        String.format("A matcher can hold at most %d patterns.", MAX_PATTERNS));
+    }
+
+    this.licenses = Collections.unmodifiableList(licenses);
+    this.patterns = new Pattern[licenses.size()];
+
+    // State 0 is the root, which matches the empty string.
+    goTo.add(newState());
+    outputs.add(0L);
+
+    for (int patternIndex = 0; patternIndex < licenses.size(); ++patternIndex) {
+      final String        license         = licenses.get(patternIndex);
+      final List<String>  licenseAnchors  = anchors.getOrDefault(license, Collections.emptyList());
+
+      this.patterns[patternIndex] = patterns.get(license);
+
+      if (licenseAnchors.isEmpty()) {
+        unanchored |= (1L << patternIndex);
+      }
+
+      for (String anchor : licenseAnchors) {
+        int state = 0;
+
+        if (anchor.isEmpty()) {
+          throw new IllegalArgumentException(
+            String.format("Anchors of `%s` cannot be empty.", license));
+        }
+
+        for (char anchorChar : anchor.toCharArray()) {
+          if (anchorChar >= ALPHABET_SIZE) {
+            throw new IllegalArgumentException(
+              String.format("Anchor `%s` of `%s` must be ASCII.", anchor, license));
+          }
+
+          if (goTo.get(state)[anchorChar] == -1) {
+            goTo.get(state)[anchorChar] = goTo.size();
+            goTo.add(newState());
+            outputs.add(0L);
+          }
+
+          state = goTo.get(state)[anchorChar];
+        }
+
+        outputs.set(state, outputs.get(state) | (1L << patternIndex));
+      }
+    }
+
+    this.unanchoredPatterns = unanchored;
+    this.transitions        = new int[goTo.size() * ALPHABET_SIZE];
+    this.outputs            = new long[goTo.size()];
+
+    this.buildAutomaton(goTo, outputs);
+  }
+
+  /**
+   * Gets the licenses this matcher looks for.
+   *
+   * @return
+   *   An unmodifiable list of the licenses, in priority order.
+   */
+  public List<String> getLicenses() {
+    return this.licenses;
+  }
+
+  /**
+   * Finds the license with the highest priority whose pattern matches the text.
+   *
+   * @param text
+   *   The text to search.
+   * @return
+   *   The license, or {@code null} if no pattern matches.
+   */
+  public String findLicense(CharSequence text) {
+    final long  candidates  = this.findCandidates(text);
+    String      license     = null;
+
+    for (int patternIndex = 0; patternIndex < this.patterns.length; ++patternIndex) {
+      if (((candidates & (1L << patternIndex)) != 0)
+          && this.patterns[patternIndex].matcher(text).find()) {
+        license = this.licenses.get(patternIndex);
+        break;
+      }
+    }
+
+    return license;
+  }
+
+  /**
+   * Scans the text once for every anchor.
+   *
+   * @return
+   *   A bit for each pattern that could match the text.
+   */
+  protected long findCandidates(CharSequence text) {
+    final long  allPatterns = (this.patterns.length == MAX_PATTERNS)
+                              ? -1L
+                              : ((1L << this.patterns.length) - 1);
+    final int   length      = text.length();
+    long        candidates  = this.unanchoredPatterns;
+    int         state       = 0;
+
+    for (int charIndex = 0; (charIndex < length) && (candidates != allPatterns); ++charIndex) {
+      final char textChar = text.charAt(charIndex);
+
+      if (textChar >= ALPHABET_SIZE) {
+        state = 0;
+      }
+      else {
+        state = this.transitions[(state * ALPHABET_SIZE) + textChar];
+        candidates |= this.outputs[state];
+      }
+    }
+
+    return candidates;
+  }
+
+  /**
+   * Turns the trie of anchors into a complete automaton, by computing the failure link of every
+   * state breadth-first and folding it into the transition table and outputs.
+   */
+  private void buildAutomaton(List<int[]> goTo, List<Long> trieOutputs) {
+    final int[]           failures  = new int[goTo.size()];
+    final Deque<Integer>  queue     = new ArrayDeque<>();
+
+    for (int state = 0; state < goTo.size(); ++state) {
+      this.outputs[state] = trieOutputs.get(state);
+    }
+
+    for (int symbol = 0; symbol < ALPHABET_SIZE; ++symbol) {
+      final int next = goTo.get(0)[symbol];
+
+      if (next == -1) {
+        this.transitions[symbol] = 0;
+      }
+      else {
+        this.transitions[symbol]  = next;
+        failures[next]            = 0;
+
+        queue.add(next);
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      final int state = queue.remove();
+
+      this.outputs[state] |= this.outputs[failures[state]];
+
+      for (int symbol = 0; symbol < ALPHABET_SIZE; ++symbol) {
+        final int next          = goTo.get(state)[symbol],
+                  failureTarget = this.transitions[(failures[state] * ALPHABET_SIZE) + symbol];
+
+        if (next == -1) {
+          this.transitions[(state * ALPHABET_SIZE) + symbol] = failureTarget;
+        }
+        else {
+          this.transitions[(state * ALPHABET_SIZE) + symbol]  = next;
+          failures[next]                                      = failureTarget;
+
+          queue.add(next);
+        }
+      }
+    }
+  }
+
+  private static int[] newState() {
+    final int[] state = new int[ALPHABET_SIZE];
+
+    Arrays.fill(state, -1);
+
+    return state;
+  }
+}
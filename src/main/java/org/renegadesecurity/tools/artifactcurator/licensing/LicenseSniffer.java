@@ -16,6 +16,8 @@
 package org.renegadesecurity.tools.artifactcurator.licensing;
 
 import java.io.File;
+import java.io.IOException;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
 
 /**
  * Interface for a class that can attempt to determine the license on a specific part of a Maven
@@ -31,4 +33,19 @@ public interface LicenseSniffer {
 
   public String determineLicense();
   public String determineLicenseOf(File sourceFile);
+
+  /**
+   * Computes a digest of whatever this sniffer reads to determine the license besides the
+   * contents of the artifact itself, so that a cached license is not reused once those change.
+   *
+   * @return
+   *   The digest, or {@code null} if the license depends on nothing but the artifact.
+   * @throws IOException
+   *   If the other inputs cannot be read.
+   * @see LicenseCache#keyOf(LicenseSniffer, DigestSet)
+   */
+  public default String digestOtherInputs()
+  throws IOException {
+    return null;
+  }
 }
@@ -16,7 +16,14 @@
 package org.renegadesecurity.tools.artifactcurator.licensing;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
 import org.apache.commons.io.FilenameUtils;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
 
 /**
  * Factory for obtaining a {@link LicenseSniffer} capable of applying forensic analysis to determine
@@ -25,15 +32,77 @@ import org.apache.commons.io.FilenameUtils;
  * @author Kortanul (kortanul@protonmail.com)
  */
 public class LicenseSnifferFactory {
+  /**
+   * Bump this whenever a change to the code of a sniffer could change the license it reports for
+   * an artifact, so that licenses cached under the old code are discarded. Changes to the
+   * patterns, file names, and scan policy are picked up automatically.
+   */
+  private static final int RULESET_REVISION = 4;
+
   public static LicenseSniffer getSnifferFor(File sourceFile) {
+    return getSnifferFor(sourceFile, JarScanPolicy.EXHAUSTIVE);
+  }
+
+  /**
+   * Gets a sniffer for the specified file.
+   *
+   * @param sourceFile
+   *   The file.
+   * @param scanPolicy
+   *   How much of the file to read, if it is a JAR.
+   * @return
+   *   The sniffer.
+   */
+  public static LicenseSniffer getSnifferFor(File sourceFile, JarScanPolicy scanPolicy) {
+    return getSnifferFor(sourceFile, scanPolicy, null);
+  }
+
+  /**
+   * Gets a sniffer for the specified file.
+   *
+   * @param sourceFile
+   *   The file.
+   * @param scanPolicy
+   *   How much of the file to read, if it is a JAR.
+   * @param pomLicenseResolver
+   *   The resolver with which to look up the license of a binary JAR in its POM, or {@code null}
+   *   to not use POMs.
+   * @return
+   *   The sniffer.
+   */
+  public static LicenseSniffer getSnifferFor(File sourceFile, JarScanPolicy scanPolicy,
+                                             PomLicenseResolver pomLicenseResolver) {
+    return getSnifferFor(sourceFile, scanPolicy, pomLicenseResolver, null);
+  }
+
+  /**
+   * Gets a sniffer for the specified file.
+   *
+   * @param sourceFile
+   *   The file.
+   * @param scanPolicy
+   *   How much of the file to read, if it is a JAR.
+   * @param pomLicenseResolver
+   *   The resolver with which to look up the license of a binary JAR in its POM, or {@code null}
+   *   to not use POMs.
+   * @param helperExecutor
+   *   The executor on which to start extra threads to read a JAR that the policy says to read in
+   *   parallel, or {@code null} to always read on the calling thread.
+   * @return
+   *   The sniffer.
+   */
+  public static LicenseSniffer getSnifferFor(File sourceFile, JarScanPolicy scanPolicy,
+                                             PomLicenseResolver pomLicenseResolver,
+                                             Executor helperExecutor) {
     LicenseSniffer  sniffer;
     String          fileName = sourceFile.getName();
 
     if (fileName.endsWith("-sources.jar")) {
-      sniffer = new SourceJarLicenseSniffer(sourceFile);
+      sniffer = new SourceJarLicenseSniffer(sourceFile, scanPolicy, helperExecutor);
     }
     else if (FilenameUtils.getExtension(fileName).equals("jar")) {
-      sniffer = new BinaryJarLicenseSniffer(sourceFile);
+      sniffer =
+        new BinaryJarLicenseSniffer(sourceFile, scanPolicy, pomLicenseResolver, helperExecutor);
     }
     else if (SourceFileLicenseSniffer.isSourceFile(fileName)) {
       sniffer = new SourceFileLicenseSniffer(sourceFile);
@@ -44,4 +113,41 @@ public class LicenseSnifferFactory {
 
     return sniffer;
   }
+
+  /**
+   * Gets a fingerprint of everything that determines the license the sniffers report for an
+   * artifact: the license patterns and their priority, which files are read, and the scan policy.
+   *
+   * @param scanPolicy
+   *   The policy JARs are scanned with.
+   * @return
+   *   The ruleset version, as lowercase hexadecimal.
+   * @see LicenseCache
+   */
+  public static String getRulesetVersion(JarScanPolicy scanPolicy) {
+    final StringBuilder ruleset = new StringBuilder();
+
+    ruleset.append(RULESET_REVISION).append('\n');
+
+    for (Map.Entry<String, Pattern> pattern :
+           SourceFileLicenseSniffer.LICENSE_PATTERNS.entrySet()) {
+      ruleset
+        .append(pattern.getKey()).append('=')
+        .append(pattern.getValue().flags()).append('/')
+        .append(pattern.getValue().pattern()).append('\n');
+    }
+
+    ruleset
+      .append(SourceFileLicenseSniffer.HEADER_LICENSE_LINE_SEARCH_LIMIT).append('\n')
+      .append(Arrays.toString(SourceFileLicenseSniffer.SOURCE_EXTENSIONS)).append('\n')
+      .append(SourceJarLicenseSniffer.LICENSE_FILE_NAMES).append('\n')
+      .append(SourceJarLicenseSniffer.LICENSE_FILE_EXTENSIONS).append('\n')
+      // The parallel threshold only changes how fast the answer is found, not the answer.
+      .append(scanPolicy.getAgreeingFiles()).append('\n')
+      .append(scanPolicy.isTrustingLicenseFiles()).append('\n');
+
+    return Hex.encode(
+      HashAlgorithm.SHA1.createDigest().digest(
+        ruleset.toString().getBytes(StandardCharsets.UTF_8)));
+  }
 }
@@ -0,0 +1,529 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.licensing;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.collections4.MapUtils;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+
+/**
+ * Determines the license of an artifact from the {@code <licenses>} element of its POM, following
+ * the chain of {@code <parent>} POMs within the repository when the POM does not declare any
+ * licenses of its own (as Maven itself does when it builds the effective POM).
+ *
+ * <p>POMs are read with a streaming (StAX) parser, which stops as soon as it has found a license,
+ * rather than being loaded into a DOM. Since thousands of artifacts typically share a handful of
+ * parents (e.g. {@code org.apache:apache}), each parent POM that is looked up is parsed at most
+ * once per resolver, however many threads ask for it at once.</p>
+ *
+ * <p>Each license name is reported as the well-known license it is a usual spelling of, or that it
+ * matches in {@link SourceFileLicenseSniffer#LICENSE_PATTERNS} (e.g. {@code APACHEv2}). A name
+ * that is neither is reported as written in the POM, but without commas or {@code |}, which
+ * separate the columns of the results and the licenses of an artifact.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class PomLicenseResolver {
+  /**
+   * The most parents that are followed, to guard against cycles.
+   */
+  public static final int MAX_PARENT_DEPTH = 16;
+
+  /**
+   * The usual spellings of well-known licenses in POMs, as reduced by
+   * {@link #normalizeLicenseName(String)}, and the license each one is reported as.
+   */
+  private static final Map<String, String> LICENSE_NAME_SPELLINGS =
+    Collections.unmodifiableMap(
+      MapUtils.putAll(new HashMap<>(), new Object[][] {
+        { "apache 2",                                     "APACHEv2" },
+        { "apache 2.0",                                   "APACHEv2" },
+        { "apache license 2",                             "APACHEv2" },
+        { "apache license 2.0",                           "APACHEv2" },
+        { "apache software license 2.0",                  "APACHEv2" },
+        { "asl 2.0",                                      "APACHEv2" },
+        { "gnu lesser general public license 2.1",        "LGPLv2.1" },
+        { "gnu lgpl 2.1",                                 "LGPLv2.1" },
+        { "lgpl 2.1",                                     "LGPLv2.1" },
+        { "lgpl 2.1 only",                                "LGPLv2.1" },
+        { "gnu lesser general public license 3",          "LGPLv3" },
+        { "gnu lesser general public license 3.0",        "LGPLv3" },
+        { "gnu lgpl 3",                                   "LGPLv3" },
+        { "lgpl 3",                                       "LGPLv3" },
+        { "lgpl 3.0",                                     "LGPLv3" },
+        { "lgpl 3.0 only",                                "LGPLv3" },
+        { "eclipse public license 1.0",                   "EPLv1.0" },
+        { "epl 1.0",                                      "EPLv1.0" },
+        { "eclipse public license 2.0",                   "EPLv2.0" },
+        { "epl 2.0",                                      "EPLv2.0" },
+        { "gnu general public license 2",                 "GPLv2" },
+        { "gnu general public license 2.0",               "GPLv2" },
+        { "gpl 2.0",                                      "GPLv2" },
+        { "gnu general public license 3",                 "GPLv3" },
+        { "gnu general public license 3.0",               "GPLv3" },
+        { "gpl 3.0",                                      "GPLv3" },
+        { "bsd 2 clause",                                 "BSD" },
+        { "bsd 3 clause",                                 "BSD" },
+        { "mit",                                          "MIT" },
+        { "mit license",                                  "MIT" },
+      }));
+
+  private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORIES =
+    ThreadLocal.withInitial(PomLicenseResolver::createInputFactory);
+
+  private final File repositoryRoot;
+
+  /**
+   * Parsed parent POMs, keyed by their coordinates. POMs that do not exist or cannot be parsed
+   * are cached as empty, so that they are not looked for again.
+   */
+  private final ConcurrentMap<String, Optional<PomModel>> parentModels;
+
+  /**
+   * Creates a resolver for the POMs of a repository.
+   *
+   * @param repositoryRoot
+   *   The top-level folder of the repository, in which parent POMs are looked up by their
+   *   coordinates.
+   */
+  public PomLicenseResolver(File repositoryRoot) {
+    if (repositoryRoot == null) {
+      throw new IllegalArgumentException("repositoryRoot cannot be null.");
+    }
+
+    this.repositoryRoot = repositoryRoot;
+    this.parentModels   = new ConcurrentHashMap<>();
+  }
+
+  public File getRepositoryRoot() {
+    return this.repositoryRoot;
+  }
+
+  /**
+   * Gets the number of parent POMs that have been looked up so far.
+   *
+   * @return
+   *   The number of cached parents, including any that could not be found.
+   */
+  public int getCachedParentCount() {
+    return this.parentModels.size();
+  }
+
+  /**
+   * Finds the POM that describes an artifact, i.e. the POM in the same folder that is named after
+   * the artifact ID and version of the folder (so that artifacts with a classifier, such as
+   * {@code foo-1.0-tests.jar}, find {@code foo-1.0.pom}).
+   *
+   * @param artifactFile
+   *   The artifact.
+   * @return
+   *   The POM, or {@code null} if there is none.
+   */
+  public static File findPomOf(File artifactFile) {
+    final File  versionFolder   = artifactFile.getAbsoluteFile().getParentFile(),
+                artifactFolder  = (versionFolder == null) ? null : versionFolder.getParentFile();
+    File        pomFile         = null;
+
+    if (artifactFolder != null) {
+      pomFile =
+        new File(
+          versionFolder,
+          String.format("%s-%s.pom", artifactFolder.getName(), versionFolder.getName()));
+    }
+
+    if ((pomFile == null) || !pomFile.isFile()) {
+      final String  artifactName  = artifactFile.getName();
+      final int     extensionDot  = artifactName.lastIndexOf('.');
+
+      pomFile =
+        new File(
+          artifactFile.getParentFile(),
+          ((extensionDot == -1) ? artifactName : artifactName.substring(0, extensionDot)) + ".pom");
+    }
+
+    return pomFile.isFile() ? pomFile : null;
+  }
+
+  /**
+   * Resolves the license of the artifact described by a POM.
+   *
+   * @param pomFile
+   *   The POM of the artifact.
+   * @return
+   *   Every license declared by the POM or its nearest ancestor that declares any, separated by
+   *   {@code |}; or {@code null} if none of them declares a license.
+   * @throws IOException
+   *   If the POM cannot be read or parsed. Parents that cannot be read are skipped.
+   */
+  public String resolveLicense(File pomFile)
+  throws IOException {
+    return this.resolveChain(pomFile).getLicense();
+  }
+
+  /**
+   * Computes a digest of every POM that {@link #resolveLicense(File)} reads for a POM, so that a
+   * license cached for an artifact can be told apart from one found under a different POM or
+   * parent.
+   *
+   * @param pomFile
+   *   The POM of the artifact.
+   * @return
+   *   The SHA-1 digest of the digests of the contents of the POM and each of the parents that
+   *   are followed, as lowercase hexadecimal.
+   * @throws IOException
+   *   If the POM cannot be read or parsed.
+   */
+  public String digestChainOf(File pomFile)
+  throws IOException {
+    return this.resolveChain(pomFile).getDigest();
+  }
+
+  /**
+   * Reads a POM and, as long as none of them declares a license, its parents; both the license
+   * and the digest of the chain can then be had without reading the POM again.
+   *
+   * @param pomFile
+   *   The POM of the artifact.
+   * @return
+   *   The POM and each parent that was followed.
+   * @throws IOException
+   *   If the POM cannot be read or parsed. Parents that cannot be read are skipped.
+   */
+  public PomChain resolveChain(File pomFile)
+  throws IOException {
+    final List<PomModel>  models  = new ArrayList<>();
+    PomModel              model   = parsePom(pomFile);
+
+    while (model != null) {
+      models.add(model);
+
+      if (!model.getLicenseNames().isEmpty() || (models.size() > MAX_PARENT_DEPTH)) {
+        break;
+      }
+
+      model = this.getParentModel(model);
+    }
+
+    return new PomChain(pomFile, models);
+  }
+
+  /**
+   * Gets the parent of a POM from the cache, parsing it if this is the first time it has been
+   * asked for.
+   */
+  private PomModel getParentModel(PomModel model) {
+    final String parentCoordinates = model.getParentCoordinates();
+
+    if (parentCoordinates == null) {
+      return null;
+    }
+
+    return this.parentModels.computeIfAbsent(parentCoordinates, (coordinates) -> {
+      final File      parentFile  = this.getParentFile(model);
+      PomModel        parentModel = null;
+
+      if ((parentFile != null) && parentFile.isFile()) {
+        try {
+          parentModel = parsePom(parentFile);
+        }
+        catch (IOException ex) {
+          System.err.printf(
+            "Error while reading parent POM `%s`: %s\n\n",
+            parentFile.getAbsolutePath(),
+            ex.getMessage());
+        }
+      }
+
+      return Optional.ofNullable(parentModel);
+    }).orElse(null);
+  }
+
+  private File getParentFile(PomModel model) {
+    final String  groupId     = model.getParentGroupId(),
+                  artifactId  = model.getParentArtifactId(),
+                  version     = model.getParentVersion();
+    File          parentFile  = null;
+
+    // Only literal coordinates can be looked up; a property could point anywhere.
+    if (!(groupId + artifactId + version).contains("${")) {
+      parentFile =
+        new File(
+          this.repositoryRoot,
+          String.join(
+            File.separator,
+            groupId.replace('.', File.separatorChar),
+            artifactId,
+            version,
+            artifactId + "-" + version + ".pom"));
+    }
+
+    return parentFile;
+  }
+
+  private static String describeLicenses(List<String> licenseNames) {
+    final Set<String> licenses = new TreeSet<>();
+
+    for (String licenseName : licenseNames) {
+      String license = LICENSE_NAME_SPELLINGS.get(normalizeLicenseName(licenseName));
+
+      if (license == null) {
+        // Matched the same way as a <license> element found in the header of a source file.
+        license =
+          SourceFileLicenseSniffer.LICENSE_MATCHER.findLicense(
+            "<license><name>" + licenseName + "</name>");
+      }
+
+      if (license == null) {
+        license = licenseName.replaceAll("[\\s,|]+", " ").trim();
+      }
+
+      licenses.add(license);
+    }
+
+    return String.join("|", licenses);
+  }
+
+  /**
+   * Reduces a license name to the form of {@link #LICENSE_NAME_SPELLINGS}: lowercase words and
+   * version numbers separated by single spaces, without "the", "version" or "v".
+   */
+  private static String normalizeLicenseName(String licenseName) {
+    return
+      licenseName
+        .toLowerCase(Locale.ROOT)
+        .replaceAll("[^a-z0-9.]+", " ")
+        .replaceAll("\\bv(?=\\d)|\\b(the|version|v)\\b", " ")
+        .replaceAll("\\.(?!\\d)", " ")
+        .replaceAll(" +", " ")
+        .trim();
+  }
+
+  /**
+   * Reads the parts of a POM that matter for licensing.
+   */
+  protected static PomModel parsePom(File pomFile)
+  throws IOException {
+    // Read whole, since the digest covers all of it while the parser may stop early.
+    final byte[] pomBytes = Files.readAllBytes(pomFile.toPath());
+
+    try (final InputStream pomStream = new ByteArrayInputStream(pomBytes)) {
+      final XMLStreamReader reader = XML_INPUT_FACTORIES.get().createXMLStreamReader(pomStream);
+
+      try {
+        final PomModel model = readModel(reader);
+
+        model.contentDigest = HashAlgorithm.SHA1.createDigest().digest(pomBytes);
+
+        return model;
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (XMLStreamException ex) {
+      throw new IOException(
+        String.format("`%s` is not a valid POM: %s", pomFile.getAbsolutePath(), ex.getMessage()),
+        ex);
+    }
+  }
+
+  private static PomModel readModel(XMLStreamReader reader)
+  throws XMLStreamException {
+    final PomModel      model = new PomModel();
+    final List<String>  path  = new ArrayList<>();
+
+    while (reader.hasNext()) {
+      final int event = reader.next();
+
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        final String elementPath;
+
+        path.add(reader.getLocalName());
+
+        elementPath = String.join("/", path);
+
+        switch (elementPath) {
+          case "project/parent/groupId":
+            model.parentGroupId = reader.getElementText().trim();
+            path.remove(path.size() - 1);
+            break;
+
+          case "project/parent/artifactId":
+            model.parentArtifactId = reader.getElementText().trim();
+            path.remove(path.size() - 1);
+            break;
+
+          case "project/parent/version":
+            model.parentVersion = reader.getElementText().trim();
+            path.remove(path.size() - 1);
+            break;
+
+          case "project/licenses/license/name":
+            model.licenseNames.add(reader.getElementText().trim().replaceAll("\\s+", " "));
+            path.remove(path.size() - 1);
+            break;
+
+          default:
+            break;
+        }
+      }
+      else if (event == XMLStreamConstants.END_ELEMENT) {
+        path.remove(path.size() - 1);
+
+        // With licenses of its own, the parent is never needed, so nothing is left to find.
+        if ((path.size() == 1)
+            && reader.getLocalName().equals("licenses")
+            && !model.licenseNames.isEmpty()) {
+          break;
+        }
+      }
+    }
+
+    return model;
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+    // POMs never need these, and they would let a hostile POM read local files.
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+    return factory;
+  }
+
+  /**
+   * A POM and the parents that were followed to resolve its license.
+   */
+  public static class PomChain {
+    private final File pomFile;
+    private final List<PomModel> models;
+
+    private PomChain(File pomFile, List<PomModel> models) {
+      this.pomFile  = pomFile;
+      this.models   = models;
+    }
+
+    public File getPomFile() {
+      return this.pomFile;
+    }
+
+    /**
+     * Gets the license of the artifact described by the POM.
+     *
+     * @return
+     *   Every license declared by the POM or its nearest ancestor that declares any, separated by
+     *   {@code |}; or {@code null} if none of them declares a license.
+     */
+    public String getLicense() {
+      final List<String> licenseNames = this.models.get(this.models.size() - 1).getLicenseNames();
+
+      return licenseNames.isEmpty() ? null : describeLicenses(licenseNames);
+    }
+
+    /**
+     * Gets a digest of the contents of the POM and of each parent that was followed.
+     *
+     * @return
+     *   The SHA-1 digest of the digests of each POM, as lowercase hexadecimal.
+     */
+    public String getDigest() {
+      final MessageDigest chainDigest = HashAlgorithm.SHA1.createDigest();
+
+      // A parent that is missing contributes nothing, so its appearance later changes the digest.
+      for (PomModel model : this.models) {
+        chainDigest.update(model.getContentDigest());
+      }
+
+      return Hex.encode(chainDigest.digest());
+    }
+  }
+
+  /**
+   * The parts of a POM that matter for licensing.
+   */
+  protected static class PomModel {
+    private String parentGroupId;
+    private String parentArtifactId;
+    private String parentVersion;
+    private byte[] contentDigest;
+    private final List<String> licenseNames = new ArrayList<>();
+
+    public String getParentGroupId() {
+      return this.parentGroupId;
+    }
+
+    public String getParentArtifactId() {
+      return this.parentArtifactId;
+    }
+
+    public String getParentVersion() {
+      return this.parentVersion;
+    }
+
+    /**
+     * Gets the coordinates of the parent POM.
+     *
+     * @return
+     *   The coordinates, in the form {@code groupId:artifactId:version}, or {@code null} if the
+     *   POM has no parent.
+     */
+    public String getParentCoordinates() {
+      if ((this.parentGroupId == null)
+          || (this.parentArtifactId == null)
+          || (this.parentVersion == null)) {
+        return null;
+      }
+
+      return String.join(":", this.parentGroupId, this.parentArtifactId, this.parentVersion);
+    }
+
+    public List<String> getLicenseNames() {
+      return Collections.unmodifiableList(this.licenseNames);
+    }
+
+    /**
+     * Gets the SHA-1 digest of the whole POM, as it was read.
+     *
+     * @return
+     *   The digest.
+     */
+    public byte[] getContentDigest() {
+      return this.contentDigest.clone();
+    }
+  }
+}
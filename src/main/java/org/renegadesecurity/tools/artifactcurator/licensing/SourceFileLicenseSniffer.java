@@ -24,9 +24,9 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.regex.Pattern;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -51,47 +51,82 @@ extends AbstractLicenseSniffer {
     "xml"
   };
 
+  /**
+   * The pattern for each well-known license, in priority order: if the header of a file matches
+   * several patterns, the license that comes first wins.
+   *
+   * <p>This is the order in which the patterns happened to be tried when they were kept in a
+   * {@code HashMap}, so that making the order explicit did not change the license reported for any
+   * file.</p>
+   */
   public static final Map<String, Pattern> LICENSE_PATTERNS =
     Collections.unmodifiableMap(
-      MapUtils.putAll(new HashMap<>(), new Object[][] {
+      MapUtils.putAll(new LinkedHashMap<>(), new Object[][] {
         {
-          "CDDLv1.0",
-          Pattern.compile("CDDLv1\\.0")
-        },
-        {
-          "CDDLv1.1",
-          Pattern.compile("CDDLv1\\.1")
+          "GPLv2",
+          Pattern.compile("GNU General Public License.*version 2|<license>\\s*<name>GNU General Public License, Version 2<\\/name>")
         },
         {
-          "CDDL",
-          Pattern.compile("(CDDL Header Notice)|(Common Development and Distribution License)")
+          "APACHEv2",
+          Pattern.compile("<license>\\s*<name>Apache License, Version 2.0<\\/name>")
         },
         {
-          "GPLv2",
-          Pattern.compile("GNU General Public License.*version 2|<license>\\s*<name>GNU General Public License, Version 2<\\/name>")
+          "ORACLE-JAVADOC",
+          Pattern.compile("<license>\\s*<name>Oracle License for Javadoc Updater Tool<\\/name>")
         },
         {
-          "GPLv3",
-          Pattern.compile("GNU General Public License.*version 3|<license>\\s*<name>GNU General Public License, Version 3<\\/name>")
+          "CDDLv1.1",
+          Pattern.compile("CDDLv1\\.1")
         },
         {
           "BSD",
           Pattern.compile("BSD(-style)? (license|License)|<license>\\s*<name>BSD<\\/name>")
         },
         {
-          "APACHEv2",
-          Pattern.compile("<license>\\s*<name>Apache License, Version 2.0<\\/name>")
+          "CDDLv1.0",
+          Pattern.compile("CDDLv1\\.0")
+        },
+        {
+          "CDDL",
+          Pattern.compile("(CDDL Header Notice)|(Common Development and Distribution License)")
         },
         {
           "MIT",
           Pattern.compile("MIT (\\(or new BSD\\))?(license|License)|<license>\\s*<name>MIT<\\/name>|all copies or substantial portions of the Software")
         },
         {
-          "ORACLE-JAVADOC",
-          Pattern.compile("<license>\\s*<name>Oracle License for Javadoc Updater Tool<\\/name>")
+          "GPLv3",
+          Pattern.compile("GNU General Public License.*version 3|<license>\\s*<name>GNU General Public License, Version 3<\\/name>")
+        },
+      }));
+
+  /**
+   * Literal strings, at least one of which appears in every match of each pattern in
+   * {@link #LICENSE_PATTERNS}; see {@link LicenseMatcher}.
+   *
+   * <p><strong>Each anchor must be kept in step with its pattern.</strong> If a pattern can match
+   * text that contains none of its anchors, the license will be missed.</p>
+   */
+  public static final Map<String, List<String>> LICENSE_ANCHORS =
+    Collections.unmodifiableMap(
+      MapUtils.putAll(new LinkedHashMap<>(), new Object[][] {
+        { "GPLv2",          Collections.singletonList("GNU General Public License") },
+        { "APACHEv2",       Collections.singletonList("Apache License, Version 2") },
+        { "ORACLE-JAVADOC", Collections.singletonList("Oracle License for Javadoc Updater Tool") },
+        { "CDDLv1.1",       Collections.singletonList("CDDLv1") },
+        { "BSD",            Collections.singletonList("BSD") },
+        { "CDDLv1.0",       Collections.singletonList("CDDLv1") },
+        {
+          "CDDL",
+          Arrays.asList("CDDL Header Notice", "Common Development and Distribution License")
         },
+        { "MIT",            Arrays.asList("MIT", "all copies or substantial portions") },
+        { "GPLv3",          Collections.singletonList("GNU General Public License") },
       }));
 
+  public static final LicenseMatcher LICENSE_MATCHER =
+    new LicenseMatcher(LICENSE_PATTERNS, LICENSE_ANCHORS);
+
   public static final int HEADER_LICENSE_LINE_SEARCH_LIMIT = 100;
 
   public static boolean isSourceFile(String fileName) {
@@ -145,13 +180,11 @@ extends AbstractLicenseSniffer {
 
       sourceLineContent = sourceLines.toString();
 
-      license =
-        LICENSE_PATTERNS
-          .entrySet().stream()
-          .filter((entry) -> entry.getValue().matcher(sourceLineContent).find())
-          .findFirst()
-          .map(Entry::getKey)
-          .orElse(LICENSE_UNKNOWN);
+      license = LICENSE_MATCHER.findLicense(sourceLineContent);
+
+      if (license == null) {
+        license = LICENSE_UNKNOWN;
+      }
     }
 
     return license;
@@ -18,69 +18,148 @@ package org.renegadesecurity.tools.artifactcurator.licensing;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-import org.apache.commons.collections4.IteratorUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FilenameUtils;
+import org.renegadesecurity.tools.artifactcurator.archive.ArchiveInspector;
+import org.renegadesecurity.tools.artifactcurator.archive.ArchiveInspectorFactory;
 
 /**
  * A license sniffer for source code JARs (i.e. JARs that mostly contain JAVA source files).
  *
+ * <p>Entries are read in order of how likely they are to name the license of the whole JAR:
+ * top-level license files first (only if the policy can stop early), then the POMs under
+ * {@code META-INF/maven}, then every other source file in the order they appear in the JAR. How
+ * many of them are read, and whether large JARs are read on several threads, is controlled by a
+ * {@link JarScanPolicy}. The extra threads come from a helper executor, normally the CPU pool of
+ * the run; without one, every JAR is read on the calling thread.</p>
+ *
+ * <p>The JAR is opened only once, through an {@link ArchiveInspector}, which callers that have
+ * already opened it (e.g. {@link BinaryJarLicenseSniffer}) can pass in directly.</p>
+ *
  * @author Kortanul (kortanul@protonmail.com)
  */
 public class SourceJarLicenseSniffer
 extends AbstractLicenseSniffer {
+  /**
+   * The base names (ignoring case and extension) of files that hold the license of a project.
+   */
+  public static final List<String> LICENSE_FILE_NAMES =
+    Arrays.asList("copying", "licence", "license", "notice");
+
+  /**
+   * The extensions that a license file may have, other than none at all.
+   */
+  public static final List<String> LICENSE_FILE_EXTENSIONS = Arrays.asList("md", "txt");
+
+  private static final String MAVEN_METADATA_FOLDER = "META-INF/maven/";
+
+  private final JarScanPolicy scanPolicy;
+  private final Executor helperExecutor;
+
   public SourceJarLicenseSniffer() {
     this(null);
   }
 
   public SourceJarLicenseSniffer(File sourceFile) {
+    this(sourceFile, JarScanPolicy.EXHAUSTIVE);
+  }
+
+  public SourceJarLicenseSniffer(File sourceFile, JarScanPolicy scanPolicy) {
+    this(sourceFile, scanPolicy, null);
+  }
+
+  /**
+   * Creates a sniffer.
+   *
+   * @param sourceFile
+   *   The JAR.
+   * @param scanPolicy
+   *   How much of the JAR to read.
+   * @param helperExecutor
+   *   The executor on which to start extra threads to read a JAR that the policy says to read in
+   *   parallel, or {@code null} to always read on the calling thread. The executor may reject
+   *   tasks when it is busy; the JAR is then read by fewer threads.
+   */
+  public SourceJarLicenseSniffer(File sourceFile, JarScanPolicy scanPolicy,
+                                 Executor helperExecutor) {
     super(sourceFile);
+
+    if (scanPolicy == null) {
+      throw new IllegalArgumentException("scanPolicy cannot be null.");
+    }
+
+    this.scanPolicy     = scanPolicy;
+    this.helperExecutor = helperExecutor;
+  }
+
+  public JarScanPolicy getScanPolicy() {
+    return this.scanPolicy;
+  }
+
+  public Executor getHelperExecutor() {
+    return this.helperExecutor;
+  }
+
+  /**
+   * Checks whether a JAR entry is a license file at the top of the JAR or of its
+   * {@code META-INF} folder (e.g. {@code LICENSE}, {@code META-INF/NOTICE.txt}).
+   *
+   * @param entryName
+   *   The full name of the entry.
+   * @return
+   *   {@code true} if the entry is a top-level license file.
+   */
+  public static boolean isLicenseFile(String entryName) {
+    final String folder     = FilenameUtils.getPath(entryName),
+                 baseName   = FilenameUtils.getBaseName(entryName).toLowerCase(),
+                 extension  = FilenameUtils.getExtension(entryName).toLowerCase();
+
+    return (folder.isEmpty() || folder.equals("META-INF/"))
+           && LICENSE_FILE_NAMES.contains(baseName)
+           && (extension.isEmpty() || LICENSE_FILE_EXTENSIONS.contains(extension));
+  }
+
+  /**
+   * Checks whether a JAR entry is the POM of a Maven project, as the Maven JAR plugin packages it
+   * (i.e. {@code META-INF/maven/<group>/<artifact>/pom.xml}).
+   *
+   * @param entryName
+   *   The full name of the entry.
+   * @return
+   *   {@code true} if the entry is a packaged POM.
+   */
+  public static boolean isPackagedPom(String entryName) {
+    return entryName.startsWith(MAVEN_METADATA_FOLDER) && entryName.endsWith("/pom.xml");
+  }
+
+  /**
+   * Checks whether a JAR entry is one that this sniffer may read: a top-level license file, a
+   * packaged POM, or a source file.
+   *
+   * @param entryName
+   *   The full name of the entry.
+   * @return
+   *   {@code true} if the entry may be read.
+   */
+  public static boolean isScannedEntry(String entryName) {
+    return isLicenseFile(entryName)
+           || isPackagedPom(entryName)
+           || SourceFileLicenseSniffer.isSourceFile(entryName);
   }
 
   public String determineLicenseOf(File sourceFile) {
     String license = LicenseSniffer.LICENSE_UNKNOWN;
 
-    try {
-      JarFile               jarFile     = new JarFile(sourceFile);
-      Enumeration<JarEntry> jarEntries  = jarFile.entries();
-      Iterable<JarEntry>    jarIterator = () -> IteratorUtils.asIterator(jarEntries);
-      Set<String>           licenses;
-
-      licenses =
-        StreamSupport
-          .stream(jarIterator.spliterator(), false)
-          .map((entry) -> {
-            String fileLicense = null;
-
-            if (SourceFileLicenseSniffer.isSourceFile(entry.getName())) {
-              try {
-                InputStream entryStream = jarFile.getInputStream(entry);
-
-                fileLicense = new SourceFileLicenseSniffer().determineLicenseOf(entryStream);
-              }
-              catch (IOException ex) {
-                ex.printStackTrace();
-              }
-            }
-
-            return fileLicense;
-          })
-          .filter((fileLicense) -> (fileLicense != null))
-          .collect(Collectors.toSet());
-
-      if (!licenses.isEmpty()) {
-        // Assume we have a license we can use
-        if (licenses.size() > 1) {
-          licenses.remove(LicenseSniffer.LICENSE_UNKNOWN);
-        }
-
-        license = String.join("|", new TreeSet<>(licenses));
-      }
+    try (final ArchiveInspector inspector =
+           ArchiveInspectorFactory.open(sourceFile, SourceJarLicenseSniffer::isScannedEntry)) {
+      license = this.determineLicenseOf(inspector);
     }
     catch (IOException ex) {
       System.err.printf(
@@ -91,4 +170,282 @@ extends AbstractLicenseSniffer {
 
     return license;
   }
+
+  /**
+   * Determines the license of a JAR that is already open.
+   *
+   * @param inspector
+   *   The open JAR, from which at least every {@linkplain #isScannedEntry(String) scanned entry}
+   *   can be read.
+   * @return
+   *   Every known license found in the JAR, separated by {@code |}, or {@code unknown}.
+   */
+  public String determineLicenseOf(ArchiveInspector inspector) {
+    final List<String>  priorityEntries = new ArrayList<>(),
+                        sourceEntries   = new ArrayList<>();
+    final LicenseTally  tally           = new LicenseTally(this.getScanPolicy());
+    boolean             confident;
+
+    sortEntries(
+      inspector.getEntryNames(),
+      this.getScanPolicy().isStoppingEarly(),
+      priorityEntries,
+      sourceEntries);
+
+    // Always in order, so that a license file or POM is never skipped in favour of a source file
+    confident = scanEntries(inspector, priorityEntries, tally);
+
+    if (!confident) {
+      if ((this.getHelperExecutor() != null)
+          && this.getScanPolicy().isParallel(sourceEntries.size())) {
+        this.scanEntriesInParallel(inspector, sourceEntries, tally);
+      }
+      else {
+        scanEntries(inspector, sourceEntries, tally);
+      }
+    }
+
+    return tally.getLicense();
+  }
+
+  /**
+   * Splits the entries of a JAR that are worth reading into those most likely to name the license
+   * of the whole JAR (license files, then packaged POMs), and every other source file.
+   *
+   * <p>License files are left out unless {@code readingLicenseFiles} is set, so that a policy that
+   * reads every file still reads exactly the source files it always has.</p>
+   */
+  protected static void sortEntries(List<String> entryNames, boolean readingLicenseFiles,
+                                    List<String> priorityEntries, List<String> sourceEntries) {
+    final List<String> packagedPoms = new ArrayList<>();
+
+    for (String entryName : entryNames) {
+      if (isLicenseFile(entryName)) {
+        // Never a source file, so skipping it here does not move it to the source entries.
+        if (readingLicenseFiles) {
+          priorityEntries.add(entryName);
+        }
+      }
+      else if (isPackagedPom(entryName)) {
+        packagedPoms.add(entryName);
+      }
+      else if (SourceFileLicenseSniffer.isSourceFile(entryName)) {
+        sourceEntries.add(entryName);
+      }
+    }
+
+    priorityEntries.addAll(packagedPoms);
+  }
+
+  /**
+   * Reads entries in order, on the calling thread, until the tally is confident of the license of
+   * the JAR.
+   *
+   * @return
+   *   {@code true} if the tally is confident.
+   */
+  private static boolean scanEntries(ArchiveInspector inspector, List<String> entryNames,
+                                     LicenseTally tally) {
+    for (String entryName : entryNames) {
+      final String fileLicense = determineLicenseOfEntry(inspector, entryName);
+
+      if ((fileLicense != null) && tally.add(entryName, fileLicense)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Reads entries on the calling thread and on as many helper threads as the helper executor will
+   * start, until the tally is confident of the license of the JAR.
+   *
+   * <p>The calling thread reads entries as well, so the scan finishes even if no helper can be
+   * started; this is what makes it safe to call from a task that is itself running on the pool
+   * that the helpers are started on. Before returning, it waits for any helper that is still
+   * reading an entry, so that the JAR is not closed under it.</p>
+   */
+  private void scanEntriesInParallel(ArchiveInspector inspector, List<String> entryNames,
+                                     LicenseTally tally) {
+    final ParallelScan  scan        = new ParallelScan(inspector, entryNames, tally);
+    final int           helperCount =
+      Math.min(Runtime.getRuntime().availableProcessors() - 1, entryNames.size() - 1);
+
+    try {
+      for (int helper = 0; helper < helperCount; ++helper) {
+        this.getHelperExecutor().execute(scan::run);
+      }
+    }
+    catch (RejectedExecutionException ex) {
+      // The pool is busy; carry on with the helpers that did start.
+    }
+
+    scan.run();
+    scan.finish();
+  }
+
+  private static String determineLicenseOfEntry(ArchiveInspector inspector, String entryName) {
+    String fileLicense = null;
+
+    try (final InputStream entryStream = inspector.openEntry(entryName)) {
+      fileLicense = new SourceFileLicenseSniffer().determineLicenseOf(entryStream);
+    }
+    catch (IOException ex) {
+      System.err.printf(
+        "Error while determining license of `%s` in `%s`: %s\n\n",
+        entryName,
+        inspector.getArchiveFile().getAbsolutePath(),
+        ex.getMessage());
+    }
+
+    return fileLicense;
+  }
+
+  /**
+   * A scan of the entries of a JAR that any number of threads can take part in, each reading the
+   * next entry that no other thread has taken yet.
+   */
+  private static class ParallelScan {
+    private final ArchiveInspector inspector;
+    private final List<String> entryNames;
+    private final LicenseTally tally;
+    private final AtomicInteger nextEntry;
+
+    /**
+     * Whether the scan is over, either because the tally is confident or because the thread that
+     * started the scan has stopped waiting for helpers to join in.
+     */
+    private volatile boolean finished;
+    private int activeReaders;
+
+    public ParallelScan(ArchiveInspector inspector, List<String> entryNames, LicenseTally tally) {
+      this.inspector  = inspector;
+      this.entryNames = entryNames;
+      this.tally      = tally;
+      this.nextEntry  = new AtomicInteger();
+    }
+
+    /**
+     * Reads entries until there are none left or the scan is over.
+     */
+    public void run() {
+      int entryIndex;
+
+      synchronized (this) {
+        if (this.finished) {
+          return;
+        }
+
+        ++this.activeReaders;
+      }
+
+      try {
+        while (!this.finished
+               && ((entryIndex = this.nextEntry.getAndIncrement()) < this.entryNames.size())) {
+          final String  entryName   = this.entryNames.get(entryIndex);
+          final String  fileLicense = determineLicenseOfEntry(this.inspector, entryName);
+
+          if ((fileLicense != null) && this.tally.add(entryName, fileLicense)) {
+            this.finished = true;
+          }
+        }
+      }
+      finally {
+        synchronized (this) {
+          if (--this.activeReaders == 0) {
+            this.notifyAll();
+          }
+        }
+      }
+    }
+
+    /**
+     * Ends the scan, so that helpers that have not started yet do nothing, and waits for every
+     * helper that is still reading an entry.
+     */
+    public synchronized void finish() {
+      boolean interrupted = false;
+
+      this.finished = true;
+
+      while (this.activeReaders > 0) {
+        try {
+          this.wait();
+        }
+        catch (InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * The licenses found in the entries of a JAR so far, which may be added to from several threads.
+   */
+  private static class LicenseTally {
+    private final JarScanPolicy scanPolicy;
+
+    /**
+     * The number of files that named each known license, sorted by license.
+     */
+    private final Map<String, Integer> fileCounts;
+
+    private String decisiveLicense;
+
+    public LicenseTally(JarScanPolicy scanPolicy) {
+      this.scanPolicy = scanPolicy;
+      this.fileCounts = new TreeMap<>();
+    }
+
+    /**
+     * Records the license of a file.
+     *
+     * @return
+     *   {@code true} if the policy is now confident of the license of the JAR.
+     */
+    public synchronized boolean add(String entryName, String fileLicense) {
+      if (this.decisiveLicense != null) {
+        return true;
+      }
+
+      if (fileLicense.equals(LicenseSniffer.LICENSE_UNKNOWN)) {
+        return false;
+      }
+
+      if (this.scanPolicy.isTrustingLicenseFiles() && isLicenseFile(entryName)) {
+        this.decisiveLicense = fileLicense;
+
+        return true;
+      }
+
+      final int agreeingFiles = this.fileCounts.merge(fileLicense, 1, Integer::sum);
+
+      return (this.fileCounts.size() == 1) && this.scanPolicy.isConfident(agreeingFiles);
+    }
+
+    /**
+     * Gets the license of the JAR: every known license that was found, or {@code unknown} if none
+     * was.
+     */
+    public synchronized String getLicense() {
+      final String license;
+
+      if (this.decisiveLicense != null) {
+        license = this.decisiveLicense;
+      }
+      else if (this.fileCounts.isEmpty()) {
+        license = LicenseSniffer.LICENSE_UNKNOWN;
+      }
+      else {
+        license = String.join("|", this.fileCounts.keySet());
+      }
+
+      return license;
+    }
+  }
 }
@@ -0,0 +1,658 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+
+/**
+ * A compact, in-memory index of the expected hashes of every artifact in the manifest.
+ *
+ * <p>Rather than a map of path strings to hexadecimal hash strings, the index keeps:</p>
+ * <ul>
+ *   <li>each directory only once, with every artifact referring to its directory by number (since
+ *       most directories of a Maven repository hold several artifacts);</li>
+ *   <li>the file name of each artifact as UTF-8 bytes, packed into a single array;</li>
+ *   <li>the hashes of each artifact as raw bytes, one run of words per algorithm, packed into a
+ *       {@code long[]};</li>
+ *   <li>the expected size of each artifact, only once any artifact has been given one;</li>
+ *   <li>an open-addressing table of entry numbers, for looking artifacts up by path; and</li>
+ *   <li>optionally, a second such table for looking artifacts up by the hash of the primary
+ *       algorithm (see {@link #indexHashes()}).</li>
+ * </ul>
+ *
+ * <p>Entries are numbered from zero in the order they were added, which is the order of the
+ * manifest. Hashes are compared byte-by-byte, so no hexadecimal strings need to be created or
+ * case-folded while artifacts are being verified.</p>
+ *
+ * <p>The index is built by a single thread. Once built, it may be read from any number of threads
+ * at once.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ArtifactHashIndex {
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final int[] NO_ENTRIES = new int[0];
+
+  private final Set<HashAlgorithm> algorithms;
+
+  /**
+   * The offset of the words of each algorithm within the words of an entry, indexed by the ordinal
+   * of the algorithm; {@code -1} for algorithms that are not in the index.
+   */
+  private final int[] wordOffsets;
+  private final int wordsPerEntry;
+
+  private final Map<String, Integer> directoryIds;
+  private final List<String> directories;
+
+  private int[] directoryIndexes;
+  private int[] nameOffsets;
+  private byte[] nameBytes;
+  private int nameBytesLength;
+  private long[] digestWords;
+  private int size;
+
+  /**
+   * The expected size of each artifact, or {@code null} if no artifact has been given one.
+   */
+  private long[] expectedSizes;
+
+  /**
+   * Slots of the path lookup table. Each slot holds an entry number plus one, or zero if the slot
+   * is empty.
+   */
+  private int[] pathSlots;
+
+  /**
+   * Slots of the hash lookup table, in the same format as {@link #pathSlots}, or {@code null} if
+   * artifacts have not been indexed by hash.
+   */
+  private int[] hashSlots;
+
+  public ArtifactHashIndex() {
+    this(EnumSet.of(HashAlgorithm.SHA1));
+  }
+
+  /**
+   * Creates an empty index.
+   *
+   * @param algorithms
+   *   The algorithms of the hashes that are given for every artifact.
+   */
+  public ArtifactHashIndex(Collection<HashAlgorithm> algorithms) {
+    int wordCount = 0;
+
+    if ((algorithms == null) || algorithms.isEmpty()) {
+      throw new IllegalArgumentException("algorithms cannot be null or empty.");
+    }
+
+    this.algorithms   = Collections.unmodifiableSet(EnumSet.copyOf(algorithms));
+    this.wordOffsets  = new int[HashAlgorithm.values().length];
+
+    Arrays.fill(this.wordOffsets, -1);
+
+    // The primary algorithm comes first, so that its first word is at the start of each entry.
+    for (HashAlgorithm algorithm : this.algorithms) {
+      this.wordOffsets[algorithm.ordinal()] = wordCount;
+      wordCount += wordsFor(algorithm);
+    }
+
+    this.wordsPerEntry    = wordCount;
+    this.directoryIds     = new HashMap<>();
+    this.directories      = new ArrayList<>();
+    this.directoryIndexes = new int[INITIAL_CAPACITY];
+    this.nameOffsets      = new int[INITIAL_CAPACITY + 1];
+    this.nameBytes        = new byte[INITIAL_CAPACITY * 32];
+    this.digestWords      = new long[INITIAL_CAPACITY * this.wordsPerEntry];
+    this.pathSlots        = new int[INITIAL_CAPACITY * 2];
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the algorithms of the hashes that are given for every artifact in the index.
+   *
+   * @return
+   *   An unmodifiable set of the algorithms.
+   */
+  public Set<HashAlgorithm> getAlgorithms() {
+    return this.algorithms;
+  }
+
+  /**
+   * Gets the number of distinct directories that contain artifacts in the index.
+   *
+   * @return
+   *   The number of distinct directories.
+   */
+  public int getDirectoryCount() {
+    return this.directories.size();
+  }
+
+  /**
+   * Gets a directory that contains artifacts in the index.
+   *
+   * @param directoryIndex
+   *   The number of the directory, from zero to {@link #getDirectoryCount()} (exclusive).
+   * @return
+   *   The path of the directory, relative to the top of the repository; empty for the top itself.
+   */
+  public String getDirectory(int directoryIndex) {
+    return this.directories.get(directoryIndex);
+  }
+
+  /**
+   * Adds an artifact of unknown size to the index.
+   *
+   * @see #add(String, DigestSet, long)
+   */
+  public SeenPathSet.Outcome add(String path, DigestSet digests) {
+    return this.add(path, digests, ManifestEntry.UNKNOWN_SIZE);
+  }
+
+  /**
+   * Adds an artifact to the index.
+   *
+   * @param path
+   *   The path of the artifact, relative to the top of the repository.
+   * @param digests
+   *   The expected hashes of the artifact, which must include every algorithm of the index.
+   *   Hashes of other algorithms are ignored.
+   * @param expectedSize
+   *   The expected size of the artifact in bytes, or {@link ManifestEntry#UNKNOWN_SIZE}.
+   * @return
+   *   {@link SeenPathSet.Outcome#ADDED} if the artifact was added;
+   *   {@link SeenPathSet.Outcome#DUPLICATE} if the artifact was already in the index with the same
+   *   hash; or {@link SeenPathSet.Outcome#CONFLICT} if the artifact was already in the index with a
+   *   different hash. In the last two cases, the index is left unchanged.
+   */
+  public SeenPathSet.Outcome add(String path, DigestSet digests, long expectedSize) {
+    if (!digests.containsAll(this.algorithms)) {
+      throw new IllegalArgumentException(
+        "digests must include a hash for every algorithm of the index.");
+    }
+
+    final int     separatorIndex  = path.lastIndexOf('/');
+    final String  directory       = (separatorIndex == -1) ? "" : path.substring(0, separatorIndex);
+    final byte[]  name            =
+      path.substring(separatorIndex + 1).getBytes(StandardCharsets.UTF_8);
+    final int     directoryIndex  = this.internDirectory(directory);
+    final int     existingEntry   = this.findEntry(directoryIndex, name);
+
+    if (existingEntry != -1) {
+      return this.matches(existingEntry, digests)
+        ? SeenPathSet.Outcome.DUPLICATE
+        : SeenPathSet.Outcome.CONFLICT;
+    }
+
+    this.ensureCapacity(name.length);
+
+    final int entry = this.size++;
+
+    this.directoryIndexes[entry] = directoryIndex;
+
+    System.arraycopy(name, 0, this.nameBytes, this.nameBytesLength, name.length);
+    this.nameBytesLength         += name.length;
+    this.nameOffsets[entry + 1]  = this.nameBytesLength;
+
+    this.storeDigests(entry, digests);
+    this.storeExpectedSize(entry, expectedSize);
+    this.insertSlot(this.pathSlots, entry);
+
+    return SeenPathSet.Outcome.ADDED;
+  }
+
+  /**
+   * Releases the spare capacity that was reserved for further entries.
+   *
+   * <p>This should be called once all artifacts have been added; entries may still be added
+   * afterwards, but the arrays will have to grow again.</p>
+   */
+  public void trimToSize() {
+    this.directoryIndexes = Arrays.copyOf(this.directoryIndexes, Math.max(this.size, 1));
+    this.nameOffsets      = Arrays.copyOf(this.nameOffsets, Math.max(this.size, 1) + 1);
+    this.nameBytes        = Arrays.copyOf(this.nameBytes, Math.max(this.nameBytesLength, 1));
+    this.digestWords      =
+      Arrays.copyOf(this.digestWords, Math.max(this.size, 1) * this.wordsPerEntry);
+
+    if (this.expectedSizes != null) {
+      this.expectedSizes = Arrays.copyOf(this.expectedSizes, Math.max(this.size, 1));
+    }
+  }
+
+  /**
+   * Builds the table used to look artifacts up by the hash of the primary algorithm.
+   *
+   * <p>This must be called after the last artifact has been added, and before
+   * {@link #indexesOfHash(DigestSet)} is called.</p>
+   */
+  public void indexHashes() {
+    int capacity = INITIAL_CAPACITY;
+
+    while (capacity < (this.size * 2)) {
+      capacity *= 2;
+    }
+
+    this.hashSlots = new int[capacity];
+
+    for (int entry = 0; entry < this.size; ++entry) {
+      int slot = this.hashDigest(entry) & (capacity - 1);
+
+      while (this.hashSlots[slot] != 0) {
+        slot = (slot + 1) & (capacity - 1);
+      }
+
+      this.hashSlots[slot] = entry + 1;
+    }
+  }
+
+  /**
+   * Looks up every artifact that is expected to have the specified hashes.
+   *
+   * @param digests
+   *   The hashes to look up, which must include every algorithm of the index.
+   * @return
+   *   The numbers of the entries for the artifacts with the hashes, in manifest order; empty if no
+   *   artifact has the hashes.
+   * @throws IllegalStateException
+   *   If {@link #indexHashes()} has not been called.
+   */
+  public int[] indexesOfHash(DigestSet digests) {
+    final int[] hashSlots   = this.hashSlots;
+    int[]       entries     = null;
+    int         entryCount  = 0;
+
+    if (hashSlots == null) {
+      throw new IllegalStateException("Artifacts have not been indexed by hash.");
+    }
+
+    if (digests.containsAll(this.algorithms)) {
+      final byte[]  primaryDigest = digests.get(this.algorithms.iterator().next());
+      final int     mask          = hashSlots.length - 1;
+      int           slot          = hashDigest(toWord(primaryDigest, 0)) & mask;
+      int           entryPlusOne;
+
+      while ((entryPlusOne = hashSlots[slot]) != 0) {
+        if (this.matches(entryPlusOne - 1, digests)) {
+          if (entries == null) {
+            entries = new int[1];
+          }
+          else if (entryCount == entries.length) {
+            // Most hashes match one artifact, but a few are shared by many (e.g. empty files).
+            entries = Arrays.copyOf(entries, entryCount * 2);
+          }
+
+          entries[entryCount++] = entryPlusOne - 1;
+        }
+
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    if (entries == null) {
+      return NO_ENTRIES;
+    }
+
+    if (entryCount != entries.length) {
+      entries = Arrays.copyOf(entries, entryCount);
+    }
+
+    Arrays.sort(entries);
+
+    return entries;
+  }
+
+  /**
+   * Looks up an artifact by path.
+   *
+   * @param path
+   *   The path of the artifact, relative to the top of the repository.
+   * @return
+   *   The number of the entry for the artifact, or {@code -1} if it is not in the index.
+   */
+  public int indexOf(String path) {
+    final int     separatorIndex  = path.lastIndexOf('/');
+    final String  directory       = (separatorIndex == -1) ? "" : path.substring(0, separatorIndex);
+    final Integer directoryIndex  = this.directoryIds.get(directory);
+    int           entry           = -1;
+
+    if (directoryIndex != null) {
+      final byte[] name = path.substring(separatorIndex + 1).getBytes(StandardCharsets.UTF_8);
+
+      entry = this.findEntry(directoryIndex, name);
+    }
+
+    return entry;
+  }
+
+  /**
+   * Gets the path of an artifact in the index.
+   *
+   * @param entry
+   *   The number of the entry.
+   * @return
+   *   The path of the artifact, relative to the top of the repository.
+   */
+  public String getPath(int entry) {
+    final String  directory = this.directories.get(this.directoryIndexes[entry]);
+    final int     nameStart = this.nameOffsets[entry];
+    final String  name      =
+      new String(
+        this.nameBytes,
+        nameStart,
+        this.nameOffsets[entry + 1] - nameStart,
+        StandardCharsets.UTF_8);
+
+    return directory.isEmpty() ? name : (directory + '/' + name);
+  }
+
+  /**
+   * Gets the number of the directory that contains an artifact in the index.
+   *
+   * @param entry
+   *   The number of the entry.
+   * @return
+   *   The number of the directory of the artifact.
+   * @see #getDirectory(int)
+   */
+  public int getDirectoryIndex(int entry) {
+    return this.directoryIndexes[entry];
+  }
+
+  /**
+   * Gets the expected hashes of an artifact in the index.
+   *
+   * @param entry
+   *   The number of the entry.
+   * @return
+   *   The hashes, one for each algorithm of the index.
+   */
+  public DigestSet getDigests(int entry) {
+    final EnumMap<HashAlgorithm, byte[]> digests = new EnumMap<>(HashAlgorithm.class);
+
+    for (HashAlgorithm algorithm : this.algorithms) {
+      final byte[]  digest    = new byte[algorithm.getDigestLength()];
+      final int     wordStart = this.wordStart(entry, algorithm);
+
+      for (int byteIndex = 0; byteIndex < digest.length; ++byteIndex) {
+        final long word = this.digestWords[wordStart + (byteIndex / 8)];
+
+        digest[byteIndex] = (byte)(word >>> (56 - ((byteIndex % 8) * 8)));
+      }
+
+      digests.put(algorithm, digest);
+    }
+
+    return new DigestSet(digests);
+  }
+
+  /**
+   * Gets the expected size of an artifact in the index.
+   *
+   * @param entry
+   *   The number of the entry.
+   * @return
+   *   The size in bytes, or {@link ManifestEntry#UNKNOWN_SIZE} if the manifest does not give one.
+   */
+  public long getExpectedSize(int entry) {
+    return (this.expectedSizes == null) ? ManifestEntry.UNKNOWN_SIZE : this.expectedSizes[entry];
+  }
+
+  /**
+   * Compares computed hashes against the expected hashes of an artifact in the index.
+   *
+   * @param entry
+   *   The number of the entry.
+   * @param digests
+   *   The computed hashes.
+   * @return
+   *   {@code true} if the computed hashes include every algorithm of the index, and each is
+   *   identical to the expected hash.
+   */
+  public boolean matches(int entry, DigestSet digests) {
+    for (HashAlgorithm algorithm : this.algorithms) {
+      final byte[]  digest    = digests.get(algorithm);
+      final int     wordStart = this.wordStart(entry, algorithm);
+
+      if (digest == null) {
+        return false;
+      }
+
+      for (int wordIndex = 0; wordIndex < wordsFor(algorithm); ++wordIndex) {
+        if (this.digestWords[wordStart + wordIndex] != toWord(digest, wordIndex * 8)) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Estimates the number of bytes of heap the index occupies.
+   *
+   * @return
+   *   The approximate size of the index, in bytes.
+   */
+  public long estimateFootprint() {
+    long footprint = 0;
+
+    footprint += 4L * this.directoryIndexes.length;
+    footprint += 4L * this.nameOffsets.length;
+    footprint += this.nameBytes.length;
+    footprint += 8L * this.digestWords.length;
+    footprint += 4L * this.pathSlots.length;
+
+    if (this.expectedSizes != null) {
+      footprint += 8L * this.expectedSizes.length;
+    }
+
+    if (this.hashSlots != null) {
+      footprint += 4L * this.hashSlots.length;
+    }
+
+    for (String directory : this.directories) {
+      // The string itself, plus its entries in the list and the map.
+      footprint += 40 + (2L * directory.length()) + 8 + 48;
+    }
+
+    return footprint;
+  }
+
+  private int internDirectory(String directory) {
+    Integer directoryIndex = this.directoryIds.get(directory);
+
+    if (directoryIndex == null) {
+      directoryIndex = this.directories.size();
+
+      this.directories.add(directory);
+      this.directoryIds.put(directory, directoryIndex);
+    }
+
+    return directoryIndex;
+  }
+
+  private int findEntry(int directoryIndex, byte[] name) {
+    final int mask  = this.pathSlots.length - 1;
+    int       slot  = hashPath(directoryIndex, name, 0, name.length) & mask;
+    int       entryPlusOne;
+
+    while ((entryPlusOne = this.pathSlots[slot]) != 0) {
+      final int entry = entryPlusOne - 1;
+
+      if ((this.directoryIndexes[entry] == directoryIndex) && this.nameEquals(entry, name)) {
+        return entry;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  private boolean nameEquals(int entry, byte[] name) {
+    final int nameStart   = this.nameOffsets[entry],
+              nameLength  = this.nameOffsets[entry + 1] - nameStart;
+
+    if (nameLength != name.length) {
+      return false;
+    }
+
+    for (int byteIndex = 0; byteIndex < nameLength; ++byteIndex) {
+      if (this.nameBytes[nameStart + byteIndex] != name[byteIndex]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private void insertSlot(int[] slots, int entry) {
+    final int nameStart = this.nameOffsets[entry],
+              nameEnd   = this.nameOffsets[entry + 1],
+              mask      = slots.length - 1;
+    int       slot      =
+      hashPath(this.directoryIndexes[entry], this.nameBytes, nameStart, nameEnd - nameStart) & mask;
+
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+
+    slots[slot] = entry + 1;
+  }
+
+  private void storeDigests(int entry, DigestSet digests) {
+    for (HashAlgorithm algorithm : this.algorithms) {
+      final byte[]  digest    = digests.get(algorithm);
+      final int     wordStart = this.wordStart(entry, algorithm);
+
+      for (int wordIndex = 0; wordIndex < wordsFor(algorithm); ++wordIndex) {
+        this.digestWords[wordStart + wordIndex] = toWord(digest, wordIndex * 8);
+      }
+    }
+  }
+
+  private void storeExpectedSize(int entry, long expectedSize) {
+    if ((this.expectedSizes == null) && (expectedSize != ManifestEntry.UNKNOWN_SIZE)) {
+      this.expectedSizes = new long[this.directoryIndexes.length];
+
+      Arrays.fill(this.expectedSizes, ManifestEntry.UNKNOWN_SIZE);
+    }
+
+    if (this.expectedSizes != null) {
+      this.expectedSizes[entry] = expectedSize;
+    }
+  }
+
+  private int wordStart(int entry, HashAlgorithm algorithm) {
+    return (entry * this.wordsPerEntry) + this.wordOffsets[algorithm.ordinal()];
+  }
+
+  private static int wordsFor(HashAlgorithm algorithm) {
+    return (algorithm.getDigestLength() + 7) / 8;
+  }
+
+  private void ensureCapacity(int nameLength) {
+    final int capacity = this.directoryIndexes.length;
+
+    if (this.size >= capacity) {
+      final int newCapacity = capacity * 2;
+
+      this.directoryIndexes = Arrays.copyOf(this.directoryIndexes, newCapacity);
+      this.nameOffsets      = Arrays.copyOf(this.nameOffsets, newCapacity + 1);
+      this.digestWords      = Arrays.copyOf(this.digestWords, newCapacity * this.wordsPerEntry);
+
+      if (this.expectedSizes != null) {
+        final int oldCapacity = this.expectedSizes.length;
+
+        this.expectedSizes = Arrays.copyOf(this.expectedSizes, newCapacity);
+
+        Arrays.fill(this.expectedSizes, oldCapacity, newCapacity, ManifestEntry.UNKNOWN_SIZE);
+      }
+    }
+
+    if (this.nameBytesLength + nameLength > this.nameBytes.length) {
+      this.nameBytes =
+        Arrays.copyOf(
+          this.nameBytes,
+          Math.max(this.nameBytes.length * 2, this.nameBytesLength + nameLength));
+    }
+
+    // Keep the lookup table at most half full.
+    if ((this.size + 1) * 2 > this.pathSlots.length) {
+      final int[] newPathSlots = new int[this.pathSlots.length * 2];
+
+      for (int entry = 0; entry < this.size; ++entry) {
+        this.insertSlot(newPathSlots, entry);
+      }
+
+      this.pathSlots = newPathSlots;
+    }
+  }
+
+  /**
+   * Packs up to eight bytes of a hash into a word, big-end first; missing bytes are zero.
+   */
+  private static long toWord(byte[] bytes, int offset) {
+    final int end  = Math.min(offset + 8, bytes.length);
+    long      word = 0;
+
+    for (int byteIndex = offset; byteIndex < offset + 8; ++byteIndex) {
+      word <<= 8;
+
+      if (byteIndex < end) {
+        word |= (bytes[byteIndex] & 0xFFL);
+      }
+    }
+
+    return word;
+  }
+
+  private int hashDigest(int entry) {
+    return hashDigest(this.digestWords[entry * this.wordsPerEntry]);
+  }
+
+  /**
+   * Hashes the first word of the primary hash, which is already uniformly distributed.
+   */
+  private static int hashDigest(long firstWord) {
+    return (int)(firstWord ^ (firstWord >>> 32));
+  }
+
+  private static int hashPath(int directoryIndex, byte[] name, int nameStart, int nameLength) {
+    int hash = directoryIndex * 0x9E3779B9;
+
+    for (int byteIndex = nameStart; byteIndex < nameStart + nameLength; ++byteIndex) {
+      hash = (hash * 31) + name[byteIndex];
+    }
+
+    return hash ^ (hash >>> 16);
+  }
+}
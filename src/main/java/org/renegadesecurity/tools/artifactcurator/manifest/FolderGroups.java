@@ -0,0 +1,90 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The entries of an {@link ArtifactHashIndex}, grouped by the folder they are in, with the folders
+ * in path order (so that neighbouring folders of the tree are next to each other).
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+class FolderGroups {
+  private final int[] folderStarts;
+  private final int[] folderEntries;
+  private final int[] sortedFolders;
+
+  FolderGroups(ArtifactHashIndex artifactHashes) {
+    final int       folderCount   = artifactHashes.getDirectoryCount();
+    final int[]     folderCursors;
+    final Integer[] sortedFolders = new Integer[folderCount];
+
+    this.folderStarts   = new int[folderCount + 1];
+    this.folderEntries  = new int[artifactHashes.size()];
+    this.sortedFolders  = new int[folderCount];
+
+    // Counting sort of the entries by folder.
+    for (int entry = 0; entry < artifactHashes.size(); ++entry) {
+      ++this.folderStarts[artifactHashes.getDirectoryIndex(entry) + 1];
+    }
+
+    for (int folder = 0; folder < folderCount; ++folder) {
+      this.folderStarts[folder + 1] += this.folderStarts[folder];
+      sortedFolders[folder]          = folder;
+    }
+
+    folderCursors = Arrays.copyOf(this.folderStarts, folderCount);
+
+    for (int entry = 0; entry < artifactHashes.size(); ++entry) {
+      this.folderEntries[folderCursors[artifactHashes.getDirectoryIndex(entry)]++] = entry;
+    }
+
+    Arrays.sort(sortedFolders, Comparator.comparing(artifactHashes::getDirectory));
+
+    for (int position = 0; position < folderCount; ++position) {
+      this.sortedFolders[position] = sortedFolders[position];
+    }
+  }
+
+  int getFolderCount() {
+    return this.sortedFolders.length;
+  }
+
+  /**
+   * Gets the folder at a position in path order.
+   *
+   * @return
+   *   The number of the folder in the {@link ArtifactHashIndex}.
+   */
+  int getFolder(int position) {
+    return this.sortedFolders[position];
+  }
+
+  /**
+   * Gets the entries in a folder, in the order they were added to the index.
+   *
+   * @param folder
+   *   The number of the folder in the {@link ArtifactHashIndex}.
+   * @return
+   *   A new array of the entries.
+   */
+  int[] getEntries(int folder) {
+    return Arrays.copyOfRange(
+      this.folderEntries, this.folderStarts[folder], this.folderStarts[folder + 1]);
+  }
+}
@@ -0,0 +1,104 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An order in which to process the artifacts of an {@link ArtifactHashIndex} that keeps reads
+ * close together on disk, rather than jumping around the whole tree in the order of the CSV file.
+ *
+ * <p>Artifacts are handed out in batches of one folder each, with the folders in path order, so
+ * that a worker reads a whole folder before moving on. Within a folder, artifacts are ordered by
+ * inode number where the file system exposes one (most file systems allocate inodes, and often
+ * data, in the order files were written), and by name otherwise. Java offers no way to ask for
+ * the physical extents of a file, so the inode number is as close as it gets. The inode numbers
+ * are those the {@link SourceIndex} read while indexing, so working out the schedule does not
+ * touch the file system.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class LocalitySchedule {
+  private final int[][] batches;
+
+  private LocalitySchedule(int[][] batches) {
+    this.batches = batches;
+  }
+
+  /**
+   * Works out the schedule for the artifacts of a manifest.
+   *
+   * @param artifactHashes
+   *   The artifacts.
+   * @param sourceIndex
+   *   The attributes of the artifacts in the source folder.
+   * @return
+   *   The schedule.
+   */
+  public static LocalitySchedule build(ArtifactHashIndex artifactHashes,
+                                       SourceIndex sourceIndex) {
+    final FolderGroups  folderGroups  = new FolderGroups(artifactHashes);
+    final int[][]       batches       = new int[folderGroups.getFolderCount()][];
+
+    for (int position = 0; position < batches.length; ++position) {
+      final int[]     entries       = folderGroups.getEntries(folderGroups.getFolder(position));
+      final Integer[] sortedEntries = new Integer[entries.length];
+      final long[]    inodes        = new long[entries.length];
+
+      for (int entryIndex = 0; entryIndex < entries.length; ++entryIndex) {
+        sortedEntries[entryIndex] = entryIndex;
+        inodes[entryIndex]        = sourceIndex.getInode(entries[entryIndex]);
+      }
+
+      Arrays.sort(
+        sortedEntries,
+        Comparator.<Integer>comparingLong((entryIndex) -> inodes[entryIndex])
+          .thenComparing((entryIndex) -> artifactHashes.getPath(entries[entryIndex])));
+
+      batches[position] = new int[entries.length];
+
+      for (int entryIndex = 0; entryIndex < entries.length; ++entryIndex) {
+        batches[position][entryIndex] = entries[sortedEntries[entryIndex]];
+      }
+    }
+
+    return new LocalitySchedule(batches);
+  }
+
+  /**
+   * Gets the number of batches, i.e. of distinct folders.
+   *
+   * @return
+   *   The number of batches.
+   */
+  public int getBatchCount() {
+    return this.batches.length;
+  }
+
+  /**
+   * Gets the artifacts of a batch, in the order in which to process them.
+   *
+   * @param batch
+   *   The number of the batch, from zero to {@link #getBatchCount()} (exclusive), in the order in
+   *   which to process the batches.
+   * @return
+   *   The numbers of the entries of the artifacts in the {@link ArtifactHashIndex}.
+   */
+  public int[] getBatch(int batch) {
+    return this.batches[batch];
+  }
+}
@@ -0,0 +1,162 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+
+/**
+ * A single row of the manifest (i.e. the CSV file of artifact hashes).
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ManifestEntry {
+  /**
+   * The expected size of an artifact whose row does not give one.
+   */
+  public static final long UNKNOWN_SIZE = -1;
+
+  private final String fileName;
+  private final EnumMap<HashAlgorithm, String> hashes;
+  private final long expectedSize;
+
+  public ManifestEntry(String fileName, String sha1) {
+    this(fileName, Collections.singletonMap(HashAlgorithm.SHA1, sha1));
+  }
+
+  public ManifestEntry(String fileName, Map<HashAlgorithm, String> hashes) {
+    this(fileName, hashes, UNKNOWN_SIZE);
+  }
+
+  public ManifestEntry(String fileName, Map<HashAlgorithm, String> hashes, long expectedSize) {
+    if (fileName == null) {
+      throw new IllegalArgumentException("fileName cannot be null.");
+    }
+
+    if ((hashes == null) || hashes.isEmpty()) {
+      throw new IllegalArgumentException("hashes cannot be null or empty.");
+    }
+
+    if (hashes.containsValue(null)) {
+      throw new IllegalArgumentException("hashes cannot contain null values.");
+    }
+
+    if (expectedSize < UNKNOWN_SIZE) {
+      throw new IllegalArgumentException("expectedSize cannot be negative.");
+    }
+
+    this.fileName     = fileName;
+    this.hashes       = new EnumMap<>(hashes);
+    this.expectedSize = expectedSize;
+  }
+
+  /**
+   * Gets the path of the artifact, relative to the top of the repository.
+   *
+   * @return
+   *   The path of the artifact.
+   */
+  public String getFileName() {
+    return this.fileName;
+  }
+
+  /**
+   * Gets the expected hashes of the artifact, exactly as they appear in the manifest.
+   *
+   * @return
+   *   An unmodifiable map of each algorithm in the manifest to the expected hash.
+   */
+  public Map<HashAlgorithm, String> getHashes() {
+    return Collections.unmodifiableMap(this.hashes);
+  }
+
+  /**
+   * Gets the expected size of the artifact.
+   *
+   * @return
+   *   The size in bytes, or {@link #UNKNOWN_SIZE} if the manifest does not give one.
+   */
+  public long getExpectedSize() {
+    return this.expectedSize;
+  }
+
+  /**
+   * Gets the expected hash of the primary algorithm, exactly as it appears in the manifest.
+   *
+   * @return
+   *   The expected hash that is shown in results.
+   * @see HashAlgorithm#primaryOf(java.util.Collection)
+   */
+  public String getPrimaryHash() {
+    return this.hashes.values().iterator().next();
+  }
+
+  /**
+   * Gets the expected hashes of the artifact in a canonical form, so that two rows with equivalent
+   * hashes have equal strings.
+   *
+   * @return
+   *   The hashes, trimmed, lowercased, and joined in order of preference.
+   */
+  public String getNormalizedHashes() {
+    final StringBuilder builder = new StringBuilder();
+
+    for (String hash : this.hashes.values()) {
+      if (builder.length() > 0) {
+        builder.append(':');
+      }
+
+      builder.append(hash.trim().toLowerCase());
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * Parses the expected hashes of the artifact.
+   *
+   * <p>Surrounding whitespace is ignored, and the hashes may be in either upper or lower case.</p>
+   *
+   * @return
+   *   The hashes, or {@code null} if any of them is not a valid hash for its algorithm.
+   */
+  public DigestSet parseDigests() {
+    final EnumMap<HashAlgorithm, byte[]> digests = new EnumMap<>(HashAlgorithm.class);
+
+    for (Map.Entry<HashAlgorithm, String> hash : this.hashes.entrySet()) {
+      final HashAlgorithm algorithm = hash.getKey();
+      final String        hexHash   = hash.getValue().trim();
+
+      if (hexHash.length() != (algorithm.getDigestLength() * 2)) {
+        return null;
+      }
+
+      try {
+        digests.put(algorithm, Hex.decode(hexHash));
+      }
+      catch (IllegalArgumentException ex) {
+        // Not hexadecimal.
+        return null;
+      }
+    }
+
+    return new DigestSet(digests);
+  }
+}
@@ -0,0 +1,186 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+
+/**
+ * Reads the manifest (i.e. the CSV file of artifact hashes) one row at a time.
+ *
+ * <p>Rows are handed to the caller as soon as they are parsed, so that work on the first artifacts
+ * can start while the rest of the file is still being read, and so that the whole file never has
+ * to be held in memory.</p>
+ *
+ * <p>The manifest must have a {@value #COLUMN_FILENAME} column and at least one hash column (see
+ * {@link HashAlgorithm#getColumnName()}), such as {@code SHA1 Hash} or {@code SHA256 Hash}. An
+ * artifact is only considered verified if it matches every hash given for it.</p>
+ *
+ * <p>The manifest may also have a {@value #COLUMN_SIZE} column, giving the expected size of each
+ * artifact in bytes. Artifacts of any other size are rejected without being read. Rows may leave
+ * the size blank, if it is not known.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ManifestReader {
+  public static final String COLUMN_FILENAME = "Filename";
+  public static final String COLUMN_SIZE = "Size";
+
+  private final File manifestFile;
+
+  public ManifestReader(File manifestFile) {
+    if (manifestFile == null) {
+      throw new IllegalArgumentException("manifestFile cannot be null.");
+    }
+
+    this.manifestFile = manifestFile;
+  }
+
+  public File getManifestFile() {
+    return this.manifestFile;
+  }
+
+  /**
+   * Reads only the header of the manifest to determine which hash algorithms it provides.
+   *
+   * @return
+   *   The algorithms of the hash columns in the manifest.
+   * @throws IOException
+   *   If the manifest cannot be read.
+   * @throws IllegalArgumentException
+   *   If the manifest does not have the expected columns.
+   */
+  public Set<HashAlgorithm> readAlgorithms()
+  throws IOException {
+    try (final Reader     fileReader  = new FileReader(this.getManifestFile());
+         final CSVParser  csvParser   = CSVFormat.DEFAULT.withHeader().parse(fileReader)) {
+      return getAlgorithms(csvParser.getHeaderMap());
+    }
+  }
+
+  /**
+   * Reads every row of the manifest, in order.
+   *
+   * @param entryConsumer
+   *   The consumer to invoke with each row, on the calling thread. If the consumer blocks, reading
+   *   of the manifest is paused until it returns.
+   * @throws IOException
+   *   If the manifest cannot be read.
+   * @throws IllegalArgumentException
+   *   If a row of the manifest does not have the expected columns.
+   */
+  public void read(Consumer<ManifestEntry> entryConsumer)
+  throws IOException {
+    try (final Reader     fileReader  = new FileReader(this.getManifestFile());
+         final Reader     csvReader   = new BufferedReader(fileReader, 65536);
+         final CSVParser  csvParser   = CSVFormat.DEFAULT.withHeader().parse(csvReader)) {
+      final Set<HashAlgorithm>  algorithms  = getAlgorithms(csvParser.getHeaderMap());
+      final boolean             hasSize     = csvParser.getHeaderMap().containsKey(COLUMN_SIZE);
+
+      for (CSVRecord record : csvParser) {
+        entryConsumer.accept(this.toEntry(record, algorithms, hasSize));
+      }
+    }
+  }
+
+  private ManifestEntry toEntry(CSVRecord record, Set<HashAlgorithm> algorithms,
+                                boolean hasSize) {
+    final Map<HashAlgorithm, String>  hashes      = new EnumMap<>(HashAlgorithm.class);
+    final int                         columnCount = algorithms.size() + (hasSize ? 2 : 1);
+
+    if (record.size() != columnCount) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Row %d of the CSV file must have exactly %d columns.",
+          record.getRecordNumber(),
+          columnCount));
+    }
+
+    for (HashAlgorithm algorithm : algorithms) {
+      hashes.put(algorithm, record.get(algorithm.getColumnName()));
+    }
+
+    return new ManifestEntry(
+      record.get(COLUMN_FILENAME),
+      hashes,
+      hasSize ? parseSize(record) : ManifestEntry.UNKNOWN_SIZE);
+  }
+
+  private static long parseSize(CSVRecord record) {
+    final String  size   = record.get(COLUMN_SIZE).trim();
+    long          result = ManifestEntry.UNKNOWN_SIZE;
+
+    if (!size.isEmpty()) {
+      try {
+        result = Long.parseLong(size);
+      }
+      catch (NumberFormatException ex) {
+        // Reported below.
+      }
+
+      if (result < 0) {
+        throw new IllegalArgumentException(
+          String.format(
+            "Row %d of the CSV file has an invalid size: `%s`.",
+            record.getRecordNumber(),
+            size));
+      }
+    }
+
+    return result;
+  }
+
+  private static Set<HashAlgorithm> getAlgorithms(Map<String, Integer> headerMap) {
+    final Set<HashAlgorithm> algorithms = EnumSet.noneOf(HashAlgorithm.class);
+
+    if ((headerMap == null) || !headerMap.containsKey(COLUMN_FILENAME)) {
+      throw new IllegalArgumentException(
+        String.format("CSV file must have a \"%s\" column.", COLUMN_FILENAME));
+    }
+
+    for (String columnName : headerMap.keySet()) {
+      if (!columnName.equals(COLUMN_FILENAME) && !columnName.equals(COLUMN_SIZE)) {
+        final HashAlgorithm algorithm = HashAlgorithm.forColumnName(columnName);
+
+        if (algorithm == null) {
+          throw new IllegalArgumentException(
+            String.format("CSV file has an unrecognised column: \"%s\".", columnName));
+        }
+
+        algorithms.add(algorithm);
+      }
+    }
+
+    if (algorithms.isEmpty()) {
+      throw new IllegalArgumentException(
+        "CSV file must have at least one hash column (e.g. \"SHA1 Hash\").");
+    }
+
+    return algorithms;
+  }
+}
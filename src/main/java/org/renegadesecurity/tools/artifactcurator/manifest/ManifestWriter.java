@@ -0,0 +1,192 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+
+/**
+ * Writes a manifest (i.e. a CSV file of artifact hashes) that {@link ManifestReader} can read,
+ * with a {@value ManifestReader#COLUMN_SIZE} column as well as the hash columns.
+ *
+ * <p>Any number of threads may write rows at once. The rows of a single call to
+ * {@link #write(List)} are kept together, in the order given.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ManifestWriter
+implements Closeable {
+  private final Set<HashAlgorithm> algorithms;
+  private final CSVPrinter csvPrinter;
+
+  /**
+   * Creates the manifest file and writes its header.
+   *
+   * @param manifestFile
+   *   The file to write; it is replaced if it already exists.
+   * @param algorithms
+   *   The algorithms of the hashes to write for every artifact.
+   * @throws IOException
+   *   If the file cannot be created.
+   */
+  public ManifestWriter(File manifestFile, Collection<HashAlgorithm> algorithms)
+  throws IOException {
+    final List<String> header = new ArrayList<>();
+
+    if (manifestFile == null) {
+      throw new IllegalArgumentException("manifestFile cannot be null.");
+    }
+
+    if ((algorithms == null) || algorithms.isEmpty()) {
+      throw new IllegalArgumentException("algorithms cannot be null or empty.");
+    }
+
+    this.algorithms = Collections.unmodifiableSet(EnumSet.copyOf(algorithms));
+
+    header.add(ManifestReader.COLUMN_FILENAME);
+    header.add(ManifestReader.COLUMN_SIZE);
+
+    for (HashAlgorithm algorithm : this.algorithms) {
+      header.add(algorithm.getColumnName());
+    }
+
+    this.csvPrinter =
+      CSVFormat.DEFAULT
+        .withRecordSeparator('\n')
+        .withHeader(header.toArray(new String[0]))
+        .print(
+          new BufferedWriter(
+            new OutputStreamWriter(
+              new FileOutputStream(manifestFile), StandardCharsets.UTF_8),
+            65536));
+  }
+
+  /**
+   * Gets the algorithms of the hashes that are written for every artifact.
+   *
+   * @return
+   *   An unmodifiable set of the algorithms, in column order.
+   */
+  public Set<HashAlgorithm> getAlgorithms() {
+    return this.algorithms;
+  }
+
+  /**
+   * Writes a run of rows.
+   *
+   * @param rows
+   *   The rows to write. Each must have a hash for every algorithm of the writer, and a size.
+   * @throws IOException
+   *   If the rows cannot be written.
+   */
+  public void write(List<Row> rows)
+  throws IOException {
+    synchronized (this.csvPrinter) {
+      for (Row row : rows) {
+        final List<Object> record = new ArrayList<>();
+
+        if (!row.getHashes().containsAll(this.algorithms)) {
+          throw new IllegalArgumentException(
+            "Every row must have a hash for every algorithm of the manifest.");
+        }
+
+        record.add(row.getFileName());
+        record.add(row.getSize());
+
+        for (HashAlgorithm algorithm : this.algorithms) {
+          final byte[] hash = row.getHashes().get(algorithm);
+
+          record.add(Hex.encode(hash));
+        }
+
+        this.csvPrinter.printRecord(record);
+      }
+    }
+  }
+
+  @Override
+  public void close()
+  throws IOException {
+    synchronized (this.csvPrinter) {
+      this.csvPrinter.close();
+    }
+  }
+
+  /**
+   * A single row of the manifest.
+   */
+  public static class Row {
+    private final String fileName;
+    private final long size;
+    private final DigestSet hashes;
+
+    /**
+     * Creates a row.
+     *
+     * @param fileName
+     *   The path of the artifact, relative to the top of the repository.
+     * @param size
+     *   The size of the artifact in bytes.
+     * @param hashes
+     *   The hashes of the artifact.
+     */
+    public Row(String fileName, long size, DigestSet hashes) {
+      if (fileName == null) {
+        throw new IllegalArgumentException("fileName cannot be null.");
+      }
+
+      if (size < 0) {
+        throw new IllegalArgumentException("size cannot be negative.");
+      }
+
+      if (hashes == null) {
+        throw new IllegalArgumentException("hashes cannot be null.");
+      }
+
+      this.fileName = fileName;
+      this.size     = size;
+      this.hashes   = hashes;
+    }
+
+    public String getFileName() {
+      return this.fileName;
+    }
+
+    public long getSize() {
+      return this.size;
+    }
+
+    public DigestSet getHashes() {
+      return this.hashes;
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+/**
+ * A compact record of the manifest rows that have already been seen, used to detect duplicate and
+ * conflicting rows without keeping every row in memory.
+ *
+ * <p>Instead of the path and hash strings themselves, the set keeps a 64-bit fingerprint of each,
+ * in a pair of primitive arrays with open addressing. That is 16 bytes per row (plus slack for the
+ * load factor), regardless of how long the paths are. The trade-off is that two different paths
+ * could in theory share a fingerprint; with 64-bit fingerprints, the odds of that happening even
+ * once in a manifest of ten million rows are below one in a hundred thousand.</p>
+ *
+ * <p>This class is not thread-safe; it is meant to be used by the single thread that reads the
+ * manifest.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class SeenPathSet {
+  /**
+   * The outcome of adding a row to the set.
+   */
+  public enum Outcome {
+    /**
+     * The path had not been seen before.
+     */
+    ADDED,
+
+    /**
+     * The path was already seen, with the same hash.
+     */
+    DUPLICATE,
+
+    /**
+     * The path was already seen, with a different hash.
+     */
+    CONFLICT
+  }
+
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final long EMPTY = 0L;
+
+  private long[] pathFingerprints;
+  private long[] hashFingerprints;
+  private int size;
+
+  public SeenPathSet() {
+    this.pathFingerprints = new long[INITIAL_CAPACITY];
+    this.hashFingerprints = new long[INITIAL_CAPACITY];
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Records that a row with the specified path and hash has been seen.
+   *
+   * @param path
+   *   The path of the artifact in the row.
+   * @param hash
+   *   The normalized (i.e. trimmed, lower-case) hash of the artifact in the row.
+   * @return
+   *   Whether the path is new, a duplicate, or a conflict.
+   */
+  public Outcome add(String path, String hash) {
+    final long  pathFingerprint = fingerprint(path),
+                hashFingerprint = fingerprint(hash);
+    final int   mask            = this.pathFingerprints.length - 1;
+    int         slot            = (int)mix(pathFingerprint) & mask;
+
+    while (this.pathFingerprints[slot] != EMPTY) {
+      if (this.pathFingerprints[slot] == pathFingerprint) {
+        return (this.hashFingerprints[slot] == hashFingerprint)
+          ? Outcome.DUPLICATE
+          : Outcome.CONFLICT;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    this.pathFingerprints[slot] = pathFingerprint;
+    this.hashFingerprints[slot] = hashFingerprint;
+
+    if (++this.size * 2 > this.pathFingerprints.length) {
+      this.grow();
+    }
+
+    return Outcome.ADDED;
+  }
+
+  /**
+   * Checks whether a row with the specified path has been seen.
+   *
+   * <p>Like {@link #add(String, String)}, this compares fingerprints, so it could in theory report
+   * a path that was never seen as seen, but never the other way around.</p>
+   *
+   * @param path
+   *   The path of the artifact.
+   * @return
+   *   {@code true} if a row with the path has been seen.
+   */
+  public boolean contains(String path) {
+    final long  pathFingerprint = fingerprint(path);
+    final int   mask            = this.pathFingerprints.length - 1;
+    int         slot            = (int)mix(pathFingerprint) & mask;
+
+    while (this.pathFingerprints[slot] != EMPTY) {
+      if (this.pathFingerprints[slot] == pathFingerprint) {
+        return true;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return false;
+  }
+
+  private void grow() {
+    final long[]  oldPathFingerprints = this.pathFingerprints,
+                  oldHashFingerprints = this.hashFingerprints;
+    final int     newCapacity         = oldPathFingerprints.length * 2,
+                  mask                = newCapacity - 1;
+
+    this.pathFingerprints = new long[newCapacity];
+    this.hashFingerprints = new long[newCapacity];
+
+    for (int oldSlot = 0; oldSlot < oldPathFingerprints.length; ++oldSlot) {
+      final long pathFingerprint = oldPathFingerprints[oldSlot];
+
+      if (pathFingerprint != EMPTY) {
+        int slot = (int)mix(pathFingerprint) & mask;
+
+        while (this.pathFingerprints[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+
+        this.pathFingerprints[slot] = pathFingerprint;
+        this.hashFingerprints[slot] = oldHashFingerprints[oldSlot];
+      }
+    }
+  }
+
+  /**
+   * Computes the 64-bit FNV-1a fingerprint of a string.
+   *
+   * <p>Zero is reserved to mark empty slots, so it is never returned.</p>
+   */
+  static long fingerprint(String value) {
+    long hash = 0xcbf29ce484222325L;
+
+    for (int charIndex = 0; charIndex < value.length(); ++charIndex) {
+      hash ^= value.charAt(charIndex);
+      hash *= 0x100000001b3L;
+    }
+
+    return (hash == EMPTY) ? 1L : hash;
+  }
+
+  /**
+   * Spreads the bits of a fingerprint, so that the low bits used to pick a slot are well mixed.
+   */
+  private static long mix(long fingerprint) {
+    long mixed = fingerprint;
+
+    mixed ^= (mixed >>> 33);
+    mixed *= 0xff51afd7ed558ccdL;
+    mixed ^= (mixed >>> 33);
+
+    return mixed;
+  }
+}
@@ -0,0 +1,350 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.renegadesecurity.tools.artifactcurator.execution.WorkerPools;
+
+/**
+ * The attributes of every artifact in an {@link ArtifactHashIndex}, as found in the source folder,
+ * gathered up front so that no artifact has to be looked up by path while it is being processed.
+ *
+ * <p>Rather than asking the file system about each artifact by path, each distinct folder of the
+ * manifest is listed once, and only the files in it that the manifest names are statted.
+ * Artifacts in a folder that does not exist are known not to exist without any further requests.
+ * An artifact that is not in the listing of its folder is statted by the name in the manifest
+ * anyway, since on a file system that ignores case (or normalizes Unicode), the listing may spell
+ * the name differently; this costs one request per missing artifact. This matters most on network
+ * file systems, where every request is a round trip.</p>
+ *
+ * <p>Folders are indexed on the I/O pool, in batches of neighbouring folders (in path order), so
+ * that each worker tends to stay within one part of the tree.</p>
+ *
+ * <p>Only what the artifacts are processed with is kept: the size, modification time, device and
+ * inode number of each, in arrays indexed by entry, rather than an attributes object per
+ * artifact. The inode number is read from the {@code unix} attribute view where there is one, so
+ * that the artifacts can be {@linkplain LocalitySchedule scheduled} by it.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class SourceIndex {
+  /**
+   * The inode number of an artifact whose file system does not expose one, or that does not
+   * exist; it sorts after every real inode number.
+   */
+  public static final long UNKNOWN_INODE = Long.MAX_VALUE;
+
+  /**
+   * How many folders each task on the I/O pool indexes.
+   */
+  private static final int FOLDERS_PER_TASK = 16;
+
+  /**
+   * The attributes that are read for each artifact where the {@code unix} view is supported,
+   * all with a single request.
+   */
+  private static final String UNIX_ATTRIBUTES = "unix:isRegularFile,size,lastModifiedTime,dev,ino";
+
+  private static final boolean UNIX_VIEW_SUPPORTED =
+    FileSystems.getDefault().supportedFileAttributeViews().contains("unix");
+
+  /**
+   * The size of each artifact, or {@code -1} if it does not exist (or is not a regular file).
+   *
+   * <p>Each element of these arrays is written by one worker while the index is built, and only
+   * read once {@link WorkerPools#awaitCompletion()} has returned.</p>
+   */
+  private final long[] sizes;
+
+  /**
+   * The modification time of each artifact, in nanoseconds since the epoch.
+   */
+  private final long[] modifiedTimes;
+
+  /**
+   * The device of each artifact, where its file system exposes one.
+   */
+  private final long[] devices;
+
+  /**
+   * The inode number of each artifact, or {@link #UNKNOWN_INODE}.
+   */
+  private final long[] inodes;
+
+  private SourceIndex(int size) {
+    this.sizes          = new long[size];
+    this.modifiedTimes  = new long[size];
+    this.devices        = new long[size];
+    this.inodes         = new long[size];
+
+    Arrays.fill(this.sizes, -1);
+    Arrays.fill(this.inodes, UNKNOWN_INODE);
+  }
+
+  /**
+   * Indexes the artifacts of a manifest in the source folder.
+   *
+   * @param sourceFolder
+   *   The top-level folder that contains the artifacts.
+   * @param artifactHashes
+   *   The artifacts to look for.
+   * @param workerPools
+   *   The pools to index folders on; these must not have anything else to do in the meantime.
+   * @return
+   *   The index.
+   * @throws InterruptedException
+   *   If interrupted while waiting for the folders to be indexed.
+   */
+  public static SourceIndex build(File sourceFolder, ArtifactHashIndex artifactHashes,
+                                  WorkerPools workerPools)
+  throws InterruptedException {
+    final SourceIndex   index         = new SourceIndex(artifactHashes.size());
+    final FolderGroups  folderGroups  = new FolderGroups(artifactHashes);
+    final int           folderCount   = folderGroups.getFolderCount();
+
+    for (int batchStart = 0; batchStart < folderCount; batchStart += FOLDERS_PER_TASK) {
+      final int batchEnd      = Math.min(batchStart + FOLDERS_PER_TASK, folderCount),
+                firstPosition = batchStart;
+
+      workerPools.submitIo(() -> {
+        for (int position = firstPosition; position < batchEnd; ++position) {
+          final int folder = folderGroups.getFolder(position);
+
+          index.indexFolder(
+            sourceFolder, artifactHashes, folder, folderGroups.getEntries(folder));
+        }
+      });
+    }
+
+    workerPools.awaitCompletion();
+
+    return index;
+  }
+
+  /**
+   * Gets the attributes of an artifact.
+   *
+   * <p>The attributes are a view of what was indexed. Only the size, modification time and file
+   * key are known; the last access and creation times are reported as the modification
+   * time.</p>
+   *
+   * @param entry
+   *   The number of the entry of the artifact in the {@link ArtifactHashIndex}.
+   * @return
+   *   The attributes of the artifact, or {@code null} if it does not exist (or is not a regular
+   *   file).
+   */
+  public BasicFileAttributes getAttributes(int entry) {
+    return (this.sizes[entry] == -1) ? null : new IndexedAttributes(entry);
+  }
+
+  /**
+   * Gets the inode number of an artifact.
+   *
+   * @param entry
+   *   The number of the entry of the artifact in the {@link ArtifactHashIndex}.
+   * @return
+   *   The inode number, or {@link #UNKNOWN_INODE} if the file system of the artifact does not
+   *   expose one or the artifact does not exist.
+   */
+  public long getInode(int entry) {
+    return this.inodes[entry];
+  }
+
+  private void indexFolder(File sourceFolder, ArtifactHashIndex artifactHashes, int folder,
+                           int[] entries) {
+    final String                folderPath    = artifactHashes.getDirectory(folder);
+    final File                  folderFile    =
+      folderPath.isEmpty() ? sourceFolder : new File(sourceFolder, folderPath);
+    final Map<String, Integer>  entriesByName = new HashMap<>();
+
+    for (int entry : entries) {
+      final String path = artifactHashes.getPath(entry);
+
+      entriesByName.put(path.substring(path.lastIndexOf('/') + 1), entry);
+    }
+
+    try (final DirectoryStream<Path> children = Files.newDirectoryStream(folderFile.toPath())) {
+      for (Path child : children) {
+        final Integer entry = entriesByName.remove(child.getFileName().toString());
+
+        if (entry != null) {
+          this.readAttributes(entry, child);
+        }
+      }
+
+      // Spelled differently in the listing, if they exist at all.
+      for (int entry : entriesByName.values()) {
+        this.readAttributes(entry, new File(sourceFolder, artifactHashes.getPath(entry)).toPath());
+      }
+    }
+    catch (NoSuchFileException | NotDirectoryException ex) {
+      // None of the artifacts in the folder exist.
+    }
+    catch (IOException | DirectoryIteratorException ex) {
+      // The folder cannot be listed (but might still be searchable); look up each artifact.
+      for (int entry : entries) {
+        this.readAttributes(entry, new File(sourceFolder, artifactHashes.getPath(entry)).toPath());
+      }
+    }
+  }
+
+  /**
+   * Reads the attributes of an artifact into the index. An artifact that cannot be read is left
+   * as not existing.
+   */
+  private void readAttributes(int entry, Path file) {
+    try {
+      if (UNIX_VIEW_SUPPORTED) {
+        final Map<String, Object> attributes = Files.readAttributes(file, UNIX_ATTRIBUTES);
+
+        if ((Boolean)attributes.get("isRegularFile")) {
+          this.modifiedTimes[entry] =
+            ((FileTime)attributes.get("lastModifiedTime")).to(TimeUnit.NANOSECONDS);
+          this.devices[entry]       = (Long)attributes.get("dev");
+          this.inodes[entry]        = (Long)attributes.get("ino");
+          this.sizes[entry]         = (Long)attributes.get("size");
+        }
+      }
+      else {
+        final BasicFileAttributes attributes =
+          Files.readAttributes(file, BasicFileAttributes.class);
+
+        if (attributes.isRegularFile()) {
+          this.modifiedTimes[entry] = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+          this.sizes[entry]         = attributes.size();
+        }
+      }
+    }
+    catch (IOException ex) {
+      // Treated the same as a file that does not exist.
+    }
+  }
+
+  /**
+   * The attributes of an indexed artifact.
+   */
+  private class IndexedAttributes
+  implements BasicFileAttributes {
+    private final int entry;
+
+    public IndexedAttributes(int entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+      return FileTime.from(SourceIndex.this.modifiedTimes[this.entry], TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+      return this.lastModifiedTime();
+    }
+
+    @Override
+    public FileTime creationTime() {
+      return this.lastModifiedTime();
+    }
+
+    @Override
+    public boolean isRegularFile() {
+      return true;
+    }
+
+    @Override
+    public boolean isDirectory() {
+      return false;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+      return false;
+    }
+
+    @Override
+    public boolean isOther() {
+      return false;
+    }
+
+    @Override
+    public long size() {
+      return SourceIndex.this.sizes[this.entry];
+    }
+
+    @Override
+    public Object fileKey() {
+      final long inode = SourceIndex.this.inodes[this.entry];
+
+      return (inode == UNKNOWN_INODE)
+             ? null
+             : new FileKey(SourceIndex.this.devices[this.entry], inode);
+    }
+  }
+
+  /**
+   * The device and inode number of a file, which tell it apart from every other file that
+   * exists at the same time.
+   *
+   * <p>Equal to, and described the same way as, the file key that the JDK reports for the same
+   * file on Unix, e.g. {@code (dev=803,ino=1234)}, so that either can be used to look the file up
+   * in the {@link org.renegadesecurity.tools.artifactcurator.digest.DigestCache}.</p>
+   */
+  private static class FileKey {
+    private final long device;
+    private final long inode;
+
+    public FileKey(long device, long inode) {
+      this.device = device;
+      this.inode  = inode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof FileKey)) {
+        return false;
+      }
+
+      final FileKey otherKey = (FileKey)other;
+
+      return (this.device == otherKey.device) && (this.inode == otherKey.inode);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(this.device) ^ Long.hashCode(this.inode);
+    }
+
+    @Override
+    public String toString() {
+      return "(dev=" + Long.toHexString(this.device) + ",ino=" + this.inode + ")";
+    }
+  }
+}
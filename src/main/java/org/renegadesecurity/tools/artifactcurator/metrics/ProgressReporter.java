@@ -0,0 +1,177 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.metrics;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a line of progress for a run at a fixed interval, from a background thread.
+ *
+ * <p>Each line shows how many results are done, the rate at which artifacts were finished and
+ * bytes were read since the previous line, and, if the number of results is known up front, an
+ * estimate of the time left at the average rate so far. A final line with the averages of the
+ * whole run is printed when the reporter is closed.</p>
+ *
+ * <p>The reporter only ever reads the counters of the {@link RunMetrics}, so the workers are never
+ * held up by it.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ProgressReporter
+implements Closeable {
+  private static final double MEGABYTE = 1024 * 1024;
+
+  private final RunMetrics metrics;
+  private final long intervalNanos;
+  private final PrintStream out;
+  private final CountDownLatch stopped = new CountDownLatch(1);
+  private final Thread reporterThread;
+
+  /**
+   * Creates a reporter, and starts printing.
+   *
+   * @param metrics
+   *   The counters of the run.
+   * @param intervalSeconds
+   *   How often to print a line, in seconds.
+   * @param out
+   *   Where to print (usually standard error, so as not to mix with the results).
+   */
+  public ProgressReporter(RunMetrics metrics, long intervalSeconds, PrintStream out) {
+    if (metrics == null) {
+      throw new IllegalArgumentException("metrics cannot be null.");
+    }
+
+    if (intervalSeconds <= 0) {
+      throw new IllegalArgumentException("intervalSeconds must be greater than zero.");
+    }
+
+    if (out == null) {
+      throw new IllegalArgumentException("out cannot be null.");
+    }
+
+    this.metrics        = metrics;
+    this.intervalNanos  = TimeUnit.SECONDS.toNanos(intervalSeconds);
+    this.out            = out;
+    this.reporterThread = new Thread(this::report, "progress-reporter");
+
+    this.reporterThread.setDaemon(true);
+    this.reporterThread.start();
+  }
+
+  /**
+   * Stops printing progress, and prints the averages of the whole run.
+   */
+  @Override
+  public void close() {
+    this.stopped.countDown();
+
+    try {
+      this.reporterThread.join();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+
+    this.printSummary();
+  }
+
+  private void report() {
+    long lastTime       = this.metrics.getStartTime(),
+         lastArtifacts  = 0,
+         lastBytes      = 0;
+
+    try {
+      while (!this.stopped.await(this.intervalNanos, TimeUnit.NANOSECONDS)) {
+        final long now        = System.nanoTime(),
+                   artifacts  = this.metrics.getCompletedArtifacts(),
+                   bytes      = this.metrics.getBytesRead();
+
+        this.printProgress(
+          now,
+          artifacts,
+          (now - lastTime) / 1e9,
+          artifacts - lastArtifacts,
+          bytes - lastBytes);
+
+        lastTime      = now;
+        lastArtifacts = artifacts;
+        lastBytes     = bytes;
+      }
+    }
+    catch (InterruptedException ex) {
+      // Nothing more to print.
+    }
+  }
+
+  private void printProgress(long now, long artifacts, double seconds, long newArtifacts,
+                             long newBytes) {
+    final long          expected  = this.metrics.getExpectedArtifacts();
+    final StringBuilder line      = new StringBuilder("Progress: ");
+
+    line.append(String.format(Locale.ROOT, "%,d", artifacts));
+
+    if (expected > 0) {
+      line.append(
+        String.format(
+          Locale.ROOT, " of %,d artifacts (%.1f%%)", expected, (100.0 * artifacts) / expected));
+    }
+    else {
+      line.append(" artifacts");
+    }
+
+    line.append(
+      String.format(
+        Locale.ROOT,
+        ", %.1f files/s, %.1f MB/s",
+        RunMetrics.rate(newArtifacts, seconds),
+        RunMetrics.rate(newBytes, seconds) / MEGABYTE));
+
+    if ((expected > 0) && (artifacts > 0) && (artifacts < expected)) {
+      final double elapsed = (now - this.metrics.getStartTime()) / 1e9;
+
+      line.append(", ETA ")
+          .append(formatDuration((long)(((expected - artifacts) * elapsed) / artifacts)));
+    }
+
+    this.out.println(line);
+  }
+
+  private void printSummary() {
+    final long    now       = System.nanoTime(),
+                  artifacts = this.metrics.getCompletedArtifacts(),
+                  bytes     = this.metrics.getBytesRead();
+    final double  elapsed   = (now - this.metrics.getStartTime()) / 1e9;
+
+    this.out.println(
+      String.format(
+        Locale.ROOT,
+        "Done: %,d artifacts in %s, %.1f files/s, %.1f MB/s",
+        artifacts,
+        formatDuration(RunMetrics.elapsedSeconds(this.metrics.getStartTime(), now)),
+        RunMetrics.rate(artifacts, elapsed),
+        RunMetrics.rate(bytes, elapsed) / MEGABYTE));
+  }
+
+  private static String formatDuration(long seconds) {
+    return String.format(
+      Locale.ROOT, "%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+  }
+}
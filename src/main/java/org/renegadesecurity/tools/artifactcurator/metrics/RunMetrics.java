@@ -0,0 +1,213 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters of a whole run: how many artifacts are done, how many bytes have been read, and how
+ * long each {@link Stage} took.
+ *
+ * <p>Every counter is a {@link LongAdder} or a {@link LatencyHistogram}, so that the workers never
+ * wait on each other (or on the {@link ProgressReporter}) to record anything. Code that records
+ * into a {@code RunMetrics} should be written so that, when there is none, it does not even read
+ * the clock.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class RunMetrics {
+  private final long startTime = System.nanoTime();
+  private final Map<Stage, StageMetrics> stages = new EnumMap<>(Stage.class);
+  private final ConcurrentMap<String, StageMetrics> sniffers = new ConcurrentHashMap<>();
+  private final LongAdder completedArtifacts = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder licenseCacheHits = new LongAdder();
+  private volatile long expectedArtifacts = -1;
+
+  public RunMetrics() {
+    for (Stage stage : Stage.values()) {
+      this.stages.put(stage, new StageMetrics());
+    }
+  }
+
+  /**
+   * Gets the {@link System#nanoTime()} at which the run started.
+   *
+   * @return
+   *   The start time, in nanoseconds.
+   */
+  public long getStartTime() {
+    return this.startTime;
+  }
+
+  public StageMetrics getStage(Stage stage) {
+    return this.stages.get(stage);
+  }
+
+  /**
+   * Gets the counters of a single kind of license sniffer.
+   *
+   * @param snifferName
+   *   The name of the sniffer (e.g. its simple class name).
+   * @return
+   *   The counters of the sniffer, created on first use.
+   */
+  public StageMetrics getSniffer(String snifferName) {
+    return this.sniffers.computeIfAbsent(snifferName, (name) -> new StageMetrics());
+  }
+
+  /**
+   * Records one pass through a stage.
+   *
+   * @param stage
+   *   The stage.
+   * @param nanos
+   *   How long the stage took, in nanoseconds.
+   * @param bytes
+   *   How many bytes of the artifact the stage handled, or {@code 0} if it handles none.
+   */
+  public void record(Stage stage, long nanos, long bytes) {
+    this.getStage(stage).record(nanos, bytes);
+
+    if (stage.isCountedAsRead() && (bytes > 0)) {
+      this.bytesRead.add(bytes);
+    }
+  }
+
+  /**
+   * Records the sniffing of a single artifact by a license sniffer, both under its own name and
+   * under {@link Stage#SNIFF}.
+   */
+  public void recordSniff(String snifferName, long nanos) {
+    this.getSniffer(snifferName).record(nanos, 0);
+    this.record(Stage.SNIFF, nanos, 0);
+  }
+
+  public void recordLicenseCacheHit() {
+    this.licenseCacheHits.increment();
+  }
+
+  /**
+   * Records that the result of an artifact (or of a rejected row of the CSV file) is done.
+   */
+  public void recordCompletedArtifact() {
+    this.completedArtifacts.increment();
+  }
+
+  public long getCompletedArtifacts() {
+    return this.completedArtifacts.sum();
+  }
+
+  /**
+   * Gets the bytes read from the source folder while hashing and copying.
+   *
+   * @return
+   *   The number of bytes read so far.
+   */
+  public long getBytesRead() {
+    return this.bytesRead.sum();
+  }
+
+  public long getLicenseCacheHits() {
+    return this.licenseCacheHits.sum();
+  }
+
+  /**
+   * Gets how many results the run will have in total, if that is known up front.
+   *
+   * @return
+   *   The expected number of results, or {@code -1} if it is not known (e.g. while the source
+   *   folder is being walked, or the CSV file is being streamed).
+   */
+  public long getExpectedArtifacts() {
+    return this.expectedArtifacts;
+  }
+
+  public void setExpectedArtifacts(long expectedArtifacts) {
+    this.expectedArtifacts = expectedArtifacts;
+  }
+
+  /**
+   * Formats a summary of every counter as a single JSON object.
+   *
+   * @return
+   *   The summary, with times in microseconds (or seconds, for the run as a whole) and sniffers
+   *   in name order.
+   */
+  public String toJson() {
+    final long                              elapsedNanos  = System.nanoTime() - this.startTime;
+    final double                            elapsed       = elapsedNanos / 1e9;
+    final long                              artifacts     = this.getCompletedArtifacts(),
+                                            bytesRead     = this.getBytesRead();
+    final SortedMap<String, StageMetrics>   sniffers      = new TreeMap<>(this.sniffers);
+    final StringBuilder                     json          = new StringBuilder();
+    boolean                                 first         = true;
+
+    json.append("{\"elapsedSeconds\":").append(String.format(Locale.ROOT, "%.3f", elapsed))
+        .append(",\"artifacts\":").append(artifacts)
+        .append(",\"artifactsPerSecond\":")
+        .append(String.format(Locale.ROOT, "%.1f", rate(artifacts, elapsed)))
+        .append(",\"bytesRead\":").append(bytesRead)
+        .append(",\"megabytesPerSecond\":")
+        .append(String.format(Locale.ROOT, "%.1f", rate(bytesRead, elapsed) / (1024 * 1024)))
+        .append(",\"licenseCacheHits\":").append(this.getLicenseCacheHits())
+        .append(",\"stages\":{");
+
+    for (Stage stage : Stage.values()) {
+      if (!first) {
+        json.append(',');
+      }
+
+      json.append('"').append(stage.getMetricName()).append("\":");
+      this.getStage(stage).appendJson(json);
+
+      first = false;
+    }
+
+    json.append("},\"sniffers\":{");
+
+    first = true;
+
+    for (Map.Entry<String, StageMetrics> sniffer : sniffers.entrySet()) {
+      if (!first) {
+        json.append(',');
+      }
+
+      json.append('"').append(sniffer.getKey()).append("\":");
+      sniffer.getValue().appendJson(json);
+
+      first = false;
+    }
+
+    return json.append("}}").toString();
+  }
+
+  static double rate(long amount, double seconds) {
+    return (seconds <= 0) ? 0 : (amount / seconds);
+  }
+
+  static long elapsedSeconds(long fromNanos, long toNanos) {
+    return TimeUnit.NANOSECONDS.toSeconds(toNanos - fromNanos);
+  }
+}
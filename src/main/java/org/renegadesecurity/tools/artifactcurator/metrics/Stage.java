@@ -0,0 +1,88 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.metrics;
+
+/**
+ * The stages of work on an artifact that are measured separately.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public enum Stage {
+  /**
+   * Listing the folders of the CSV file in the source folder up front, to find out which artifacts
+   * exist. This is timed once per run, rather than once per artifact.
+   */
+  INDEX("index"),
+
+  /**
+   * Reading the attributes of an artifact, to find out whether it exists.
+   */
+  STAT("stat"),
+
+  /**
+   * Reading an artifact to calculate its hashes.
+   */
+  HASH("hash"),
+
+  /**
+   * Copying an artifact that has passed verification.
+   */
+  COPY("copy"),
+
+  /**
+   * Hashing and copying an artifact in a single read, in single-pass mode.
+   */
+  HASH_AND_COPY("hashAndCopy"),
+
+  /**
+   * All of the work on an artifact up to its license, i.e. the stages above together.
+   */
+  VERIFY("verify"),
+
+  /**
+   * Determining the license of an artifact.
+   */
+  SNIFF("sniff");
+
+  private final String metricName;
+
+  Stage(String metricName) {
+    this.metricName = metricName;
+  }
+
+  /**
+   * Gets the name of the stage in the metrics summary.
+   *
+   * @return
+   *   The name of the stage.
+   */
+  public String getMetricName() {
+    return this.metricName;
+  }
+
+  /**
+   * Gets whether the bytes handled by this stage were read from the source folder.
+   *
+   * <p>The bytes of {@link #VERIFY} are already counted by the stages it is made up of, and the
+   * bytes read while sniffing are not counted at all, since most of a JAR is usually skipped.</p>
+   *
+   * @return
+   *   {@code true} if the bytes of this stage count towards the bytes read by the run.
+   */
+  public boolean isCountedAsRead() {
+    return (this == HASH) || (this == COPY) || (this == HASH_AND_COPY);
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters of a single {@link Stage} (or of a single license sniffer).
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class StageMetrics {
+  private final LatencyHistogram latencies = new LatencyHistogram();
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  /**
+   * Records one pass through the stage.
+   *
+   * @param nanos
+   *   How long the stage took, in nanoseconds.
+   * @param bytes
+   *   How many bytes the stage handled, or {@code 0} if it handles none.
+   */
+  public void record(long nanos, long bytes) {
+    this.latencies.record(nanos);
+
+    if (bytes > 0) {
+      this.bytes.add(bytes);
+    }
+  }
+
+  /**
+   * Records a pass through the stage that failed, in addition to {@link #record(long, long)}.
+   */
+  public void recordFailure() {
+    this.failures.increment();
+  }
+
+  public LatencyHistogram getLatencies() {
+    return this.latencies;
+  }
+
+  public long getBytes() {
+    return this.bytes.sum();
+  }
+
+  public long getFailures() {
+    return this.failures.sum();
+  }
+
+  /**
+   * Appends the counters of the stage, as a JSON object, to a buffer.
+   *
+   * <p>Times are given in microseconds.</p>
+   */
+  void appendJson(StringBuilder json) {
+    final LatencyHistogram latencies = this.getLatencies();
+
+    json.append("{\"count\":").append(latencies.getCount())
+        .append(",\"failures\":").append(this.getFailures())
+        .append(",\"bytes\":").append(this.getBytes())
+        .append(",\"totalMicros\":").append(toMicros(latencies.getTotalNanos()))
+        .append(",\"meanMicros\":").append(toMicros(latencies.getMeanNanos()))
+        .append(",\"p50Micros\":").append(toMicros(latencies.getPercentileNanos(50)))
+        .append(",\"p90Micros\":").append(toMicros(latencies.getPercentileNanos(90)))
+        .append(",\"p99Micros\":").append(toMicros(latencies.getPercentileNanos(99)))
+        .append(",\"maxMicros\":").append(toMicros(latencies.getMaxNanos()))
+        .append('}');
+  }
+
+  private static long toMicros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+}
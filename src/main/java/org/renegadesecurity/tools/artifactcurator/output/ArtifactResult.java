@@ -0,0 +1,86 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.output;
+
+/**
+ * The outcome of processing a single artifact, as reported to the user.
+ *
+ * <p>Instances are immutable.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public final class ArtifactResult {
+  private final String fileName;
+  private final String expectedHash;
+  private final String actualHash;
+  private final String status;
+  private final String license;
+
+  /**
+   * Creates a result.
+   *
+   * @param fileName
+   *   The path of the artifact, relative to the top of the repository.
+   * @param expectedHash
+   *   The hash the artifact was expected to have, or {@code none}.
+   * @param actualHash
+   *   The hash the artifact turned out to have, or {@code none}.
+   * @param status
+   *   What became of the artifact (e.g. {@code success} or {@code mismatch}).
+   * @param license
+   *   The license of the artifact, or {@code none} if it was not sniffed.
+   */
+  public ArtifactResult(String fileName, String expectedHash, String actualHash, String status,
+                        String license) {
+    this.fileName     = fileName;
+    this.expectedHash = expectedHash;
+    this.actualHash   = actualHash;
+    this.status       = status;
+    this.license      = license;
+  }
+
+  public String getFileName() {
+    return this.fileName;
+  }
+
+  public String getExpectedHash() {
+    return this.expectedHash;
+  }
+
+  public String getActualHash() {
+    return this.actualHash;
+  }
+
+  public String getStatus() {
+    return this.status;
+  }
+
+  public String getLicense() {
+    return this.license;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "%s[fileName=%s, expectedHash=%s, actualHash=%s, status=%s, license=%s]",
+      this.getClass().getSimpleName(),
+      this.fileName,
+      this.expectedHash,
+      this.actualHash,
+      this.status,
+      this.license);
+  }
+}
@@ -0,0 +1,312 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link ResultSink} that hands results to a single writer thread, so that worker threads never
+ * wait on each other or on the output to report a result.
+ *
+ * <p>Workers add results to a lock-free queue. The writer thread drains the queue, formats each
+ * result into a large buffer, and writes the buffer to the output channel whenever it fills up or
+ * the queue runs dry; under load, this turns one write per result into one write per few thousand
+ * results.</p>
+ *
+ * <p>In <em>ordered</em> mode, the writer holds back each result until every result with a lower
+ * sequence number has been written (or skipped), so that the output is in the same order from one
+ * run to the next, no matter which worker finishes first. Results held back in this way are kept
+ * in memory, so a single slow artifact early in a run can hold back a large number of results.</p>
+ *
+ * <p>The output channel is closed along with the sink.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class AsyncResultSink
+implements ResultSink {
+  public static final int BUFFER_SIZE = 256 * 1024;
+
+  /**
+   * The longest the writer thread sleeps before checking the queue again, in case a wake-up was
+   * missed.
+   */
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final WritableByteChannel channel;
+  private final ResultFormat format;
+  private final boolean ordered;
+
+  private final Queue<Pending> queue;
+  private final AtomicLong nextReserved;
+  private final Thread writerThread;
+
+  private volatile boolean writerParked;
+  private volatile boolean closed;
+
+  /**
+   * Only touched by the writer thread.
+   */
+  private final ByteBuffer buffer;
+  private final StringBuilder line;
+  private final Map<Long, ArtifactResult> heldResults;
+  private long nextToWrite;
+  private IOException writeError;
+
+  /**
+   * Creates a sink, and starts its writer thread.
+   *
+   * @param channel
+   *   The channel to write results to.
+   * @param format
+   *   The format to write results in. Its header is written straight away.
+   * @param ordered
+   *   Whether to write results in order of their sequence numbers, rather than as soon as they
+   *   are added.
+   */
+  public AsyncResultSink(WritableByteChannel channel, ResultFormat format, boolean ordered) {
+    if (channel == null) {
+      throw new IllegalArgumentException("channel cannot be null.");
+    }
+
+    if (format == null) {
+      throw new IllegalArgumentException("format cannot be null.");
+    }
+
+    this.channel      = channel;
+    this.format       = format;
+    this.ordered      = ordered;
+    this.queue        = new ConcurrentLinkedQueue<>();
+    this.nextReserved = new AtomicLong();
+    this.buffer       = ByteBuffer.allocate(BUFFER_SIZE);
+    this.line         = new StringBuilder(256);
+    this.heldResults  = new HashMap<>();
+
+    this.writerThread = new Thread(this::drain, "result-writer");
+
+    this.writerThread.setDaemon(true);
+    this.writerThread.start();
+  }
+
+  public ResultFormat getFormat() {
+    return this.format;
+  }
+
+  public boolean isOrdered() {
+    return this.ordered;
+  }
+
+  @Override
+  public long reserve(int count) {
+    return this.nextReserved.getAndAdd(count);
+  }
+
+  @Override
+  public void add(long sequence, ArtifactResult result) {
+    if (result == null) {
+      throw new IllegalArgumentException("result cannot be null.");
+    }
+
+    this.enqueue(new Pending(sequence, 1, result));
+  }
+
+  @Override
+  public void skip(long sequence, int count) {
+    if (count > 0) {
+      this.enqueue(new Pending(sequence, count, null));
+    }
+  }
+
+  @Override
+  public void close()
+  throws IOException {
+    if (this.closed) {
+      return;
+    }
+
+    this.closed = true;
+
+    try {
+      LockSupport.unpark(this.writerThread);
+
+      this.writerThread.join();
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+
+      throw new IOException("Interrupted while writing results.", ex);
+    }
+    finally {
+      this.channel.close();
+    }
+
+    if (this.writeError != null) {
+      throw this.writeError;
+    }
+  }
+
+  private void enqueue(Pending pending) {
+    if (this.closed) {
+      throw new IllegalStateException("The result sink has been closed.");
+    }
+
+    this.queue.add(pending);
+
+    if (this.writerParked) {
+      LockSupport.unpark(this.writerThread);
+    }
+  }
+
+  /**
+   * The body of the writer thread.
+   */
+  private void drain() {
+    this.buffer.put(this.format.getHeader().getBytes(StandardCharsets.UTF_8));
+
+    while (true) {
+      final Pending pending = this.queue.poll();
+
+      if (pending != null) {
+        this.accept(pending);
+      }
+      else {
+        this.flush();
+
+        if (this.closed && this.queue.isEmpty()) {
+          break;
+        }
+
+        // Announce the park before checking the queue one last time, so that a worker that adds a
+        // result after the check is sure to see the announcement and wake the writer up.
+        this.writerParked = true;
+
+        if (this.queue.isEmpty() && !this.closed) {
+          LockSupport.parkNanos(this, MAX_PARK_NANOS);
+        }
+
+        this.writerParked = false;
+      }
+    }
+
+    if (!this.heldResults.isEmpty()) {
+      // Some sequence numbers were never filled in; write what there is rather than lose it.
+      for (ArtifactResult result : new TreeMap<>(this.heldResults).values()) {
+        if (result != null) {
+          this.write(result);
+        }
+      }
+
+      this.flush();
+    }
+  }
+
+  private void accept(Pending pending) {
+    if (!this.ordered) {
+      if (pending.result != null) {
+        this.write(pending.result);
+      }
+    }
+    else {
+      for (long sequence = pending.sequence;
+           sequence < (pending.sequence + pending.count);
+           ++sequence) {
+        if (pending.result != null) {
+          this.heldResults.put(sequence, pending.result);
+        }
+        else if ((sequence >= this.nextToWrite) && !this.heldResults.containsKey(sequence)) {
+          // Only give up numbers that have neither been written nor are waiting to be.
+          this.heldResults.put(sequence, null);
+        }
+      }
+
+      while (this.heldResults.containsKey(this.nextToWrite)) {
+        final ArtifactResult result = this.heldResults.remove(this.nextToWrite++);
+
+        if (result != null) {
+          this.write(result);
+        }
+      }
+    }
+  }
+
+  private void write(ArtifactResult result) {
+    final byte[] lineBytes;
+
+    this.format.format(result, this.line);
+
+    lineBytes = this.line.toString().getBytes(StandardCharsets.UTF_8);
+
+    this.line.setLength(0);
+
+    if (lineBytes.length > this.buffer.remaining()) {
+      this.flush();
+    }
+
+    if (lineBytes.length > this.buffer.remaining()) {
+      this.writeFully(ByteBuffer.wrap(lineBytes));
+    }
+    else {
+      this.buffer.put(lineBytes);
+    }
+  }
+
+  private void flush() {
+    if (this.buffer.position() > 0) {
+      this.buffer.flip();
+      this.writeFully(this.buffer);
+      this.buffer.clear();
+    }
+  }
+
+  private void writeFully(ByteBuffer bytes) {
+    if (this.writeError == null) {
+      try {
+        while (bytes.hasRemaining()) {
+          this.channel.write(bytes);
+        }
+      }
+      catch (IOException ex) {
+        // Reported when the sink is closed; until then, results are simply dropped.
+        this.writeError = ex;
+      }
+    }
+  }
+
+  /**
+   * A result, or a run of skipped sequence numbers, on its way to the writer thread.
+   */
+  private static class Pending {
+    private final long sequence;
+    private final int count;
+    private final ArtifactResult result;
+
+    public Pending(long sequence, int count, ArtifactResult result) {
+      this.sequence = sequence;
+      this.count    = count;
+      this.result   = result;
+    }
+  }
+}
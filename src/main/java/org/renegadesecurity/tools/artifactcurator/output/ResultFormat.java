@@ -0,0 +1,171 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.output;
+
+/**
+ * The formats in which results can be written.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public enum ResultFormat {
+  /**
+   * Comma-separated values, with a header line; the original output of the tool.
+   *
+   * <p>For compatibility with existing consumers, values are written as-is, without quoting.</p>
+   */
+  CSV("csv") {
+    @Override
+    public String getHeader() {
+      return "Filename,Expected Hash,Actual Hash,Status,License\n";
+    }
+
+    @Override
+    public void format(ArtifactResult result, StringBuilder line) {
+      line
+        .append(result.getFileName()).append(',')
+        .append(result.getExpectedHash()).append(',')
+        .append(result.getActualHash()).append(',')
+        .append(result.getStatus()).append(',')
+        .append(result.getLicense()).append('\n');
+    }
+  },
+
+  /**
+   * JSON Lines: one JSON object per result, with no header.
+   */
+  JSONL("jsonl") {
+    @Override
+    public String getHeader() {
+      return "";
+    }
+
+    @Override
+    public void format(ArtifactResult result, StringBuilder line) {
+      line.append('{');
+      appendField(line, "fileName", result.getFileName()).append(',');
+      appendField(line, "expectedHash", result.getExpectedHash()).append(',');
+      appendField(line, "actualHash", result.getActualHash()).append(',');
+      appendField(line, "status", result.getStatus()).append(',');
+      appendField(line, "license", result.getLicense());
+      line.append("}\n");
+    }
+  };
+
+  private final String formatName;
+
+  ResultFormat(String formatName) {
+    this.formatName = formatName;
+  }
+
+  /**
+   * Looks up a format by its name, as given on the command line.
+   *
+   * @param formatName
+   *   The name of the format (e.g. {@code csv}).
+   * @return
+   *   The format.
+   * @throws IllegalArgumentException
+   *   If there is no format with the specified name.
+   */
+  public static ResultFormat forName(String formatName) {
+    for (ResultFormat format : values()) {
+      if (format.getFormatName().equals(formatName)) {
+        return format;
+      }
+    }
+
+    throw new IllegalArgumentException(
+      String.format(
+        "Unknown output format `%s`; expected one of %s or %s.",
+        formatName, CSV.getFormatName(), JSONL.getFormatName()));
+  }
+
+  public String getFormatName() {
+    return this.formatName;
+  }
+
+  /**
+   * Gets the text that comes before the first result.
+   *
+   * @return
+   *   The header, including its line terminator, or an empty string if the format has none.
+   */
+  public abstract String getHeader();
+
+  /**
+   * Formats a result as a single line.
+   *
+   * @param result
+   *   The result.
+   * @param line
+   *   The builder to append the line, including its line terminator, to.
+   */
+  public abstract void format(ArtifactResult result, StringBuilder line);
+
+  private static StringBuilder appendField(StringBuilder line, String name, String value) {
+    appendString(line, name).append(':');
+
+    if (value == null) {
+      line.append("null");
+    }
+    else {
+      appendString(line, value);
+    }
+
+    return line;
+  }
+
+  private static StringBuilder appendString(StringBuilder line, String value) {
+    line.append('"');
+
+    for (int charIndex = 0; charIndex < value.length(); ++charIndex) {
+      final char valueChar = value.charAt(charIndex);
+
+      switch (valueChar) {
+        case '"':
+          line.append("\\\"");
+          break;
+
+        case '\\':
+          line.append("\\\\");
+          break;
+
+        case '\n':
+          line.append("\\n");
+          break;
+
+        case '\r':
+          line.append("\\r");
+          break;
+
+        case '\t':
+          line.append("\\t");
+          break;
+
+        default:
+          if (valueChar < 0x20) {
+            line.append(String.format("\\u%04x", (int)valueChar));
+          }
+          else {
+            line.append(valueChar);
+          }
+          break;
+      }
+    }
+
+    return line.append('"');
+  }
+}
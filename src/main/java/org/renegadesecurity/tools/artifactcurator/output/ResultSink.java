@@ -0,0 +1,79 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A destination for the results of a run, which any number of worker threads may add to at once.
+ *
+ * <p>Every result belongs to a <em>sequence number</em>, reserved with {@link #reserve(int)} when
+ * the work that will produce it is handed out. Sinks that write results in order use the sequence
+ * numbers to put them back into the order the work was handed out in; every reserved number must
+ * therefore eventually be either {@linkplain #add(long, ArtifactResult) added} or
+ * {@linkplain #skip(long, int) skipped}, exactly once.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public interface ResultSink
+extends Closeable {
+  /**
+   * Reserves a consecutive run of sequence numbers.
+   *
+   * <p>This should be called from the single thread that hands out work, so that the order of
+   * the sequence numbers is the same from one run to the next.</p>
+   *
+   * @param count
+   *   How many sequence numbers to reserve.
+   * @return
+   *   The first of the reserved sequence numbers.
+   */
+  public long reserve(int count);
+
+  /**
+   * Adds a result.
+   *
+   * @param sequence
+   *   The sequence number reserved for the result.
+   * @param result
+   *   The result.
+   */
+  public void add(long sequence, ArtifactResult result);
+
+  /**
+   * Gives up sequence numbers that were reserved but will not have results.
+   *
+   * <p>Giving up a number that already has a result has no effect, so a task that fails part-way
+   * through can give up all of its numbers without knowing which of them it got to.</p>
+   *
+   * @param sequence
+   *   The first sequence number to give up.
+   * @param count
+   *   How many consecutive sequence numbers to give up; may be {@code 0}.
+   */
+  public void skip(long sequence, int count);
+
+  /**
+   * Writes every result that has been added, and stops accepting more.
+   *
+   * @throws IOException
+   *   If any result could not be written.
+   */
+  @Override
+  public void close()
+  throws IOException;
+}
@@ -0,0 +1,289 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.sidecar;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+
+/**
+ * The artifacts of a single directory of a Maven repository, along with the hashes recorded in the
+ * checksum ("sidecar") files that Maven keeps next to them (e.g. {@code foo-1.0.jar.sha1}).
+ *
+ * <p>All of the sidecar files of the directory are read together, and the directory as a whole is
+ * given a {@linkplain #getFingerprint() fingerprint} that changes whenever any artifact or sidecar
+ * in it is added, removed, resized, touched, or rewritten. A directory whose fingerprint matches a
+ * {@link SidecarSnapshot} has not changed since it was last verified.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class SidecarDirectory {
+  /**
+   * Upper bound on the size of a sidecar file; anything larger cannot be a checksum file.
+   */
+  private static final long MAX_SIDECAR_SIZE = 4096;
+
+  private final Path directory;
+  private final List<Artifact> artifacts;
+  private final byte[] fingerprint;
+
+  /**
+   * Reads the sidecar files of a directory.
+   *
+   * @param directory
+   *   The directory.
+   * @param files
+   *   The attributes of each regular file in the directory, keyed by file name, as they were read
+   *   while listing the directory.
+   * @throws IOException
+   *   If a sidecar file cannot be read.
+   */
+  public SidecarDirectory(Path directory, Map<String, BasicFileAttributes> files)
+  throws IOException {
+    final SortedMap<String, BasicFileAttributes>  sortedFiles = new TreeMap<>(files);
+    final MessageDigest                           fingerprint = HashAlgorithm.SHA1.createDigest();
+
+    if (directory == null) {
+      throw new IllegalArgumentException("directory cannot be null.");
+    }
+
+    this.directory = directory;
+    this.artifacts = new ArrayList<>();
+
+    for (Map.Entry<String, BasicFileAttributes> file : selectArtifacts(sortedFiles).entrySet()) {
+      final String                      name          = file.getKey();
+      final BasicFileAttributes         attributes    = file.getValue();
+      final Map<HashAlgorithm, String>  sidecarHashes = new EnumMap<>(HashAlgorithm.class);
+
+      for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+        final String              sidecarName       = name + "." + algorithm.getSidecarExtension();
+        final BasicFileAttributes sidecarAttributes = sortedFiles.get(sidecarName);
+
+        if ((sidecarAttributes != null) && (sidecarAttributes.size() <= MAX_SIDECAR_SIZE)) {
+          final byte[] sidecar = Files.readAllBytes(directory.resolve(sidecarName));
+
+          sidecarHashes.put(algorithm, new String(sidecar, StandardCharsets.US_ASCII));
+          fingerprint.update(sidecar);
+        }
+      }
+
+      updateFingerprint(fingerprint, name, attributes);
+
+      this.artifacts.add(new Artifact(name, attributes, sidecarHashes));
+    }
+
+    this.fingerprint = fingerprint.digest();
+  }
+
+  public Path getDirectory() {
+    return this.directory;
+  }
+
+  /**
+   * Gets the artifacts in the directory (i.e. every file that is not itself a sidecar file or
+   * Maven bookkeeping), in name order.
+   *
+   * @return
+   *   An unmodifiable list of the artifacts.
+   */
+  public List<Artifact> getArtifacts() {
+    return Collections.unmodifiableList(this.artifacts);
+  }
+
+  /**
+   * Gets a fingerprint of the names, sizes, and modification times of the artifacts in the
+   * directory, and of the contents of their sidecar files.
+   *
+   * @return
+   *   The fingerprint, as lowercase hexadecimal.
+   */
+  public String getFingerprint() {
+    return Hex.encode(this.fingerprint);
+  }
+
+  /**
+   * Picks out the artifacts among the files of a directory, leaving out sidecar files and Maven
+   * bookkeeping.
+   *
+   * @param files
+   *   The attributes of each regular file in the directory, keyed by file name.
+   * @return
+   *   The attributes of each artifact, keyed by file name, in name order.
+   */
+  public static SortedMap<String, BasicFileAttributes> selectArtifacts(
+    Map<String, BasicFileAttributes> files) {
+    final SortedMap<String, BasicFileAttributes> artifacts = new TreeMap<>();
+
+    for (Map.Entry<String, BasicFileAttributes> file : files.entrySet()) {
+      final String name = file.getKey();
+
+      if (!isSidecar(name, files) && !isRepositoryMetadata(name)) {
+        artifacts.put(name, file.getValue());
+      }
+    }
+
+    return artifacts;
+  }
+
+  /**
+   * Extracts a hash from the contents of a sidecar file.
+   *
+   * <p>Sidecar files are written by many different tools, so any of the following are accepted:
+   * a bare hash; a hash followed by a file name (as written by {@code sha1sum}); or a file name
+   * followed by the hash (as written by {@code openssl dgst}).</p>
+   *
+   * @param algorithm
+   *   The algorithm of the hash.
+   * @param contents
+   *   The contents of the sidecar file.
+   * @return
+   *   The hash, or {@code null} if the file does not contain a valid hash for the algorithm.
+   */
+  public static byte[] parseSidecar(HashAlgorithm algorithm, String contents) {
+    for (String token : contents.trim().split("[\\s=]+")) {
+      if (token.length() == (algorithm.getDigestLength() * 2)) {
+        try {
+          return Hex.decode(token);
+        }
+        catch (IllegalArgumentException ex) {
+          // Not hexadecimal, so probably a file name of the same length; keep looking.
+        }
+      }
+    }
+
+    return null;
+  }
+
+  private static boolean isSidecar(String name, Map<String, BasicFileAttributes> files) {
+    for (HashAlgorithm algorithm : HashAlgorithm.values()) {
+      final String extension = "." + algorithm.getSidecarExtension();
+
+      if (name.endsWith(extension)
+          && files.containsKey(name.substring(0, name.length() - extension.length()))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Checks for files that Maven keeps in a local repository for its own bookkeeping, which are
+   * never artifacts.
+   */
+  private static boolean isRepositoryMetadata(String name) {
+    return name.startsWith(".")
+           || name.equals("_remote.repositories")
+           || name.equals("_maven.repositories")
+           || name.equals("resolver-status.properties")
+           || name.endsWith(".lastUpdated");
+  }
+
+  private static void updateFingerprint(MessageDigest fingerprint, String name,
+                                        BasicFileAttributes attributes) {
+    final long size         = attributes.size(),
+               modifiedTime = attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS);
+
+    fingerprint.update(name.getBytes(StandardCharsets.UTF_8));
+    fingerprint.update((byte)0);
+
+    for (int shift = 56; shift >= 0; shift -= 8) {
+      fingerprint.update((byte)(size >>> shift));
+      fingerprint.update((byte)(modifiedTime >>> shift));
+    }
+  }
+
+  /**
+   * A single artifact in a {@link SidecarDirectory}.
+   */
+  public static class Artifact {
+    private final String name;
+    private final BasicFileAttributes attributes;
+    private final Map<HashAlgorithm, String> sidecarHashes;
+
+    protected Artifact(String name, BasicFileAttributes attributes,
+                       Map<HashAlgorithm, String> sidecarHashes) {
+      this.name           = name;
+      this.attributes     = attributes;
+      this.sidecarHashes  = sidecarHashes;
+    }
+
+    public String getName() {
+      return this.name;
+    }
+
+    public BasicFileAttributes getAttributes() {
+      return this.attributes;
+    }
+
+    /**
+     * Gets whether the artifact has at least one sidecar file.
+     *
+     * @return
+     *   {@code true} if there is a sidecar file for the artifact.
+     */
+    public boolean hasSidecar() {
+      return !this.sidecarHashes.isEmpty();
+    }
+
+    /**
+     * Gets the raw contents of each sidecar file of the artifact.
+     *
+     * @return
+     *   An unmodifiable map of each algorithm that has a sidecar file to the contents of the file.
+     */
+    public Map<HashAlgorithm, String> getSidecarHashes() {
+      return Collections.unmodifiableMap(this.sidecarHashes);
+    }
+
+    /**
+     * Parses the hashes in the sidecar files of the artifact.
+     *
+     * @return
+     *   The hashes, or {@code null} if the artifact has no sidecar files or any sidecar file does
+     *   not contain a valid hash.
+     */
+    public DigestSet parseDigests() {
+      final EnumMap<HashAlgorithm, byte[]> digests = new EnumMap<>(HashAlgorithm.class);
+
+      for (Map.Entry<HashAlgorithm, String> sidecarHash : this.sidecarHashes.entrySet()) {
+        final byte[] digest = parseSidecar(sidecarHash.getKey(), sidecarHash.getValue());
+
+        if (digest == null) {
+          return null;
+        }
+
+        digests.put(sidecarHash.getKey(), digest);
+      }
+
+      return digests.isEmpty() ? null : new DigestSet(digests);
+    }
+  }
+}
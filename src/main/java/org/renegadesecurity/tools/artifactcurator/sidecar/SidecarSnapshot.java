@@ -0,0 +1,186 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.sidecar;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A record of the directories of a Maven repository in which every artifact has been hashed and
+ * found to match its sidecar files, along with the {@linkplain SidecarDirectory#getFingerprint()
+ * fingerprint} each directory had at the time.
+ *
+ * <p>On a later run, a directory that still has the same fingerprint can be trusted without
+ * hashing any of its artifacts again.</p>
+ *
+ * <p>The snapshot is a plain text file with one directory per line, in the form
+ * {@code <fingerprint> <path>}, where the path is relative to the top of the repository. It is
+ * loaded fully into memory when it is opened, may be read and updated from any number of worker
+ * threads, and is written back to disk with {@link #save()}.</p>
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class SidecarSnapshot {
+  private final File snapshotFile;
+  private final Map<String, String> fingerprints;
+
+  /**
+   * Opens the snapshot stored in the specified file.
+   *
+   * <p>If the file does not yet exist, an empty snapshot is returned; the file will be created the
+   * first time the snapshot is saved. Lines that are not in the expected form are ignored.</p>
+   *
+   * @param snapshotFile
+   *   The file in which the snapshot is stored.
+   * @return
+   *   The snapshot.
+   * @throws IOException
+   *   If the snapshot file exists but cannot be read.
+   */
+  public static SidecarSnapshot open(File snapshotFile)
+  throws IOException {
+    final SidecarSnapshot snapshot = new SidecarSnapshot(snapshotFile);
+
+    if (snapshotFile.isFile()) {
+      snapshot.load();
+    }
+
+    return snapshot;
+  }
+
+  protected SidecarSnapshot(File snapshotFile) {
+    if (snapshotFile == null) {
+      throw new IllegalArgumentException("snapshotFile cannot be null.");
+    }
+
+    if (snapshotFile.isDirectory()) {
+      throw new IllegalArgumentException(
+        String.format("`%s` is a directory, not a snapshot file.", snapshotFile));
+    }
+
+    this.snapshotFile = snapshotFile;
+    this.fingerprints = new ConcurrentHashMap<>();
+  }
+
+  public File getSnapshotFile() {
+    return this.snapshotFile;
+  }
+
+  public int size() {
+    return this.fingerprints.size();
+  }
+
+  /**
+   * Checks whether a directory is unchanged since it was last verified.
+   *
+   * @param directory
+   *   The path of the directory, relative to the top of the repository.
+   * @param fingerprint
+   *   The current fingerprint of the directory.
+   * @return
+   *   {@code true} if the directory was verified with the same fingerprint.
+   */
+  public boolean isTrusted(String directory, String fingerprint) {
+    return fingerprint.equals(this.fingerprints.get(directory));
+  }
+
+  /**
+   * Records that every artifact in a directory has been verified.
+   *
+   * @param directory
+   *   The path of the directory, relative to the top of the repository.
+   * @param fingerprint
+   *   The fingerprint of the directory, as it was read <em>before</em> the artifacts were hashed.
+   */
+  public void trust(String directory, String fingerprint) {
+    this.fingerprints.put(directory, fingerprint);
+  }
+
+  /**
+   * Forgets a directory, so that its artifacts are hashed again on the next run.
+   *
+   * @param directory
+   *   The path of the directory, relative to the top of the repository.
+   */
+  public void distrust(String directory) {
+    this.fingerprints.remove(directory);
+  }
+
+  /**
+   * Writes the current contents of the snapshot back to disk.
+   *
+   * <p>The snapshot is first written to a temporary file next to the snapshot file, which is then
+   * moved over the snapshot file, so that an interrupted save never leaves a half-written snapshot
+   * behind.</p>
+   *
+   * @throws IOException
+   *   If the snapshot cannot be written.
+   */
+  public void save()
+  throws IOException {
+    final File snapshotFile = this.getSnapshotFile().getAbsoluteFile(),
+               tempFile     =
+                 new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+
+    try (final Writer writer =
+           Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+      // Sorted, so that snapshots of the same repository can be compared with diff.
+      for (Map.Entry<String, String> entry : new TreeMap<>(this.fingerprints).entrySet()) {
+        writer.write(entry.getValue());
+        writer.write(' ');
+        writer.write(entry.getKey());
+        writer.write('\n');
+      }
+    }
+
+    try {
+      Files.move(
+        tempFile.toPath(),
+        snapshotFile.toPath(),
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (AtomicMoveNotSupportedException ex) {
+      Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  protected void load()
+  throws IOException {
+    try (final BufferedReader reader =
+           Files.newBufferedReader(this.getSnapshotFile().toPath(), StandardCharsets.UTF_8)) {
+      String line;
+
+      while ((line = reader.readLine()) != null) {
+        final int separatorIndex = line.indexOf(' ');
+
+        if (separatorIndex > 0) {
+          this.fingerprints.put(
+            line.substring(separatorIndex + 1), line.substring(0, separatorIndex));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.digest.Hex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ArtifactCurator}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ArtifactCuratorTest {
+  private static final String ARTIFACT_PATH = "org/lib/1.0/lib-1.0.jar";
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testSyncKeepsCopyOfCorruptedArtifact()
+  throws IOException {
+    this.testSyncKeepsCopyOfCorruptedArtifact(false);
+  }
+
+  @Test
+  public void testSinglePassSyncKeepsCopyOfCorruptedArtifact()
+  throws IOException {
+    this.testSyncKeepsCopyOfCorruptedArtifact(true);
+  }
+
+  @Test
+  public void testSyncReplacesStaleCopy()
+  throws IOException {
+    for (boolean singlePass : new boolean[] { false, true }) {
+      final File  sourceFolder  = this.temporaryFolder.newFolder(),
+                  targetFolder  = this.temporaryFolder.newFolder();
+      final byte[] contents     = bytesOf("new contents");
+
+      writeFile(new File(sourceFolder, ARTIFACT_PATH), contents);
+      writeFile(new File(targetFolder, ARTIFACT_PATH), bytesOf("old contents"));
+
+      final List<String> results = this.sync(sourceFolder, targetFolder, contents, singlePass);
+
+      assertTrue(results.get(1), results.get(1).endsWith(",success,unknown"));
+      assertEquals(
+        "new contents", readString(new File(targetFolder, ARTIFACT_PATH)));
+      assertFalse(new File(targetFolder, HashingFileCopy.STAGING_FOLDER_NAME).exists());
+    }
+  }
+
+  private void testSyncKeepsCopyOfCorruptedArtifact(boolean singlePass)
+  throws IOException {
+    final File    sourceFolder  = this.temporaryFolder.newFolder("source"),
+                  targetFolder  = this.temporaryFolder.newFolder("target");
+    final byte[]  goodContents  = bytesOf("good contents");
+
+    writeFile(new File(sourceFolder, ARTIFACT_PATH), bytesOf("corrupted contents"));
+    writeFile(new File(targetFolder, ARTIFACT_PATH), goodContents);
+
+    final List<String> results = this.sync(sourceFolder, targetFolder, goodContents, singlePass);
+
+    assertTrue(results.get(1), results.get(1).contains(",mismatch,"));
+    assertEquals("good contents", readString(new File(targetFolder, ARTIFACT_PATH)));
+  }
+
+  /**
+   * Syncs the target folder with the source folder, against a CSV file that lists the one
+   * artifact with the hash of the specified contents.
+   *
+   * @return
+   *   The lines of the results.
+   */
+  private List<String> sync(File sourceFolder, File targetFolder, byte[] expectedContents,
+                            boolean singlePass)
+  throws IOException {
+    final File            csvFile     = this.temporaryFolder.newFile(),
+                          outputFile  = this.temporaryFolder.newFile();
+    final ArtifactCurator curator     = new ArtifactCurator();
+    final String          sha1Hash    =
+      Hex.encode(HashAlgorithm.SHA1.createDigest().digest(expectedContents));
+
+    Files.write(
+      csvFile.toPath(),
+      ("Filename,\"SHA1 Hash\"\n" + ARTIFACT_PATH + "," + sha1Hash + "\n")
+        .getBytes(StandardCharsets.UTF_8));
+
+    curator.setSync(true);
+    curator.setSinglePass(singlePass);
+    curator.setIoThreads(1);
+    curator.setCpuThreads(1);
+    curator.setOutputFile(outputFile);
+
+    curator.processArtifacts(
+      csvFile.getPath(), sourceFolder.getPath(), targetFolder.getPath());
+
+    return Files.readAllLines(outputFile.toPath(), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] bytesOf(String contents) {
+    return contents.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String readString(File file)
+  throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  private static void writeFile(File file, byte[] contents)
+  throws IOException {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), contents);
+  }
+}
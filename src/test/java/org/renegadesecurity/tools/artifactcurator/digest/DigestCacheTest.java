@@ -0,0 +1,305 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link DigestCache}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class DigestCacheTest {
+  private static final DigestSet SHA1_DIGESTS =
+    DigestSet.of(HashAlgorithm.SHA1, new byte[HashAlgorithm.SHA1.getDigestLength()]);
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testSaveAndReopen()
+  throws IOException {
+    final File        cacheFile = this.temporaryFolder.newFile("digests.cache"),
+                      artifact  = this.createArtifact("a.jar", "contents of a");
+    final DigestSet   digests   = this.digestsOf(artifact);
+    final DigestCache cache     = DigestCache.open(cacheFile);
+
+    cache.put(artifact, readAttributes(artifact), digests);
+    cache.save();
+
+    final DigestCache reopened = DigestCache.open(cacheFile);
+
+    assertEquals(1, reopened.size());
+    assertEquals(0, reopened.getCorruptRecordCount());
+    assertEquals(digests, reopened.get(artifact, readAttributes(artifact)));
+  }
+
+  @Test
+  public void testMergesDigestsOfUnchangedFile()
+  throws IOException {
+    final File        artifact    = this.createArtifact("a.jar", "contents of a");
+    final DigestCache cache       = DigestCache.open(this.temporaryFolder.newFile("d.cache"));
+    final DigestSet   sha256      =
+      DigestSet.of(HashAlgorithm.SHA256, new byte[HashAlgorithm.SHA256.getDigestLength()]);
+
+    cache.put(artifact, readAttributes(artifact), SHA1_DIGESTS);
+    cache.put(artifact, readAttributes(artifact), sha256);
+
+    assertEquals(SHA1_DIGESTS.merge(sha256), cache.get(artifact, readAttributes(artifact)));
+  }
+
+  @Test
+  public void testDropsEntryOfChangedFile()
+  throws IOException {
+    final File        artifact  = this.createArtifact("a.jar", "contents of a");
+    final DigestCache cache     = DigestCache.open(this.temporaryFolder.newFile("d.cache"));
+
+    cache.put(artifact, readAttributes(artifact), SHA1_DIGESTS);
+
+    Files.write(artifact.toPath(), "other contents".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(artifact.toPath(), FileTime.fromMillis(1000));
+
+    assertNull(cache.get(artifact, readAttributes(artifact)));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testDiscardsRecordWithBadChecksum()
+  throws IOException {
+    final File        cacheFile = this.temporaryFolder.newFile("digests.cache"),
+                      first     = this.createArtifact("a.jar", "contents of a"),
+                      second    = this.createArtifact("b.jar", "contents of b");
+    final DigestCache cache     = DigestCache.open(cacheFile);
+
+    cache.put(first, readAttributes(first), this.digestsOf(first));
+    cache.put(second, readAttributes(second), this.digestsOf(second));
+    cache.save();
+
+    // The last four bytes of the file are the CRC of the last record.
+    try (final RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+      final int lastByte;
+
+      file.seek(file.length() - 1);
+      lastByte = file.read();
+
+      file.seek(file.length() - 1);
+      file.write(lastByte ^ 0xFF);
+    }
+
+    final DigestCache reopened = DigestCache.open(cacheFile);
+
+    assertEquals(1, reopened.size());
+    assertEquals(1, reopened.getCorruptRecordCount());
+  }
+
+  @Test
+  public void testDropsTruncatedFinalRecord()
+  throws IOException {
+    final File        cacheFile = this.temporaryFolder.newFile("digests.cache"),
+                      first     = this.createArtifact("a.jar", "contents of a"),
+                      second    = this.createArtifact("b.jar", "contents of b");
+    final DigestCache cache     = DigestCache.open(cacheFile);
+
+    cache.put(first, readAttributes(first), this.digestsOf(first));
+    cache.put(second, readAttributes(second), this.digestsOf(second));
+    cache.save();
+
+    try (final RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+      file.setLength(file.length() - 10);
+    }
+
+    final DigestCache reopened = DigestCache.open(cacheFile);
+
+    assertEquals(1, reopened.size());
+    assertEquals(0, reopened.getCorruptRecordCount());
+  }
+
+  @Test
+  public void testStopsAtDamagedFraming()
+  throws IOException {
+    final File        cacheFile = this.temporaryFolder.newFile("digests.cache"),
+                      artifact  = this.createArtifact("a.jar", "contents of a");
+    final DigestCache cache     = DigestCache.open(cacheFile);
+
+    cache.put(artifact, readAttributes(artifact), this.digestsOf(artifact));
+    cache.save();
+
+    // The length prefix of the first record follows the magic number and version.
+    try (final RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+      file.seek(8);
+      file.writeInt(-1);
+    }
+
+    final DigestCache reopened = DigestCache.open(cacheFile);
+
+    assertEquals(0, reopened.size());
+    assertEquals(1, reopened.getCorruptRecordCount());
+  }
+
+  @Test
+  public void testIgnoresFileOfAnotherFormat()
+  throws IOException {
+    final File cacheFile = this.temporaryFolder.newFile("digests.cache");
+
+    Files.write(cacheFile.toPath(), "not a digest cache".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(0, DigestCache.open(cacheFile).size());
+  }
+
+  @Test
+  public void testReadsSha1OnlyVersion()
+  throws IOException {
+    final File                  cacheFile     = this.temporaryFolder.newFile("digests.cache"),
+                                artifact      = this.createArtifact("a.jar", "contents of a");
+    final DigestSet             digests       = this.digestsOf(artifact);
+    final BasicFileAttributes   attributes    = readAttributes(artifact);
+    final ByteArrayOutputStream recordBuffer  = new ByteArrayOutputStream();
+    final DataOutputStream      recordStream  = new DataOutputStream(recordBuffer);
+    final CRC32                 crc           = new CRC32();
+    final byte[]                sha1          = digests.get(HashAlgorithm.SHA1);
+
+    // Version 1 records are version 2 records without the count and names of the algorithms.
+    recordStream.writeUTF(artifact.getAbsolutePath());
+    recordStream.writeLong(attributes.size());
+    recordStream.writeLong(attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS));
+    recordStream.writeUTF((attributes.fileKey() == null) ? "" : attributes.fileKey().toString());
+    recordStream.writeByte(sha1.length);
+    recordStream.write(sha1);
+    recordStream.flush();
+
+    crc.update(recordBuffer.toByteArray());
+
+    try (final DataOutputStream stream =
+           new DataOutputStream(new FileOutputStream(cacheFile))) {
+      stream.writeInt(0x44474331);
+      stream.writeInt(1);
+      stream.writeInt(recordBuffer.size());
+      recordBuffer.writeTo(stream);
+      stream.writeInt((int)crc.getValue());
+    }
+
+    assertEquals(digests, DigestCache.open(cacheFile).get(artifact, attributes));
+  }
+
+  @Test
+  public void testDropsEntriesUnusedForTooLong()
+  throws IOException {
+    final File        cacheFile = this.temporaryFolder.newFile("digests.cache"),
+                      used      = this.createArtifact("used.jar", "contents of used"),
+                      unused    = this.createArtifact("unused.jar", "contents of unused");
+    final long        oneDay    = TimeUnit.DAYS.toMillis(1);
+    DigestCache       cache     = openAt(cacheFile, 0);
+
+    cache.put(used, readAttributes(used), this.digestsOf(used));
+    cache.put(unused, readAttributes(unused), this.digestsOf(unused));
+    cache.save();
+
+    // Neither has gone unused for long enough yet.
+    cache = openAt(cacheFile, 20 * oneDay);
+
+    assertNotNull(cache.get(used, readAttributes(used)));
+
+    cache.save();
+
+    assertEquals(2, openAt(cacheFile, 20 * oneDay).size());
+
+    // The one that has not been used since the first day is now past the limit.
+    cache = openAt(cacheFile, 40 * oneDay);
+    cache.save();
+
+    cache = openAt(cacheFile, 40 * oneDay);
+
+    assertEquals(1, cache.size());
+    assertNotNull(cache.get(used, readAttributes(used)));
+    assertNull(cache.get(unused, readAttributes(unused)));
+  }
+
+  @Test
+  public void testKeepsOnlyEntriesUsedWhileOpenWithoutMaxAge()
+  throws IOException {
+    final File        cacheFile = this.temporaryFolder.newFile("digests.cache"),
+                      used      = this.createArtifact("used.jar", "contents of used"),
+                      unused    = this.createArtifact("unused.jar", "contents of unused"),
+                      added     = this.createArtifact("added.jar", "contents of added");
+    DigestCache       cache     = new DigestCache(cacheFile, 0, 1000);
+
+    cache.put(used, readAttributes(used), this.digestsOf(used));
+    cache.put(unused, readAttributes(unused), this.digestsOf(unused));
+    cache.save();
+
+    cache = new DigestCache(cacheFile, 0, 2000);
+    cache.load();
+    cache.get(used, readAttributes(used));
+    cache.put(added, readAttributes(added), this.digestsOf(added));
+    cache.save();
+
+    cache = DigestCache.open(cacheFile);
+
+    assertEquals(2, cache.size());
+    assertNull(cache.get(unused, readAttributes(unused)));
+  }
+
+  /**
+   * Opens a cache as if at the specified time, keeping unused entries for thirty days.
+   */
+  private static DigestCache openAt(File cacheFile, long openedTime)
+  throws IOException {
+    final DigestCache cache = new DigestCache(cacheFile, 30, openedTime);
+
+    cache.load();
+
+    return cache;
+  }
+
+  private File createArtifact(String name, String contents)
+  throws IOException {
+    final File artifact = this.temporaryFolder.newFile(name);
+
+    Files.write(artifact.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+
+    return artifact;
+  }
+
+  private DigestSet digestsOf(File artifact)
+  throws IOException {
+    return DigestSet.of(
+      HashAlgorithm.SHA1,
+      HashAlgorithm.SHA1.createDigest().digest(Files.readAllBytes(artifact.toPath())));
+  }
+
+  private static BasicFileAttributes readAttributes(File file)
+  throws IOException {
+    return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.digest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link Hex}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class HexTest {
+  @Test
+  public void testEncode() {
+    assertEquals("00ff7f80", Hex.encode(new byte[] { 0x00, (byte)0xFF, 0x7F, (byte)0x80 }));
+    assertEquals("", Hex.encode(new byte[0]));
+  }
+
+  @Test
+  public void testDecodeEitherCase() {
+    assertArrayEquals(new byte[] { (byte)0xAB, (byte)0xCD }, Hex.decode("abCD"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeRejectsOddLength() {
+    Hex.decode("abc");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDecodeRejectsNonHexadecimal() {
+    Hex.decode("zz");
+  }
+}
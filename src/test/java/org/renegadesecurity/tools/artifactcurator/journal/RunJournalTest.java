@@ -0,0 +1,201 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renegadesecurity.tools.artifactcurator.output.ArtifactResult;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RunJournal}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class RunJournalTest {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testResumesRecordedEntries()
+  throws IOException {
+    final File targetFolder = this.temporaryFolder.newFolder("target");
+
+    try (final RunJournal journal = RunJournal.create(targetFolder)) {
+      assertFalse(journal.isResumed());
+
+      journal.record(resultFor("a.jar", "success"), 10);
+      journal.record(resultFor("b.jar", "mismatch"), -1);
+    }
+
+    try (final RunJournal journal = RunJournal.resume(targetFolder)) {
+      final RunJournal.Entry entry = journal.getCompletedEntry("a.jar");
+
+      assertTrue(journal.isResumed());
+      assertNotNull(entry);
+      assertEquals("success", entry.getResult().getStatus());
+      assertEquals(10, entry.getCopiedSize());
+      assertEquals(-1, journal.getCompletedEntry("b.jar").getCopiedSize());
+      assertNull(journal.getCompletedEntry("c.jar"));
+    }
+  }
+
+  @Test
+  public void testWritesRecordsOfEveryThread()
+  throws IOException, InterruptedException {
+    final File          targetFolder  = this.temporaryFolder.newFolder("target");
+    final List<Thread>  threads       = new ArrayList<>();
+
+    try (final RunJournal journal = RunJournal.create(targetFolder)) {
+      for (int threadIndex = 0; threadIndex < 4; ++threadIndex) {
+        final String threadName = "thread-" + threadIndex;
+
+        threads.add(new Thread(() -> {
+          try {
+            for (int recordIndex = 0; recordIndex < 1500; ++recordIndex) {
+              journal.record(resultFor(threadName + "-" + recordIndex + ".jar", "success"), 1);
+            }
+          }
+          catch (IOException ex) {
+            throw new RuntimeException(ex);
+          }
+        }));
+      }
+
+      for (Thread thread : threads) {
+        thread.start();
+      }
+
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    }
+
+    try (final RunJournal journal = RunJournal.resume(targetFolder)) {
+      for (int threadIndex = 0; threadIndex < 4; ++threadIndex) {
+        for (int recordIndex = 0; recordIndex < 1500; ++recordIndex) {
+          assertNotNull(
+            journal.getCompletedEntry("thread-" + threadIndex + "-" + recordIndex + ".jar"));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDropsDamagedTailWhenResuming()
+  throws IOException {
+    final File targetFolder = this.temporaryFolder.newFolder("target");
+
+    try (final RunJournal journal = RunJournal.create(targetFolder)) {
+      journal.record(resultFor("a.jar", "success"), 10);
+      journal.record(resultFor("b.jar", "success"), 20);
+    }
+
+    // Cut the last record short, as a crash in the middle of writing it would.
+    try (final RandomAccessFile file =
+           new RandomAccessFile(new File(targetFolder, RunJournal.FILE_NAME), "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    try (final RunJournal journal = RunJournal.resume(targetFolder)) {
+      assertNotNull(journal.getCompletedEntry("a.jar"));
+      assertNull(journal.getCompletedEntry("b.jar"));
+
+      journal.record(resultFor("c.jar", "success"), 30);
+    }
+
+    // New records go where the damaged one was, so they can be read back.
+    try (final RunJournal journal = RunJournal.resume(targetFolder)) {
+      assertNotNull(journal.getCompletedEntry("a.jar"));
+      assertNull(journal.getCompletedEntry("b.jar"));
+      assertEquals(30, journal.getCompletedEntry("c.jar").getCopiedSize());
+    }
+  }
+
+  @Test
+  public void testDoesNotRecordUnchangedEntriesAgain()
+  throws IOException {
+    final File targetFolder = this.temporaryFolder.newFolder("target"),
+               journalFile  = new File(targetFolder, RunJournal.FILE_NAME);
+    final long journalLength;
+
+    try (final RunJournal journal = RunJournal.create(targetFolder)) {
+      journal.record(resultFor("a.jar", "success"), 10);
+    }
+
+    journalLength = journalFile.length();
+
+    try (final RunJournal journal = RunJournal.resume(targetFolder)) {
+      journal.record(resultFor("a.jar", "success"), 10);
+    }
+
+    assertEquals(journalLength, journalFile.length());
+  }
+
+  @Test
+  public void testCreateReplacesEarlierJournal()
+  throws IOException {
+    final File targetFolder = this.temporaryFolder.newFolder("target");
+
+    try (final RunJournal journal = RunJournal.create(targetFolder)) {
+      journal.record(resultFor("a.jar", "success"), 10);
+    }
+
+    RunJournal.create(targetFolder).close();
+
+    try (final RunJournal journal = RunJournal.resume(targetFolder)) {
+      assertNull(journal.getCompletedEntry("a.jar"));
+    }
+  }
+
+  @Test
+  public void testDeleteRemovesJournal()
+  throws IOException {
+    final File targetFolder = this.temporaryFolder.newFolder("target");
+
+    RunJournal.create(targetFolder).close();
+    RunJournal.delete(targetFolder);
+
+    assertFalse(new File(targetFolder, RunJournal.FILE_NAME).exists());
+
+    // Nothing to delete is not an error.
+    RunJournal.delete(targetFolder);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRejectsRecordsAfterClose()
+  throws IOException {
+    final RunJournal journal = RunJournal.create(this.temporaryFolder.newFolder("target"));
+
+    journal.close();
+    journal.record(resultFor("a.jar", "success"), 10);
+  }
+
+  private static ArtifactResult resultFor(String fileName, String status) {
+    return new ArtifactResult(fileName, "expected", "actual", status, "MIT");
+  }
+}
@@ -0,0 +1,267 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.licensing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link LicenseCache}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class LicenseCacheTest {
+  private static final String RULESET = "ruleset-1";
+
+  /**
+   * The number of entries that the cache writes to its log at once.
+   */
+  private static final int BATCH_SIZE = 64;
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testSaveAndReopen()
+  throws IOException {
+    final File          cacheFile = this.temporaryFolder.newFile("licenses.cache");
+    final LicenseCache  cache     = LicenseCache.open(cacheFile, RULESET, 10);
+
+    cache.put("a", "MIT");
+    cache.put("b", "GPLv3");
+    cache.save();
+
+    final LicenseCache reopened = LicenseCache.open(cacheFile, RULESET, 10);
+
+    assertEquals(2, reopened.size());
+    assertEquals(0, reopened.getCorruptRecordCount());
+    assertEquals("MIT", reopened.get("a"));
+    assertEquals("GPLv3", reopened.get("b"));
+  }
+
+  @Test
+  public void testWritesFullBatchesBeforeSave()
+  throws IOException {
+    final File          cacheFile = this.temporaryFolder.newFile("licenses.cache");
+    final LicenseCache  cache     = LicenseCache.open(cacheFile, RULESET, 1000);
+
+    for (int entry = 0; entry <= BATCH_SIZE; ++entry) {
+      cache.put("key-" + entry, "MIT");
+    }
+
+    // Only the last, partial batch is still in memory.
+    final LicenseCache reopened = LicenseCache.open(cacheFile, RULESET, 1000);
+
+    assertEquals(BATCH_SIZE, reopened.size());
+    assertNull(reopened.get("key-" + BATCH_SIZE));
+
+    cache.save();
+
+    assertEquals(BATCH_SIZE + 1, LicenseCache.open(cacheFile, RULESET, 1000).size());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed()
+  throws IOException {
+    final LicenseCache cache =
+      LicenseCache.open(this.temporaryFolder.newFile("licenses.cache"), RULESET, 2);
+
+    cache.put("a", "MIT");
+    cache.put("b", "MIT");
+    cache.get("a");
+    cache.put("c", "MIT");
+
+    assertEquals(2, cache.size());
+    assertEquals("MIT", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals("MIT", cache.get("c"));
+  }
+
+  @Test
+  public void testCompactsInOrderOfUse()
+  throws IOException {
+    final File          cacheFile = this.temporaryFolder.newFile("licenses.cache");
+    final LicenseCache  cache     = LicenseCache.open(cacheFile, RULESET, 2);
+
+    // Five records for two live entries, so saving compacts the log.
+    cache.put("a", "MIT");
+    cache.put("b", "MIT");
+    cache.put("c", "MIT");
+    cache.put("d", "BSD");
+    cache.put("e", "MIT");
+    cache.get("d");
+    cache.save();
+
+    // Loaded from least to most recently used, so a smaller cache keeps the most recent.
+    final LicenseCache reopened = LicenseCache.open(cacheFile, RULESET, 1);
+
+    assertEquals(1, reopened.size());
+    assertEquals("BSD", reopened.get("d"));
+  }
+
+  @Test
+  public void testDiscardsRecordWithBadChecksum()
+  throws IOException {
+    final File          cacheFile = this.temporaryFolder.newFile("licenses.cache");
+    final LicenseCache  cache     = LicenseCache.open(cacheFile, RULESET, 10);
+
+    cache.put("a", "MIT");
+    cache.put("b", "GPLv3");
+    cache.save();
+
+    // The last four bytes of the file are the CRC of the last record.
+    try (final RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+      final int lastByte;
+
+      file.seek(file.length() - 1);
+      lastByte = file.read();
+
+      file.seek(file.length() - 1);
+      file.write(lastByte ^ 0xFF);
+    }
+
+    final LicenseCache reopened = LicenseCache.open(cacheFile, RULESET, 10);
+
+    assertEquals(1, reopened.size());
+    assertEquals(1, reopened.getCorruptRecordCount());
+    assertEquals("MIT", reopened.get("a"));
+  }
+
+  @Test
+  public void testRewritesLogAfterTruncatedRecord()
+  throws IOException {
+    final File          cacheFile = this.temporaryFolder.newFile("licenses.cache");
+    final LicenseCache  cache     = LicenseCache.open(cacheFile, RULESET, 10);
+
+    cache.put("a", "MIT");
+    cache.put("b", "GPLv3");
+    cache.save();
+
+    try (final RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    final LicenseCache reopened = LicenseCache.open(cacheFile, RULESET, 10);
+
+    assertEquals(1, reopened.size());
+
+    // Appending after the partial record would hide this entry from the next load.
+    reopened.put("c", "BSD");
+    reopened.save();
+
+    final LicenseCache again = LicenseCache.open(cacheFile, RULESET, 10);
+
+    assertEquals(2, again.size());
+    assertEquals(0, again.getCorruptRecordCount());
+    assertEquals("BSD", again.get("c"));
+  }
+
+  @Test
+  public void testIgnoresOtherRuleset()
+  throws IOException {
+    final File          cacheFile = this.temporaryFolder.newFile("licenses.cache");
+    final LicenseCache  cache     = LicenseCache.open(cacheFile, RULESET, 10);
+
+    cache.put("a", "MIT");
+    cache.save();
+
+    final LicenseCache other = LicenseCache.open(cacheFile, "ruleset-2", 10);
+
+    assertEquals(0, other.size());
+
+    other.put("b", "BSD");
+    other.save();
+
+    assertEquals(0, LicenseCache.open(cacheFile, RULESET, 10).size());
+    assertEquals(1, LicenseCache.open(cacheFile, "ruleset-2", 10).size());
+  }
+
+  @Test
+  public void testIgnoresFileOfAnotherFormat()
+  throws IOException {
+    final File cacheFile = this.temporaryFolder.newFile("licenses.cache");
+
+    Files.write(cacheFile.toPath(), "not a license cache".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(0, LicenseCache.open(cacheFile, RULESET, 10).size());
+  }
+
+  @Test
+  public void testKeyCoversPomChain()
+  throws IOException {
+    final File            repositoryRoot  = this.temporaryFolder.newFolder("repository"),
+                          versionFolder   = new File(repositoryRoot, "org/example/lib/1.0"),
+                          parentPom       =
+                            new File(repositoryRoot, "org/example/parent/1/parent-1.pom"),
+                          jarFile         = new File(versionFolder, "lib-1.0.jar"),
+                          jarPom          = new File(versionFolder, "lib-1.0.pom");
+    final DigestSet       jarDigests      = DigestSet.of(HashAlgorithm.SHA1, new byte[20]);
+    final LicenseSniffer  sniffer         =
+                            new BinaryJarLicenseSniffer(
+                              jarFile,
+                              JarScanPolicy.EXHAUSTIVE,
+                              new PomLicenseResolver(repositoryRoot));
+    final String          firstKey;
+
+    writePom(
+      parentPom,
+      "<licenses><license><name>The Apache License, Version 2.0</name></license></licenses>");
+    writePom(
+      jarPom,
+      "<parent><groupId>org.example</groupId><artifactId>parent</artifactId>"
+        + "<version>1</version></parent>");
+    Files.write(jarFile.toPath(), new byte[0]);
+
+    firstKey = LicenseCache.keyOf(sniffer, jarDigests);
+
+    assertEquals(firstKey, LicenseCache.keyOf(sniffer, jarDigests));
+    assertNotEquals(
+      LicenseCache.keyOf(new BinaryJarLicenseSniffer(jarFile), jarDigests),
+      firstKey);
+
+    // A license that only changed in the parent must not be served from the cache.
+    writePom(parentPom, "<licenses><license><name>MIT License</name></license></licenses>");
+
+    assertNotEquals(
+      firstKey,
+      LicenseCache.keyOf(
+        new BinaryJarLicenseSniffer(
+          jarFile,
+          JarScanPolicy.EXHAUSTIVE,
+          new PomLicenseResolver(repositoryRoot)),
+        jarDigests));
+  }
+
+  private static void writePom(File pomFile, String body)
+  throws IOException {
+    Files.createDirectories(pomFile.getParentFile().toPath());
+    Files.write(
+      pomFile.toPath(),
+      ("<project>" + body + "</project>").getBytes(StandardCharsets.UTF_8));
+  }
+}
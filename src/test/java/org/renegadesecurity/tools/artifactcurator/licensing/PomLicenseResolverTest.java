@@ -0,0 +1,202 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.licensing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link PomLicenseResolver}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class PomLicenseResolverTest {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File repositoryRoot;
+  private PomLicenseResolver resolver;
+
+  @Before
+  public void createRepository()
+  throws IOException {
+    this.repositoryRoot = this.temporaryFolder.newFolder("repository");
+    this.resolver       = new PomLicenseResolver(this.repositoryRoot);
+  }
+
+  @Test
+  public void testReadsOwnLicenses()
+  throws IOException {
+    final File pomFile =
+      this.writePom("org.lib", "lib", "1.0", null, "Apache License, Version 2.0", "MIT");
+
+    assertEquals("APACHEv2|MIT", this.resolver.resolveLicense(pomFile));
+    assertEquals(0, this.resolver.getCachedParentCount());
+  }
+
+  @Test
+  public void testFollowsParentChain()
+  throws IOException {
+    final File pomFile;
+
+    this.writePom("org.root", "root", "3", null, "Eclipse Public License - v 1.0");
+    this.writePom("org.base", "base", "2", "org.root:root:3");
+    pomFile = this.writePom("org.lib", "lib", "1.0", "org.base:base:2");
+
+    assertEquals("EPLv1.0", this.resolver.resolveLicense(pomFile));
+    assertEquals(2, this.resolver.getCachedParentCount());
+  }
+
+  @Test
+  public void testMissingParentHasNoLicense()
+  throws IOException {
+    final File pomFile = this.writePom("org.lib", "lib", "1.0", "org.missing:missing:1");
+
+    assertNull(this.resolver.resolveLicense(pomFile));
+  }
+
+  @Test
+  public void testStopsAtMaxParentDepth()
+  throws IOException {
+    final int parentCount = PomLicenseResolver.MAX_PARENT_DEPTH + 1;
+    final File pomFile;
+
+    this.writePom("org.chain", "pom" + parentCount, "1", null, "MIT");
+
+    for (int depth = parentCount - 1; depth > 0; --depth) {
+      this.writePom("org.chain", "pom" + depth, "1", "org.chain:pom" + (depth + 1) + ":1");
+    }
+
+    pomFile = this.writePom("org.lib", "lib", "1.0", "org.chain:pom1:1");
+
+    assertNull(this.resolver.resolveLicense(pomFile));
+    assertEquals(PomLicenseResolver.MAX_PARENT_DEPTH, this.resolver.getCachedParentCount());
+  }
+
+  @Test
+  public void testStopsAtParentCycle()
+  throws IOException {
+    final File pomFile = this.writePom("org.lib", "lib", "1.0", "org.lib:lib:1.0");
+
+    assertNull(this.resolver.resolveLicense(pomFile));
+  }
+
+  @Test
+  public void testDoesNotFollowParentWithProperty()
+  throws IOException {
+    final File pomFile;
+
+    // Even a parent at the literal path is not followed, since the property could mean anything.
+    this.writePom("org.base", "base", "${base.version}", null, "MIT");
+    pomFile = this.writePom("org.lib", "lib", "1.0", "org.base:base:${base.version}");
+
+    assertNull(this.resolver.resolveLicense(pomFile));
+  }
+
+  @Test
+  public void testNormalizesLicenseNames()
+  throws IOException {
+    final File pomFile =
+      this.writePom(
+        "org.lib", "lib", "1.0", null,
+        "The Apache Software License, Version 2.0",
+        "GNU Lesser General Public License, Version 2.1",
+        "Eclipse Public License v2.0",
+        "Some License, Version 1 | or later");
+
+    assertEquals(
+      "APACHEv2|EPLv2.0|LGPLv2.1|Some License Version 1 or later",
+      this.resolver.resolveLicense(pomFile));
+  }
+
+  @Test
+  public void testDigestCoversParents()
+  throws IOException {
+    final File    pomFile;
+    final String  firstDigest;
+
+    this.writePom("org.base", "base", "2", null, "MIT");
+    pomFile     = this.writePom("org.lib", "lib", "1.0", "org.base:base:2");
+    firstDigest = this.resolver.digestChainOf(pomFile);
+
+    assertEquals(firstDigest, this.resolver.resolveChain(pomFile).getDigest());
+
+    this.writePom("org.base", "base", "2", null, "GPL-3.0");
+
+    // Parents are cached for the life of a resolver, as for a run.
+    assertNotEquals(
+      firstDigest, new PomLicenseResolver(this.repositoryRoot).digestChainOf(pomFile));
+  }
+
+  /**
+   * Writes a POM to its place in the repository.
+   *
+   * @param parentCoordinates
+   *   The coordinates of the parent, as {@code groupId:artifactId:version}; or {@code null}.
+   */
+  private File writePom(String groupId, String artifactId, String version,
+                        String parentCoordinates, String... licenseNames)
+  throws IOException {
+    final StringBuilder pom     = new StringBuilder("<project>\n");
+    final File          pomFile =
+      new File(
+        this.repositoryRoot,
+        String.join(
+          File.separator,
+          groupId.replace('.', File.separatorChar), artifactId, version,
+          artifactId + "-" + version + ".pom"));
+
+    if (parentCoordinates != null) {
+      final String[] parent = parentCoordinates.split(":");
+
+      pom
+        .append("  <parent>\n")
+        .append("    <groupId>").append(parent[0]).append("</groupId>\n")
+        .append("    <artifactId>").append(parent[1]).append("</artifactId>\n")
+        .append("    <version>").append(parent[2]).append("</version>\n")
+        .append("  </parent>\n");
+    }
+
+    pom.append("  <artifactId>").append(artifactId).append("</artifactId>\n");
+
+    if (licenseNames.length != 0) {
+      pom.append("  <licenses>\n");
+
+      for (String licenseName : licenseNames) {
+        pom.append("    <license><name>").append(licenseName).append("</name></license>\n");
+      }
+
+      pom.append("  </licenses>\n");
+    }
+
+    pom.append("</project>\n");
+
+    pomFile.getParentFile().mkdirs();
+    Files.write(pomFile.toPath(), pom.toString().getBytes(StandardCharsets.UTF_8));
+
+    return pomFile;
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.util.EnumSet;
+import java.util.Random;
+import org.junit.Test;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ArtifactHashIndex}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ArtifactHashIndexTest {
+  @Test
+  public void testAddAndLookUpByPath() {
+    final ArtifactHashIndex index = new ArtifactHashIndex();
+
+    assertEquals(SeenPathSet.Outcome.ADDED, index.add("org/lib/1.0/lib-1.0.jar", sha1Of(1), 42));
+    assertEquals(SeenPathSet.Outcome.ADDED, index.add("top.jar", sha1Of(2)));
+    assertEquals(SeenPathSet.Outcome.DUPLICATE, index.add("org/lib/1.0/lib-1.0.jar", sha1Of(1)));
+    assertEquals(SeenPathSet.Outcome.CONFLICT, index.add("org/lib/1.0/lib-1.0.jar", sha1Of(3)));
+
+    assertEquals(2, index.size());
+    assertEquals(0, index.indexOf("org/lib/1.0/lib-1.0.jar"));
+    assertEquals(1, index.indexOf("top.jar"));
+    assertEquals(-1, index.indexOf("org/lib/1.0/lib-1.0.pom"));
+    assertEquals(-1, index.indexOf("org/other/lib-1.0.jar"));
+
+    assertEquals("org/lib/1.0/lib-1.0.jar", index.getPath(0));
+    assertEquals("top.jar", index.getPath(1));
+    assertEquals("", index.getDirectory(index.getDirectoryIndex(1)));
+    assertEquals(sha1Of(1), index.getDigests(0));
+    assertEquals(42, index.getExpectedSize(0));
+    assertEquals(ManifestEntry.UNKNOWN_SIZE, index.getExpectedSize(1));
+  }
+
+  @Test
+  public void testKeepsEveryEntryWhenGrowing() {
+    final ArtifactHashIndex index     = new ArtifactHashIndex();
+    final int               rowCount  = 20000;
+
+    for (int row = 0; row < rowCount; ++row) {
+      index.add(pathOf(row), sha1Of(row));
+    }
+
+    index.trimToSize();
+    index.indexHashes();
+
+    assertEquals(rowCount, index.size());
+    assertEquals(rowCount / 4, index.getDirectoryCount());
+
+    for (int row = 0; row < rowCount; ++row) {
+      assertEquals(row, index.indexOf(pathOf(row)));
+      assertEquals(pathOf(row), index.getPath(row));
+      assertArrayEquals(new int[] { row }, index.indexesOfHash(sha1Of(row)));
+    }
+  }
+
+  @Test
+  public void testIndexesOfHashFindsEveryMatchInManifestOrder() {
+    final ArtifactHashIndex index = new ArtifactHashIndex();
+
+    // Enough entries sharing one hash for the probe to collide and the result to grow repeatedly.
+    for (int row = 0; row < 100; ++row) {
+      index.add(pathOf(row), sha1Of((row % 3 == 0) ? 0 : row));
+    }
+
+    index.indexHashes();
+
+    final int[] expectedEntries = new int[34];
+
+    for (int match = 0; match < expectedEntries.length; ++match) {
+      expectedEntries[match] = match * 3;
+    }
+
+    assertArrayEquals(expectedEntries, index.indexesOfHash(sha1Of(0)));
+    assertArrayEquals(new int[0], index.indexesOfHash(sha1Of(1000)));
+  }
+
+  @Test
+  public void testIndexesOfHashComparesEveryAlgorithm() {
+    final ArtifactHashIndex index   =
+      new ArtifactHashIndex(EnumSet.of(HashAlgorithm.SHA1, HashAlgorithm.SHA256));
+    final DigestSet         first   = sha1Of(1).merge(sha256Of(1)),
+                            second  = sha1Of(1).merge(sha256Of(2));
+
+    index.add("a.jar", first);
+    index.add("b.jar", second);
+    index.indexHashes();
+
+    assertArrayEquals(new int[] { 0 }, index.indexesOfHash(first));
+    assertArrayEquals(new int[] { 1 }, index.indexesOfHash(second));
+    assertArrayEquals(new int[0], index.indexesOfHash(sha1Of(1)));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testIndexesOfHashRequiresIndexHashes() {
+    final ArtifactHashIndex index = new ArtifactHashIndex();
+
+    index.add("a.jar", sha1Of(1));
+    index.indexesOfHash(sha1Of(1));
+  }
+
+  private static String pathOf(int row) {
+    return String.format("org/example/artifact%d/1.0/artifact%d-1.0-%d.jar", row / 4, row / 4, row);
+  }
+
+  private static DigestSet sha1Of(int seed) {
+    return DigestSet.of(HashAlgorithm.SHA1, digestOf(HashAlgorithm.SHA1, seed));
+  }
+
+  private static DigestSet sha256Of(int seed) {
+    return DigestSet.of(HashAlgorithm.SHA256, digestOf(HashAlgorithm.SHA256, seed));
+  }
+
+  private static byte[] digestOf(HashAlgorithm algorithm, int seed) {
+    final byte[] digest = new byte[algorithm.getDigestLength()];
+
+    new Random(seed).nextBytes(digest);
+
+    return digest;
+  }
+}
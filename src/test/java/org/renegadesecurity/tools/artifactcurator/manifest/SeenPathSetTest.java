@@ -0,0 +1,87 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SeenPathSet}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class SeenPathSetTest {
+  @Test
+  public void testAddReportsDuplicatesAndConflicts() {
+    final SeenPathSet seenPaths = new SeenPathSet();
+
+    assertEquals(SeenPathSet.Outcome.ADDED, seenPaths.add("org/lib/1.0/lib-1.0.jar", "abc"));
+    assertEquals(SeenPathSet.Outcome.DUPLICATE, seenPaths.add("org/lib/1.0/lib-1.0.jar", "abc"));
+    assertEquals(SeenPathSet.Outcome.CONFLICT, seenPaths.add("org/lib/1.0/lib-1.0.jar", "def"));
+    assertEquals(SeenPathSet.Outcome.ADDED, seenPaths.add("org/lib/1.0/lib-1.0.pom", "abc"));
+
+    assertEquals(2, seenPaths.size());
+  }
+
+  @Test
+  public void testContains() {
+    final SeenPathSet seenPaths = new SeenPathSet();
+
+    seenPaths.add("org/lib/1.0/lib-1.0.jar", "abc");
+
+    assertTrue(seenPaths.contains("org/lib/1.0/lib-1.0.jar"));
+    assertFalse(seenPaths.contains("org/lib/1.0/lib-1.0.pom"));
+  }
+
+  @Test
+  public void testKeepsEveryPathWhenGrowing() {
+    final SeenPathSet seenPaths = new SeenPathSet();
+    final int         rowCount  = 100000;
+
+    for (int row = 0; row < rowCount; ++row) {
+      assertEquals(SeenPathSet.Outcome.ADDED, seenPaths.add(pathOf(row), hashOf(row)));
+    }
+
+    assertEquals(rowCount, seenPaths.size());
+
+    for (int row = 0; row < rowCount; ++row) {
+      assertTrue(seenPaths.contains(pathOf(row)));
+      assertEquals(SeenPathSet.Outcome.DUPLICATE, seenPaths.add(pathOf(row), hashOf(row)));
+      assertEquals(SeenPathSet.Outcome.CONFLICT, seenPaths.add(pathOf(row), hashOf(row + 1)));
+    }
+
+    assertFalse(seenPaths.contains(pathOf(rowCount)));
+    assertEquals(rowCount, seenPaths.size());
+  }
+
+  @Test
+  public void testFingerprintIsNeverEmpty() {
+    assertNotEquals(0L, SeenPathSet.fingerprint(""));
+    assertNotEquals(SeenPathSet.fingerprint("ab"), SeenPathSet.fingerprint("ba"));
+  }
+
+  private static String pathOf(int row) {
+    return String.format("org/example/artifact-%d/1.0/artifact-%d-1.0.jar", row, row);
+  }
+
+  private static String hashOf(int row) {
+    return Integer.toHexString(row);
+  }
+}
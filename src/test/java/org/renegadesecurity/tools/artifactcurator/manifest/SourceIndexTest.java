@@ -0,0 +1,149 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.manifest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.renegadesecurity.tools.artifactcurator.digest.DigestSet;
+import org.renegadesecurity.tools.artifactcurator.digest.HashAlgorithm;
+import org.renegadesecurity.tools.artifactcurator.execution.WorkerPools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for {@link SourceIndex}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class SourceIndexTest {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testAttributesMatchTheFileSystem()
+  throws IOException, InterruptedException {
+    final File              sourceFolder  = this.temporaryFolder.newFolder("source");
+    final ArtifactHashIndex artifacts     = new ArtifactHashIndex();
+
+    writeFile(sourceFolder, "org/lib/1.0/lib-1.0.jar", 42);
+    writeFile(sourceFolder, "org/lib/1.0/lib-1.0.pom", 7);
+    writeFile(sourceFolder, "top.jar", 0);
+
+    artifacts.add("org/lib/1.0/lib-1.0.jar", sha1Of(1));
+    artifacts.add("org/lib/1.0/lib-1.0.pom", sha1Of(2));
+    artifacts.add("top.jar", sha1Of(3));
+
+    final SourceIndex index = buildIndex(sourceFolder, artifacts);
+
+    for (int entry = 0; entry < artifacts.size(); ++entry) {
+      final BasicFileAttributes expected =
+        Files.readAttributes(
+          new File(sourceFolder, artifacts.getPath(entry)).toPath(), BasicFileAttributes.class);
+      final BasicFileAttributes actual = index.getAttributes(entry);
+
+      assertNotNull(actual);
+      assertTrue(actual.isRegularFile());
+      assertEquals(expected.size(), actual.size());
+      assertEquals(expected.lastModifiedTime(), actual.lastModifiedTime());
+      assertEquals(Objects.toString(expected.fileKey(), ""),
+                   Objects.toString(actual.fileKey(), ""));
+    }
+  }
+
+  @Test
+  public void testMissingArtifactsHaveNoAttributes()
+  throws IOException, InterruptedException {
+    final File              sourceFolder  = this.temporaryFolder.newFolder("source");
+    final ArtifactHashIndex artifacts     = new ArtifactHashIndex();
+
+    writeFile(sourceFolder, "org/lib/1.0/lib-1.0.jar", 42);
+    new File(sourceFolder, "org/lib/1.0/folder.jar").mkdirs();
+
+    artifacts.add("org/lib/1.0/lib-1.0.jar", sha1Of(1));
+    artifacts.add("org/lib/1.0/lib-1.0.pom", sha1Of(2));
+    artifacts.add("org/lib/1.0/folder.jar", sha1Of(3));
+    artifacts.add("org/missing/1.0/missing-1.0.jar", sha1Of(4));
+
+    final SourceIndex index = buildIndex(sourceFolder, artifacts);
+
+    assertNotNull(index.getAttributes(0));
+    assertNull(index.getAttributes(1));
+    assertNull(index.getAttributes(2));
+    assertNull(index.getAttributes(3));
+
+    assertEquals(SourceIndex.UNKNOWN_INODE, index.getInode(1));
+    assertEquals(SourceIndex.UNKNOWN_INODE, index.getInode(3));
+  }
+
+  @Test
+  public void testInodesMatchTheFileSystem()
+  throws IOException, InterruptedException {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("unix"));
+
+    final File              sourceFolder  = this.temporaryFolder.newFolder("source");
+    final ArtifactHashIndex artifacts     = new ArtifactHashIndex();
+
+    for (int row = 0; row < 40; ++row) {
+      final String path = String.format("org/lib%d/1.0/lib%d-1.0-%d.jar", row / 2, row / 2, row);
+
+      writeFile(sourceFolder, path, row);
+      artifacts.add(path, sha1Of(row));
+    }
+
+    final SourceIndex index = buildIndex(sourceFolder, artifacts);
+
+    for (int entry = 0; entry < artifacts.size(); ++entry) {
+      final Object inode =
+        Files.getAttribute(new File(sourceFolder, artifacts.getPath(entry)).toPath(), "unix:ino");
+
+      assertEquals(((Long)inode).longValue(), index.getInode(entry));
+    }
+  }
+
+  private static SourceIndex buildIndex(File sourceFolder, ArtifactHashIndex artifacts)
+  throws InterruptedException {
+    try (final WorkerPools workerPools = new WorkerPools(2, 1, false)) {
+      return SourceIndex.build(sourceFolder, artifacts, workerPools);
+    }
+  }
+
+  private static void writeFile(File sourceFolder, String path, int size)
+  throws IOException {
+    final File file = new File(sourceFolder, path);
+
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), new byte[size]);
+  }
+
+  private static DigestSet sha1Of(int seed) {
+    final byte[] digest = new byte[HashAlgorithm.SHA1.getDigestLength()];
+
+    digest[0] = (byte)seed;
+
+    return DigestSet.of(HashAlgorithm.SHA1, digest);
+  }
+}
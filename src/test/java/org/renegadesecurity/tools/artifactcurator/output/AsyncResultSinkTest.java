@@ -0,0 +1,174 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link AsyncResultSink}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class AsyncResultSinkTest {
+  @Test
+  public void testWritesHeaderAndResults()
+  throws IOException {
+    final ByteArrayOutputStream output  = new ByteArrayOutputStream();
+    final AsyncResultSink       sink    =
+                                  new AsyncResultSink(
+                                    Channels.newChannel(output), ResultFormat.CSV, true);
+
+    sink.add(sink.reserve(1), resultFor("a.jar"));
+    sink.close();
+
+    assertEquals(
+      "Filename,Expected Hash,Actual Hash,Status,License\n"
+        + "a.jar,expected,actual,success,MIT\n",
+      new String(output.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testWritesInOrderOfSequence()
+  throws IOException {
+    final ByteArrayOutputStream output  = new ByteArrayOutputStream();
+    final AsyncResultSink       sink    = createSink(output, true);
+    final long                  first   = sink.reserve(3);
+
+    sink.add(first + 2, resultFor("c.jar"));
+    sink.add(first + 1, resultFor("b.jar"));
+    sink.add(first, resultFor("a.jar"));
+    sink.close();
+
+    assertEquals(Arrays.asList("a.jar", "b.jar", "c.jar"), fileNamesIn(output));
+  }
+
+  @Test
+  public void testSkippedSequencesDoNotHoldBackLaterResults()
+  throws IOException {
+    final ByteArrayOutputStream output  = new ByteArrayOutputStream();
+    final AsyncResultSink       sink    = createSink(output, true);
+    final long                  first   = sink.reserve(4);
+
+    sink.add(first + 3, resultFor("d.jar"));
+    sink.skip(first + 1, 2);
+    sink.add(first, resultFor("a.jar"));
+
+    assertEquals(Arrays.asList("a.jar", "d.jar"), fileNamesIn(output, sink));
+  }
+
+  @Test
+  public void testSkipAfterAddKeepsResult()
+  throws IOException {
+    final ByteArrayOutputStream output  = new ByteArrayOutputStream();
+    final AsyncResultSink       sink    = createSink(output, true);
+    final long                  first   = sink.reserve(3);
+
+    // The first result is written straight away; the third is held back for the second.
+    sink.add(first, resultFor("a.jar"));
+    sink.skip(first, 1);
+    sink.add(first + 2, resultFor("c.jar"));
+    sink.skip(first + 2, 1);
+    sink.add(first + 1, resultFor("b.jar"));
+
+    assertEquals(Arrays.asList("a.jar", "b.jar", "c.jar"), fileNamesIn(output, sink));
+  }
+
+  @Test
+  public void testWritesResultsOfEveryThread()
+  throws IOException, InterruptedException {
+    final ByteArrayOutputStream output        = new ByteArrayOutputStream();
+    final AsyncResultSink       sink          = createSink(output, false);
+    final List<Thread>          threads       = new ArrayList<>();
+    final List<String>          expectedNames = new ArrayList<>();
+    final List<String>          actualNames;
+
+    for (int threadIndex = 0; threadIndex < 4; ++threadIndex) {
+      final String threadName = "thread-" + threadIndex;
+
+      for (int resultIndex = 0; resultIndex < 1000; ++resultIndex) {
+        expectedNames.add(threadName + "-" + resultIndex + ".jar");
+      }
+
+      threads.add(new Thread(() -> {
+        for (int resultIndex = 0; resultIndex < 1000; ++resultIndex) {
+          sink.add(sink.reserve(1), resultFor(threadName + "-" + resultIndex + ".jar"));
+        }
+      }));
+    }
+
+    for (Thread thread : threads) {
+      thread.start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    actualNames = fileNamesIn(output, sink);
+
+    Collections.sort(expectedNames);
+    Collections.sort(actualNames);
+
+    assertEquals(expectedNames, actualNames);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRejectsResultsAfterClose()
+  throws IOException {
+    final AsyncResultSink sink = createSink(new ByteArrayOutputStream(), true);
+
+    sink.close();
+    sink.add(sink.reserve(1), resultFor("a.jar"));
+  }
+
+  private static AsyncResultSink createSink(ByteArrayOutputStream output, boolean ordered) {
+    return new AsyncResultSink(Channels.newChannel(output), ResultFormat.JSONL, ordered);
+  }
+
+  private static ArtifactResult resultFor(String fileName) {
+    return new ArtifactResult(fileName, "expected", "actual", "success", "MIT");
+  }
+
+  private static List<String> fileNamesIn(ByteArrayOutputStream output, AsyncResultSink sink)
+  throws IOException {
+    sink.close();
+
+    return fileNamesIn(output);
+  }
+
+  private static List<String> fileNamesIn(ByteArrayOutputStream output) {
+    final List<String> fileNames = new ArrayList<>();
+
+    for (String line : new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+      if (!line.isEmpty()) {
+        // e.g. {"fileName":"a.jar",...}
+        fileNames.add(line.substring(13, line.indexOf('"', 13)));
+      }
+    }
+
+    return fileNames;
+  }
+}
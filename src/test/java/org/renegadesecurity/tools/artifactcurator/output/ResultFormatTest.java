@@ -0,0 +1,88 @@
+/**
+ * Maven Artifact Curation Tool
+ * Copyright (C) 2017 Kortanul
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the
+ * GNU General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with this program. If
+ * not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renegadesecurity.tools.artifactcurator.output;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ResultFormat}.
+ *
+ * @author Kortanul (kortanul@protonmail.com)
+ */
+public class ResultFormatTest {
+  @Test
+  public void testFormatsCsvAsIs() {
+    final StringBuilder line = new StringBuilder();
+
+    ResultFormat.CSV.format(
+      new ArtifactResult("a \"b\".jar", "expected", "actual", "success", "MIT"), line);
+
+    assertEquals("a \"b\".jar,expected,actual,success,MIT\n", line.toString());
+  }
+
+  @Test
+  public void testFormatsJsonl() {
+    final StringBuilder line = new StringBuilder();
+
+    ResultFormat.JSONL.format(
+      new ArtifactResult("a.jar", "expected", "actual", "success", "MIT"), line);
+
+    assertEquals(
+      "{\"fileName\":\"a.jar\",\"expectedHash\":\"expected\",\"actualHash\":\"actual\","
+        + "\"status\":\"success\",\"license\":\"MIT\"}\n",
+      line.toString());
+    assertEquals("", ResultFormat.JSONL.getHeader());
+  }
+
+  @Test
+  public void testEscapesJsonlStrings() {
+    final StringBuilder line = new StringBuilder();
+
+    ResultFormat.JSONL.format(
+      new ArtifactResult(
+        "a \"b\"\\c\n\r\t\u0001\u00e9.jar", "expected", "actual", "success", "MIT"),
+      line);
+
+    assertEquals(
+      "{\"fileName\":\"a \\\"b\\\"\\\\c\\n\\r\\t\\u0001\u00e9.jar\",",
+      line.substring(0, line.indexOf(",") + 1));
+  }
+
+  @Test
+  public void testWritesMissingJsonlValuesAsNull() {
+    final StringBuilder line = new StringBuilder();
+
+    ResultFormat.JSONL.format(new ArtifactResult("a.jar", null, "actual", "success", null), line);
+
+    assertEquals(
+      "{\"fileName\":\"a.jar\",\"expectedHash\":null,\"actualHash\":\"actual\","
+        + "\"status\":\"success\",\"license\":null}\n",
+      line.toString());
+  }
+
+  @Test
+  public void testLooksUpFormatsByName() {
+    assertEquals(ResultFormat.CSV, ResultFormat.forName("csv"));
+    assertEquals(ResultFormat.JSONL, ResultFormat.forName("jsonl"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsUnknownFormat() {
+    ResultFormat.forName("xml");
+  }
+}